@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * Synthetic datasets for the benchmarks. Everything is generated from a
+ * fixed seed, so each run (and each machine) sees exactly the same data.
+ * Blank nodes are avoided so that parsed data compares equal to the
+ * original.
+ */
+public class BenchmarkData {
+
+    public static final String NS = "http://example.org/bench#";
+
+    /** Seed for all the generated data */
+    public static final long SEED = 20120101L;
+
+    /** Number of distinct predicates in a data graph */
+    public static final int PREDICATES = 20;
+
+    public static Node resource(String prefix, int i) {
+        return Node.createURI(NS + prefix + i);
+    }
+
+    public static Node predicate(int i) {
+        return resource("p", i);
+    }
+
+    /**
+     * Answer <code>size</code> triples about <code>size / 10</code> subjects,
+     * using PREDICATES predicates. About a third of the objects are
+     * literals (plain, language tagged and typed), the rest link to other
+     * subjects.
+     */
+    public static Triple[] triples(int size) {
+        Random random = new Random(SEED);
+        int subjects = Math.max(1, size / 10);
+        Triple[] triples = new Triple[size];
+        for (int i = 0; i < size; i++) {
+            Node s = resource("s", random.nextInt(subjects));
+            Node p = predicate(random.nextInt(PREDICATES));
+            Node o;
+            switch (random.nextInt(6)) {
+            case 0:
+                o = Node.createLiteral("value " + i);
+                break;
+            case 1:
+                o = Node.createLiteral("text " + i, "en", false);
+                break;
+            case 2:
+                o = Node.createLiteral(Integer.toString(i), null, XSDDatatype.XSDint);
+                break;
+            default:
+                o = resource("s", random.nextInt(subjects));
+            }
+            triples[i] = Triple.create(s, p, o);
+        }
+        return triples;
+    }
+
+    /**
+     * Answer a data model of about <code>size</code> triples (duplicates
+     * generated by chance are only stored once).
+     */
+    public static Model dataModel(int size) {
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("b", NS);
+        Graph graph = model.getGraph();
+        Triple[] triples = triples(size);
+        for (int i = 0; i < triples.length; i++) {
+            graph.add(triples[i]);
+        }
+        return model;
+    }
+
+    /**
+     * Answer a generated ontology: a class hierarchy with
+     * <code>classes</code> classes in a random tree with some extra
+     * superclass links, a property hierarchy with domains and ranges, and
+     * <code>instances</code> typed individuals linked by those properties.
+     */
+    public static Model ontology(int classes, int instances) {
+        Random random = new Random(SEED);
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("b", NS);
+        Resource[] cls = new Resource[classes];
+        for (int i = 0; i < classes; i++) {
+            cls[i] = model.createResource(NS + "C" + i, RDFS.Class);
+            if (i > 0) {
+                cls[i].addProperty(RDFS.subClassOf, cls[random.nextInt(i)]);
+                if (random.nextInt(10) == 0) {
+                    cls[i].addProperty(RDFS.subClassOf, cls[random.nextInt(i)]);
+                }
+            }
+        }
+        int properties = Math.max(1, classes / 10);
+        Property[] props = new Property[properties];
+        for (int i = 0; i < properties; i++) {
+            props[i] = model.createProperty(NS + "p" + i);
+            props[i].addProperty(RDF.type, RDF.Property);
+            props[i].addProperty(RDFS.domain, cls[random.nextInt(classes)]);
+            props[i].addProperty(RDFS.range, cls[random.nextInt(classes)]);
+            if (i > 0) {
+                props[i].addProperty(RDFS.subPropertyOf, props[random.nextInt(i)]);
+            }
+        }
+        Resource[] individuals = new Resource[instances];
+        for (int i = 0; i < instances; i++) {
+            individuals[i] = model.createResource(NS + "i" + i, cls[random.nextInt(classes)]);
+        }
+        for (int i = 0; i < instances; i++) {
+            individuals[i].addProperty(props[random.nextInt(properties)], individuals[random.nextInt(instances)]);
+        }
+        return model;
+    }
+
+    /**
+     * Answer the serialisation of <code>model</code> in the given language.
+     */
+    public static byte[] serialize(Model model, String lang) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.write(out, lang, NS);
+        return out.toByteArray();
+    }
+}
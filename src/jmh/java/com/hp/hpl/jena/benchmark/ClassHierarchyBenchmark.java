@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.ontology.*;
+import com.hp.hpl.jena.ontology.impl.OntModelImpl;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+
+/**
+ * Class hierarchy queries on a generated ontology with and without the
+ * class hierarchy index of OntModelImpl: expanding the whole tree of
+ * direct sub-classes from the roots, as a tree view would, the lowest
+ * common ancestors of random pairs of classes below the root class of the
+ * generated hierarchy (RDFS has no owl:Thing), and the named hierarchy
+ * roots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ClassHierarchyBenchmark {
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    @Param({"5000"})
+    public int classes;
+
+    OntModel model;
+
+    OntClass root;
+
+    OntClass[] pairs;
+
+    @Setup
+    public void setup() {
+        model = ModelFactory.createOntologyModel(OntModelSpec.RDFS_MEM);
+        model.add(BenchmarkData.ontology(classes, 0));
+        ((OntModelImpl) model).setClassHierarchyIndexed(indexed);
+        root = model.getOntClass(BenchmarkData.NS + "C0");
+        Random random = new Random(BenchmarkData.SEED);
+        pairs = new OntClass[200];
+        for (int i = 0; i < pairs.length; i++) {
+            pairs[i] = model.getOntClass(BenchmarkData.NS + "C" + random.nextInt(classes));
+        }
+    }
+
+    @Benchmark
+    public int expandTree() {
+        int count = 0;
+        for (Iterator<OntClass> it = model.listHierarchyRootClasses(); it.hasNext();) {
+            count += expand(it.next());
+        }
+        return count;
+    }
+
+    private int expand(OntClass c) {
+        int count = 1;
+        for (Iterator<OntClass> it = c.listSubClasses(true); it.hasNext();) {
+            count += expand(it.next());
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int lca() {
+        int count = 0;
+        for (int i = 0; i < pairs.length; i += 2) {
+            OntClass c = OntTools.getLCA(model, root, pairs[i], pairs[i + 1]);
+            count += c == null ? 0 : 1;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public List<OntClass> namedHierarchyRoots() {
+        return OntTools.namedHierarchyRoots(model);
+    }
+}
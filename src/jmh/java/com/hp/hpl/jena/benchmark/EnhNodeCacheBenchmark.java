@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.enhanced.EnhGraph;
+import com.hp.hpl.jena.ontology.*;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.util.cache.CacheControl;
+
+/**
+ * OntModel.listClasses() and a walk up the superclasses of each class,
+ * which turn the same nodes into OntClass over and over, with each of the
+ * caches CacheManager can make for the enhanced nodes of an EnhGraph. The
+ * hit rate of the cache is printed after each iteration.
+ * <code>listClassesShared</code> runs the walk on four threads at once
+ * over the same model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class EnhNodeCacheBenchmark {
+
+    @Param({"ENHNODECACHE", "RAND", "LRU", "TINYLFU"})
+    public String cache;
+
+    @Param({"2000"})
+    public int classes;
+
+    OntModel model;
+
+    @Setup
+    public void setup() {
+        String previous = EnhGraph.nodeCacheType;
+        EnhGraph.nodeCacheType = cache;
+        try {
+            model = ModelFactory.createOntologyModel(OntModelSpec.RDFS_MEM);
+        } finally {
+            EnhGraph.nodeCacheType = previous;
+        }
+        model.add(BenchmarkData.ontology(classes, classes));
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportHits() {
+        CacheControl c = ((EnhGraph) model).getNodeCacheControl();
+        System.out.println(cache + ": " + c.getHits() + " hits in " + c.getGets() + " gets");
+    }
+
+    @Benchmark
+    public int listClasses() {
+        int count = 0;
+        for (Iterator<OntClass> it = model.listClasses(); it.hasNext();) {
+            OntClass c = it.next();
+            for (Iterator<OntClass> supers = c.listSuperClasses(); supers.hasNext();) {
+                supers.next().getLocalName();
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int listClassesShared() {
+        return listClasses();
+    }
+}
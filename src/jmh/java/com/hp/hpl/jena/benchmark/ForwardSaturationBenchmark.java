@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.reasoner.rulesys.GenericRuleReasoner;
+import com.hp.hpl.jena.reasoner.rulesys.Rule;
+
+/**
+ * The forward closure of the RDFS and OWL mini rule sets over a generated
+ * ontology, computed by a hybrid generic rule reasoner with the RETE engine
+ * running on one or more threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ForwardSaturationBenchmark {
+
+    @Param({"rdfs", "owlmini"})
+    public String rules;
+
+    @Param({"500", "2000"})
+    public int classes;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    Graph data;
+
+    List<Rule> ruleList;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.ontology(classes, classes * 5).getGraph();
+        ruleList = Rule.rulesFromURL(rules.equals("rdfs") ? "etc/rdfs-fb.rules" : "etc/owl-fb-mini.rules");
+    }
+
+    @Benchmark
+    public InfGraph prepare() {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(ruleList);
+        reasoner.setForwardThreads(threads);
+        InfGraph inf = reasoner.bind(data);
+        inf.prepare();
+        return inf;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.mem.faster.GraphMemFaster;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Adding, finding and deleting triples in a GraphMemFaster, which is
+ * where the costs of HashCommon and NodeToTriplesMapFaster show up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GraphMemBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    Triple[] triples;
+    Graph graph;
+
+    /** Patterns probing the graph by subject, by predicate and object, and by object */
+    Triple[] bySubject, byPredicateObject, byObject;
+
+    @Setup
+    public void setup() {
+        triples = BenchmarkData.triples(size);
+        graph = load();
+        int probes = 100;
+        bySubject = new Triple[probes];
+        byPredicateObject = new Triple[probes];
+        byObject = new Triple[probes];
+        for (int i = 0; i < probes; i++) {
+            Triple t = triples[(int) ((long) i * triples.length / probes)];
+            bySubject[i] = Triple.create(t.getSubject(), Node.ANY, Node.ANY);
+            byPredicateObject[i] = Triple.create(Node.ANY, t.getPredicate(), t.getObject());
+            byObject[i] = Triple.create(Node.ANY, Node.ANY, t.getObject());
+        }
+    }
+
+    Graph load() {
+        Graph g = new GraphMemFaster();
+        for (int i = 0; i < triples.length; i++) {
+            g.add(triples[i]);
+        }
+        return g;
+    }
+
+    @Benchmark
+    public Graph add() {
+        return load();
+    }
+
+    @Benchmark
+    public Graph addDelete() {
+        Graph g = load();
+        for (int i = 0; i < triples.length; i++) {
+            g.delete(triples[i]);
+        }
+        return g;
+    }
+
+    @Benchmark
+    public void findBySubject(Blackhole bh) {
+        drain(bySubject, bh);
+    }
+
+    @Benchmark
+    public void findByPredicateObject(Blackhole bh) {
+        drain(byPredicateObject, bh);
+    }
+
+    @Benchmark
+    public void findByObject(Blackhole bh) {
+        drain(byObject, bh);
+    }
+
+    @Benchmark
+    public int contains() {
+        int found = 0;
+        for (int i = 0; i < triples.length; i += 10) {
+            if (graph.contains(triples[i])) found++;
+        }
+        return found;
+    }
+
+    void drain(Triple[] patterns, Blackhole bh) {
+        for (int i = 0; i < patterns.length; i++) {
+            ExtendedIterator<Triple> it = graph.find(patterns[i]);
+            while (it.hasNext()) {
+                bh.consume(it.next());
+            }
+        }
+    }
+}
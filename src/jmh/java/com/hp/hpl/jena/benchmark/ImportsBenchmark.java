@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.ontology.*;
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.vocabulary.OWL;
+
+/**
+ * Loading an ontology whose imports closure has <code>documents</code>
+ * documents in local files, each imported by its URI and mapped to its file
+ * by the location mapper, on one thread and on <code>threads</code>
+ * threads. Document i imports documents 2i+1 and 2i+2, and also document
+ * i+7 so that some documents are imported more than once. Each document
+ * is a generated ontology of <code>classes</code> classes in RDF/XML.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ImportsBenchmark {
+
+    static final String ONT = "http://example.org/bench/ont";
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"80"})
+    public int documents;
+
+    @Param({"500"})
+    public int classes;
+
+    File dir;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = File.createTempFile("imports", "");
+        dir.delete();
+        dir.mkdirs();
+        for (int i = 0; i < documents; i++) {
+            Model doc = BenchmarkData.ontology(classes, classes);
+            Resource ont = doc.createResource(ONT + i, OWL.Ontology);
+            for (int j : new int[] {2 * i + 1, 2 * i + 2, i + 7}) {
+                if (j < documents) {
+                    ont.addProperty(OWL.imports, doc.createResource(ONT + j));
+                }
+            }
+            OutputStream out = new FileOutputStream(file(i));
+            try {
+                doc.write(out, "RDF/XML", ONT + i);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (int i = 0; i < documents; i++) {
+            file(i).delete();
+        }
+        dir.delete();
+    }
+
+    File file(int i) {
+        return new File(dir, "ont" + i + ".owl");
+    }
+
+    @Benchmark
+    public OntModel load() {
+        OntDocumentManager dm = new OntDocumentManager((String) null);
+        dm.setImportThreads(threads);
+        for (int i = 0; i < documents; i++) {
+            dm.addAltEntry(ONT + i, file(i).toURI().toString());
+        }
+        OntModelSpec spec = new OntModelSpec(ModelFactory.createMemModelMaker(),
+            ModelFactory.createMemModelMaker(), dm, null, ProfileRegistry.OWL_LANG);
+        OntModel model = ModelFactory.createOntologyModel(spec, null);
+        model.read(ONT + 0);
+        return model;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.*;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * Inference over a generated ontology with the RDFS and OWL mini rule
+ * reasoners. <code>prepare</code> times the forward (RETE) stage alone;
+ * <code>listTypes</code> also runs the backward (LP) rules to answer every
+ * rdf:type query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class InferenceBenchmark {
+
+    @Param({"rdfs", "owlmini"})
+    public String reasoner;
+
+    @Param({"100", "500"})
+    public int classes;
+
+    Graph data;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.ontology(classes, classes * 5).getGraph();
+    }
+
+    InfGraph bind() {
+        Reasoner r = reasoner.equals("rdfs")
+            ? ReasonerRegistry.getRDFSReasoner()
+            : ReasonerRegistry.getOWLMiniReasoner();
+        return r.bind(data);
+    }
+
+    @Benchmark
+    public InfGraph prepare() {
+        InfGraph inf = bind();
+        inf.prepare();
+        return inf;
+    }
+
+    @Benchmark
+    public int listTypes() {
+        InfGraph inf = bind();
+        return inf.find(Node.ANY, RDF.type.asNode(), Node.ANY).toList().size();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.impl.GraphMatcher;
+import com.hp.hpl.jena.mem.GraphMem;
+
+/**
+ * Graph isomorphism on graphs with many blank nodes that look alike apart
+ * from one value each: two copies of the same graph with different blank
+ * nodes, and a copy with one value changed. Also the isomorphism-invariant
+ * hash of a graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class IsomorphismBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    Graph graph, copy, changed;
+
+    @Setup
+    public void setup() {
+        graph = records(size, -1);
+        copy = records(size, -1);
+        changed = records(size, size / 2);
+    }
+
+    /**
+     * A graph of <code>size</code> blank nodes, each with a type, a value
+     * and a link to the next, where the value of blank node
+     * <code>change</code> is different.
+     */
+    static Graph records(int size, int change) {
+        Graph g = new GraphMem();
+        Node type = Node.createURI(BenchmarkData.NS + "Record");
+        Node rdfType = Node.createURI("http://www.w3.org/1999/02/22-rdf-syntax-ns#type");
+        Node value = BenchmarkData.predicate(0), next = BenchmarkData.predicate(1);
+        Node previous = null;
+        for (int i = 0; i < size; i++) {
+            Node b = Node.createAnon();
+            g.add(Triple.create(b, rdfType, type));
+            g.add(Triple.create(b, value, Node.createLiteral(i == change ? "changed" : "v" + i)));
+            if (previous != null) {
+                g.add(Triple.create(previous, next, b));
+            }
+            previous = b;
+        }
+        return g;
+    }
+
+    @Benchmark
+    public boolean isomorphic() {
+        return graph.isIsomorphicWith(copy);
+    }
+
+    @Benchmark
+    public boolean notIsomorphic() {
+        return graph.isIsomorphicWith(changed);
+    }
+
+    @Benchmark
+    public int hash() {
+        return GraphMatcher.hashCode(graph);
+    }
+}
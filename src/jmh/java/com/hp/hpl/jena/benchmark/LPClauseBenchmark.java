@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.rulesys.GenericRuleReasoner;
+import com.hp.hpl.jena.reasoner.rulesys.Rule;
+import com.hp.hpl.jena.shared.impl.JenaParameters;
+import com.hp.hpl.jena.util.PrintUtil;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * Untabled backward rule queries, interpreted and with the rule clauses
+ * compiled to JVM classes: the types of individuals under a class tree of
+ * backward sub-class rules, and the ancestors of individuals in a random
+ * tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class LPClauseBenchmark {
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    @Param({"300"})
+    public int classes;
+
+    @Param({"100"})
+    public int individuals;
+
+    Node[] individual;
+
+    Node ancestor;
+
+    Graph inf;
+
+    @Setup
+    public void setup() {
+        JenaParameters.enableLPClauseCompilation = compiled;
+        Random random = new Random(BenchmarkData.SEED);
+        StringBuilder rules = new StringBuilder();
+        rules.append("[anc1: (?a b:ancestor ?c) <- (?a b:parent ?c)]\n");
+        rules.append("[anc2: (?a b:ancestor ?c) <- (?a b:parent ?b), (?b b:ancestor ?c)]\n");
+        for (int i = 1; i < classes; i++) {
+            rules.append("[t" + i + ": (?x rdf:type b:C" + random.nextInt(i) + ") <- (?x rdf:type b:C" + i + ")]\n");
+        }
+        PrintUtil.registerPrefix("b", BenchmarkData.NS);
+        List<Rule> ruleList = Rule.parseRules(rules.toString());
+
+        Graph data = Factory.createGraphMem();
+        Node parent = Node.createURI(BenchmarkData.NS + "parent");
+        individual = new Node[individuals];
+        for (int i = 0; i < individuals; i++) {
+            individual[i] = BenchmarkData.resource("i", i);
+            data.add(Triple.create(individual[i], RDF.Nodes.type, BenchmarkData.resource("C", random.nextInt(classes))));
+            if (i > 0) {
+                data.add(Triple.create(individual[i], parent, individual[random.nextInt(i)]));
+            }
+        }
+        ancestor = Node.createURI(BenchmarkData.NS + "ancestor");
+
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(ruleList);
+        reasoner.setMode(GenericRuleReasoner.BACKWARD);
+        inf = reasoner.bind(data);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JenaParameters.enableLPClauseCompilation = false;
+    }
+
+    @Benchmark
+    public int types() {
+        int count = 0;
+        for (int i = 0; i < individual.length; i++) {
+            count += inf.find(individual[i], RDF.Nodes.type, Node.ANY).toList().size();
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int ancestors() {
+        int count = 0;
+        for (int i = 0; i < individual.length; i++) {
+            count += inf.find(individual[i], ancestor, Node.ANY).toList().size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.rulesys.FBRuleInfGraph;
+import com.hp.hpl.jena.reasoner.rulesys.FBRuleReasoner;
+import com.hp.hpl.jena.reasoner.rulesys.OWLMiniReasonerFactory;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * Backward chaining rdf:type queries with the OWL mini reasoner, with and
+ * without table subsumption and a table capacity. Each invocation lists
+ * all the rdf:type triples and then asks for the types of every individual,
+ * which subsumption answers from the table of the first query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class LPTablingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean subsumption;
+
+    @Param({"0", "1000"})
+    public int capacity;
+
+    @Param({"200"})
+    public int classes;
+
+    Graph data;
+
+    FBRuleInfGraph inf;
+
+    @Setup
+    public void setup() {
+        data = BenchmarkData.ontology(classes, classes * 5).getGraph();
+    }
+
+    @Setup(Level.Invocation)
+    public void bind() {
+        FBRuleReasoner reasoner = (FBRuleReasoner) new OWLMiniReasonerFactory().create(null);
+        reasoner.setTableSubsumption(subsumption);
+        reasoner.setTableCapacity(capacity);
+        inf = (FBRuleInfGraph) reasoner.bind(data);
+        inf.prepare();
+    }
+
+    @Benchmark
+    public int typeQueries() {
+        Node type = RDF.type.asNode();
+        int count = inf.find(Node.ANY, type, Node.ANY).toList().size();
+        for (int i = 0; i < classes * 5; i++) {
+            count += inf.find(BenchmarkData.resource("i", i), type, Node.ANY).toList().size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.rdf.model.impl.NTripleGraphReader;
+import com.hp.hpl.jena.shared.impl.JenaParameters;
+
+/**
+ * Loading sensor readings, each with an xsd:integer sequence number, an
+ * xsd:decimal and an xsd:double measurement and an xsd:dateTime, with and
+ * without the fast literal parsers. <code>createNodes</code> only makes
+ * the literal nodes, whose values are then not parsed at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class LiteralParseBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fast;
+
+    @Param({"25000"})
+    public int readings;
+
+    byte[] input;
+
+    String[] decimals;
+
+    @Setup
+    public void setup() {
+        JenaParameters.enableFastLiteralParsing = fast;
+        Random random = new Random(BenchmarkData.SEED);
+        StringBuilder sb = new StringBuilder();
+        decimals = new String[readings];
+        String xsd = XSDDatatype.XSD + "#";
+        for (int i = 0; i < readings; i++) {
+            String s = "<" + BenchmarkData.NS + "reading" + i + "> <" + BenchmarkData.NS;
+            decimals[i] = (random.nextInt(4000) - 2000) / 100 + "." + random.nextInt(100);
+            sb.append(s).append("seq> \"").append(i).append("\"^^<").append(xsd).append("integer> .\n");
+            sb.append(s).append("temperature> \"").append(decimals[i]).append("\"^^<").append(xsd).append("decimal> .\n");
+            sb.append(s).append("pressure> \"").append(random.nextDouble() * 1000).append("\"^^<").append(xsd).append("double> .\n");
+            sb.append(s).append("time> \"2012-").append(10 + i % 3).append("-").append(10 + i % 19)
+                .append("T").append(10 + i % 14).append(":").append(10 + i % 50).append(":00Z\"^^<").append(xsd).append("dateTime> .\n");
+        }
+        input = sb.toString().getBytes();
+    }
+
+    @TearDown
+    public void tearDown() {
+        JenaParameters.enableFastLiteralParsing = true;
+    }
+
+    @Benchmark
+    public Model load() {
+        Model model = ModelFactory.createDefaultModel();
+        new NTripleGraphReader().read(model, new ByteArrayInputStream(input), BenchmarkData.NS);
+        return model;
+    }
+
+    @Benchmark
+    public int createNodes() {
+        int hash = 0;
+        for (int i = 0; i < readings; i++) {
+            hash += Node.createLiteral(decimals[i], "", XSDDatatype.XSDdecimal).hashCode();
+        }
+        return hash;
+    }
+}
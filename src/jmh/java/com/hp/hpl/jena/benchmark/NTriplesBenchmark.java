@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.rdf.model.impl.NTripleGraphReader;
+import com.hp.hpl.jena.rdf.model.impl.NTripleReader;
+
+/**
+ * Reading N-Triples with the original NTripleReader, and with the buffered
+ * NTripleGraphReader on one thread ("graph") and on <code>threads</code>
+ * threads ("parallel"). The input is about 100 bytes a triple, so a size
+ * of 100000 is about 10MB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class NTriplesBenchmark {
+
+    @Param({"old", "graph", "parallel"})
+    public String reader;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"100000"})
+    public int size;
+
+    byte[] input;
+
+    @Setup
+    public void setup() {
+        input = BenchmarkData.serialize(BenchmarkData.dataModel(size), "N-TRIPLE");
+    }
+
+    @Benchmark
+    public Model read() {
+        Model model = ModelFactory.createDefaultModel();
+        RDFReader r;
+        if (reader.equals("old")) {
+            r = new NTripleReader();
+        } else {
+            NTripleGraphReader graphReader = new NTripleGraphReader();
+            if (reader.equals("parallel")) graphReader.setThreads(threads);
+            r = graphReader;
+        }
+        r.read(model, new ByteArrayInputStream(input), BenchmarkData.NS);
+        return model;
+    }
+}
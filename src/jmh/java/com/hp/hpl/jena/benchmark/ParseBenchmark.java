@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.rdf.model.*;
+
+/**
+ * Reading a generated data set in each of the parsed syntaxes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ParseBenchmark {
+
+    @Param({"RDF/XML", "N-TRIPLE", "TURTLE"})
+    public String lang;
+
+    @Param({"10000"})
+    public int size;
+
+    byte[] input;
+
+    @Setup
+    public void setup() {
+        input = BenchmarkData.serialize(BenchmarkData.dataModel(size), lang);
+    }
+
+    @Benchmark
+    public Model read() {
+        Model model = ModelFactory.createDefaultModel();
+        model.read(new ByteArrayInputStream(input), BenchmarkData.NS, lang);
+        return model;
+    }
+}
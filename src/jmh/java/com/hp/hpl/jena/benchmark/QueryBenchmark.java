@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.query.*;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Basic graph pattern queries run by the SimpleQueryEngine over a memory
+ * graph: a star (several properties of one subject), a chain (a path
+ * through linked subjects) and a selective pattern anchored on a
+ * concrete object. Each is run both with a thread per stage and pulled
+ * on the calling thread (see Query.setPull).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class QueryBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"threaded", "pull"})
+    public String mode;
+
+    Graph graph;
+
+    Query star, chain, anchored;
+
+    static final Node[] XYZ = new Node[] {Query.X, Query.Y, Query.Z};
+
+    @Setup
+    public void setup() {
+        graph = BenchmarkData.dataModel(size).getGraph();
+        star = new Query()
+            .addMatch(Query.X, BenchmarkData.predicate(0), Query.Y)
+            .addMatch(Query.X, BenchmarkData.predicate(1), Query.Z);
+        chain = new Query()
+            .addMatch(Query.X, BenchmarkData.predicate(2), Query.Y)
+            .addMatch(Query.Y, BenchmarkData.predicate(3), Query.Z);
+        anchored = new Query()
+            .addMatch(Query.X, Query.Y, BenchmarkData.resource("s", 0))
+            .addMatch(Query.X, BenchmarkData.predicate(4), Query.Z);
+        boolean pull = mode.equals("pull");
+        star.setPull(pull);
+        chain.setPull(pull);
+        anchored.setPull(pull);
+    }
+
+    @Benchmark
+    public void star(Blackhole bh) {
+        drain(star, bh);
+    }
+
+    @Benchmark
+    public void chain(Blackhole bh) {
+        drain(chain, bh);
+    }
+
+    @Benchmark
+    public void anchored(Blackhole bh) {
+        drain(anchored, bh);
+    }
+
+    void drain(Query query, Blackhole bh) {
+        ExtendedIterator<Domain> it = query.executeBindings(graph, XYZ);
+        while (it.hasNext()) {
+            bh.consume(it.next());
+        }
+    }
+}
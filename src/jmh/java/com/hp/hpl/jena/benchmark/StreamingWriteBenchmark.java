@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.rdf.model.*;
+
+/**
+ * Writing Turtle and RDF/XML with writers that look over the whole model
+ * first ("N3-PP", "RDF/XML") and with the streaming writers
+ * ("TURTLE-STREAMING", "RDF/XML-STREAMING"). The data set has a
+ * one-reference blank node and a short list hanging off every subject, so
+ * that the writers have something to inline. Besides the time, each
+ * iteration prints the peak heap used by the writes above what the model
+ * itself holds. "RDF/XML-ABBREV" can be given too, but it recurses along
+ * the links between subjects and needs a large stack (-Xss256m) here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class StreamingWriteBenchmark {
+
+    @Param({"N3-PP", "TURTLE-STREAMING", "RDF/XML", "RDF/XML-STREAMING"})
+    public String writer;
+
+    @Param({"100000"})
+    public int size;
+
+    Model model;
+
+    long baseline;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkData.dataModel(size);
+        Property p = model.createProperty(BenchmarkData.NS, "detail");
+        Property q = model.createProperty(BenchmarkData.NS, "items");
+        Property v = model.createProperty(BenchmarkData.NS, "value");
+        for (int i = 0; i < size / 10; i++) {
+            Resource s = model.createResource(BenchmarkData.NS + "s" + i);
+            s.addProperty(p, model.createResource().addLiteral(v, i).addProperty(v, "detail " + i));
+            s.addProperty(q, model.createList(new RDFNode[] {
+                    model.createTypedLiteral(i), model.createTypedLiteral(i + 1) }));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        System.gc();
+        baseline = heapUsed(false);
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportPeak() {
+        System.out.println(writer + ": peak heap above model " + ((heapUsed(true) - baseline) >> 20) + "MB");
+    }
+
+    @Benchmark
+    public long write() {
+        WriteBenchmark.CountingStream out = new WriteBenchmark.CountingStream();
+        model.write(out, writer, BenchmarkData.NS);
+        return out.count;
+    }
+
+    static long heapUsed(boolean peak) {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                used += peak ? pool.getPeakUsage().getUsed() : pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.benchmark;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.hp.hpl.jena.rdf.model.*;
+
+/**
+ * Writing a generated data set with each of the standard writers. The
+ * output is counted and thrown away, so only the writer is timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class WriteBenchmark {
+
+    @Param({"RDF/XML", "RDF/XML-ABBREV", "RDF/XML-STREAMING", "N-TRIPLE", "TURTLE", "N3"})
+    public String lang;
+
+    @Param({"10000"})
+    public int size;
+
+    Model model;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkData.dataModel(size);
+    }
+
+    @Benchmark
+    public long write() {
+        CountingStream out = new CountingStream();
+        model.write(out, lang, BenchmarkData.NS);
+        return out.count;
+    }
+
+    static class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
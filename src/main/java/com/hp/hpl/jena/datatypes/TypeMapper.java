@@ -20,8 +20,8 @@ package com.hp.hpl.jena.datatypes;
 
 import java.net.URI;
 import java.net.URL;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.datatypes.xsd.impl.XMLLiteralType;
@@ -30,7 +30,8 @@ import com.hp.hpl.jena.shared.impl.JenaParameters;
 /**
  * The TypeMapper provides a global registry of known datatypes.
  * The datatypes can be retrieved by their URI or from the java class
- * that is used to represent them.
+ * that is used to represent them. The registry can be used and extended
+ * from several threads at once, as by parsers running in parallel.
  *
  * @author <a href="mailto:der@hplb.hpl.hp.com">Dave Reynolds</a>
  * @version $Revision: 1.2 $ on $Date: 2009-08-21 15:42:01 $
@@ -92,10 +93,10 @@ public class TypeMapper {
 // Variables
 
     /** Map from uri to datatype */
-    private final HashMap<String, RDFDatatype> uriToDT = new HashMap<String, RDFDatatype>();
+    private final ConcurrentHashMap<String, RDFDatatype> uriToDT = new ConcurrentHashMap<String, RDFDatatype>();
 
     /** Map from java class to datatype */
-    private final HashMap<Class<?>, RDFDatatype> classToDT = new HashMap<Class<?>, RDFDatatype>();
+    private final ConcurrentHashMap<Class<?>, RDFDatatype> classToDT = new ConcurrentHashMap<Class<?>, RDFDatatype>();
 
 //=======================================================================
 // Methods
@@ -112,7 +113,7 @@ public class TypeMapper {
      * uri is null it returns null (indicating a plain RDF literal).
      */
     public RDFDatatype getSafeTypeByName(final String uri) {
-        RDFDatatype dtype = uriToDT.get(uri);
+        RDFDatatype dtype = (uri == null) ? null : uriToDT.get(uri);
         if (dtype == null) {
             if (uri == null) {
                 // Plain literal
@@ -120,8 +121,10 @@ public class TypeMapper {
             } else {
                 // Uknown datatype
                 if (JenaParameters.enableSilentAcceptanceOfUnknownDatatypes) {
+                    // Another thread may register the same uri first, use its datatype if so
                     dtype = new BaseDatatype(uri);
-                    registerDatatype(dtype);
+                    RDFDatatype registered = uriToDT.putIfAbsent(uri, dtype);
+                    if (registered != null) dtype = registered;
                 } else {
                     throw new DatatypeFormatException(
                         "Attempted to created typed literal using an unknown datatype - " + uri);
@@ -139,7 +142,7 @@ public class TypeMapper {
      * @return Datatype the datatype definition of null if not known.
      */
     public RDFDatatype getTypeByName(final String uri) {
-        return uriToDT.get(uri);
+        return (uri == null) ? null : uriToDT.get(uri);
     }
 
     /**
@@ -169,7 +172,7 @@ public class TypeMapper {
      * @return a datatype whose value space matches the given java class
      */
     public RDFDatatype getTypeByClass(final Class<?> clazz) {
-        return classToDT.get(clazz);
+        return (clazz == null) ? null : classToDT.get(clazz);
     }
 
     /**
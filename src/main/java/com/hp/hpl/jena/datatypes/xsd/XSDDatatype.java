@@ -111,7 +111,7 @@ public class XSDDatatype extends BaseDatatype {
     public static final XSDDatatype XSDnegativeInteger = new XSDBaseNumericType("negativeInteger");
 
     /** Datatype representing xsd:boolean */
-    public static final XSDDatatype XSDboolean = new XSDDatatype("boolean", Boolean.class);
+    public static final XSDDatatype XSDboolean = new XSDBooleanType("boolean", Boolean.class);
 
     /** Datatype representing xsd:string */
     public static final XSDDatatype XSDstring = new XSDBaseStringType("string", String.class);
@@ -295,6 +295,17 @@ public class XSDDatatype extends BaseDatatype {
        return typeDeclaration.isEqual(value1.getValue(), value2.getValue());
     }
 
+    /**
+     * Answer a hash code for a literal of this type. Literals of the same
+     * type are only equal if their lexical forms are, so the hash is taken
+     * from the lexical form: that way a literal need not be parsed just to
+     * be looked up in the node cache.
+     */
+    @Override
+    public int getHashCode(LiteralLabel lit) {
+        return lit.getLexicalForm().hashCode();
+    }
+
     /**
      * If this datatype is used as the cannonical representation
      * for a particular java datatype then return that java type,
@@ -162,9 +162,33 @@ public class XSDBaseNumericType extends XSDDatatype {
     @Override
     public Object parse(String lexicalForm) throws DatatypeFormatException {
         checkWhitespace(lexicalForm);        
+        if (JenaParameters.enableFastLiteralParsing) {
+            Object value = parseSimple(lexicalForm);
+            if (value != null) {
+                return value;
+            }
+        }
         return super.parse(lexicalForm);
     }
     
+    /**
+     * Parse the common lexical forms of xsd:integer, decimal, int and long
+     * without going through Xerces, answering null for all other types
+     * and forms.
+     */
+    private Object parseSimple(String lexicalForm) {
+        if (this == XSDinteger) {
+            return XSDFastParser.parseInteger(lexicalForm);
+        } else if (this == XSDdecimal) {
+            return XSDFastParser.parseDecimal(lexicalForm);
+        } else if (this == XSDint) {
+            return XSDFastParser.parseInt(lexicalForm);
+        } else if (this == XSDlong) {
+            return XSDFastParser.parseLong(lexicalForm);
+        }
+        return null;
+    }
+    
     /**
      * Check for whitespace violations.
      * Turned off by default.
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.datatypes.xsd.impl;
+
+import com.hp.hpl.jena.datatypes.DatatypeFormatException;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.shared.impl.JenaParameters;
+
+/**
+ * Datatype representation for xsd:boolean, which parses the four legal
+ * lexical forms directly rather than through Xerces.
+ */
+public class XSDBooleanType extends XSDDatatype {
+
+    /**
+     * Constructor. 
+     * @param typeName the name of the XSD type to be instantiated, this is 
+     * used to lookup a type definition from the Xerces schema factory.
+     * @param javaClass the java class for which this xsd type is to be
+     * treated as the cannonical representation
+     */
+    public XSDBooleanType(String typeName, Class<?> javaClass) {
+        super(typeName, javaClass);
+    }
+
+    /**
+     * Parse a lexical form of this datatype to a value
+     * @throws DatatypeFormatException if the lexical form is not legal
+     */
+    @Override
+    public Object parse(String lexicalForm) throws DatatypeFormatException {
+        if (JenaParameters.enableFastLiteralParsing) {
+            Boolean value = XSDFastParser.parseBoolean(lexicalForm);
+            if (value != null) {
+                return value;
+            }
+        }
+        return super.parse(lexicalForm);
+    }
+}
@@ -18,7 +18,9 @@
 
 package com.hp.hpl.jena.datatypes.xsd.impl;
 
+import com.hp.hpl.jena.datatypes.DatatypeFormatException;
 import com.hp.hpl.jena.datatypes.xsd.*;
+import com.hp.hpl.jena.shared.impl.JenaParameters;
 
 /**
  * Type processor for dateTime, most of the machinery is in the
@@ -37,6 +39,19 @@ public class XSDDateTimeType extends XSDAbstractDateTimeType {
         javaClass = XSDDateTime.class;
     }
 
+    /**
+     * Parse a lexical form of this datatype to a value, going straight
+     * to parseValidated if it is a plain dateTime Xerces would accept.
+     * @throws DatatypeFormatException if the lexical form is not legal
+     */
+    @Override
+    public Object parse(String lexicalForm) throws DatatypeFormatException {
+        if (JenaParameters.enableFastLiteralParsing && XSDFastParser.isSimpleDateTime(lexicalForm)) {
+            return parseValidated(lexicalForm);
+        }
+        return super.parse(lexicalForm);
+    }
+
     /**
      * Parse a validated date. This is invoked from
      * XSDDatatype.convertValidatedDataValue rather then from a local
@@ -80,6 +80,12 @@ public class XSDDouble extends XSDDatatype {
      @Override
     public Object parse(String lexicalForm) throws DatatypeFormatException {
          checkWhitespace(lexicalForm);        
+         if (JenaParameters.enableFastLiteralParsing) {
+             Double value = XSDFastParser.parseDouble(lexicalForm);
+             if (value != null) {
+                 return value;
+             }
+         }
          return super.parse(lexicalForm);
      }
 
@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.datatypes.xsd.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Parsers for the common lexical forms of xsd:integer, int, long, decimal,
+ * double, float, boolean, date and dateTime which do not go through the
+ * Xerces validator. Each one either answers exactly the value the Xerces
+ * route would produce, or null (false for the date checks) if the lexical
+ * form is not one it handles, in which case the caller falls back to Xerces.
+ * Anything unusual, such as surrounding whitespace, INF and NaN, very long
+ * numbers, or negative years, is left to Xerces, which then also reports
+ * the ill-formed cases.
+ */
+final class XSDFastParser {
+
+    private XSDFastParser() {}
+
+    /** Integers with at most this many significant digits fit in a long */
+    private static final int LONG_DIGITS = 18;
+
+    /**
+     * Parse an xsd:integer lexical form. Answers an Integer or Long if the
+     * value fits in 18 digits and a BigInteger otherwise, as
+     * XSDDatatype.convertValidatedDataValue does.
+     */
+    static Number parseInteger(String lex) {
+        int n = lex.length();
+        int i = signLength(lex);
+        if (i == n) {
+            return null;
+        }
+        long value = 0;
+        int digits = 0;
+        for (; i < n; i++) {
+            int d = lex.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return null;
+            }
+            if (digits > 0 || d != 0) {
+                digits++;
+                value = value * 10 + d;
+            }
+        }
+        if (digits > LONG_DIGITS) {
+            return new BigInteger(lex.charAt(0) == '+' ? lex.substring(1) : lex);
+        }
+        return suitableInteger(lex.charAt(0) == '-' ? -value : value);
+    }
+
+    /**
+     * Parse an xsd:int lexical form, answering null if it is out of range
+     * so that Xerces reports it.
+     */
+    static Integer parseInt(String lex) {
+        Number value = parseInteger(lex);
+        return value instanceof Integer ? (Integer) value : null;
+    }
+
+    /**
+     * Parse an xsd:long lexical form, answering null if it may be out of
+     * range so that Xerces deals with it.
+     */
+    static Number parseLong(String lex) {
+        Number value = parseInteger(lex);
+        return value instanceof BigInteger ? null : value;
+    }
+
+    /**
+     * Parse an xsd:decimal lexical form of the shape <code>[+-]d+(.d*)?</code>.
+     * Values without fraction digits, ignoring trailing zeros, come out as
+     * integers; the others as BigDecimals with the trailing zeros of the
+     * fraction removed, as XSDBaseNumericType.cannonicalise leaves them.
+     */
+    static Number parseDecimal(String lex) {
+        int n = lex.length();
+        int start = signLength(lex);
+        int dot = -1;
+        int lastNonZero = -1;
+        int intDigits = 0;
+        for (int i = start; i < n; i++) {
+            char c = lex.charAt(i);
+            if (c == '.' && dot < 0 && i > start) {
+                dot = i;
+            } else if (c < '0' || c > '9') {
+                return null;
+            } else if (dot < 0) {
+                if (intDigits > 0 || c != '0') {
+                    intDigits++;
+                }
+            } else if (c != '0') {
+                lastNonZero = i;
+            }
+        }
+        if (start == n) {
+            return null;
+        }
+        int fractionDigits = lastNonZero < 0 ? 0 : lastNonZero - dot;
+        int end = fractionDigits == 0 ? (dot < 0 ? n : dot) : lastNonZero + 1;
+        if (intDigits + fractionDigits > LONG_DIGITS) {
+            String digits = lex.substring(lex.charAt(0) == '+' ? 1 : 0, end);
+            if (fractionDigits == 0) {
+                return new BigInteger(digits);
+            }
+            return new BigDecimal(digits);
+        }
+        long unscaled = 0;
+        for (int i = start; i < end; i++) {
+            if (i != dot) {
+                unscaled = unscaled * 10 + (lex.charAt(i) - '0');
+            }
+        }
+        if (lex.charAt(0) == '-') {
+            unscaled = -unscaled;
+        }
+        if (fractionDigits == 0) {
+            return suitableInteger(unscaled);
+        }
+        return BigDecimal.valueOf(unscaled, fractionDigits);
+    }
+
+    /**
+     * Parse an xsd:double lexical form of the shape
+     * <code>[+-]d+(.d*)?([eE][+-]?d+)?</code>.
+     */
+    static Double parseDouble(String lex) {
+        return isFloatingPoint(lex) ? Double.valueOf(lex) : null;
+    }
+
+    /**
+     * Parse an xsd:float lexical form of the shape
+     * <code>[+-]d+(.d*)?([eE][+-]?d+)?</code>.
+     */
+    static Float parseFloat(String lex) {
+        return isFloatingPoint(lex) ? Float.valueOf(lex) : null;
+    }
+
+    /**
+     * Parse an xsd:boolean lexical form.
+     */
+    static Boolean parseBoolean(String lex) {
+        if (lex.equals("true") || lex.equals("1")) {
+            return Boolean.TRUE;
+        } else if (lex.equals("false") || lex.equals("0")) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * Answer true if lex is a valid xsd:date of the shape
+     * <code>YYYY-MM-DD</code> with an optional time zone.
+     */
+    static boolean isSimpleDate(String lex) {
+        return isDate(lex) && isTimeZone(lex, 10);
+    }
+
+    /**
+     * Answer true if lex is a valid xsd:dateTime of the shape
+     * <code>YYYY-MM-DDThh:mm:ss</code>, with up to nine digits of fractional
+     * seconds and an optional time zone. Hour 24 is left to Xerces.
+     */
+    static boolean isSimpleDateTime(String lex) {
+        int n = lex.length();
+        if (n < 19 || !isDate(lex) || lex.charAt(10) != 'T'
+                || lex.charAt(13) != ':' || lex.charAt(16) != ':') {
+            return false;
+        }
+        int hour = twoDigits(lex, 11), minute = twoDigits(lex, 14), second = twoDigits(lex, 17);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return false;
+        }
+        int i = 19;
+        if (i < n && lex.charAt(i) == '.') {
+            int start = ++i;
+            while (i < n && isDigit(lex.charAt(i))) {
+                i++;
+            }
+            if (i == start || i - start > 9) {
+                return false;
+            }
+        }
+        return isTimeZone(lex, i);
+    }
+
+    /** Check for YYYY-MM-DD at the start of lex, with a day within the month */
+    private static boolean isDate(String lex) {
+        if (lex.length() < 10 || lex.charAt(4) != '-' || lex.charAt(7) != '-') {
+            return false;
+        }
+        int century = twoDigits(lex, 0), year = twoDigits(lex, 2);
+        int month = twoDigits(lex, 5), day = twoDigits(lex, 8);
+        if (century < 0 || year < 0 || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        year += 100 * century;
+        return year > 0 && day <= daysIn(year, month);
+    }
+
+    /** Check that lex ends at i or has Z or [+-]hh:mm, with hh under 14, there */
+    private static boolean isTimeZone(String lex, int i) {
+        int n = lex.length();
+        if (i == n) {
+            return true;
+        }
+        char c = lex.charAt(i);
+        if (c == 'Z') {
+            return i + 1 == n;
+        }
+        if ((c != '+' && c != '-') || i + 6 != n || lex.charAt(i + 3) != ':') {
+            return false;
+        }
+        int hours = twoDigits(lex, i + 1), minutes = twoDigits(lex, i + 4);
+        return hours >= 0 && hours < 14 && minutes >= 0 && minutes < 60;
+    }
+
+    private static int daysIn(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /** The two digit number at i in lex, or -1 if there isn't one */
+    private static int twoDigits(String lex, int i) {
+        char a = lex.charAt(i), b = lex.charAt(i + 1);
+        return isDigit(a) && isDigit(b) ? (a - '0') * 10 + (b - '0') : -1;
+    }
+
+    private static boolean isFloatingPoint(String lex) {
+        int n = lex.length();
+        int i = signLength(lex);
+        int start = i;
+        while (i < n && isDigit(lex.charAt(i))) {
+            i++;
+        }
+        if (i == start) {
+            return false;
+        }
+        if (i < n && lex.charAt(i) == '.') {
+            i++;
+            while (i < n && isDigit(lex.charAt(i))) {
+                i++;
+            }
+        }
+        if (i < n && (lex.charAt(i) == 'e' || lex.charAt(i) == 'E')) {
+            i++;
+            if (i < n && (lex.charAt(i) == '+' || lex.charAt(i) == '-')) {
+                i++;
+            }
+            start = i;
+            while (i < n && isDigit(lex.charAt(i))) {
+                i++;
+            }
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == n;
+    }
+
+    private static int signLength(String lex) {
+        if (lex.length() == 0) {
+            return 0;
+        }
+        char c = lex.charAt(0);
+        return c == '+' || c == '-' ? 1 : 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static Number suitableInteger(long number) {
+        if (number > Integer.MAX_VALUE || number < Integer.MIN_VALUE) {
+            return Long.valueOf(number);
+        }
+        return Integer.valueOf((int) number);
+    }
+}
@@ -80,6 +80,12 @@ public class XSDFloat extends XSDDatatype {
      @Override
     public Object parse(String lexicalForm) throws DatatypeFormatException {
          checkWhitespace(lexicalForm);        
+         if (JenaParameters.enableFastLiteralParsing) {
+             Float value = XSDFastParser.parseFloat(lexicalForm);
+             if (value != null) {
+                 return value;
+             }
+         }
          return super.parse(lexicalForm);
      }
 
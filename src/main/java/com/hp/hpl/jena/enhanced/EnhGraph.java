@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.enhanced;
 
+import com.hp.hpl.jena.JenaRuntime;
 import com.hp.hpl.jena.graph.*;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.util.cache.*;
@@ -49,8 +50,15 @@ public class EnhGraph
     /** Counter that helps to ensure that caches are kept distinct */
     static private int cnt = 0;
 
+    /** The type of cache, as named in {@link CacheManager}, made for the
+        enhanced nodes of each new EnhGraph; set by the system property
+        <code>jena.enhgraph.cache</code>, ENHNODECACHE by default. LRU and
+        TINYLFU keep more of the nodes in use, and are safe for several
+        readers. */
+    public static String nodeCacheType = JenaRuntime.getSystemProperty( "jena.enhgraph.cache", CacheManager.ENHNODECACHE );
+
     /** Cache of enhanced nodes that have been created */
-    protected Cache enhNodes = CacheManager.createCache( CacheManager.ENHNODECACHE, "EnhGraph-" + cnt++, 1000 );
+    protected Cache enhNodes = CacheManager.createCache( nodeCacheType, "EnhGraph-" + cnt++, 1000 );
     
     /** The unique personality that is bound to this polymorphic instace */
     private Personality<RDFNode> personality;
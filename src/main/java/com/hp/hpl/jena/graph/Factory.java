@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.graph;
 
+import com.hp.hpl.jena.mem.compact.GraphMemCompact;
 import com.hp.hpl.jena.mem.faster.GraphMemFaster;
 import com.hp.hpl.jena.shared.*;
 
@@ -50,6 +51,21 @@ public class Factory
     public static Graph createGraphMem( ReificationStyle style )
         { return new GraphMemFaster( style ); }
 
+    /**
+        Answer a memory-based Graph with the Minimal reification style which
+        stores its triples dictionary-encoded, trading some find speed for
+        a much smaller footprint per triple.
+    */
+    public static Graph createGraphMemCompact()
+        { return new GraphMemCompact(); }
+
+    /**
+        Answer a dictionary-encoded memory-based Graph with the given
+        reification style.
+    */
+    public static Graph createGraphMemCompact( ReificationStyle style )
+        { return new GraphMemCompact( style ); }
+
     public static Graph createGraphMemWithTransactionHandler( final TransactionHandler th )
         {
         Graph g = new GraphMemFaster() 
@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.graph;
 
+import com.hp.hpl.jena.JenaRuntime;
 import com.hp.hpl.jena.datatypes.DatatypeFormatException;
 import com.hp.hpl.jena.datatypes.RDFDatatype;
 import com.hp.hpl.jena.datatypes.TypeMapper;
@@ -39,9 +40,26 @@ import com.hp.hpl.jena.shared.PrefixMapping;
 public abstract class Node {
     
     final protected Object label;
-    static final int THRESHOLD = 10000;
     
-    static final NodeCache present = new NodeCache(); 
+    /**
+        System property giving the number of slots in the node cache.
+    */
+    public static final String CACHE_SIZE_PROPERTY = "jena.nodecache.size";
+    
+    /**
+        System property giving the number of slots per set in the node cache;
+        1 (the default) makes it direct-mapped.
+    */
+    public static final String CACHE_WAYS_PROPERTY = "jena.nodecache.ways";
+    
+    static volatile NodeCache present = createDefaultCache(); 
+    
+    private static NodeCache createDefaultCache()
+        {
+        int size = Integer.parseInt( JenaRuntime.getSystemProperty( CACHE_SIZE_PROPERTY, "" + NodeCache.SIZE ) );
+        int ways = Integer.parseInt( JenaRuntime.getSystemProperty( CACHE_WAYS_PROPERTY, "1" ) );
+        return new NodeCache( size, ways );
+        }
     
     /**
         The canonical instance of Node_ANY. No other instances are required.
@@ -288,7 +306,7 @@ public abstract class Node {
     /* package visibility only */ Node( Object label ) 
         { this.label = label; }
         
-    static private boolean caching = true;
+    static private volatile boolean caching = true;
     
     /**
         provided only for testing purposes. _cache(false)_ switches off caching and
@@ -300,30 +318,42 @@ public abstract class Node {
         if (wantCache == false) present.clear();
         caching = wantCache;
         }
-        
+    
     /**
-        We object strongly to null labels: for example, they make .equals flaky. We reuse nodes 
-        from the recent cache if we can. Otherwise, the maker knows how to construct a new
-        node of the correct class, and we add that node to the cache. create is
-        synchronised to avoid threading problems - a separate thread might zap the
-        cache entry that get is currently looking at.
+        Answer the cache used by create to re-use recent nodes, eg to inspect
+        its hit and miss counts.
+    */
+    public static NodeCache getCache()
+        { return present; }
+    
+    /**
+        Replace the cache used by create, eg with one of a different size or
+        associativity. Nodes in the old cache are no longer re-used.
     */
-    public static synchronized Node create( NodeMaker maker, Object label )
+    public static void setCache( NodeCache cache )
         {
-        if (label == null) throw new JenaException( "Node.make: null label" );
-        Node node = present.get( label );
-        return node == null ? cacheNewNode( label, maker.construct( label ) ) : node;
+        if (cache == null) throw new JenaException( "Node.setCache: null cache" );
+        present = cache;
         }
         
     /**
-         cache the node <code>n</code> under the key <code>label</code>,
-         and return that node.
+        We object strongly to null labels: for example, they make .equals flaky. We reuse nodes 
+        from the recent cache if we can. Otherwise, the maker knows how to construct a new
+        node of the correct class, and we add that node to the cache. create is not
+        synchronised: the cache is safe for concurrent use, and at worst two threads
+        will construct equal nodes for the same label at the same time.
     */
-    private static Node cacheNewNode( Object label, Node n )
-        { 
-        if (present.size() > THRESHOLD) { /* System.err.println( "> trashing node cache" ); */ present.clear(); }
-        if (caching) present.put( label, n );
-        return n;
+    public static Node create( NodeMaker maker, Object label )
+        {
+        if (label == null) throw new JenaException( "Node.make: null label" );
+        NodeCache cache = present;
+        Node node = cache.get( label );
+        if (node == null)
+            {
+            node = maker.construct( label );
+            if (caching) cache.put( label, node );
+            }
+        return node;
         }
         
 	/**
@@ -18,77 +18,182 @@
 
 package com.hp.hpl.jena.graph;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
     A NodeCache caches nodes according to their labels, to reduce store turnover
     at the expense of some additional computation. The cache is represented as an
-    array indexed by the reduced hashcode of the labels of the nodes it contains.
-    Only the most recent node with any given reduced hash is kept. This tactic
-    means that we don't need to have any explicit cache-clearing code in normal
-    oepration.
-     
+    array of sets of slots, each set indexed by the reduced hashcode of the labels
+    of the nodes it contains. With one slot per set (the default) only the most
+    recent node with any given reduced hash is kept; with more slots per set a
+    new node displaces an existing one in rotation once its set is full. This
+    tactic means that we don't need to have any explicit cache-clearing code in
+    normal oepration.
+<p>
+    The cache takes no locks. Slots are read and written atomically, and a Node
+    is immutable once constructed, so the worst a race can do is lose an entry
+    or cache a duplicate of a node some other thread has just cached.
+
 	@author kers
  */
 public class NodeCache
     {
     /**
-        The defined size of the cache; 5000 is mostly guesswork. (It didn't *quite*
+        The default size of the cache; 5000 is mostly guesswork. (It didn't *quite*
         fill up when running the tests and had about an 85% hit-rate).
     */
-    protected static final int SIZE = 5000;
-    
+    public static final int SIZE = 5000;
+
+    /**
+        The cache nodes, in <code>sets</code> consecutive groups of
+        <code>ways</code> slots.
+    */
+    protected final AtomicReferenceArray<Node> nodes;
+
+    /**
+        The number of slots in each set, ie the number of nodes with the same
+        reduced hash which can be held at once.
+    */
+    protected final int ways;
+
+    /**
+        The number of sets in the cache.
+    */
+    protected final int sets;
+
+    /**
+        Rotating choice of victim slot for full sets. Updated without
+        synchronisation - lost updates only make the rotation less regular.
+    */
+    private int victim = 0;
+
+    protected volatile boolean counting = false;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+        Initialise a direct-mapped cache of the default size.
+    */
+    public NodeCache()
+        { this( SIZE, 1 ); }
+
     /**
-        The cache nodes, indexed by their label's reduced hash.
+        Initialise a direct-mapped cache with (at least) <code>size</code> slots.
     */
-    protected final Node [] nodes = new Node [SIZE];
-    
-    protected static final boolean counting = false;
-    
+    public NodeCache( int size )
+        { this( size, 1 ); }
+
+    /**
+        Initialise a cache with (at least) <code>size</code> slots, grouped into
+        sets of <code>ways</code> slots. A node can live in any slot of the set
+        selected by the reduced hash of its label.
+    */
+    public NodeCache( int size, int ways )
+        {
+        if (size < 1) throw new IllegalArgumentException( "node cache size must be positive: " + size );
+        if (ways < 1) throw new IllegalArgumentException( "node cache ways must be positive: " + ways );
+        this.ways = ways;
+        this.sets = (size + ways - 1) / ways;
+        this.nodes = new AtomicReferenceArray<Node>( sets * ways );
+        }
+
     /**
         Wipe the cache of all entries.
     */
     public void clear()
-        { for (int i = 0; i < SIZE; i += 1) nodes[i] = null; }
-    
-    public int size()
-        { return 0; }
-    
-    private int hits = 0;
-    private int misses = 0;
-    
+        { for (int i = 0; i < nodes.length(); i += 1) nodes.set( i, null ); }
+
     /**
-        Answer the number of used slots in the cache
+        Answer the number of used slots in the cache. This scans the whole
+        cache and is intended for diagnostics only.
     */
-    private int count()
+    public int size()
         {
         int result = 0;
-        for (int i = 0; i < SIZE; i += 1) if (nodes[i] != null) result += 1;
+        for (int i = 0; i < nodes.length(); i += 1) if (nodes.get( i ) != null) result += 1;
         return result;
         }
-    
+
+    /**
+        Answer the total number of slots in the cache.
+    */
+    public int capacity()
+        { return nodes.length(); }
+
+    /**
+        Answer the number of slots in each set of the cache.
+    */
+    public int ways()
+        { return ways; }
+
+    /**
+        Switch hit/miss counting on or off. Counting is off by default, because
+        the counters are shared between all the threads creating nodes.
+    */
+    public void setCounting( boolean counting )
+        { this.counting = counting; }
+
     /**
-        Answer the node with the given <code>label</code> in the cache, or 
-        <code>null</code> if there isn't one. Selects the slot in the cache by the
+        Answer the number of successful lookups counted so far.
+    */
+    public long getHits()
+        { return hits.get(); }
+
+    /**
+        Answer the number of failed lookups counted so far.
+    */
+    public long getMisses()
+        { return misses.get(); }
+
+    /**
+        Reset the hit and miss counters to zero.
+    */
+    public void resetCounts()
+        { hits.set( 0 ); misses.set( 0 ); }
+
+    /**
+        Answer the node with the given <code>label</code> in the cache, or
+        <code>null</code> if there isn't one. Selects the set in the cache by the
         reduced hash of the label, and confirms that the Node is the right one using
         .equals() on this label and that node's label.
     */
     public Node get( Object label )
         {
-        Node present = nodes[(label.hashCode() & 0x7fffffff) % SIZE]; 
-        if (counting)
+        int base = baseSlot( label );
+        for (int i = 0; i < ways; i += 1)
             {
-            if (present == null || !label.equals( present.label )) misses += 1; else hits += 1;
-            if ((misses + hits) % 100 == 0) 
-                System.err.println( ">> hits: " + hits + ", misses: " + misses + ", occ: " + count() + "/" + SIZE );
+            Node present = nodes.get( base + i );
+            if (present != null && label.equals( present.label ))
+                {
+                if (counting) hits.incrementAndGet();
+                return present;
+                }
             }
-        return present == null || !label.equals( present.label ) ? null : present;
+        if (counting) misses.incrementAndGet();
+        return null;
         }
-    
+
     /**
          Record in the cache the designated Node, using the given label (which must
-         be .equals() to the Node's label).
+         be .equals() to the Node's label). Uses an empty slot in the label's set if
+         there is one, otherwise displaces one of the set's current occupants.
     */
     public void put( Object label, Node cached )
         {
-        nodes[(label.hashCode() & 0x7fffffff) % SIZE] = cached;
+        int base = baseSlot( label );
+        if (ways == 1) { nodes.set( base, cached ); return; }
+        for (int i = 0; i < ways; i += 1)
+            if (nodes.get( base + i ) == null && nodes.compareAndSet( base + i, null, cached )) return;
+        int v = victim;
+        victim = v + 1;
+        nodes.set( base + (v & 0x7fffffff) % ways, cached );
         }
+
+    /**
+        Answer the index of the first slot of the set for <code>label</code>.
+    */
+    private int baseSlot( Object label )
+        { return ((label.hashCode() & 0x7fffffff) % sets) * ways; }
     }
@@ -0,0 +1,434 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.impl;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.hp.hpl.jena.JenaRuntime;
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.shared.JenaException;
+import com.hp.hpl.jena.util.CollectionFactory;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
+
+/**
+ * Colour refinement of the blank nodes of a graph, giving each blank node
+ * a 64-bit colour that does not depend on its label, and the graph a hash
+ * that is the same for isomorphic graphs.
+ * <p>
+ * Every blank node starts with the same colour. Each round gives a blank
+ * node a new colour made from its old one and the triples it occurs in,
+ * with the other blank nodes of those triples replaced by their colours.
+ * The partition of the blank nodes by colour gets finer until a round
+ * leaves the number of colours unchanged. Isomorphic graphs refine in
+ * step to the same colours, so two graphs whose colours differ after some
+ * round are not isomorphic; and when every blank node of a graph ends up
+ * with a colour of its own the colours are a canonical labelling, which
+ * fixes the only possible isomorphism. Only when some colours are shared
+ * (for example in highly symmetric graphs) is a search still needed, see
+ * <code>GraphMatcher</code>.
+ * <p>
+ * Large graphs are refined on several threads, set by
+ * <code>setThreads</code> or the system property
+ * <code>jena.graphmatcher.threads</code>; the default is the number of
+ * processors.
+ */
+public class BlankNodeColouring {
+
+    private static int threads = Integer.parseInt(JenaRuntime.getSystemProperty(
+        "jena.graphmatcher.threads", "" + Runtime.getRuntime().availableProcessors()));
+
+    /** Graphs with fewer blank nodes than this are always refined on one thread */
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final long INITIAL = 0x6a09e667f3bcc909L;
+    private static final long SELF = 0xbb67ae8584caa73bL;
+
+    private final Graph graph;
+
+    /** The blank nodes, and their index in blanks */
+    private final Node[] blanks;
+    private final Map<Node, Integer> index;
+
+    /**
+     * The triples with blank nodes in them, without repeats even if the
+     * graph's find answers some triples more than once.
+     */
+    private final Set<Triple> tripleSet;
+    private final Triple[] triples;
+
+    /**
+     * For each triple, three entries for subject, predicate and object:
+     * the index of a blank node or -1, and the hash of a non-blank node or 0.
+     */
+    private final int[] slots;
+    private final long[] terms;
+
+    /** The triples each blank node occurs in, from start[i] to start[i+1] */
+    private final int[] start;
+    private final int[] incident;
+
+    /** The triples without blank nodes, and the sum of their hashes */
+    private final Triple[] ground;
+    private final long groundHash;
+
+    private long[] colour;
+    private long[] next;
+    private long[] sorted;
+    private int classes;
+
+    /**
+     * Collect the blank nodes and the triples they occur in from
+     * <code>graph</code>, all with the same colour.
+     */
+    public BlankNodeColouring(Graph graph) {
+        this.graph = graph;
+        this.index = CollectionFactory.createHashedMap();
+        List<Node> blankList = new ArrayList<Node>();
+        this.tripleSet = CollectionFactory.createHashedSet();
+        List<Triple> groundList = new ArrayList<Triple>();
+        long gHash = 0;
+        ClosableIterator<Triple> it = GraphUtil.findAll(graph);
+        try {
+            while (it.hasNext()) {
+                Triple t = it.next();
+                Node s = t.getSubject(), p = t.getPredicate(), o = t.getObject();
+                if (s.isBlank() || p.isBlank() || o.isBlank()) {
+                    if (!tripleSet.add(t)) continue;
+                    intern(s, blankList);
+                    intern(p, blankList);
+                    intern(o, blankList);
+                } else {
+                    groundList.add(t);
+                    gHash += mix(combine(term(s), term(p), term(o)));
+                }
+            }
+        } finally {
+            it.close();
+        }
+        this.ground = groundList.toArray(new Triple[groundList.size()]);
+        this.groundHash = gHash;
+        this.blanks = blankList.toArray(new Node[blankList.size()]);
+        this.triples = tripleSet.toArray(new Triple[tripleSet.size()]);
+        this.slots = new int[3 * triples.length];
+        this.terms = new long[3 * triples.length];
+        int[] counts = new int[blanks.length + 1];
+        for (int i = 0; i < triples.length; i++) {
+            Triple t = triples[i];
+            slot(3 * i, t.getSubject());
+            slot(3 * i + 1, t.getPredicate());
+            slot(3 * i + 2, t.getObject());
+            for (int j = 0; j < 3; j++) {
+                if (isFirst(i, j)) counts[slots[3 * i + j] + 1] += 1;
+            }
+        }
+        for (int b = 0; b < blanks.length; b++) {
+            counts[b + 1] += counts[b];
+        }
+        this.start = counts.clone();
+        this.incident = new int[counts[blanks.length]];
+        for (int i = 0; i < triples.length; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (isFirst(i, j)) incident[counts[slots[3 * i + j]]++] = i;
+            }
+        }
+        this.colour = new long[blanks.length];
+        this.next = new long[blanks.length];
+        Arrays.fill(colour, INITIAL);
+        this.sorted = colour.clone();
+        this.classes = blanks.length == 0 ? 0 : 1;
+    }
+
+    private void intern(Node n, List<Node> blankList) {
+        if (n.isBlank() && !index.containsKey(n)) {
+            index.put(n, new Integer(blankList.size()));
+            blankList.add(n);
+        }
+    }
+
+    private void slot(int i, Node n) {
+        if (n.isBlank()) {
+            slots[i] = index.get(n).intValue();
+        } else {
+            slots[i] = -1;
+            terms[i] = term(n);
+        }
+    }
+
+    /** Is slot j of triple i a blank node that does not occur earlier in the triple? */
+    private boolean isFirst(int i, int j) {
+        int b = slots[3 * i + j];
+        if (b < 0) return false;
+        for (int k = 0; k < j; k++) {
+            if (slots[3 * i + k] == b) return false;
+        }
+        return true;
+    }
+
+    /** Answer the graph this colouring is for. */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /** Answer the number of blank nodes in the graph. */
+    public int size() {
+        return blanks.length;
+    }
+
+    /** Answer the number of different colours the blank nodes have now. */
+    public int classes() {
+        return classes;
+    }
+
+    /** Does every blank node have a colour of its own? */
+    public boolean isDiscrete() {
+        return classes == blanks.length;
+    }
+
+    /**
+     * Answer the current colour of the blank node <code>n</code>. Once the
+     * colouring is discrete, this is a canonical label for <code>n</code>.
+     */
+    public long colourOf(Node n) {
+        Integer i = index.get(n);
+        if (i == null) throw new IllegalArgumentException("not a blank node of the graph: " + n);
+        return colour[i.intValue()];
+    }
+
+    /**
+     * Refine the colours for one round, on the threads of <code>pool</code>
+     * if it is not null. Answer true iff the partition got finer.
+     */
+    public boolean refine(ExecutorService pool) {
+        int n = blanks.length;
+        if (pool == null || n < PARALLEL_THRESHOLD) {
+            recolour(0, n);
+        } else {
+            int parts = 4 * threads;
+            List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(parts);
+            for (int i = 0; i < parts; i++) {
+                final int from = (int) ((long) n * i / parts), to = (int) ((long) n * (i + 1) / parts);
+                tasks.add(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        recolour(from, to);
+                        return null;
+                    }
+                });
+            }
+            waitFor(pool, tasks);
+        }
+        long[] old = colour;
+        colour = next;
+        next = old;
+        sorted = colour.clone();
+        Arrays.sort(sorted);
+        int before = classes;
+        classes = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) classes += 1;
+        }
+        return classes > before;
+    }
+
+    /**
+     * Refine the colours until they stop changing the partition, on
+     * several threads if the graph is large.
+     */
+    public void refineFully() {
+        ExecutorService pool = createPool(blanks.length);
+        try {
+            while (!isDiscrete() && refine(pool)) {
+            }
+        } finally {
+            if (pool != null) pool.shutdownNow();
+        }
+    }
+
+    private void recolour(int from, int to) {
+        for (int b = from; b < to; b++) {
+            long sum = 0;
+            for (int k = start[b]; k < start[b + 1]; k++) {
+                int i = 3 * incident[k];
+                sum += mix(combine(value(i, b), value(i + 1, b), value(i + 2, b)));
+            }
+            next[b] = mix(colour[b] * 31 + sum);
+        }
+    }
+
+    /** The value of slot i as seen from blank node b. */
+    private long value(int i, int b) {
+        int s = slots[i];
+        return s < 0 ? terms[i] : s == b ? SELF : colour[s];
+    }
+
+    /**
+     * Answer a hash of the graph made from its ground triples and its other
+     * triples with their blank nodes replaced by their colours. Refines the
+     * colouring fully first, so that isomorphic graphs have the same hash.
+     */
+    public long graphHash() {
+        refineFully();
+        long hash = groundHash;
+        for (int i = 0; i < 3 * triples.length; i += 3) {
+            hash += mix(combine(value(i, -1), value(i + 1, -1), value(i + 2, -1)));
+        }
+        return hash;
+    }
+
+    /** Answer a hash of <code>g</code> that is the same for isomorphic graphs. */
+    public static long hash(Graph g) {
+        return new BlankNodeColouring(g).graphHash();
+    }
+
+    /**
+     * Refine the colourings <code>a</code> and <code>b</code> of two graphs
+     * in step until neither partition gets finer. Answer false if the graphs
+     * are found not to be isomorphic on the way: if they have different
+     * numbers of blank nodes or of triples with blank nodes, or if some
+     * round gives them different colours. Answer true if they still might
+     * be isomorphic.
+     */
+    public static boolean refineTogether(BlankNodeColouring a, BlankNodeColouring b) {
+        if (a.blanks.length != b.blanks.length || a.triples.length != b.triples.length) {
+            return false;
+        }
+        ExecutorService pool = createPool(a.blanks.length);
+        try {
+            while (!a.isDiscrete()) {
+                boolean finer = a.refine(pool);
+                b.refine(pool);
+                if (!Arrays.equals(a.sorted, b.sorted)) return false;
+                if (!finer) break;
+            }
+            return true;
+        } finally {
+            if (pool != null) pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Answer the isomorphism from the graph of this colouring to the graph of
+     * <code>other</code> that maps each blank node to the one with the same
+     * colour, as pairs in the form <code>GraphMatcher.match</code> answers;
+     * or null if that is not an isomorphism. Both colourings must have been
+     * refined together by <code>refineTogether</code> and be discrete; then
+     * null means that the graphs are not isomorphic.
+     */
+    public Node[][] matchDiscrete(BlankNodeColouring other) {
+        if (!isDiscrete() || !other.isDiscrete()) throw new IllegalStateException("colouring is not discrete");
+        Map<Long, Node> byColour = CollectionFactory.createHashedMap(other.blanks.length);
+        for (int i = 0; i < other.blanks.length; i++) {
+            byColour.put(new Long(other.colour[i]), other.blanks[i]);
+        }
+        Node[] image = new Node[blanks.length];
+        Node[][] result = new Node[blanks.length][];
+        for (int i = 0; i < blanks.length; i++) {
+            image[i] = byColour.get(new Long(colour[i]));
+            if (image[i] == null) return null;
+            result[i] = new Node[] {blanks[i], image[i]};
+        }
+        // Triple.equals, as in GraphMatcher, needs literals to be equal, not
+        // just to have the same value; ground triples are only looked up,
+        // both ways round since the sizes of the graphs may not be accurate.
+        for (int i = 0; i < triples.length; i++) {
+            Triple t = new Triple(map(3 * i, image), map(3 * i + 1, image), map(3 * i + 2, image));
+            if (!other.tripleSet.contains(t)) return null;
+        }
+        if (!containsAll(other.graph, ground) || !containsAll(graph, other.ground)) return null;
+        return result;
+    }
+
+    private static boolean containsAll(Graph g, Triple[] ts) {
+        for (int i = 0; i < ts.length; i++) {
+            if (!g.contains(ts[i])) return false;
+        }
+        return true;
+    }
+
+    private Node map(int i, Node[] image) {
+        int s = slots[i];
+        return s < 0 ? field(i) : image[s];
+    }
+
+    private Node field(int i) {
+        Triple t = triples[i / 3];
+        switch (i % 3) {
+            case 0: return t.getSubject();
+            case 1: return t.getPredicate();
+            default: return t.getObject();
+        }
+    }
+
+    /** Set the number of threads used to refine large graphs. */
+    public static void setThreads(int n) {
+        if (n < 1) throw new IllegalArgumentException("threads must be at least 1: " + n);
+        threads = n;
+    }
+
+    /** Answer the number of threads used to refine large graphs. */
+    public static int getThreads() {
+        return threads;
+    }
+
+    private static ExecutorService createPool(int blankCount) {
+        if (threads < 2 || blankCount < PARALLEL_THRESHOLD) return null;
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "BlankNodeColouring");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static void waitFor(ExecutorService pool, List<Callable<Object>> tasks) {
+        try {
+            for (Future<Object> f: pool.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JenaException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new JenaException(e.getCause());
+        }
+    }
+
+    private static long term(Node n) {
+        return mix(n.hashCode() + 0x9e3779b97f4a7c15L);
+    }
+
+    private static long combine(long s, long p, long o) {
+        return mix(mix(s * 31 + p) * 31 + o);
+    }
+
+    /** The finalising step of MurmurHash3, which spreads the bits of x. */
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+}
@@ -0,0 +1,554 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.mem.compact.NodeDictionary;
+import com.hp.hpl.jena.shared.*;
+
+/**
+    A GraphJournal is a memory-mapped file holding the triples of a graph as
+    of its last checkpoint, as a MappedSnapshot read in place, followed by an
+    append-only log of the changes made since, from which the rest of the
+    graph is rebuilt when it is opened. It is also the write-ahead log for
+    the graph's transactions.
+<p>
+    The file starts with a header (magic number, version, the offsets of the
+    end of the valid records and of the start of the log, and the layout of
+    the snapshot). In the log, each node which is not in the snapshot is
+    written once, in a NODE record which implicitly gives it the next id
+    after the snapshot's; ADD and DELETE records then refer to nodes by id.
+    The end offset in the header is only advanced once a record is complete,
+    so a process which dies part-way through a write leaves the journal at
+    its previous state. Writes go to the mapped file and so survive the
+    process; they are forced to the disc on <code>commit</code>,
+    <code>force</code>, and <code>close</code>.
+<p>
+    A transaction is bracketed by BEGIN and COMMIT records. When the journal
+    is replayed, the changes of a transaction are only applied once its COMMIT
+    has been seen, and a trailing transaction with no COMMIT is discarded.
+<p>
+    The nodes of the log are kept in the NodeDictionary of the store holding
+    the graph's later changes, which the journal maps to its own ids through
+    two int arrays. It holds a reference on each dictionary id it has mapped,
+    so that the id cannot be re-used for another node while the mapping stands.
+<p>
+    <code>checkpoint</code> writes a new file with a snapshot of the graph's
+    current triples and an empty log, and renames it over the old one, so a
+    crash during a checkpoint leaves the old journal in place.
+*/
+public class GraphJournal
+    {
+    /**
+        The recipient of the changes recorded in a journal when it is replayed.
+    */
+    public interface Replay
+        {
+        void add( Triple t );
+
+        void delete( Triple t );
+
+        void clear();
+        }
+
+    protected static final int MAGIC = 0x4A656E4A;
+    protected static final int VERSION = 2;
+    protected static final int END_OFFSET = 8;
+    protected static final int TAIL_OFFSET = 12;
+
+    /** The size of the file header; the snapshot's fields follow the journal's. */
+    public static final int HEADER = 64;
+
+    protected static final int INITIAL_SIZE = 1 << 16;
+
+    protected static final byte NODE = 1, ADD = 2, DELETE = 3, CLEAR = 4, BEGIN = 5, COMMIT = 6;
+
+    /**
+        The suffix of the file a checkpoint is written to before it replaces
+        the journal.
+    */
+    public static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    protected final File file;
+    protected RandomAccessFile raf;
+    protected FileChannel channel;
+    protected MappedByteBuffer buffer;
+
+    /** The snapshot at the front of the file. */
+    protected MappedSnapshot snapshot;
+
+    /** The offset of the first record of the log, just past the snapshot. */
+    protected int tail;
+
+    /** The offset just past the last complete record. */
+    protected int end;
+
+    /** The dictionary of the store of the later changes, which the log's ids refer to. */
+    protected NodeDictionary dictionary;
+
+    /** fileIds[id] is one more than the log index of dictionary id <code>id</code>, or 0 if it has none. */
+    protected int [] fileIds = new int[64];
+
+    /** storeIds[j] is the dictionary id of log index <code>j</code>, or 0 if it has none. */
+    protected int [] storeIds = new int[64];
+
+    /** The number of NODE records, ie the next log index; its id follows the snapshot's ids. */
+    protected int nodeCount;
+
+    /** The number of ADD, DELETE, and CLEAR records. */
+    protected int changes;
+
+    /** The offset of the BEGIN of the current transaction, or -1 if there is none. */
+    protected int transactionStart = -1;
+
+    /** The number of nodes known when the current transaction began. */
+    protected int transactionNodes;
+
+    /** The number of changes recorded when the current transaction began. */
+    protected int transactionChanges;
+
+    /**
+        Open the journal in file <code>f</code>, whose later nodes are to be kept
+        in <code>dictionary</code>. If <code>fresh</code> is true, or the file is
+        empty, the journal is (re-)initialised to be empty; otherwise its existing
+        snapshot is opened and its log kept, to be delivered with <code>replay</code>.
+    */
+    public GraphJournal( File f, boolean fresh, NodeDictionary dictionary )
+        {
+        this.file = f;
+        this.dictionary = dictionary;
+        open( fresh );
+        }
+
+    protected void open( boolean fresh )
+        {
+        try
+            {
+            raf = new RandomAccessFile( file, "rw" );
+            channel = raf.getChannel();
+            long length = raf.length();
+            if (fresh || length == 0)
+                {
+                raf.setLength( 0 );
+                map( INITIAL_SIZE );
+                buffer.putInt( 0, MAGIC );
+                buffer.putInt( 4, VERSION );
+                tail = HEADER;
+                buffer.putInt( TAIL_OFFSET, tail );
+                setEnd( HEADER );
+                }
+            else
+                {
+                if (length < HEADER || length > Integer.MAX_VALUE) throw notAJournal();
+                map( (int) length );
+                if (buffer.getInt( 0 ) != MAGIC || buffer.getInt( 4 ) != VERSION) throw notAJournal();
+                end = buffer.getInt( END_OFFSET );
+                tail = buffer.getInt( TAIL_OFFSET );
+                if (tail < HEADER || end < tail || end > length) throw notAJournal();
+                }
+            snapshot = new MappedSnapshot( channel.map( FileChannel.MapMode.READ_ONLY, 0, tail ) );
+            }
+        catch (IOException e)
+            { close(); throw new WrappedIOException( e ); }
+        catch (RuntimeException e)
+            { close(); throw e; }
+        }
+
+    protected JenaException notAJournal()
+        { return new JenaException( file + " is not a graph journal" ); }
+
+    protected void map( int size ) throws IOException
+        { buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, size ); }
+
+    /**
+        Answer the snapshot of the graph as of the last checkpoint.
+    */
+    public MappedSnapshot getSnapshot()
+        { return snapshot; }
+
+    /**
+        Answer the number of bytes of records in the log of this journal.
+    */
+    public int length()
+        { return end - tail; }
+
+    /**
+        Answer the number of changes (additions, deletions, and clears) recorded
+        in the log of this journal. A checkpoint brings it down to zero.
+    */
+    public int changes()
+        { return changes; }
+
+    /**
+        Answer true iff a transaction is in progress.
+    */
+    public boolean inTransaction()
+        { return transactionStart >= 0; }
+
+    /**
+        Record the addition of <code>t</code>.
+    */
+    public void add( Triple t )
+        { writeTriple( ADD, t ); }
+
+    /**
+        Record the deletion of <code>t</code>.
+    */
+    public void delete( Triple t )
+        { writeTriple( DELETE, t ); }
+
+    /**
+        Record the removal of all triples. The caller clears the dictionary,
+        which drops the journal's references with everything else.
+    */
+    public void clear()
+        {
+        unbindAll();
+        writeMarker( CLEAR );
+        changes += 1;
+        }
+
+    /**
+        Start a transaction; nested transactions are not supported.
+    */
+    public void begin()
+        {
+        if (inTransaction()) throw new JenaException( "nested transactions not supported" );
+        int start = end;
+        writeMarker( BEGIN );
+        transactionStart = start;
+        transactionNodes = nodeCount;
+        transactionChanges = changes;
+        }
+
+    /**
+        Commit the current transaction and force the journal to the disc.
+    */
+    public void commit()
+        {
+        if (!inTransaction()) throw new JenaException( "no transaction to commit" );
+        writeMarker( COMMIT );
+        transactionStart = -1;
+        force();
+        }
+
+    /**
+        Discard the records of the current transaction. The graph must then
+        be rebuilt by replaying the journal.
+    */
+    public void abort()
+        {
+        if (!inTransaction()) throw new JenaException( "no transaction to abort" );
+        forgetNodesFrom( transactionNodes );
+        changes = transactionChanges;
+        setEnd( transactionStart );
+        transactionStart = -1;
+        }
+
+    /**
+        Force the records written so far to the disc.
+    */
+    public void force()
+        { buffer.force(); }
+
+    /**
+        Replace this journal by one whose snapshot holds the triples of
+        <code>contents</code>, which should be the current contents of the
+        graph's store, and whose log holds the addition of each of
+        <code>others</code> (eg reification fragments held outside the store).
+        The nodes of the new log are kept in <code>dictionary</code>, which
+        should be that of a new, empty store for later changes. The result is
+        forced to the disc. Not allowed during a transaction.
+    */
+    public void checkpoint( TripleStore contents, Iterator<Triple> others, NodeDictionary dictionary )
+        {
+        if (inTransaction()) throw new JenaException( "cannot checkpoint during a transaction" );
+        File temp = new File( file.getPath() + CHECKPOINT_SUFFIX );
+        RandomAccessFile out = null;
+        try
+            {
+            out = new RandomAccessFile( temp, "rw" );
+            out.setLength( 0 );
+            FileChannel c = out.getChannel();
+            int snapshotEnd = MappedSnapshot.write( c, contents );
+            MappedByteBuffer header = c.map( FileChannel.MapMode.READ_WRITE, 0, HEADER );
+            header.putInt( 0, MAGIC );
+            header.putInt( 4, VERSION );
+            header.putInt( END_OFFSET, snapshotEnd );
+            header.putInt( TAIL_OFFSET, snapshotEnd );
+            header.force();
+            out.close();
+            out = null;
+            close();
+            if (!temp.renameTo( file ) && !(file.delete() && temp.renameTo( file )))
+                throw new JenaException( "cannot replace " + file + " by its checkpoint " + temp );
+            }
+        catch (IOException e)
+            { abandon( out, temp ); throw new WrappedIOException( e ); }
+        catch (RuntimeException e)
+            { abandon( out, temp ); throw e; }
+        open( false );
+        this.dictionary = dictionary;
+        fileIds = new int[64];
+        storeIds = new int[64];
+        nodeCount = changes = 0;
+        while (others.hasNext()) add( others.next() );
+        force();
+        }
+
+    protected static void abandon( RandomAccessFile out, File temp )
+        {
+        try { if (out != null) out.close(); }
+        catch (IOException e) { /* already failing */ }
+        temp.delete();
+        }
+
+    /**
+        Force the journal to the disc and release the file. The journal may not
+        be used after it is closed.
+    */
+    public void close()
+        {
+        try
+            {
+            if (buffer != null) buffer.force();
+            if (channel != null) channel.close();
+            if (raf != null) raf.close();
+            }
+        catch (IOException e)
+            { throw new WrappedIOException( e ); }
+        finally
+            { buffer = null; channel = null; raf = null; }
+        }
+
+    /**
+        Deliver the changes recorded in the log of this journal to
+        <code>r</code>, in the order they were made. The changes of a
+        transaction are delivered when its COMMIT is reached; a final
+        transaction with no COMMIT (eg because the process writing it died) is
+        discarded from the journal. The store of later changes, and so the
+        dictionary, must be empty: afterwards the journal holds references on
+        the dictionary ids of the replayed nodes that are in use.
+    */
+    public void replay( Replay r )
+        {
+        unbindAll();
+        nodeCount = changes = 0;
+        int base = snapshot.nodeCount();
+        List<Node> nodes = new ArrayList<Node>();
+        List<Object> pending = null;
+        int pendingStart = -1, pendingNodes = 0, pendingChanges = 0;
+        int at = tail;
+        while (at < end)
+            {
+            byte type = buffer.get( at );
+            at += 1;
+            if (type == NODE)
+                {
+                nodes.add( MappedSnapshot.decode( buffer, at ) );
+                at = MappedSnapshot.skip( buffer, at );
+                }
+            else if (type == ADD || type == DELETE)
+                {
+                Triple t = Triple.create
+                    ( node( nodes, base, buffer.getInt( at ) ), node( nodes, base, buffer.getInt( at + 4 ) ), node( nodes, base, buffer.getInt( at + 8 ) ) );
+                at += 12;
+                changes += 1;
+                Object change = type == ADD ? (Object) t : new Deletion( t );
+                if (pending == null) apply( r, change ); else pending.add( change );
+                }
+            else if (type == CLEAR)
+                {
+                changes += 1;
+                if (pending == null) r.clear(); else pending.add( CLEAR_ALL );
+                }
+            else if (type == BEGIN)
+                {
+                pending = new ArrayList<Object>();
+                pendingStart = at - 1;
+                pendingNodes = nodes.size();
+                pendingChanges = changes;
+                }
+            else if (type == COMMIT)
+                {
+                if (pending != null) for (int i = 0; i < pending.size(); i += 1) apply( r, pending.get( i ) );
+                pending = null;
+                }
+            else
+                throw new JenaException( file + ": unknown journal record type " + type + " at " + (at - 1) );
+            }
+        if (pending != null)
+            {
+            nodes.subList( pendingNodes, nodes.size() ).clear();
+            changes = pendingChanges;
+            setEnd( pendingStart );
+            }
+        for (int i = 0; i < nodes.size(); i += 1)
+            {
+            int id = dictionary.lookup( nodes.get( i ) );
+            if (id != 0 && !isBound( id )) bind( i, dictionary.acquire( nodes.get( i ) ) );
+            }
+        nodeCount = nodes.size();
+        }
+
+    protected Node node( List<Node> nodes, int base, int id )
+        { return id < base ? snapshot.node( id ) : nodes.get( id - base ); }
+
+    protected static final Object CLEAR_ALL = new Object();
+
+    protected static class Deletion
+        {
+        final Triple triple;
+
+        Deletion( Triple triple )
+            { this.triple = triple; }
+        }
+
+    protected static void apply( Replay r, Object change )
+        {
+        if (change == CLEAR_ALL) r.clear();
+        else if (change instanceof Deletion) r.delete( ((Deletion) change).triple );
+        else r.add( (Triple) change );
+        }
+
+    /**
+        Forget the log indexes from <code>count</code> up, releasing the
+        journal's references on their dictionary ids.
+    */
+    protected void forgetNodesFrom( int count )
+        {
+        while (nodeCount > count)
+            {
+            int id = storeIds[--nodeCount];
+            storeIds[nodeCount] = 0;
+            if (id != 0)
+                {
+                fileIds[id] = 0;
+                dictionary.release( id );
+                }
+            }
+        }
+
+    /**
+        Forget the mapping of every log index, without releasing the dictionary
+        ids, which are about to be cleared.
+    */
+    protected void unbindAll()
+        {
+        Arrays.fill( fileIds, 0 );
+        Arrays.fill( storeIds, 0, nodeCount, 0 );
+        }
+
+    protected boolean isBound( int id )
+        { return id < fileIds.length && fileIds[id] != 0; }
+
+    /**
+        Map log index <code>index</code> to dictionary id <code>id</code>, on
+        which a reference has been acquired for the journal.
+    */
+    protected void bind( int index, int id )
+        {
+        if (index >= storeIds.length) storeIds = Arrays.copyOf( storeIds, Math.max( index + 1, storeIds.length * 2 ) );
+        if (id >= fileIds.length) fileIds = Arrays.copyOf( fileIds, Math.max( id + 1, fileIds.length * 2 ) );
+        storeIds[index] = id;
+        fileIds[id] = index + 1;
+        }
+
+    protected void writeTriple( byte type, Triple t )
+        {
+        int s = idFor( t.getSubject() ), p = idFor( t.getPredicate() ), o = idFor( t.getObject() );
+        changes += 1;
+        ensure( 13 );
+        buffer.put( end, type );
+        buffer.putInt( end + 1, s );
+        buffer.putInt( end + 5, p );
+        buffer.putInt( end + 9, o );
+        setEnd( end + 13 );
+        }
+
+    protected void writeMarker( byte type )
+        {
+        ensure( 1 );
+        buffer.put( end, type );
+        setEnd( end + 1 );
+        }
+
+    /**
+        Answer the id of <code>n</code>: its snapshot id if it is in the
+        snapshot, otherwise the id given by its NODE record, which is written
+        if it has not been seen before.
+    */
+    protected int idFor( Node n )
+        {
+        int snapshotId = snapshot.lookup( n );
+        if (snapshotId >= 0) return snapshotId;
+        int id = dictionary.lookup( n );
+        if (id == 0 || !isBound( id ))
+            {
+            byte [] record = MappedSnapshot.encode( n );
+            ensure( 1 + record.length );
+            buffer.put( end, NODE );
+            bytesAt( end + 1 ).put( record );
+            setEnd( end + 1 + record.length );
+            id = dictionary.acquire( n );
+            bind( nodeCount++, id );
+            }
+        return snapshot.nodeCount() + fileIds[id] - 1;
+        }
+
+    /**
+        Make sure there is room for <code>size</code> more bytes in the mapped
+        buffer, growing the file if necessary.
+    */
+    protected void ensure( int size )
+        {
+        if (buffer == null) throw new ClosedException( "journal closed", null );
+        int needed = end + size;
+        if (needed > buffer.capacity())
+            {
+            long capacity = buffer.capacity();
+            while (capacity < needed) capacity *= 2;
+            if (capacity > Integer.MAX_VALUE) throw new JenaException( file + ": journal too large" );
+            try { map( (int) capacity ); }
+            catch (IOException e) { throw new WrappedIOException( e ); }
+            }
+        }
+
+    /**
+        Answer a view of the mapped buffer positioned at <code>at</code>.
+    */
+    protected ByteBuffer bytesAt( int at )
+        {
+        ByteBuffer result = buffer.duplicate();
+        result.position( at );
+        return result;
+        }
+
+    protected void setEnd( int end )
+        {
+        this.end = end;
+        buffer.putInt( END_OFFSET, end );
+        }
+    }
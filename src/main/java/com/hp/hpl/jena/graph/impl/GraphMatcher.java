@@ -57,15 +57,14 @@ public class GraphMatcher extends java.lang.Object {
         return match(m1,m2) != null;
     }  
     
+    /**
+     * A hash of the graph that is the same for isomorphic graphs; it
+     * includes the triples with blank nodes, using the colours
+     * of the blank nodes from {@link BlankNodeColouring}.
+     */
     static public int hashCode(Graph g) {
-    	ClosableIterator<Triple> ci = GraphUtil.findAll( g );
-    	int hash = 0;
-    	GraphMatcher gm = new GraphMatcher(g);
-    	while ( ci.hasNext() ) {
-    		Triple t = ci.next();
-    		hash += gm.new AnonStatement(t).myHashCode(null);
-    	}
-    	return hash;
+        long hash = BlankNodeColouring.hash(g);
+        return (int) (hash ^ (hash >>> 32));
     }
 /**
  * Return an isomorphism between the two models.
@@ -79,7 +78,20 @@ public class GraphMatcher extends java.lang.Object {
             <code>m2</code>.
  */
     static public Node[][] match(Graph m1,Graph m2)  {
-            return new GraphMatcher(m1).match(new GraphMatcher(m2));
+        // Colour refinement rejects most non-isomorphic graphs, and
+        // settles the isomorphism when every blank node gets a colour of
+        // its own; the search below is only for the ambiguous rest.
+        if (m1.getCapabilities().sizeAccurate()
+                && m2.getCapabilities().sizeAccurate()
+                && m1.size() != m2.size() )
+            return null;
+        BlankNodeColouring c1 = new BlankNodeColouring(m1);
+        BlankNodeColouring c2 = new BlankNodeColouring(m2);
+        if ( !BlankNodeColouring.refineTogether(c1,c2) )
+            return null;
+        if ( c1.isDiscrete() )
+            return c1.matchDiscrete(c2);
+        return new GraphMatcher(m1).match(new GraphMatcher(m2));
     }
     /* NOTE: inner classes
      *    We use a number of non-static inner classes, these all
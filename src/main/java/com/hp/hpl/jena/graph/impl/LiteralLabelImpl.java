@@ -77,14 +77,22 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
 	 * if parsing failed for delayed exception thrown in getValue()
 	 */
 	private String exceptionMsg = null; // Suggested by Andreas Langegger
+
+	/**
+	 * False while the value of a literal built from its lexical form
+	 * has still to be parsed: see ensureValue.
+	 */
+	private volatile boolean parsed = true;
 	
 	//=======================================================================
 	// Constructors
 
 	/**
 	 * Build a typed literal label from its lexical form. The
-	 * lexical form will be parsed now and the value stored. If
-	 * the form is not legal this will throw an exception.
+	 * lexical form of an XSD literal is parsed when its value is
+	 * first needed, unless eager validation is on; other lexical
+	 * forms are parsed now. If the form is not legal and eager
+	 * validation is on this will throw an exception.
 	 * 
 	 * @param lex the lexical form of the literal
 	 * @param lang the optional language tag, only relevant for plain literals
@@ -103,6 +111,8 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
         this.lang = (lang == null ? "" : lang);
         if (dtype == null) {
             value = lex;
+        } else if (canDefer(dtype)) {
+            parsed = false;
         } else {
             setValue(lex);
         }
@@ -157,6 +167,8 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
             lexicalForm = lex;
             if (dtype == null) {
                 this.value = lex;
+            } else if (canDefer(dtype)) {
+                parsed = false;
             } else {
                 setValue(lex);
             }
@@ -223,6 +235,39 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
 		}
 	}
     
+    /**
+     * Answer true if parsing a lexical form of dtype can wait until the
+     * value is needed. That holds for the XSD types, whose hash codes come
+     * from the lexical form and which only ever narrow the type of a value
+     * given as an object, but not for user datatypes, which may do anything
+     * in normalizeSubType and getHashCode.
+     */
+    private static boolean canDefer(RDFDatatype dtype) {
+        return dtype instanceof XSDDatatype && !JenaParameters.enableEagerLiteralValidation;
+    }
+
+    /**
+     * Parse the lexical form if that has been put off. Eager validation
+     * was off when the literal was made, so an ill-formed lexical form
+     * just makes the literal ill-formed.
+     */
+    private void ensureValue() {
+        if (!parsed) {
+            synchronized (this) {
+                if (!parsed) {
+                    try {
+                        value = dtype.parse(lexicalForm);
+                    } catch (DatatypeFormatException e) {
+                        wellformed = false;
+                        exceptionMsg = e.getMessage();
+                    }
+                    normalize();
+                    parsed = true;
+                }
+            }
+        }
+    }
+
     /**
      * Normalize the literal. If the value is narrower than the current data type
      * (e.g. value is xsd:date but the time is xsd:datetime) it will narrow
@@ -243,6 +288,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public boolean isXML() {
+		ensureValue();
 		return dtype == XMLLiteralType.theXMLLiteralType && this.wellformed;
 	}
     
@@ -251,11 +297,13 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public boolean isWellFormed() {
+		ensureValue();
 		return dtype != null && this.wellformed;
 	}
     
     @Override
     public boolean isWellFormedRaw() {
+        ensureValue();
         return wellformed;
     }
 
@@ -297,6 +345,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
     @Override
     public Object getIndexingValue() {
+        ensureValue();
         return
             isXML() ? this
             : !lang.equals( "" ) ? getLexicalForm() + "@" + lang.toLowerCase()
@@ -320,6 +369,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
 	@Override
     public Object getValue() throws DatatypeFormatException {
+		ensureValue();
 		if (wellformed) {
 			return value;
 		} else {
@@ -378,6 +428,7 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     public boolean sameValueAs( LiteralLabel other ) {
 		if (other == null)
 			return false;
+		ensureValue();
 		if (!wellformed || !other.isWellFormedRaw()) 
 			return areIllFormedLiteralsSameValueAs( other );
 		return dtype == null 
@@ -438,8 +489,8 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
 
     private int hash = 0 ;
 	/** 
-     	Answer the hashcode of this literal, derived from its value if it's
-        well-formed and otherwise its lexical form.
+     	Answer the hashcode of this literal, as given by its datatype; plain
+        literals use the default hashcode.
     */
 	@Override
     public int hashCode() {
@@ -456,6 +507,9 @@ final /*public*/ class LiteralLabelImpl implements LiteralLabel {
     */
     @Override
     public int getDefaultHashcode()
-        { return (wellformed ? value : getLexicalForm()).hashCode(); }
+        {
+        ensureValue();
+        return (wellformed ? value : getLexicalForm()).hashCode();
+        }
 
     }
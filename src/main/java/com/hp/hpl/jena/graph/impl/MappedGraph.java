@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.impl;
+
+import java.io.File;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.query.QueryHandler;
+import com.hp.hpl.jena.mem.*;
+import com.hp.hpl.jena.mem.compact.CompactTripleStore;
+import com.hp.hpl.jena.shared.*;
+import com.hp.hpl.jena.util.FileUtils;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/**
+    A MappedGraph is a graph held in a memory-mapped GraphJournal: the node
+    dictionary and sorted triple indexes of its last checkpoint are read in
+    place from the file (see MappedSnapshot), and every later change is
+    appended to the journal's log as it is made and kept on the heap in a
+    MappedTripleStore. Unlike a FileGraph, nothing is written when it is
+    closed, opening it maps the snapshot and replays only the log rather than
+    parsing RDF, and changes made before a crash are not lost. Transactions
+    use the journal as a write-ahead log: see MappedGraphTransactionHandler.
+<p>
+    The journal is checkpointed whenever, outside a transaction, its log
+    holds more than CHECKPOINT_SLACK changes beyond a quarter of the size of
+    the graph, so that the heap used for changes stays small compared with
+    the graph, and the cost of a checkpoint is spread over a proportionate
+    number of changes.
+*/
+public class MappedGraph extends GraphMemBase
+    {
+    /**
+        The name of the file holding the journal of this graph.
+    */
+    public final File name;
+
+    /**
+        The number of changes beyond a quarter of the size of the graph that
+        the journal may hold before it is checkpointed.
+    */
+    public static final int CHECKPOINT_SLACK = 1 << 14;
+
+    protected final FileGraph.NotifyOnClose notify;
+
+    protected GraphJournal journal;
+
+    protected TransactionHandler th;
+
+    /**
+        Construct a MappedGraph journalled in the file <code>f</code>.
+        If create is true, this is a new graph, and any existing journal will be
+        discarded; if create is false, this is an existing graph, and its
+        contents are recovered from its journal.
+
+        @param notify the object to notify when this graph is fully closed
+        @param f the File naming the journal file
+        @param create true to create a new graph, false to open an existing one
+        @param strict true to throw exceptions for create: existing, open: not found
+        @param style the reification style for the graph
+    */
+    public MappedGraph( FileGraph.NotifyOnClose notify, File f, boolean create, boolean strict, ReificationStyle style )
+        {
+        super( style );
+        this.name = f;
+        this.notify = notify;
+        boolean exists = f.exists();
+        if (create && exists && strict) throw new AlreadyExistsException( f.toString() );
+        if (!create && !exists && strict) throw new DoesNotExistException( f.toString() );
+        CompactTripleStore added = new CompactTripleStore( this );
+        this.journal = new GraphJournal( f, create, added.getDictionary() );
+        getStore().reset( journal.getSnapshot(), added );
+        if (!create)
+            {
+            replay();
+            checkpointIfLarge();
+            }
+        }
+
+    /**
+        See MappedGraph( notify, f, create, strict, style ).
+    */
+    public MappedGraph( File f, boolean create, boolean strict )
+        { this( FileGraph.NotifyOnClose.ignore, f, create, strict, ReificationStyle.Minimal ); }
+
+    /**
+        Answer a new MappedGraph journalled in a temporary file.
+    */
+    public static MappedGraph create()
+        { return new MappedGraph( FileUtils.tempFileName( "anonymousMappedGraph", MappedGraphMaker.SUFFIX ), true, true ); }
+
+    /**
+        Answer the journal of this graph.
+    */
+    public GraphJournal getJournal()
+        { return journal; }
+
+    protected MappedTripleStore getStore()
+        { return (MappedTripleStore) store; }
+
+    @Override protected TripleStore createTripleStore()
+        { return new MappedTripleStore( this ); }
+
+    @Override public void performAdd( Triple t )
+        {
+        journal.add( t );
+        if (!getReifier().handledAdd( t )) store.add( t );
+        checkpointIfLarge();
+        }
+
+    @Override public void performDelete( Triple t )
+        {
+        journal.delete( t );
+        if (!getReifier().handledRemove( t )) store.delete( t );
+        checkpointIfLarge();
+        }
+
+    @Override public int graphBaseSize()
+        { return store.size(); }
+
+    @Override public QueryHandler queryHandler()
+        {
+        if (queryHandler == null) queryHandler = new GraphMemBaseQueryHandler( this );
+        return queryHandler;
+        }
+
+    @Override public boolean graphBaseContains( Triple t )
+        { return t.isConcrete() ? store.contains( t ) : super.graphBaseContains( t ); }
+
+    /**
+        Answer the triples matching <code>m</code>. Removing a triple through
+        the iterator journals its deletion, just as <code>delete</code> does.
+    */
+    @Override public ExtendedIterator<Triple> graphBaseFind( TripleMatch m )
+        {
+        return new TrackingTripleIterator( store.find( m.asTriple() ) )
+            {
+            @Override public void remove()
+                {
+                journal.delete( current );
+                super.remove();
+                checkpointIfLarge();
+                }
+            };
+        }
+
+    /**
+        Remove all the triples of this graph. Outside a transaction, the
+        journal is checkpointed, which drops the old snapshot from the file.
+    */
+    @Override public void clear()
+        {
+        journal.clear();
+        store.clear();
+        ((SimpleReifier) getReifier()).clear();
+        if (!journal.inTransaction()) checkpoint();
+        }
+
+    /**
+        Force the changes made so far to the disc.
+    */
+    public void sync()
+        { journal.force(); }
+
+    /**
+        Replace the journal by one whose snapshot holds the current triples of
+        this graph and whose log is empty, but for the reification fragments
+        held outside the store. Not allowed during a transaction.
+    */
+    public void checkpoint()
+        {
+        CompactTripleStore added = new CompactTripleStore( this );
+        journal.checkpoint( store, ((SimpleReifier) getReifier()).find( Triple.ANY ), added.getDictionary() );
+        getStore().reset( journal.getSnapshot(), added );
+        }
+
+    protected void checkpointIfLarge()
+        {
+        if (!journal.inTransaction() && journal.changes() > CHECKPOINT_SLACK + store.size() / 4) checkpoint();
+        }
+
+    /**
+        Commit the current transaction, checkpointing the journal if it has
+        grown large enough.
+    */
+    protected void commit()
+        {
+        journal.commit();
+        checkpointIfLarge();
+        }
+
+    /**
+        Discard the changes of the current transaction: the contents of the
+        graph are rebuilt from the journal as it was when the transaction began.
+    */
+    protected void rollback()
+        {
+        journal.abort();
+        getStore().revert();
+        ((SimpleReifier) getReifier()).clear();
+        replay();
+        }
+
+    /**
+        Rebuild the contents of this graph from its journal. Replayed changes
+        are not notified to listeners, nor written to the journal again.
+    */
+    protected void replay()
+        {
+        journal.replay( new GraphJournal.Replay()
+            {
+            @Override public void add( Triple t )
+                { if (!getReifier().handledAdd( t )) store.add( t ); }
+
+            @Override public void delete( Triple t )
+                { if (!getReifier().handledRemove( t )) store.delete( t ); }
+
+            @Override public void clear()
+                {
+                store.clear();
+                ((SimpleReifier) getReifier()).clear();
+                }
+            } );
+        }
+
+    @Override protected void destroy()
+        {
+        journal.close();
+        store.close();
+        }
+
+    /**
+        Close this MappedGraph; when it is fully closed, its journal is released
+        and the notifier told.
+    */
+    @Override public void close()
+        {
+        super.close();
+        if (count == 0) notify.notifyClosed( name );
+        }
+
+    /**
+        Delete the journal file. Primarily intended for test cleanup.
+    */
+    public void delete()
+        { name.delete(); }
+
+    @Override public TransactionHandler getTransactionHandler()
+        {
+        if (th == null) th = new MappedGraphTransactionHandler( this );
+        return th;
+        }
+    }
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.impl;
+
+import java.io.*;
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.shared.*;
+import com.hp.hpl.jena.util.CollectionFactory;
+import com.hp.hpl.jena.util.iterator.*;
+
+/**
+    A MappedGraph factory, making MappedGraphs whose journals live in some
+    supplied directory. Graph names are turned into file names as for
+    FileGraphMaker, with the suffix <code>SUFFIX</code> added; any file in
+    the directory with that suffix is taken to be a graph.
+*/
+public class MappedGraphMaker
+    extends BaseGraphMaker
+    implements FileGraph.NotifyOnClose
+    {
+    /**
+        The suffix of journal file names.
+    */
+    public static final String SUFFIX = ".jnl";
+
+    protected String fileBase;
+    protected boolean deleteOnClose;
+    protected Map<File, MappedGraph> created = CollectionFactory.createHashedMap();
+    protected Set<File> toDelete = CollectionFactory.createHashedSet();
+
+    /**
+        Construct a mapped graph factory whose journals will appear in root. The
+        reifier style is Minimal and the files will be retained when the maker
+        is closed.
+
+        @param root the directory to keep the files in.
+     */
+    public MappedGraphMaker( String root )
+        { this( root, ReificationStyle.Minimal ); }
+
+    /**
+        Construct a mapped graph factory whose journals will appear in root.
+        The files will be retained when the maker is closed.
+
+        @param root the directory to keep the files in.
+        @param style the reification style of the resulting graph
+     */
+    public MappedGraphMaker( String root, ReificationStyle style )
+        { this( root, style, false ); }
+
+    /**
+        Construct a mapped graph factory whose journals will appear in root.
+        If deleteOnClose is true, the files created by this factory will be
+        deleted when the factory is closed.
+
+        @param root the directory to keep the files in
+        @param style the reification style of the graph
+        @param deleteOnClose iff true, delete created files on close
+     */
+    public MappedGraphMaker( String root, ReificationStyle style, boolean deleteOnClose )
+        {
+        super( style );
+        this.fileBase = root;
+        this.deleteOnClose = deleteOnClose;
+        }
+
+    /**
+        Answer the fileBase of all the graphs created by this MappedGraphMaker.
+    */
+    public String getFileBase()
+        { return fileBase; }
+
+    /**
+        Answer a new, anonymous MappedGraph. See MappedGraph.create().
+    */
+    @Override
+    public Graph createGraph()
+        { return MappedGraph.create(); }
+
+    @Override
+    public Graph createGraph( String name, boolean strict )
+        {
+        File f = withRoot( name );
+        MappedGraph already = created.get( f );
+        if (already == null)
+            return remember( f, new MappedGraph( this, f, true, strict, style ) );
+        else
+            {
+            if (strict) throw new AlreadyExistsException( name );
+            else return already.openAgain();
+            }
+        }
+
+    @Override
+    public Graph openGraph( String name, boolean strict )
+        {
+        File f = withRoot( name );
+        return created.containsKey( f )
+            ? created.get( f ).openAgain()
+            : remember( f, new MappedGraph( this, f, false, strict, style ) )
+            ;
+        }
+
+    @Override
+    public void notifyClosed( File f )
+        {
+        toDelete.add( f );
+        created.remove( f );
+        }
+
+    private File withRoot( String name )
+        { return new File( fileBase, FileGraphMaker.toFilename( name ) + SUFFIX ); }
+
+    @Override
+    public void removeGraph( String name )
+        {
+        File f = withRoot( name );
+        created.remove( f );
+        f.delete();
+        }
+
+    private MappedGraph remember( File f, MappedGraph g )
+        {
+        created.put( f, g );
+        return g;
+        }
+
+    @Override
+    public boolean hasGraph( String name )
+        {
+        File f = withRoot( name );
+        return created.containsKey( f ) || f.exists();
+        }
+
+    @Override
+    public void close()
+        {
+        if (deleteOnClose)
+            {
+            deleteFiles( created.keySet().iterator() );
+            deleteFiles( toDelete.iterator() );
+            }
+        }
+
+    protected void deleteFiles( Iterator<File> it )
+        { while (it.hasNext()) it.next().delete(); }
+
+    /**
+        Answer a FilenameFilter which recognises journal files.
+    */
+    public static FilenameFilter graphName()
+        { return new FilenameFilter()
+            {
+            @Override
+            public boolean accept( File file, String name )
+                { return name.endsWith( SUFFIX ) && !new File( file, name ).isDirectory(); }
+            }; }
+
+    /**
+        A Map1 that will convert journal file names to the corresponding graph names.
+    */
+    private static Map1<String, String> unconvert = new Map1<String, String>()
+        { @Override
+        public String map1( String x )
+            { return FileGraphMaker.toGraphname( x.substring( 0, x.length() - SUFFIX.length() ) ); }
+        };
+
+    /**
+        Answer an iterator over the names of graphs in this MappedGraphMaker: the
+        names of freshly-created graphs, plus the names of the journal files
+        in the fileBase.
+    */
+    @Override
+    public ExtendedIterator<String> listGraphs()
+        {
+        String [] fileNames = new File( fileBase ).list( graphName() );
+        Set<String> allNames = CollectionFactory.createHashedSet( Arrays.asList( fileNames ) );
+        Iterator<File> it = created.keySet().iterator();
+        while (it.hasNext()) allNames.add( it.next().getName() );
+        return WrappedIterator.create( allNames.iterator() ) .mapWith( unconvert );
+        }
+    }
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.impl;
+
+import com.hp.hpl.jena.graph.TransactionHandler;
+
+/**
+    A TransactionHandler for MappedGraphs, using the graph's journal as a
+    write-ahead log. begin() writes a BEGIN record; changes are journalled
+    as they are made; commit() writes a COMMIT record and forces the journal
+    to the disc. abort() truncates the journal back to the BEGIN and rebuilds
+    the graph from what remains. A transaction interrupted by a crash is
+    discarded when the graph is next opened. Nested transactions are Not
+    Allowed.
+*/
+public class MappedGraphTransactionHandler
+    extends TransactionHandlerBase implements TransactionHandler
+    {
+    protected MappedGraph mappedGraph;
+
+    public MappedGraphTransactionHandler( MappedGraph mappedGraph )
+        { this.mappedGraph = mappedGraph; }
+
+    @Override
+    public boolean transactionsSupported()
+        { return true; }
+
+    @Override
+    public void begin()
+        { mappedGraph.getJournal().begin(); }
+
+    @Override
+    public void abort()
+        { mappedGraph.rollback(); }
+
+    @Override
+    public void commit()
+        { mappedGraph.commit(); }
+    }
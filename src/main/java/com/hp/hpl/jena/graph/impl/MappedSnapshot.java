@@ -0,0 +1,771 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.impl;
+
+import java.io.IOException;
+import java.math.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.shared.*;
+import com.hp.hpl.jena.util.iterator.*;
+
+/**
+    A MappedSnapshot is a read-only view of the triples which a checkpoint
+    wrote to the front of a graph journal file. The node dictionary and the
+    three triple indexes are read in place from the mapped file, so opening
+    a snapshot costs the same however many triples it holds; only the nodes
+    of the triples that are actually delivered are decoded.
+<p>
+    After the file header come the node records (a kind byte and then the
+    length-prefixed UTF-8 strings of the node) and a table of their offsets,
+    indexed by node id. Nodes are found through an open-addressed table of
+    ids hashed on their encoding, and literals also through a second table
+    hashed on their indexing value, so that <code>find</code> can match
+    literals by value as the memory stores do. Literals whose values have no
+    hash code which is fixed from one JVM to the next are listed separately
+    and scanned instead.
+<p>
+    The triples are held three times, as sorted arrays of three ints: SPO
+    holds (s, p, o), POS holds (p, o, i), and OSP holds (o, s, i), where i is
+    the position of the triple in SPO. A triple is identified by its SPO
+    position, which is how the MappedTripleStore records deletions.
+*/
+public class MappedSnapshot
+    {
+    /** The orders of the three indexes. */
+    public static final int SPO = 0, POS = 1, OSP = 2;
+
+    protected static final int NODES_AT = 16, TRIPLES_AT = 20, OFFSETS_AT = 24;
+    protected static final int NODE_TABLE_AT = 28, NODE_TABLE_SIZE_AT = 32;
+    protected static final int VALUE_TABLE_AT = 36, VALUE_TABLE_SIZE_AT = 40;
+    protected static final int UNHASHED_AT = 44, UNHASHED_COUNT_AT = 48;
+    protected static final int SECTIONS_AT = 52;
+
+    protected static final byte URI = 'U', BLANK = 'B', LITERAL = 'L', VARIABLE = 'V';
+
+    protected static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    protected static final int [] NO_IDS = new int[0];
+
+    protected static final int CACHE_SIZE = 1 << 10;
+
+    protected final ByteBuffer buffer;
+
+    protected final int nodeCount, size;
+    protected final int offsets;
+    protected final int nodeTable, nodeTableSize;
+    protected final int valueTable, valueTableSize;
+    protected final int unhashed, unhashedCount;
+    protected final int [] sections = new int[3];
+
+    /** Recently decoded nodes, indexed by the low bits of their ids. */
+    protected final CachedNode [] cache = new CachedNode[CACHE_SIZE];
+
+    /**
+        Initialise a snapshot held in <code>buffer</code>, which starts with the
+        header of the journal file.
+    */
+    public MappedSnapshot( ByteBuffer buffer )
+        {
+        this.buffer = buffer;
+        this.nodeCount = buffer.getInt( NODES_AT );
+        this.size = buffer.getInt( TRIPLES_AT );
+        this.offsets = buffer.getInt( OFFSETS_AT );
+        this.nodeTable = buffer.getInt( NODE_TABLE_AT );
+        this.nodeTableSize = buffer.getInt( NODE_TABLE_SIZE_AT );
+        this.valueTable = buffer.getInt( VALUE_TABLE_AT );
+        this.valueTableSize = buffer.getInt( VALUE_TABLE_SIZE_AT );
+        this.unhashed = buffer.getInt( UNHASHED_AT );
+        this.unhashedCount = buffer.getInt( UNHASHED_COUNT_AT );
+        for (int i = 0; i < 3; i += 1) sections[i] = buffer.getInt( SECTIONS_AT + 4 * i );
+        }
+
+    /**
+        Answer a snapshot with no triples.
+    */
+    public static MappedSnapshot empty()
+        { return new MappedSnapshot( ByteBuffer.allocate( GraphJournal.HEADER ) ); }
+
+    /**
+        Answer the number of triples in this snapshot.
+    */
+    public int size()
+        { return size; }
+
+    /**
+        Answer the number of nodes in this snapshot; their ids run from 0 up.
+    */
+    public int nodeCount()
+        { return nodeCount; }
+
+    /**
+        Answer the node with id <code>id</code>.
+    */
+    public Node node( int id )
+        {
+        int slot = id & (CACHE_SIZE - 1);
+        CachedNode c = cache[slot];
+        if (c != null && c.id == id) return c.node;
+        Node n = decode( buffer, buffer.getInt( offsets + 4 * id ) );
+        cache[slot] = new CachedNode( id, n );
+        return n;
+        }
+
+    protected static class CachedNode
+        {
+        final int id;
+        final Node node;
+
+        CachedNode( int id, Node node )
+            { this.id = id; this.node = node; }
+        }
+
+    /**
+        Answer the id of <code>n</code>, or -1 if it is not in this snapshot.
+    */
+    public int lookup( Node n )
+        {
+        if (nodeTableSize == 0 || !isEncodable( n )) return -1;
+        byte [] record = encode( n );
+        int mask = nodeTableSize - 1;
+        for (int i = hash( record ) & mask; ; i = (i + 1) & mask)
+            {
+            int entry = buffer.getInt( nodeTable + 4 * i );
+            if (entry == 0) return -1;
+            if (sameRecord( entry - 1, record )) return entry - 1;
+            }
+        }
+
+    protected boolean sameRecord( int id, byte [] record )
+        {
+        int at = buffer.getInt( offsets + 4 * id );
+        if (buffer.getInt( offsets + 4 * id + 4 ) - at != record.length) return false;
+        for (int i = 0; i < record.length; i += 1)
+            if (buffer.get( at + i ) != record[i]) return false;
+        return true;
+        }
+
+    /**
+        Answer the ids of the nodes in this snapshot that <code>n</code> matches:
+        for a literal these are the literals with the same value, for anything
+        else it is just the id of <code>n</code> itself.
+    */
+    public int [] matchingIds( Node n )
+        {
+        if (n.isLiteral())
+            {
+            int [] result = NO_IDS;
+            int count = 0;
+            if (hasFixedValueHash( n ))
+                {
+                int mask = valueTableSize - 1;
+                for (int i = valueTableSize == 0 ? -1 : valueHash( n ) & mask; i >= 0; i = (i + 1) & mask)
+                    {
+                    int entry = buffer.getInt( valueTable + 4 * i );
+                    if (entry == 0) break;
+                    if (n.matches( node( entry - 1 ) ))
+                        {
+                        if (count == result.length) result = grow( result );
+                        result[count++] = entry - 1;
+                        }
+                    }
+                }
+            else
+                {
+                for (int i = 0; i < unhashedCount; i += 1)
+                    {
+                    int id = buffer.getInt( unhashed + 4 * i );
+                    if (n.matches( node( id ) ))
+                        {
+                        if (count == result.length) result = grow( result );
+                        result[count++] = id;
+                        }
+                    }
+                }
+            int [] trimmed = new int[count];
+            System.arraycopy( result, 0, trimmed, 0, count );
+            return trimmed;
+            }
+        else
+            {
+            int id = lookup( n );
+            return id < 0 ? NO_IDS : new int[] { id };
+            }
+        }
+
+    protected static int [] grow( int [] ids )
+        {
+        int [] result = new int[Math.max( 4, ids.length * 2 )];
+        System.arraycopy( ids, 0, result, 0, ids.length );
+        return result;
+        }
+
+    /**
+        Answer the value of column <code>column</code> of entry <code>i</code>
+        of the index with order <code>order</code>.
+    */
+    protected int entry( int order, int i, int column )
+        { return buffer.getInt( sections[order] + 12 * i + 4 * column ); }
+
+    /**
+        Answer the SPO position of the triple of entry <code>i</code> of the
+        index with order <code>order</code>.
+    */
+    protected int position( int order, int i )
+        { return order == SPO ? i : entry( order, i, 2 ); }
+
+    /**
+        Answer the first entry of the index with order <code>order</code> whose
+        first two columns are not less than (a, b); b may be -1 to look for
+        the first entry with a in its first column.
+    */
+    protected int lowerBound( int order, int a, int b )
+        {
+        int lo = 0, hi = size;
+        while (lo < hi)
+            {
+            int mid = (lo + hi) >>> 1;
+            int x = entry( order, mid, 0 );
+            if (x < a || x == a && entry( order, mid, 1 ) < b) lo = mid + 1; else hi = mid;
+            }
+        return lo;
+        }
+
+    /**
+        Answer the SPO position of the triple (s, p, o) of ids, or -1 if it is
+        not in this snapshot.
+    */
+    public int indexOf( int s, int p, int o )
+        {
+        int i = lowerBound( SPO, s, p );
+        for (; i < size && entry( SPO, i, 0 ) == s && entry( SPO, i, 1 ) == p; i += 1)
+            {
+            int x = entry( SPO, i, 2 );
+            if (x == o) return i;
+            if (x > o) break;
+            }
+        return -1;
+        }
+
+    /**
+        Answer the SPO position of the triple whose nodes are equal to those of
+        <code>t</code>, or -1 if there is none.
+    */
+    public int indexOf( Triple t )
+        {
+        int s = lookup( t.getSubject() );
+        if (s < 0) return -1;
+        int p = lookup( t.getPredicate() );
+        if (p < 0) return -1;
+        int o = lookup( t.getObject() );
+        return o < 0 ? -1 : indexOf( s, p, o );
+        }
+
+    /**
+        Answer true iff some triple of this snapshot which is not in
+        <code>deleted</code> matches the concrete triple <code>t</code>.
+    */
+    public boolean contains( Triple t, BitSet deleted )
+        {
+        int [] S = matchingIds( t.getSubject() );
+        if (S.length == 0) return false;
+        int [] P = matchingIds( t.getPredicate() );
+        if (P.length == 0) return false;
+        int [] O = matchingIds( t.getObject() );
+        for (int i = 0; i < S.length; i += 1)
+            for (int j = 0; j < P.length; j += 1)
+                for (int k = 0; k < O.length; k += 1)
+                    {
+                    int at = indexOf( S[i], P[j], O[k] );
+                    if (at >= 0 && !deleted.get( at )) return true;
+                    }
+        return false;
+        }
+
+    /**
+        Answer true iff some triple of this snapshot which is not in
+        <code>deleted</code> has <code>n</code> itself first in the given order.
+    */
+    public boolean hasLive( int order, Node n, BitSet deleted )
+        {
+        int a = lookup( n );
+        if (a < 0) return false;
+        for (int i = lowerBound( order, a, -1 ); i < size && entry( order, i, 0 ) == a; i += 1)
+            if (!deleted.get( position( order, i ) )) return true;
+        return false;
+        }
+
+    /**
+        Answer an iterator over the triples of this snapshot which match
+        <code>pattern</code> and are not in <code>deleted</code>, choosing the
+        index in the same way as the memory stores. The iterator does not
+        support <code>remove</code>.
+    */
+    public ExtendedIterator<Triple> find( Triple pattern, BitSet deleted )
+        {
+        int [] S = idsFor( pattern.getSubject() ), P = idsFor( pattern.getPredicate() ), O = idsFor( pattern.getObject() );
+        if (isEmpty( S ) || isEmpty( P ) || isEmpty( O ))
+            return NullIterator.<Triple>instance();
+        else if (S != null)
+            return new SnapshotIterator( SPO, S, P, S, P, O, deleted );
+        else if (O != null)
+            return new SnapshotIterator( OSP, O, S, S, P, O, deleted );
+        else if (P != null)
+            return new SnapshotIterator( POS, P, O, S, P, O, deleted );
+        else
+            return new SnapshotIterator( SPO, null, null, S, P, O, deleted );
+        }
+
+    /**
+        Answer the ids a pattern node can match, or null if it is a wildcard.
+    */
+    protected int [] idsFor( Node n )
+        { return n.isConcrete() ? matchingIds( n ) : null; }
+
+    protected static boolean isEmpty( int [] ids )
+        { return ids != null && ids.length == 0; }
+
+    protected static boolean allows( int [] ids, int id )
+        {
+        if (ids == null) return true;
+        for (int i = 0; i < ids.length; i += 1) if (ids[i] == id) return true;
+        return false;
+        }
+
+    /**
+        An iterator over the entries of one index with one of the candidate ids
+        A (null meaning any) in the first column, and the single candidate of B,
+        if there is just one, in the second. Each triple is then checked against
+        the candidates for each of its nodes and against the deleted set.
+    */
+    protected class SnapshotIterator extends NiceIterator<Triple>
+        {
+        protected final int order;
+        protected final int [] A, S, P, O;
+        protected final int b;
+        protected final BitSet deleted;
+
+        protected int nextA = 0;
+        protected int i, limitA;
+        protected boolean inRun;
+        protected int nextPosition = -1;
+
+        protected SnapshotIterator( int order, int [] A, int [] B, int [] S, int [] P, int [] O, BitSet deleted )
+            {
+            this.order = order;
+            this.A = A;
+            this.b = B != null && B.length == 1 ? B[0] : -1;
+            this.S = S; this.P = P; this.O = O;
+            this.deleted = deleted;
+            this.inRun = A == null;
+            }
+
+        @Override public boolean hasNext()
+            {
+            while (nextPosition < 0)
+                {
+                if (!inRun)
+                    {
+                    if (nextA == A.length) return false;
+                    limitA = A[nextA++];
+                    i = lowerBound( order, limitA, b );
+                    inRun = true;
+                    }
+                if (i < size && (A == null || entry( order, i, 0 ) == limitA && (b < 0 || entry( order, i, 1 ) == b)))
+                    {
+                    int at = position( order, i++ );
+                    if (!deleted.get( at )
+                        && allows( S, entry( SPO, at, 0 ) ) && allows( P, entry( SPO, at, 1 ) ) && allows( O, entry( SPO, at, 2 ) ))
+                        nextPosition = at;
+                    }
+                else if (A == null)
+                    return false;
+                else
+                    inRun = false;
+                }
+            return true;
+            }
+
+        @Override public Triple next()
+            {
+            if (!hasNext()) throw new NoSuchElementException( "MappedSnapshot find next()" );
+            int at = nextPosition;
+            nextPosition = -1;
+            return Triple.create( node( entry( SPO, at, 0 ) ), node( entry( SPO, at, 1 ) ), node( entry( SPO, at, 2 ) ) );
+            }
+        }
+
+    /**
+        Answer an iterator over the distinct nodes first in the given order of
+        some triple not in <code>deleted</code>.
+    */
+    public ExtendedIterator<Node> keys( final int order, final BitSet deleted )
+        {
+        return new NiceIterator<Node>()
+            {
+            int i = 0;
+            int ready = -1;
+
+            @Override public boolean hasNext()
+                {
+                while (ready < 0 && i < size)
+                    {
+                    int a = entry( order, i, 0 );
+                    boolean live = false;
+                    for (; i < size && entry( order, i, 0 ) == a; i += 1)
+                        if (!live && !deleted.get( position( order, i ) )) live = true;
+                    if (live) ready = a;
+                    }
+                return ready >= 0;
+                }
+
+            @Override public Node next()
+                {
+                if (!hasNext()) throw new NoSuchElementException( "MappedSnapshot keys next()" );
+                Node result = node( ready );
+                ready = -1;
+                return result;
+                }
+            };
+        }
+
+    /**
+        Answer true iff <code>n</code> is a kind of node that can be recorded.
+    */
+    protected static boolean isEncodable( Node n )
+        { return n.isURI() || n.isBlank() || n.isLiteral() || n.isVariable(); }
+
+    /**
+        Answer the record encoding <code>n</code>: its kind, followed by the
+        length and UTF-8 encoding of each of its label strings.
+    */
+    public static byte [] encode( Node n )
+        {
+        if (n.isURI())
+            return record( URI, n.getURI() );
+        else if (n.isBlank())
+            return record( BLANK, n.getBlankNodeLabel() );
+        else if (n.isLiteral())
+            {
+            String type = n.getLiteralDatatypeURI();
+            return record( LITERAL, n.getLiteralLexicalForm(), n.getLiteralLanguage(), type == null ? "" : type );
+            }
+        else if (n.isVariable())
+            return record( VARIABLE, n.getName() );
+        else
+            throw new JenaException( "cannot record node " + n );
+        }
+
+    protected static byte [] record( byte kind, String... strings )
+        {
+        byte [][] parts = new byte[strings.length][];
+        int length = 1;
+        for (int i = 0; i < strings.length; i += 1)
+            {
+            parts[i] = strings[i].getBytes( UTF8 );
+            length += 4 + parts[i].length;
+            }
+        ByteBuffer result = ByteBuffer.allocate( length );
+        result.put( kind );
+        for (int i = 0; i < parts.length; i += 1) result.putInt( parts[i].length ).put( parts[i] );
+        return result.array();
+        }
+
+    /**
+        Answer the node encoded by the record at <code>at</code> in <code>b</code>.
+    */
+    public static Node decode( ByteBuffer b, int at )
+        {
+        byte kind = b.get( at );
+        String [] strings = new String[kind == LITERAL ? 3 : 1];
+        at += 1;
+        for (int i = 0; i < strings.length; i += 1)
+            {
+            int length = b.getInt( at );
+            byte [] bytes = new byte[length];
+            ByteBuffer view = b.duplicate();
+            view.position( at + 4 );
+            view.get( bytes );
+            strings[i] = new String( bytes, UTF8 );
+            at += 4 + length;
+            }
+        switch (kind)
+            {
+            case URI: return Node.createURI( strings[0] );
+            case BLANK: return Node.createAnon( new AnonId( strings[0] ) );
+            case VARIABLE: return Node.createVariable( strings[0] );
+            case LITERAL:
+                RDFDatatype dt = strings[2].length() == 0 ? null : TypeMapper.getInstance().getSafeTypeByName( strings[2] );
+                return Node.createLiteral( strings[0], strings[1], dt );
+            default:
+                throw new JenaException( "unknown node kind " + kind + " at " + (at - 1) );
+            }
+        }
+
+    /**
+        Answer the offset just past the node record at <code>at</code> in <code>b</code>.
+    */
+    public static int skip( ByteBuffer b, int at )
+        {
+        int count = b.get( at ) == LITERAL ? 3 : 1;
+        at += 1;
+        for (int i = 0; i < count; i += 1) at += 4 + b.getInt( at );
+        return at;
+        }
+
+    /**
+        Answer a hash of a node record which is the same in every JVM.
+    */
+    protected static int hash( byte [] record )
+        {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < record.length; i += 1) h = (h ^ record[i]) * 0x01000193;
+        return h ^ (h >>> 16);
+        }
+
+    /**
+        Answer true iff the indexing value of the literal <code>n</code> has a
+        hash code which is the same in every JVM.
+    */
+    protected static boolean hasFixedValueHash( Node n )
+        {
+        Object v = n.getIndexingValue();
+        return v instanceof String || v instanceof Integer || v instanceof Long
+            || v instanceof Short || v instanceof Byte || v instanceof BigInteger
+            || v instanceof BigDecimal || v instanceof Double || v instanceof Float
+            || v instanceof Boolean;
+        }
+
+    protected static int valueHash( Node n )
+        {
+        int h = n.getIndexingValue().hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+        }
+
+    /**
+        Write a snapshot of the triples of <code>store</code> to the file open
+        on <code>channel</code>, which must be empty, filling in the snapshot
+        fields of its header; the journal fields are left to the caller. The
+        store is read twice and must not change meanwhile. Answer the offset
+        of the end of the snapshot, where the journal records will start.
+    */
+    public static int write( FileChannel channel, TripleStore store ) throws IOException
+        {
+        Output out = new Output( channel );
+        Map<Node, Integer> ids = new HashMap<Node, Integer>();
+        int [] offsetOf = new int[64], hashOf = new int[64], valueHashOf = new int[64];
+        byte [] kindOf = new byte[64];
+        int triples = 0, hashed = 0, unhashed = 0;
+        out.at = GraphJournal.HEADER;
+        for (Iterator<Triple> it = store.find( Triple.ANY ); it.hasNext();)
+            {
+            Triple t = it.next();
+            triples += 1;
+            Node [] nodes = { t.getSubject(), t.getPredicate(), t.getObject() };
+            for (int j = 0; j < 3; j += 1)
+                {
+                Node n = nodes[j];
+                if (ids.containsKey( n )) continue;
+                int id = ids.size();
+                ids.put( n, new Integer( id ) );
+                if (id + 1 >= offsetOf.length)
+                    {
+                    int length = offsetOf.length * 2;
+                    offsetOf = Arrays.copyOf( offsetOf, length );
+                    hashOf = Arrays.copyOf( hashOf, length );
+                    valueHashOf = Arrays.copyOf( valueHashOf, length );
+                    kindOf = Arrays.copyOf( kindOf, length );
+                    }
+                byte [] record = encode( n );
+                offsetOf[id] = out.at;
+                out.put( record );
+                hashOf[id] = hash( record );
+                if (n.isLiteral())
+                    {
+                    if (hasFixedValueHash( n )) { kindOf[id] = 1; valueHashOf[id] = valueHash( n ); hashed += 1; }
+                    else { kindOf[id] = 2; unhashed += 1; }
+                    }
+                }
+            }
+        int nodes = ids.size();
+        offsetOf[nodes] = out.at;
+        int nodeTableSize = tableSize( nodes ), valueTableSize = tableSize( hashed );
+        long offsets = (out.at + 3) & ~3;
+        long nodeTable = offsets + 4L * (nodes + 1);
+        long valueTable = nodeTable + 4L * nodeTableSize;
+        long unhashedAt = valueTable + 4L * valueTableSize;
+        long spo = unhashedAt + 4L * unhashed;
+        long end = spo + 36L * triples;
+        if (end > Integer.MAX_VALUE) throw new JenaException( "too many triples for a mapped graph: " + triples );
+        out.ensure( (int) end );
+        MappedByteBuffer b = out.buffer;
+        for (int id = 0; id <= nodes; id += 1) b.putInt( (int) offsets + 4 * id, offsetOf[id] );
+        for (int id = 0; id < nodes; id += 1)
+            {
+            enter( b, (int) nodeTable, nodeTableSize, hashOf[id], id );
+            if (kindOf[id] == 1) enter( b, (int) valueTable, valueTableSize, valueHashOf[id], id );
+            }
+        for (int id = 0, u = 0; id < nodes; id += 1)
+            if (kindOf[id] == 2) b.putInt( (int) unhashedAt + 4 * u++, id );
+        int [] sections = { (int) spo, (int) spo + 12 * triples, (int) spo + 24 * triples };
+        int count = 0;
+        for (Iterator<Triple> it = store.find( Triple.ANY ); it.hasNext(); count += 1)
+            {
+            if (count == triples) throw new ConcurrentModificationException();
+            Triple t = it.next();
+            int at = sections[SPO] + 12 * count;
+            b.putInt( at, ids.get( t.getSubject() ).intValue() );
+            b.putInt( at + 4, ids.get( t.getPredicate() ).intValue() );
+            b.putInt( at + 8, ids.get( t.getObject() ).intValue() );
+            }
+        if (count != triples) throw new ConcurrentModificationException();
+        sort( b, sections[SPO], triples );
+        for (int i = 0; i < triples; i += 1)
+            {
+            int at = sections[SPO] + 12 * i;
+            int s = b.getInt( at ), p = b.getInt( at + 4 ), o = b.getInt( at + 8 );
+            b.putInt( sections[POS] + 12 * i, p ); b.putInt( sections[POS] + 12 * i + 4, o ); b.putInt( sections[POS] + 12 * i + 8, i );
+            b.putInt( sections[OSP] + 12 * i, o ); b.putInt( sections[OSP] + 12 * i + 4, s ); b.putInt( sections[OSP] + 12 * i + 8, i );
+            }
+        sort( b, sections[POS], triples );
+        sort( b, sections[OSP], triples );
+        b.putInt( NODES_AT, nodes );
+        b.putInt( TRIPLES_AT, triples );
+        b.putInt( OFFSETS_AT, (int) offsets );
+        b.putInt( NODE_TABLE_AT, (int) nodeTable );
+        b.putInt( NODE_TABLE_SIZE_AT, nodeTableSize );
+        b.putInt( VALUE_TABLE_AT, (int) valueTable );
+        b.putInt( VALUE_TABLE_SIZE_AT, valueTableSize );
+        b.putInt( UNHASHED_AT, (int) unhashedAt );
+        b.putInt( UNHASHED_COUNT_AT, unhashed );
+        for (int i = 0; i < 3; i += 1) b.putInt( SECTIONS_AT + 4 * i, sections[i] );
+        b.force();
+        return (int) end;
+        }
+
+    /**
+        Answer the size of a hash table for <code>count</code> entries: a power
+        of two at least twice the count, or 0 if there are none.
+    */
+    protected static int tableSize( int count )
+        {
+        if (count == 0) return 0;
+        int size = 2;
+        while (size < 2L * count) size <<= 1;
+        return size;
+        }
+
+    protected static void enter( ByteBuffer b, int table, int tableSize, int hash, int id )
+        {
+        int mask = tableSize - 1, i = hash & mask;
+        while (b.getInt( table + 4 * i ) != 0) i = (i + 1) & mask;
+        b.putInt( table + 4 * i, id + 1 );
+        }
+
+    /**
+        Sort, in place, the <code>count</code> entries of three ints starting at
+        <code>base</code> in <code>b</code>. Heapsort, since it needs no space
+        beyond the mapped file.
+    */
+    protected static void sort( ByteBuffer b, int base, int count )
+        {
+        for (int i = count / 2 - 1; i >= 0; i -= 1) siftDown( b, base, i, count );
+        for (int last = count - 1; last > 0; last -= 1)
+            {
+            swap( b, base, 0, last );
+            siftDown( b, base, 0, last );
+            }
+        }
+
+    protected static void siftDown( ByteBuffer b, int base, int i, int count )
+        {
+        while (true)
+            {
+            int child = 2 * i + 1;
+            if (child >= count) return;
+            if (child + 1 < count && compare( b, base, child + 1, child ) > 0) child += 1;
+            if (compare( b, base, i, child ) >= 0) return;
+            swap( b, base, i, child );
+            i = child;
+            }
+        }
+
+    protected static int compare( ByteBuffer b, int base, int i, int j )
+        {
+        for (int k = 0; k < 12; k += 4)
+            {
+            int x = b.getInt( base + 12 * i + k ), y = b.getInt( base + 12 * j + k );
+            if (x != y) return x < y ? -1 : 1;
+            }
+        return 0;
+        }
+
+    protected static void swap( ByteBuffer b, int base, int i, int j )
+        {
+        for (int k = 0; k < 12; k += 4)
+            {
+            int x = b.getInt( base + 12 * i + k );
+            b.putInt( base + 12 * i + k, b.getInt( base + 12 * j + k ) );
+            b.putInt( base + 12 * j + k, x );
+            }
+        }
+
+    /**
+        A mapping of a file being written, grown by doubling as needed.
+    */
+    protected static class Output
+        {
+        final FileChannel channel;
+        MappedByteBuffer buffer;
+        int at;
+
+        Output( FileChannel channel ) throws IOException
+            {
+            this.channel = channel;
+            this.buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, GraphJournal.INITIAL_SIZE );
+            }
+
+        void ensure( int needed ) throws IOException
+            {
+            if (needed > buffer.capacity())
+                {
+                long capacity = buffer.capacity();
+                while (capacity < needed) capacity *= 2;
+                buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, Math.min( capacity, Integer.MAX_VALUE ) );
+                }
+            }
+
+        void put( byte [] bytes ) throws IOException
+            {
+            ensure( at + bytes.length );
+            ByteBuffer view = buffer.duplicate();
+            view.position( at );
+            view.put( bytes );
+            at += bytes.length;
+            }
+        }
+    }
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.impl;
+
+import java.util.BitSet;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.mem.TrackingTripleIterator;
+import com.hp.hpl.jena.mem.compact.*;
+import com.hp.hpl.jena.util.iterator.*;
+
+/**
+    The TripleStore of a MappedGraph: the triples of its last checkpoint,
+    read in place from a MappedSnapshot, less those deleted since, plus those
+    added since. The deleted triples are a set of snapshot positions and the
+    added ones are held in a CompactTripleStore, so the store only uses heap
+    space in proportion to the changes since the checkpoint.
+<p>
+    A checkpoint gives the store a new snapshot and a new store for later
+    additions, leaving any iterators over the old ones intact; removing a
+    triple through such an iterator removes it from the store as it is now.
+*/
+public class MappedTripleStore implements TripleStore
+    {
+    protected final Graph parent;
+
+    protected MappedSnapshot snapshot = MappedSnapshot.empty();
+
+    /** The SPO positions of the snapshot triples which have been deleted. */
+    protected BitSet deleted = new BitSet();
+    protected int deletedCount = 0;
+
+    /** The triples added since the snapshot. */
+    protected CompactTripleStore added;
+
+    public MappedTripleStore( Graph parent )
+        {
+        this.parent = parent;
+        this.added = new CompactTripleStore( parent );
+        }
+
+    /**
+        Answer the snapshot this store starts from.
+    */
+    public MappedSnapshot getSnapshot()
+        { return snapshot; }
+
+    /**
+        Answer the dictionary holding the nodes of the triples added since the
+        snapshot.
+    */
+    public NodeDictionary getDictionary()
+        { return added.getDictionary(); }
+
+    /**
+        Make this store hold just the triples of <code>snapshot</code>, with
+        <code>added</code>, which must be empty, holding later additions.
+    */
+    public void reset( MappedSnapshot snapshot, CompactTripleStore added )
+        {
+        this.snapshot = snapshot;
+        this.added = added;
+        this.deleted = new BitSet();
+        this.deletedCount = 0;
+        }
+
+    /**
+        Forget the changes made since the snapshot.
+    */
+    public void revert()
+        {
+        deleted = new BitSet();
+        deletedCount = 0;
+        added.clear();
+        }
+
+    @Override public void close()
+        {
+        snapshot = MappedSnapshot.empty();
+        deleted = null;
+        added.close();
+        }
+
+    @Override public void add( Triple t )
+        {
+        int at = snapshot.indexOf( t );
+        if (at < 0)
+            added.add( t );
+        else if (deleted.get( at ))
+            {
+            deleted.clear( at );
+            deletedCount -= 1;
+            }
+        }
+
+    @Override public void delete( Triple t )
+        {
+        int at = snapshot.indexOf( t );
+        if (at < 0)
+            added.delete( t );
+        else if (!deleted.get( at ))
+            {
+            deleted.set( at );
+            deletedCount += 1;
+            }
+        }
+
+    @Override public int size()
+        { return snapshot.size() - deletedCount + added.size(); }
+
+    @Override public boolean isEmpty()
+        { return size() == 0; }
+
+    @Override public boolean contains( Triple t )
+        { return snapshot.contains( t, deleted ) || added.contains( t ); }
+
+    @Override public ExtendedIterator<Node> listSubjects()
+        { return keys( MappedSnapshot.SPO, added.listSubjects() ); }
+
+    @Override public ExtendedIterator<Node> listPredicates()
+        { return keys( MappedSnapshot.POS, added.listPredicates() ); }
+
+    @Override public ExtendedIterator<Node> listObjects()
+        { return keys( MappedSnapshot.OSP, added.listObjects() ); }
+
+    /**
+        Answer the distinct nodes first in the given order of a live snapshot
+        triple, followed by those of <code>addedKeys</code> which are not.
+    */
+    protected ExtendedIterator<Node> keys( final int order, ExtendedIterator<Node> addedKeys )
+        {
+        final MappedSnapshot s = snapshot;
+        final BitSet d = deleted;
+        return s.keys( order, d ).andThen( addedKeys.filterKeep( new Filter<Node>()
+            {
+            @Override public boolean accept( Node n )
+                { return !s.hasLive( order, n, d ); }
+            } ) );
+        }
+
+    /**
+        Answer an iterator over the triples in this store which match
+        <code>tm</code>. Removing a triple through it removes it from the store
+        and notifies the parent graph's listeners.
+    */
+    @Override public ExtendedIterator<Triple> find( TripleMatch tm )
+        {
+        Triple t = tm.asTriple();
+        return new TrackingTripleIterator( snapshot.find( t, deleted ).andThen( added.find( t ) ) )
+            {
+            @Override public void remove()
+                {
+                delete( current );
+                parent.getEventManager().notifyDeleteTriple( parent, current );
+                }
+            };
+        }
+
+    @Override public void clear()
+        {
+        deleted.set( 0, snapshot.size() );
+        deletedCount = snapshot.size();
+        added.clear();
+        }
+    }
@@ -18,6 +18,8 @@
 
 package com.hp.hpl.jena.graph.query;
 
+import com.hp.hpl.jena.util.iterator.*;
+
 /**
     A ConstraintStage implements the constraint evaluation part of a
     query. Any constraints not handled by previous PatternStages are prepared
@@ -74,4 +76,18 @@ public class ConstraintStage extends Stage
         	} .start();
         return L;
         }
+
+    /**
+        the pull component: keep only those bindings from the previous stage
+        that satisfy the predicate.
+    */
+    @Override
+    public ExtendedIterator<Domain> pull()
+        {
+        return previous.pull().filterKeep( new Filter<Domain>()
+            {
+            @Override public boolean accept( Domain d )
+                { return evalConstraint( d, prepared ); }
+            } );
+        }
     }
@@ -18,6 +18,8 @@
 
 package com.hp.hpl.jena.graph.query;
 
+import com.hp.hpl.jena.util.iterator.*;
+
 /**
     The initial stage of a query, responsible for dropping the no-variables-bound seed
     binding domain into the remaining stages of the query pipeline.
@@ -53,4 +55,11 @@ public class InitialStage extends Stage
         result.close();
         return result;
         }
+
+    /**
+        Pulling from the initial stage delivers the single seed binding.
+    */
+    @Override
+    public ExtendedIterator<Domain> pull()
+        { return new SingletonIterator<Domain>( new Domain( count ) ); }
     }
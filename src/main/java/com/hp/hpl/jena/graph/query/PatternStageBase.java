@@ -19,7 +19,9 @@
 package com.hp.hpl.jena.graph.query;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
@@ -30,6 +32,8 @@ import com.hp.hpl.jena.JenaRuntime;
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.graph.query.StageElement.PutBindings;
+import com.hp.hpl.jena.shared.QueryStageException;
+import com.hp.hpl.jena.util.iterator.*;
 
 /**
     PatternStageBase contains the features that are common to the 
@@ -136,6 +140,131 @@ public abstract class PatternStageBase extends Stage
         return sink;
         }
 
+    /**
+        The number of bindings a pulled PatternStage computes at a time.
+    */
+    public static final int PULL_BATCH_SIZE = 64;
+
+    /**
+        Answer an iterator over the bindings of this stage, computed on the
+        calling thread: see PullIterator.
+    */
+    @Override
+    public ExtendedIterator<Domain> pull()
+        { return new PullIterator( previous.pull() ); }
+
+    /**
+        A PullIterator runs the patterns of a PatternStage as nested loops over
+        <code>find</code>s on the graph, driven by the consumer of its bindings
+        rather than by a thread of its own. The match and guard at each level
+        are those of the StageElement chain that <code>deliver</code> uses.
+        Bindings are computed a batch of PULL_BATCH_SIZE at a time, so the
+        loops are re-entered once per batch rather than once per binding.
+    */
+    protected class PullIterator extends NiceIterator<Domain>
+        {
+        protected final ExtendedIterator<Domain> source;
+        protected final Matcher [] matchers;
+        protected final ClosableIterator<Triple> [] finds;
+        
+        protected final Domain [] batch = new Domain[PULL_BATCH_SIZE];
+        protected int batchNext = 0, batchSize = 0;
+        
+        /** the binding being extended, taken from the source */
+        protected Domain current;
+        
+        /** the level of the pattern being matched, or -1 if none */
+        protected int depth = -1;
+        
+        @SuppressWarnings( "unchecked" )
+        protected PullIterator( ExtendedIterator<Domain> source )
+            {
+            this.source = source;
+            this.matchers = new Matcher[classified.length];
+            this.finds = new ClosableIterator[classified.length];
+            for (int i = 0; i < classified.length; i += 1) matchers[i] = classified[i].createMatcher();
+            }
+        
+        @Override public boolean hasNext()
+            {
+            if (batchNext == batchSize) fill();
+            return batchNext < batchSize;
+            }
+        
+        @Override public Domain next()
+            {
+            if (!hasNext()) throw new NoSuchElementException( "PatternStage pull" );
+            Domain result = batch[batchNext];
+            batch[batchNext++] = null;
+            return result;
+            }
+        
+        @Override public void close()
+            {
+            while (depth >= 0) finds[depth--].close();
+            source.close();
+            batchNext = batchSize = 0;
+            }
+        
+        /**
+            Fill the batch with the next bindings. As with a threaded stage, an
+            exception from the graph is reported as a QueryStageException.
+        */
+        protected void fill()
+            {
+            batchNext = batchSize = 0;
+            try
+                {
+                while (batchSize < batch.length && stillOpen && advance())
+                    batch[batchSize++] = current.copy();
+                }
+            catch (QueryStageException e)
+                { throw e; }
+            catch (RuntimeException e)
+                {
+                log.debug( "PatternStageBase has caught and rethrown an exception", e );
+                throw new QueryStageException( e );
+                }
+            }
+        
+        /**
+            Advance to the next complete binding of all the patterns, leaving it
+            in <code>current</code>. Answer false if there are no more.
+        */
+        protected boolean advance()
+            {
+            int last = classified.length - 1;
+            while (true)
+                {
+                if (depth < 0)
+                    {
+                    if (!source.hasNext()) return false;
+                    current = source.next();
+                    if (last < 0) return true;
+                    descend( 0 );
+                    }
+                Iterator<Triple> it = finds[depth];
+                boolean matched = false;
+                while (!matched && it.hasNext())
+                    matched = matchers[depth].match( current, it.next() ) 
+                        && (!guards[depth].isNonTrivial() || guards[depth].evalBool( current ));
+                if (!matched)
+                    finds[depth--].close();
+                else if (depth == last)
+                    return true;
+                else
+                    descend( depth + 1 );
+                }
+            }
+        
+        protected void descend( int level )
+            {
+            QueryTriple t = classified[level];
+            finds[level] = graph.find( t.S.finder( current ), t.P.finder( current ), t.O.finder( current ) );
+            depth = level;
+            }
+        }
+
     private static final List<PatternStageThread> threads = new ArrayList<PatternStageThread>();
     
     private void addToAvailableThreads( PatternStageThread thread )
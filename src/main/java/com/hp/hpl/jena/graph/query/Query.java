@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.graph.query;
 
+import com.hp.hpl.jena.JenaRuntime;
 import com.hp.hpl.jena.graph.*;
 import com.hp.hpl.jena.util.iterator.*;
 import com.hp.hpl.jena.shared.*;
@@ -63,6 +64,14 @@ public class Query
     */
     public static final Node Z = Node.createVariable( "Z" );
         
+    /**
+        True if new queries are executed by pulling (see <code>setPull</code>);
+        initialised from the system property <code>jena.query.pull</code>.
+    */
+    public static boolean pullByDefault = JenaRuntime.getSystemProperty( "jena.query.pull", "no" ).equals( "yes" );
+
+    private boolean pull = pullByDefault;
+
     /**
         Initialiser for Query; makes an empty Query [no matches, no constraints]
     */
@@ -169,7 +178,7 @@ public class Query
     */
     public ExtendedIterator<Domain> executeBindings( List<Stage> outStages, NamedGraphMap args, Node [] nodes )
         {
-        SimpleQueryEngine e = new SimpleQueryEngine( triplePattern, sortMethod, constraint );
+        SimpleQueryEngine e = new SimpleQueryEngine( triplePattern, sortMethod, constraint ).setPull( pull );
         ExtendedIterator<Domain> result = e.executeBindings( outStages, args, nodes );
         lastQueryEngine = e;
         return result;
@@ -183,6 +192,22 @@ public class Query
     public NamedGraphMap args()
         { return argMap; }
 
+    /**
+        Choose how this query is executed. If <code>pull</code> is true, the whole
+        pipeline of stages runs as an iterator on the thread that consumes the
+        bindings, computing them in batches as they are wanted. Otherwise each
+        stage runs on a thread of its own and hands its bindings to the next
+        stage through a BufferPipe. Answer this Query for cascading.
+    */
+    public Query setPull( boolean pull )
+        { this.pull = pull; return this; }
+
+    /**
+        Answer true iff this query will be executed by pulling (see setPull).
+    */
+    public boolean isPull()
+        { return pull; }
+
     public TripleSorter getSorter()
         { return sortMethod; }
         
@@ -34,6 +34,7 @@ public class SimpleQueryEngine
     private NamedTripleBunches triples;
     private TripleSorter sortMethod;
     private int variableCount;
+    private boolean pull = false;
     
     /**
          @deprecated NamedTripleBunches are not supported. Use SimpleQueryEngine
@@ -60,6 +61,14 @@ public class SimpleQueryEngine
 
     int getVariableCount()
         { return variableCount; }
+
+    /**
+        Choose whether the stages run as a pull-based iterator on the calling
+        thread (true) or each on a thread of its own (false, the default).
+        Answer this engine for cascading.
+    */
+    public SimpleQueryEngine setPull( boolean pull )
+        { this.pull = pull; return this; }
         
     public ExtendedIterator<Domain> executeBindings( List<Stage> outStages, NamedGraphMap args, Node [] nodes )
         {
@@ -69,7 +78,25 @@ public class SimpleQueryEngine
         if (constraint.isComplex()) stages.add( new ConstraintStage( map, constraint ) );
         outStages.addAll( stages );
         variableCount = map.size();
-        return filter( connectStages( stages, variableCount ) );
+        Stage allStages = connectStages( stages, variableCount );
+        return pull ? pulled( allStages ) : filter( allStages );
+        }
+
+    private ExtendedIterator<Domain> pulled( final Stage allStages )
+        {
+        return new NiceIterator<Domain>()
+            {
+            private ExtendedIterator<Domain> complete;
+            
+            private void ensureIterator()
+                { if (complete == null) complete = allStages.pull(); }
+            
+            @Override public void close() { allStages.close(); if (complete != null) complete.close(); }
+            
+            @Override public Domain next() { ensureIterator(); return complete.next(); }
+            
+            @Override public boolean hasNext() { ensureIterator(); return complete.hasNext(); }
+            };
         }
                                   
     private ExtendedIterator<Domain> filter( final Stage allStages )
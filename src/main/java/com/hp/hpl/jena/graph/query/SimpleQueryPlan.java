@@ -47,6 +47,7 @@ public class SimpleQueryPlan implements BindingQueryPlan
         // { return query.executeBindings( graph, variables ); }
         {
         return new SimpleQueryEngine( query.getPattern(), query.getSorter(), query.getConstraints() )
+            .setPull( query.isPull() )
             .executeBindings( new ArrayList<Stage>(), query.args().put( NamedTripleBunches.anon, graph ), variables );   
         }
     }
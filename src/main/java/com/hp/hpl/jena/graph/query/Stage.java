@@ -18,6 +18,8 @@
 
 package com.hp.hpl.jena.graph.query;
 
+import com.hp.hpl.jena.util.iterator.*;
+
 /**
 	a processing stage in the query pipeline. Each stage
 	gets connected to its predecessor in the pipeline, and
@@ -60,4 +62,21 @@ public abstract class Stage
 		as the argument to _deliver_.) 
 	*/		
 	public abstract Pipe deliver( Pipe sink );
+
+    /**
+        Answer an iterator over the bindings this stage produces, computed on
+        the calling thread as the iterator is consumed. Stages that can run this
+        way override this method; the default runs <code>deliver</code> and
+        reads the pipe it fills.
+    */
+    public ExtendedIterator<Domain> pull()
+        {
+        final Pipe pipe = deliver( new BufferPipe() );
+        return new NiceIterator<Domain>()
+            {
+            @Override public boolean hasNext() { return pipe.hasNext(); }
+
+            @Override public Domain next() { return pipe.get(); }
+            };
+        }
 	}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.query;
+
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+
+/**
+    A TripleSorter which orders the triples of a query by their estimated
+    number of matches in a particular graph, as reported by that graph's
+    GraphStatisticsHandler.
+<p>
+    The triples are chosen greedily. At each step the candidates are the
+    remaining triples which share a variable with the triples already chosen
+    (or all the remaining triples, if none do), and the candidate with the
+    smallest estimated cost is chosen next; ties preserve the original order.
+<p>
+    The cost of a triple is the statistic for its concrete nodes, with variables
+    and ANYs treated as wildcards. Each distinct variable already bound by an
+    earlier triple reduces the cost by a constant factor, since the handler can't
+    tell us how selective a not-yet-known value will be. If the handler can't
+    give an estimate for a pattern the size of the graph is used instead, reduced
+    by the same factor for each concrete node.
+<p>
+    If the graph has no statistics handler, or it can't even report the size of
+    the graph, sorting is delegated to a SimpleTripleSorter.
+*/
+public class StatisticsTripleSorter implements TripleSorter
+    {
+    /**
+        The factor by which each bound variable, or each concrete node in a
+        pattern the statistics handler can't estimate, reduces the cost of a triple.
+    */
+    public static final double SELECTIVITY = 0.1;
+
+    protected final GraphStatisticsHandler statistics;
+
+    protected final TripleSorter fallback = new SimpleTripleSorter();
+
+    /**
+        Initialise a sorter which uses the statistics of the graph <code>g</code>.
+    */
+    public StatisticsTripleSorter( Graph g )
+        { this( g.getStatisticsHandler() ); }
+
+    /**
+        Initialise a sorter which uses the given statistics handler, which may
+        be null (in which case this sorter is a SimpleTripleSorter).
+    */
+    public StatisticsTripleSorter( GraphStatisticsHandler statistics )
+        { this.statistics = statistics; }
+
+    /**
+        Answer a new array containing the triples of <code>ts</code> ordered by
+        increasing estimated cost.
+    */
+    @Override
+    public Triple [] sort( Triple [] ts )
+        {
+        long size = statistics == null ? -1 : statistics.getStatistic( Node.ANY, Node.ANY, Node.ANY );
+        if (size < 0) return fallback.sort( ts );
+        Set<Node> bound = new HashSet<Node>();
+        List<Triple> remaining = new ArrayList<Triple>( Arrays.asList( ts ) );
+        Triple [] result = new Triple[ts.length];
+        for (int i = 0; i < result.length; i += 1)
+            {
+            Triple next = cheapest( remaining, bound, size );
+            result[i] = next;
+            remaining.remove( next );
+            bind( next, bound );
+            }
+        return result;
+        }
+
+    /**
+        Answer the first of the cheapest triples in <code>candidates</code>,
+        preferring triples which share a variable with those already chosen.
+    */
+    protected Triple cheapest( List<Triple> candidates, Set<Node> bound, long size )
+        {
+        Triple best = null;
+        boolean bestConnected = false;
+        double bestCost = 0;
+        for (int i = 0; i < candidates.size(); i += 1)
+            {
+            Triple t = candidates.get( i );
+            boolean connected = boundCount( t, bound ) > 0;
+            double cost = cost( t, bound, size );
+            if (best == null || (connected && !bestConnected) || (connected == bestConnected && cost < bestCost))
+                { best = t; bestConnected = connected; bestCost = cost; }
+            }
+        return best;
+        }
+
+    /**
+        Answer the estimated cost of matching <code>t</code> given that the variables
+        in <code>bound</code> have already been bound.
+    */
+    protected double cost( Triple t, Set<Node> bound, long size )
+        {
+        Node S = t.getSubject(), P = t.getPredicate(), O = t.getObject();
+        long estimate = statistics.getStatistic( wild( S ), wild( P ), wild( O ) );
+        double cost = estimate < 0
+            ? size * Math.pow( SELECTIVITY, concreteCount( t ) )
+            : estimate;
+        return cost * Math.pow( SELECTIVITY, boundCount( t, bound ) );
+        }
+
+    /**
+        Answer the node to use for <code>n</code> when asking for statistics:
+        <code>n</code> itself if it is concrete, otherwise ANY.
+    */
+    protected static Node wild( Node n )
+        { return n.isConcrete() ? n : Node.ANY; }
+
+    protected static int concreteCount( Triple t )
+        {
+        return
+            (t.getSubject().isConcrete() ? 1 : 0)
+            + (t.getPredicate().isConcrete() ? 1 : 0)
+            + (t.getObject().isConcrete() ? 1 : 0);
+        }
+
+    /**
+        Answer the number of distinct variables of <code>t</code> which are
+        in <code>bound</code>.
+    */
+    protected static int boundCount( Triple t, Set<Node> bound )
+        {
+        Node S = t.getSubject(), P = t.getPredicate(), O = t.getObject();
+        int count = 0;
+        if (bound.contains( S )) count += 1;
+        if (bound.contains( P ) && !P.equals( S )) count += 1;
+        if (bound.contains( O ) && !O.equals( S ) && !O.equals( P )) count += 1;
+        return count;
+        }
+
+    protected static void bind( Triple t, Set<Node> bound )
+        {
+        bind( t.getSubject(), bound );
+        bind( t.getPredicate(), bound );
+        bind( t.getObject(), bound );
+        }
+
+    protected static void bind( Node n, Set<Node> bound )
+        { if (n.isVariable()) bound.add( n ); }
+    }
@@ -51,6 +51,12 @@ public interface BunchMap
     */
     public void put( Object key, TripleBunch value );
 
+    /**
+        Make room for <code>more</code> further keys, if the implementation
+        can, before they are added by a bulk load.
+    */
+    public void presize( int more );
+
     /**
         Remove any association for <code>key</code>; <code>get</code> on this
         key will now deliver <code>null</code>.
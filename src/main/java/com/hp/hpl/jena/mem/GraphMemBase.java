@@ -87,6 +87,17 @@ public abstract class GraphMemBase extends GraphBase
             }
         }
     
+    /**
+        Add the first <code>count</code> elements of <code>triples</code> to
+        this graph, as though by performAdd on each (so without notifying any
+        listeners); used to implement bulk loading. Subclasses with stores that
+        can load many triples at once override this, and subclasses that
+        override performAdd must override this too. <code>parallel</code>
+        allows the work to be shared between threads.
+    */
+    protected void performAddAll( Triple [] triples, int count, boolean parallel )
+        { for (int i = 0; i < count; i += 1) performAdd( triples[i] ); }
+
     /**
          Remove all triples from this graph; used to implement removeAll.
     */
@@ -18,20 +18,103 @@
 
 package com.hp.hpl.jena.mem;
 
+import java.util.*;
+
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.graph.impl.GraphWithPerform;
 import com.hp.hpl.jena.graph.impl.SimpleBulkUpdateHandler;
 
 /**
  	A GraphMemBulkUpdateHandler specialises the SimpleBulkUpdateHandler
- 	by doing removeAll efficiently, by clearing the indexes directly.
+ 	by doing removeAll efficiently, by clearing the indexes directly, and
+ 	by handing adds of many triples to the graph in one go, so that stores
+ 	which can (eg FasterTripleStore) build their indexes in a single pass.
  	@author hedgehog
 */
 
 public class GraphMemBulkUpdateHandler extends SimpleBulkUpdateHandler
 	{
+	/**
+	    Adds of fewer triples than this are done a triple at a time.
+	*/
+	public static final int BULK_THRESHOLD = 16;
+	
+	/**
+	    The number of triples read from an iterator at a time by bulkLoad.
+	*/
+	public static final int CHUNK_SIZE = 1 << 20;
+	
+	protected boolean parallel = false;
+	
 	public GraphMemBulkUpdateHandler( GraphWithPerform graph ) 
 	    { super( graph ); }
 	
+	/**
+	    Allow (or not) bulk adds to build the graph's indexes on more than one
+	    thread. The default is not to.
+	*/
+	public void setParallel( boolean parallel )
+	    { this.parallel = parallel; }
+	
+	public boolean isParallel()
+	    { return parallel; }
+	
+	@Override
+	public void add( Triple [] triples )
+	    {
+	    performAddAll( triples, triples.length );
+	    manager.notifyAddArray( graph, triples );
+	    }
+	
+	@Override
+	protected void add( List<Triple> triples, boolean notify )
+	    {
+	    performAddAll( triples.toArray( new Triple[triples.size()] ), triples.size() );
+	    if (notify) manager.notifyAddList( graph, triples );
+	    }
+	
+	/**
+	    Add all the triples delivered by <code>it</code>. If the graph has
+	    listeners this is the same as <code>add(it)</code>, which must collect
+	    all the triples to report them in a single event. Otherwise the triples
+	    are streamed into the graph a chunk of CHUNK_SIZE at a time, and only
+	    one chunk is held in memory.
+	*/
+	public void bulkLoad( Iterator<Triple> it )
+	    {
+	    if (manager.listening())
+	        add( it );
+	    else
+	        {
+	        Triple [] chunk = new Triple[BULK_THRESHOLD];
+	        while (it.hasNext())
+	            {
+	            int count = 0;
+	            while (count < CHUNK_SIZE && it.hasNext()) 
+	                {
+	                if (count == chunk.length) chunk = grow( chunk );
+	                chunk[count++] = it.next();
+	                }
+	            performAddAll( chunk, count );
+	            }
+	        }
+	    }
+	
+	private static Triple [] grow( Triple [] chunk )
+	    {
+	    Triple [] result = new Triple[Math.min( chunk.length * 2, CHUNK_SIZE )];
+	    System.arraycopy( chunk, 0, result, 0, chunk.length );
+	    return result;
+	    }
+	
+	protected void performAddAll( Triple [] triples, int count )
+	    {
+	    if (count < BULK_THRESHOLD)
+	        for (int i = 0; i < count; i += 1) graph.performAdd( triples[i] );
+	    else
+	        ((GraphMemBase) graph).performAddAll( triples, count, parallel );
+	    }
+	
 	@Override
     public void removeAll()
 	    {
@@ -190,10 +190,24 @@ public abstract class HashCommon<Key>
         table (bigger by a factor of two, at present).
     */
     protected void growCapacityAndThreshold()
+        { setCapacityAndThreshold( nextSize( capacity * 2 ) ); }
+
+    /**
+        Set the capacity to <code>newCapacity</code> and the threshold to
+        match. The caller is responsible for reallocating the table.
+    */
+    protected void setCapacityAndThreshold( int newCapacity )
         {
-        capacity = nextSize( capacity * 2 );
+        capacity = newCapacity;
         threshold = (int) (capacity * loadFactor);
         }
+
+    /**
+        Answer a capacity big enough for a table to hold <code>n</code>
+        elements without growing.
+    */
+    protected static int capacityFor( int n )
+        { return nextSize( (int) (n / loadFactor) + 1 ); }
      
     static final int [] primes =
         {
@@ -74,12 +74,26 @@ public class HashedBunchMap extends HashCommon<Object> implements BunchMap
             }
         }
 
+    /**
+        Make room for <code>more</code> further keys, so that adding them
+        does not grow the table one doubling at a time.
+    */
+    @Override
+    public void presize( int more )
+        {
+        int wanted = capacityFor( size + more );
+        if (wanted > capacity) growTo( wanted );
+        }
+
     protected void grow()
+        { growTo( nextSize( capacity * 2 ) ); }
+
+    protected void growTo( int newCapacity )
         {
         Object [] oldContents = keys;
         TripleBunch [] oldValues = values;
         final int oldCapacity = capacity;
-        growCapacityAndThreshold();
+        setCapacityAndThreshold( newCapacity );
         keys = newKeyArray( capacity );
         values = new TripleBunch[capacity];
         for (int i = 0; i < oldCapacity; i += 1)
@@ -27,12 +27,25 @@ import com.hp.hpl.jena.util.iterator.*;
 public class HashedTripleBunch extends HashCommon<Triple> implements TripleBunch
     {    
     public HashedTripleBunch( TripleBunch b )
+        { this( b, 0 ); }
+
+    /**
+        Initialise this bunch with the triples of <code>b</code> and room
+        for <code>more</code> further triples.
+    */
+    public HashedTripleBunch( TripleBunch b, int more )
         {
-        super( nextSize( (int) (b.size() / loadFactor) ) );
+        super( nextSize( (int) ((b.size() + more) / loadFactor) ) );
         for (Iterator<Triple> it = b.iterator(); it.hasNext();) add( it.next() );        
         changes = 0;
         }
 
+    /**
+        Initialise an empty bunch with room for <code>expected</code> triples.
+    */
+    public HashedTripleBunch( int expected )
+        { super( nextSize( (int) (expected / loadFactor) ) ); }
+
     @Override protected Triple[] newKeyArray( int size )
         { return new Triple[size]; }
 
@@ -79,11 +92,24 @@ public class HashedTripleBunch extends HashCommon<Triple> implements TripleBunch
         if (++size > threshold) grow();
         }
     
+    /**
+        Make room for <code>more</code> further triples, so that adding them
+        does not grow the table one doubling at a time.
+    */
+    public void presize( int more )
+        {
+        int wanted = nextSize( (int) ((size + more) / loadFactor) );
+        if (wanted > capacity) growTo( wanted );
+        }
+
     protected void grow()
+        { growTo( nextSize( capacity * 2 ) ); }
+
+    protected void growTo( int newCapacity )
         {
         Object [] oldContents = keys;
         final int oldCapacity = capacity;
-        growCapacityAndThreshold();
+        setCapacityAndThreshold( newCapacity );
         Object [] newKeys = keys = new Triple[capacity];
         for (int i = 0; i < oldCapacity; i += 1)
             {
@@ -96,6 +96,47 @@ public abstract class NodeToTriplesMapBase
     public boolean isEmpty()
         { return size == 0; }
 
+    /**
+        Answer the number of triples with <code>n</code> (by indexing value) in
+        the index position of this NTM.
+    */
+    public int countFor( Node n )
+        {
+        TripleBunch b = bunchMap.get( n.getIndexingValue() );
+        return b == null ? 0 : b.size();
+        }
+
+    /**
+        Answer the number of distinct (indexing) values in the index position
+        of this NTM.
+    */
+    public long domainSize()
+        { return bunchMap.size(); }
+
+    /**
+        Answer the number of triples with <code>n</code> in the index position
+        of this NTM and a node with the same indexing value as <code>m</code>
+        in the field <code>f</code>. This scans all the triples indexed by
+        <code>n</code>, so is only cheap when there are few of them.
+    */
+    public int countMatching( Node n, Field f, Node m )
+        {
+        TripleBunch b = bunchMap.get( n.getIndexingValue() );
+        if (b == null) return 0;
+        Object mValue = m.getIndexingValue();
+        int result = 0;
+        Iterator<Triple> it = b.iterator();
+        while (it.hasNext())
+            if (f.getField( it.next() ).getIndexingValue().equals( mValue )) result += 1;
+        return result;
+        }
+
+    /**
+        Answer the field of the triples that this NTM is indexed on.
+    */
+    public Field getIndexedField()
+        { return indexField; }
+
     public abstract ExtendedIterator<Triple> iterator( Node index, Node n2, Node n3 );
     
     /**
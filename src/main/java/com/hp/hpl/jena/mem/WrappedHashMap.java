@@ -46,6 +46,13 @@ public class WrappedHashMap implements BunchMap
     public void put( Object key, TripleBunch value )
         { map.put( key, value ); }
 
+    /**
+        A HashMap cannot be resized in place, so this does nothing.
+    */
+    @Override
+    public void presize( int more )
+        {}
+
     @Override
     public void remove( Object key )
         { map.remove( key ); }
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem.compact;
+
+import java.util.NoSuchElementException;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.impl.TripleStore;
+import com.hp.hpl.jena.util.iterator.*;
+
+/**
+    A TripleStore which keeps its triples as dictionary-encoded ints. Each
+    distinct node is stored once, in a NodeDictionary, and each triple is
+    held as (id, id, id) entries in three PackedTripleIndexes, ordered SPO,
+    POS, and OSP, so there are no per-triple objects at all. Triples are
+    re-created from their ids as they are delivered by <code>find</code>.
+<p>
+    The matching rules are those of GraphTripleStore: URIs, blank nodes and
+    (in <code>find</code> patterns) variables match by equality, and literals
+    match any literal with the same value. As in GraphTripleStore, the index
+    is chosen by looking for a concrete subject, then object, then predicate.
+*/
+public class CompactTripleStore implements TripleStore
+    {
+    protected final Graph parent;
+
+    protected NodeDictionary dictionary = new NodeDictionary();
+
+    protected PackedTripleIndex spo = new PackedTripleIndex();
+    protected PackedTripleIndex pos = new PackedTripleIndex();
+    protected PackedTripleIndex osp = new PackedTripleIndex();
+
+    public CompactTripleStore( Graph parent )
+        { this.parent = parent; }
+
+    /**
+        Answer the dictionary holding the nodes of this store's triples.
+    */
+    public NodeDictionary getDictionary()
+        { return dictionary; }
+
+    @Override public void close()
+        { dictionary = null; spo = pos = osp = null; }
+
+    @Override public void add( Triple t )
+        {
+        int s = dictionary.acquire( t.getSubject() );
+        int p = dictionary.acquire( t.getPredicate() );
+        int o = dictionary.acquire( t.getObject() );
+        if (spo.add( s, p, o ))
+            {
+            pos.add( p, o, s );
+            osp.add( o, s, p );
+            }
+        else
+            release( s, p, o );
+        }
+
+    @Override public void delete( Triple t )
+        {
+        int s = dictionary.lookup( t.getSubject() );
+        int p = dictionary.lookup( t.getPredicate() );
+        int o = dictionary.lookup( t.getObject() );
+        if (s > 0 && p > 0 && o > 0) delete( s, p, o );
+        }
+
+    /**
+        Remove the triple (s, p, o) of ids from the store, answering true
+        iff it was present.
+    */
+    protected boolean delete( int s, int p, int o )
+        {
+        if (spo.remove( s, p, o ))
+            {
+            pos.remove( p, o, s );
+            osp.remove( o, s, p );
+            release( s, p, o );
+            return true;
+            }
+        return false;
+        }
+
+    protected void release( int s, int p, int o )
+        {
+        dictionary.release( s );
+        dictionary.release( p );
+        dictionary.release( o );
+        }
+
+    @Override public int size()
+        { return spo.size(); }
+
+    @Override public boolean isEmpty()
+        { return spo.size() == 0; }
+
+    @Override public void clear()
+        {
+        dictionary.clear();
+        spo.clear();
+        pos.clear();
+        osp.clear();
+        }
+
+    /**
+        Answer true iff this store contains a triple which <code>t</code>
+        matches, ie one whose literals have the same values as those of
+        <code>t</code> and whose other nodes are equal to <code>t</code>'s.
+    */
+    @Override public boolean contains( Triple t )
+        {
+        int [] S = dictionary.matchingIds( t.getSubject() );
+        if (S.length == 0) return false;
+        int [] P = dictionary.matchingIds( t.getPredicate() );
+        if (P.length == 0) return false;
+        int [] O = dictionary.matchingIds( t.getObject() );
+        for (int i = 0; i < S.length; i += 1)
+            for (int j = 0; j < P.length; j += 1)
+                for (int k = 0; k < O.length; k += 1)
+                    if (spo.contains( S[i], P[j], O[k] )) return true;
+        return false;
+        }
+
+    @Override public ExtendedIterator<Node> listSubjects()
+        { return new KeyIterator( spo ); }
+
+    @Override public ExtendedIterator<Node> listPredicates()
+        { return new KeyIterator( pos ); }
+
+    @Override public ExtendedIterator<Node> listObjects()
+        { return new KeyIterator( osp ); }
+
+    /**
+        Answer an iterator over the triples in this store which match
+        <code>tm</code>, choosing the index in the same way as GraphTripleStore.
+    */
+    @Override public ExtendedIterator<Triple> find( TripleMatch tm )
+        {
+        Triple t = tm.asTriple();
+        Node sm = t.getSubject(), pm = t.getPredicate(), om = t.getObject();
+        int [] S = idsFor( sm ), P = idsFor( pm ), O = idsFor( om );
+        if (isEmpty( S ) || isEmpty( P ) || isEmpty( O ))
+            return NullIterator.<Triple>instance();
+        else if (S != null)
+            return new CompactTripleIterator( spo, S, P, O, CompactTripleIterator.SPO );
+        else if (O != null)
+            return new CompactTripleIterator( osp, O, S, P, CompactTripleIterator.OSP );
+        else if (P != null)
+            return new CompactTripleIterator( pos, P, O, S, CompactTripleIterator.POS );
+        else
+            return new CompactTripleIterator( spo, null, null, null, CompactTripleIterator.SPO );
+        }
+
+    /**
+        Answer the ids a pattern node can match, or null if it is a wildcard.
+    */
+    protected int [] idsFor( Node n )
+        { return n.isConcrete() ? dictionary.matchingIds( n ) : null; }
+
+    protected static boolean isEmpty( int [] ids )
+        { return ids != null && ids.length == 0; }
+
+    protected static boolean allows( int [] ids, int id )
+        {
+        if (ids == null) return true;
+        for (int i = 0; i < ids.length; i += 1) if (ids[i] == id) return true;
+        return false;
+        }
+
+    /**
+        An iterator over the triples of one index, restricted to the given
+        candidate ids for each of its three positions (null meaning any id).
+        Removing a triple removes it from the whole store and notifies the
+        parent graph's listeners.
+    */
+    protected class CompactTripleIterator extends NiceIterator<Triple>
+        {
+        static final int SPO = 0, POS = 1, OSP = 2;
+
+        protected final PackedTripleIndex index;
+        protected final int [] A, B, C;
+        protected final int order;
+
+        protected int nextA = 0;
+        protected PackedTripleIndex.Cursor cursor;
+
+        protected boolean ready = false;
+        protected Triple current;
+        protected int s, p, o;
+
+        protected CompactTripleIterator( PackedTripleIndex index, int [] A, int [] B, int [] C, int order )
+            {
+            this.index = index;
+            this.A = A; this.B = B; this.C = C;
+            this.order = order;
+            this.cursor = A == null ? index.cursor() : null;
+            }
+
+        @Override public boolean hasNext()
+            {
+            if (ready) return true;
+            while (true)
+                {
+                if (cursor == null)
+                    {
+                    if (nextA == A.length) return false;
+                    cursor = index.cursor( A[nextA++] );
+                    }
+                if (cursor.advance())
+                    {
+                    if (allows( B, cursor.b() ) && allows( C, cursor.c() ))
+                        return ready = true;
+                    }
+                else if (A == null)
+                    return false;
+                else
+                    cursor = null;
+                }
+            }
+
+        @Override public Triple next()
+            {
+            if (!hasNext()) throw new NoSuchElementException( "CompactTripleStore find next()" );
+            ready = false;
+            int a = cursor.a(), b = cursor.b(), c = cursor.c();
+            if (order == SPO) { s = a; p = b; o = c; }
+            else if (order == POS) { p = a; o = b; s = c; }
+            else { o = a; s = b; p = c; }
+            current = Triple.create( dictionary.node( s ), dictionary.node( p ), dictionary.node( o ) );
+            return current;
+            }
+
+        @Override public void remove()
+            {
+            if (current == null) throw new IllegalStateException( "no current triple to remove" );
+            delete( s, p, o );
+            parent.getEventManager().notifyDeleteTriple( parent, current );
+            current = null;
+            }
+        }
+
+    /**
+        An iterator over the distinct nodes which are the first elements of the
+        triples in an index.
+    */
+    protected class KeyIterator extends NiceIterator<Node>
+        {
+        protected final PackedTripleIndex.Cursor keys;
+        protected boolean ready = false;
+
+        protected KeyIterator( PackedTripleIndex index )
+            { this.keys = index.keyCursor(); }
+
+        @Override public boolean hasNext()
+            {
+            if (!ready) ready = keys.advance();
+            return ready;
+            }
+
+        @Override public Node next()
+            {
+            if (!hasNext()) throw new NoSuchElementException( "CompactTripleStore list next()" );
+            ready = false;
+            return dictionary.node( keys.a() );
+            }
+        }
+    }
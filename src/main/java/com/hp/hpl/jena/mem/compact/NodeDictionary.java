@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem.compact;
+
+import com.hp.hpl.jena.graph.Node;
+
+/**
+    A NodeDictionary gives each node it holds a positive int id, so that
+    triples can be stored as three ints. Each id carries a reference count;
+    when the count drops to zero the node is forgotten and its id can be
+    re-used.
+<p>
+    Ids are found from nodes through an open-addressed table of ids hashed
+    on the node's hashCode. Literals are also entered in a second table
+    hashed on their indexing value, so that all the literals with the same
+    value as some given literal (eg "1"^^xsd:int and "01"^^xsd:int) can be
+    found without a scan.
+*/
+public class NodeDictionary
+    {
+    protected static final int EMPTY = 0, DEAD = -1;
+
+    protected static final int [] NO_IDS = new int[0];
+
+    /** nodes[id] is the node with that id, or null if the id is free. */
+    protected Node [] nodes;
+
+    /** refs[id] is the number of references to that id. */
+    protected int [] refs;
+
+    /** The free ids, as a stack. */
+    protected int [] free;
+    protected int freeCount;
+
+    /** The highest id ever issued. */
+    protected int top;
+
+    protected int [] byNode;
+    protected int byNodeUsed;
+
+    protected int [] byValue;
+    protected int byValueUsed;
+    protected int literals;
+
+    protected int size;
+
+    public NodeDictionary()
+        { this( 64 ); }
+
+    /**
+        Initialise a dictionary with room for about <code>expected</code>
+        nodes before it needs to grow.
+    */
+    public NodeDictionary( int expected )
+        { allocate( Math.max( 4, expected ) ); }
+
+    protected void allocate( int expected )
+        {
+        nodes = new Node[expected + 1];
+        refs = new int[expected + 1];
+        free = new int[16];
+        freeCount = top = size = literals = 0;
+        byNode = new int[PackedTripleIndex.capacityFor( expected )];
+        byValue = new int[4];
+        byNodeUsed = byValueUsed = 0;
+        }
+
+    /**
+        Answer the number of distinct nodes in this dictionary.
+    */
+    public int size()
+        { return size; }
+
+    /**
+        Forget all the nodes in this dictionary.
+    */
+    public void clear()
+        { allocate( 64 ); }
+
+    /**
+        Answer the node with the given id, which must be in use.
+    */
+    public Node node( int id )
+        { return nodes[id]; }
+
+    /**
+        Answer the id of <code>n</code>, or 0 if it is not in this dictionary.
+    */
+    public int lookup( Node n )
+        {
+        int mask = byNode.length - 1;
+        int i = PackedTripleIndex.hash( n.hashCode() ) & mask;
+        for (int probes = 0; probes < byNode.length; probes += 1)
+            {
+            int id = byNode[i];
+            if (id == EMPTY) return 0;
+            if (id != DEAD && n.equals( nodes[id] )) return id;
+            i = (i + 1) & mask;
+            }
+        return 0;
+        }
+
+    /**
+        Answer the id of <code>n</code>, adding it to the dictionary if need be,
+        and count one more reference to it.
+    */
+    public int acquire( Node n )
+        {
+        int id = lookup( n );
+        if (id == 0)
+            {
+            id = newId();
+            nodes[id] = n;
+            size += 1;
+            byNodeUsed = enter( byNode, byNodeUsed, n.hashCode(), id );
+            if (byNodeUsed * 4 > byNode.length * 3) byNode = rehash( byNode, size, false );
+            if (n.isLiteral())
+                {
+                literals += 1;
+                byValueUsed = enter( byValue, byValueUsed, valueHash( n ), id );
+                if (byValueUsed * 4 > byValue.length * 3) byValue = rehash( byValue, literals, true );
+                }
+            }
+        refs[id] += 1;
+        return id;
+        }
+
+    /**
+        Count one less reference to <code>id</code>, forgetting its node if there
+        are none left.
+    */
+    public void release( int id )
+        {
+        if (--refs[id] == 0)
+            {
+            Node n = nodes[id];
+            forget( byNode, n.hashCode(), id );
+            if (n.isLiteral())
+                {
+                forget( byValue, valueHash( n ), id );
+                literals -= 1;
+                }
+            nodes[id] = null;
+            size -= 1;
+            if (freeCount == free.length) free = grow( free );
+            free[freeCount++] = id;
+            }
+        }
+
+    /**
+        Answer the ids of all the nodes in this dictionary that <code>n</code>
+        matches. For a literal these are the literals with the same value, for
+        anything else it is just the id of <code>n</code> itself (note that
+        <code>n.matches</code> is not called in that case).
+    */
+    public int [] matchingIds( Node n )
+        {
+        if (n.isLiteral())
+            {
+            int [] result = NO_IDS;
+            int count = 0;
+            int mask = byValue.length - 1;
+            int i = PackedTripleIndex.hash( valueHash( n ) ) & mask;
+            for (int probes = 0; probes < byValue.length; probes += 1)
+                {
+                int id = byValue[i];
+                if (id == EMPTY) break;
+                if (id != DEAD && n.matches( nodes[id] ))
+                    {
+                    if (count == result.length) result = grow( result );
+                    result[count++] = id;
+                    }
+                i = (i + 1) & mask;
+                }
+            return trim( result, count );
+            }
+        else
+            {
+            int id = lookup( n );
+            return id == 0 ? NO_IDS : new int[] { id };
+            }
+        }
+
+    protected static int valueHash( Node n )
+        { return n.getIndexingValue().hashCode(); }
+
+    protected int newId()
+        {
+        if (freeCount > 0) return free[--freeCount];
+        if (top + 1 == nodes.length)
+            {
+            int length = nodes.length * 2;
+            Node [] newNodes = new Node[length];
+            int [] newRefs = new int[length];
+            System.arraycopy( nodes, 0, newNodes, 0, nodes.length );
+            System.arraycopy( refs, 0, newRefs, 0, refs.length );
+            nodes = newNodes;
+            refs = newRefs;
+            }
+        return ++top;
+        }
+
+    /**
+        Put <code>id</code> into the first empty or dead slot of the probe
+        sequence for <code>hash</code> in <code>table</code>. Answer the new
+        count of used (ie not empty) slots.
+    */
+    protected static int enter( int [] table, int used, int hash, int id )
+        {
+        int mask = table.length - 1;
+        int i = PackedTripleIndex.hash( hash ) & mask;
+        while (table[i] != EMPTY && table[i] != DEAD) i = (i + 1) & mask;
+        if (table[i] == EMPTY) used += 1;
+        table[i] = id;
+        return used;
+        }
+
+    protected static void forget( int [] table, int hash, int id )
+        {
+        int mask = table.length - 1;
+        int i = PackedTripleIndex.hash( hash ) & mask;
+        while (table[i] != id) i = (i + 1) & mask;
+        table[i] = DEAD;
+        }
+
+    protected int [] rehash( int [] table, int live, boolean byValue )
+        {
+        int [] result = new int[PackedTripleIndex.capacityFor( live * 2 )];
+        int used = 0;
+        for (int i = 0; i < table.length; i += 1)
+            {
+            int id = table[i];
+            if (id != EMPTY && id != DEAD)
+                used = enter( result, used, byValue ? valueHash( nodes[id] ) : nodes[id].hashCode(), id );
+            }
+        if (byValue) byValueUsed = used; else byNodeUsed = used;
+        return result;
+        }
+
+    protected static int [] grow( int [] ids )
+        {
+        int [] result = new int[Math.max( 4, ids.length * 2 )];
+        System.arraycopy( ids, 0, result, 0, ids.length );
+        return result;
+        }
+
+    protected static int [] trim( int [] ids, int count )
+        {
+        if (count == ids.length) return ids;
+        int [] result = new int[count];
+        System.arraycopy( ids, 0, result, 0, count );
+        return result;
+        }
+    }
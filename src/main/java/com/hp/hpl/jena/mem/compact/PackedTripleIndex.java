@@ -0,0 +1,433 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem.compact;
+
+import java.util.ConcurrentModificationException;
+
+/**
+    A set of (a, b, c) triples of positive int ids, indexed on a. It plays the
+    part of a NodeToTriplesMap for the CompactTripleStore, but holds no objects
+    per triple: the (b, c) pairs for each a are packed into longs and kept in
+    an open-addressed long array, and the a keys live in parallel primitive
+    arrays. A key with only one (b, c) pair keeps it inline, without an array.
+<p>
+    Removal leaves a tombstone rather than moving entries, so removing entries
+    (whether through a cursor or not) never disturbs a cursor in progress.
+    Adding entries may rehash, so any cursor open at the time fails with a
+    ConcurrentModificationException when next advanced.
+*/
+public class PackedTripleIndex
+    {
+    protected static final int EMPTY_KEY = 0, DEAD_KEY = -1;
+
+    protected static final long EMPTY = 0L, DEAD = -1L;
+
+    /** Bunches with at most this many slots are filled completely before growing. */
+    protected static final int SMALL_BUNCH = 8;
+
+    protected int [] keys;
+    protected long [] singles;
+    protected long [][] bunches;
+    protected int [] sizes;
+    protected int [] used;
+
+    protected int liveKeys = 0;
+    protected int usedKeys = 0;
+    protected int size = 0;
+    protected int changes = 0;
+
+    public PackedTripleIndex()
+        { this( 16 ); }
+
+    /**
+        Initialise an index with room for about <code>expectedKeys</code>
+        distinct a values before it needs to grow.
+    */
+    public PackedTripleIndex( int expectedKeys )
+        { allocate( capacityFor( expectedKeys ) ); }
+
+    protected void allocate( int capacity )
+        {
+        keys = new int[capacity];
+        singles = new long[capacity];
+        bunches = new long[capacity][];
+        sizes = new int[capacity];
+        used = new int[capacity];
+        }
+
+    protected static int capacityFor( int count )
+        {
+        int capacity = 4;
+        while (capacity * 3 < count * 4) capacity <<= 1;
+        return capacity;
+        }
+
+    /**
+        Answer the long packing the (b, c) pair; never EMPTY or DEAD since
+        ids are positive.
+    */
+    public static long pack( int b, int c )
+        { return ((long) b << 32) | (c & 0xffffffffL); }
+
+    public static int first( long packed )
+        { return (int) (packed >>> 32); }
+
+    public static int second( long packed )
+        { return (int) packed; }
+
+    protected static int hash( int x )
+        {
+        int h = x * 0x9E3779B9;
+        return h ^ (h >>> 16);
+        }
+
+    protected static int hash( long x )
+        { return hash( (int) (x ^ (x >>> 32)) ); }
+
+    /**
+        Answer the number of triples in this index.
+    */
+    public int size()
+        { return size; }
+
+    /**
+        Answer the number of distinct a values in this index.
+    */
+    public int keyCount()
+        { return liveKeys; }
+
+    /**
+        Answer the number of triples in this index with first element <code>a</code>.
+    */
+    public int count( int a )
+        {
+        int slot = findKey( a );
+        return slot < 0 ? 0 : sizes[slot];
+        }
+
+    /**
+        Remove all the triples from this index.
+    */
+    public void clear()
+        {
+        allocate( 16 );
+        liveKeys = usedKeys = size = 0;
+        changes += 1;
+        }
+
+    /**
+        Answer the slot holding key <code>a</code>, or -1 if it is not present.
+    */
+    protected int findKey( int a )
+        {
+        int mask = keys.length - 1;
+        int i = hash( a ) & mask;
+        for (int probes = 0; probes < keys.length; probes += 1)
+            {
+            int k = keys[i];
+            if (k == a) return i;
+            if (k == EMPTY_KEY) return -1;
+            i = (i + 1) & mask;
+            }
+        return -1;
+        }
+
+    /**
+        Answer true iff (a, b, c) is in this index.
+    */
+    public boolean contains( int a, int b, int c )
+        {
+        int slot = findKey( a );
+        if (slot < 0) return false;
+        long v = pack( b, c );
+        long [] bunch = bunches[slot];
+        return bunch == null ? singles[slot] == v : bunchSlot( bunch, v ) >= 0;
+        }
+
+    /**
+        Add (a, b, c) to this index. Answer true iff it was not already present.
+    */
+    public boolean add( int a, int b, int c )
+        {
+        long v = pack( b, c );
+        int slot = findKey( a );
+        if (slot < 0)
+            {
+            if ((usedKeys + 1) * 4 > keys.length * 3) rehashKeys( liveKeys + 1 );
+            slot = freeKeySlot( a );
+            if (keys[slot] == EMPTY_KEY) usedKeys += 1;
+            keys[slot] = a;
+            singles[slot] = v;
+            bunches[slot] = null;
+            sizes[slot] = used[slot] = 1;
+            liveKeys += 1;
+            }
+        else
+            {
+            long [] bunch = bunches[slot];
+            if (bunch == null)
+                {
+                if (singles[slot] == v) return false;
+                bunch = new long[4];
+                insert( bunch, singles[slot] );
+                insert( bunch, v );
+                bunches[slot] = bunch;
+                singles[slot] = EMPTY;
+                used[slot] = 2;
+                }
+            else
+                {
+                if (bunchSlot( bunch, v ) >= 0) return false;
+                if (used[slot] + 1 > limit( bunch.length ))
+                    {
+                    bunch = rehashBunch( bunch, sizes[slot] + 1 );
+                    bunches[slot] = bunch;
+                    used[slot] = sizes[slot];
+                    }
+                if (insert( bunch, v )) used[slot] += 1;
+                }
+            sizes[slot] += 1;
+            }
+        size += 1;
+        changes += 1;
+        return true;
+        }
+
+    /**
+        Remove (a, b, c) from this index. Answer true iff it was present.
+    */
+    public boolean remove( int a, int b, int c )
+        {
+        int slot = findKey( a );
+        if (slot < 0) return false;
+        long v = pack( b, c );
+        long [] bunch = bunches[slot];
+        if (bunch == null)
+            {
+            if (singles[slot] != v) return false;
+            singles[slot] = EMPTY;
+            }
+        else
+            {
+            int i = bunchSlot( bunch, v );
+            if (i < 0) return false;
+            bunch[i] = DEAD;
+            }
+        size -= 1;
+        if (--sizes[slot] == 0)
+            {
+            keys[slot] = DEAD_KEY;
+            bunches[slot] = null;
+            used[slot] = 0;
+            liveKeys -= 1;
+            }
+        return true;
+        }
+
+    /**
+        Answer the number of entries a bunch of this length may use (live or
+        dead) before it must be rehashed.
+    */
+    protected static int limit( int length )
+        { return length <= SMALL_BUNCH ? length : length / 4 * 3; }
+
+    /**
+        Answer the slot of <code>v</code> in <code>bunch</code>, or -1.
+    */
+    protected static int bunchSlot( long [] bunch, long v )
+        {
+        int mask = bunch.length - 1;
+        int i = hash( v ) & mask;
+        for (int probes = 0; probes < bunch.length; probes += 1)
+            {
+            long x = bunch[i];
+            if (x == v) return i;
+            if (x == EMPTY) return -1;
+            i = (i + 1) & mask;
+            }
+        return -1;
+        }
+
+    /**
+        Put <code>v</code> (known to be absent) into the first free or dead slot
+        of its probe sequence. Answer true iff that slot was previously empty.
+    */
+    protected static boolean insert( long [] bunch, long v )
+        {
+        int mask = bunch.length - 1;
+        int i = hash( v ) & mask;
+        while (true)
+            {
+            long x = bunch[i];
+            if (x == EMPTY || x == DEAD)
+                {
+                bunch[i] = v;
+                return x == EMPTY;
+                }
+            i = (i + 1) & mask;
+            }
+        }
+
+    protected static long [] rehashBunch( long [] bunch, int live )
+        {
+        int length = 4;
+        while (limit( length ) < live) length <<= 1;
+        long [] result = new long[length];
+        for (int i = 0; i < bunch.length; i += 1)
+            {
+            long x = bunch[i];
+            if (x != EMPTY && x != DEAD) insert( result, x );
+            }
+        return result;
+        }
+
+    protected int freeKeySlot( int a )
+        {
+        int mask = keys.length - 1;
+        int i = hash( a ) & mask;
+        while (keys[i] != EMPTY_KEY && keys[i] != DEAD_KEY) i = (i + 1) & mask;
+        return i;
+        }
+
+    protected void rehashKeys( int live )
+        {
+        int [] oldKeys = keys, oldSizes = sizes, oldUsed = used;
+        long [] oldSingles = singles;
+        long [][] oldBunches = bunches;
+        allocate( capacityFor( live ) );
+        for (int i = 0; i < oldKeys.length; i += 1)
+            {
+            int k = oldKeys[i];
+            if (k != EMPTY_KEY && k != DEAD_KEY)
+                {
+                int slot = freeKeySlot( k );
+                keys[slot] = k;
+                singles[slot] = oldSingles[i];
+                bunches[slot] = oldBunches[i];
+                sizes[slot] = oldSizes[i];
+                used[slot] = oldUsed[i];
+                }
+            }
+        usedKeys = liveKeys;
+        }
+
+    /**
+        Answer a cursor over the triples with first element <code>a</code>.
+    */
+    public Cursor cursor( int a )
+        {
+        int slot = findKey( a );
+        return slot < 0 ? new Cursor( 0, 0 ) : new Cursor( slot, slot + 1 );
+        }
+
+    /**
+        Answer a cursor over all the triples in this index.
+    */
+    public Cursor cursor()
+        { return new Cursor( 0, keys.length ); }
+
+    /**
+        Answer a cursor over the distinct first elements of this index. Only
+        <code>a()</code> is meaningful on it.
+    */
+    public Cursor keyCursor()
+        {
+        return new Cursor( 0, keys.length )
+            {
+            @Override public boolean advance()
+                {
+                checkChanges();
+                while (++k < limit)
+                    if (keys[k] != EMPTY_KEY && keys[k] != DEAD_KEY) { current = keys[k]; return true; }
+                return false;
+                }
+
+            @Override public void remove()
+                { throw new UnsupportedOperationException( "keyCursor.remove" ); }
+            };
+        }
+
+    /**
+        A cursor over (some of) the triples in the index. <code>advance()</code>
+        moves to the next triple, after which <code>a()</code>, <code>b()</code>,
+        and <code>c()</code> are its elements.
+    */
+    public class Cursor
+        {
+        protected final int initialChanges = changes;
+        protected final int from;
+        protected final int limit;
+        protected int k;
+        protected int j = -1;
+        protected int current;
+        protected long packed;
+
+        protected Cursor( int from, int limit )
+            { this.from = from; this.k = from - 1; this.limit = limit; }
+
+        protected void checkChanges()
+            { if (changes != initialChanges) throw new ConcurrentModificationException(); }
+
+        /**
+            Move to the next triple; answer false if there isn't one.
+        */
+        public boolean advance()
+            {
+            checkChanges();
+            while (true)
+                {
+                if (k >= from && k < limit)
+                    {
+                    long [] bunch = bunches[k];
+                    if (bunch == null)
+                        {
+                        if (j < 0 && sizes[k] == 1 && singles[k] != EMPTY)
+                            { j = 0; current = keys[k]; packed = singles[k]; return true; }
+                        }
+                    else
+                        {
+                        while (++j < bunch.length)
+                            {
+                            long x = bunch[j];
+                            if (x != EMPTY && x != DEAD) { current = keys[k]; packed = x; return true; }
+                            }
+                        }
+                    }
+                if (++k >= limit) return false;
+                j = -1;
+                if (keys[k] == EMPTY_KEY || keys[k] == DEAD_KEY) continue;
+                }
+            }
+
+        public int a()
+            { return current; }
+
+        public int b()
+            { return first( packed ); }
+
+        public int c()
+            { return second( packed ); }
+
+        /**
+            Remove the current triple from the index.
+        */
+        public void remove()
+            { PackedTripleIndex.this.remove( current, b(), c() ); }
+        }
+    }
@@ -37,6 +37,82 @@ public class FasterTripleStore extends GraphTripleStoreBase implements TripleSto
                 ); 
         }
     
+    /**
+        Bulk loads of fewer triples than this are not worth splitting across
+        threads.
+    */
+    public static final int PARALLEL_THRESHOLD = 10000;
+
+    /**
+        Add the first <code>count</code> elements of <code>triples</code> to this
+        store, building each index in one pass (see NodeToTriplesMapFaster.addAll).
+        The subject index is loaded first and weeds out triples that are already
+        present or repeated; the predicate and object indexes are then loaded
+        with the triples that really were added, at the same time on two
+        threads if <code>parallel</code> is true. Answer the number of triples
+        added.
+    */
+    public int addAll( Triple [] triples, int count, boolean parallel )
+        {
+        Triple [] added = new Triple[count];
+        int n = getSubjects().addAll( triples, count, added );
+        if (parallel && n >= PARALLEL_THRESHOLD)
+            {
+            IndexLoader objectLoader = new IndexLoader( getObjects(), added, n );
+            Thread thread = new Thread( objectLoader, "FasterTripleStore.addAll" );
+            thread.start();
+            try { getPredicates().addAll( added, n, null ); }
+            finally { objectLoader.join( thread ); }
+            }
+        else
+            {
+            getPredicates().addAll( added, n, null );
+            getObjects().addAll( added, n, null );
+            }
+        return n;
+        }
+
+    /**
+        Loads one index on a thread of its own, remembering any failure so
+        that it can be thrown on the loading thread.
+    */
+    protected static class IndexLoader implements Runnable
+        {
+        protected final NodeToTriplesMapFaster index;
+        protected final Triple [] triples;
+        protected final int count;
+        protected volatile RuntimeException failure;
+        protected volatile Error error;
+
+        public IndexLoader( NodeToTriplesMapFaster index, Triple [] triples, int count )
+            { this.index = index; this.triples = triples; this.count = count; }
+
+        @Override public void run()
+            {
+            try { index.addAll( triples, count, null ); }
+            catch (RuntimeException e) { failure = e; }
+            catch (Error e) { error = e; }
+            }
+
+        /**
+            Wait for <code>thread</code>, which is running this loader, to
+            finish, even if interrupted (the store is not consistent until it
+            has), and rethrow anything it threw.
+        */
+        public void join( Thread thread )
+            {
+            boolean interrupted = false;
+            while (thread.isAlive())
+                {
+                try { thread.join(); }
+                catch (InterruptedException e) { interrupted = true; }
+                }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (error != null) throw error;
+            if (failure != null) throw failure;
+            }
+        }
+
     public NodeToTriplesMapFaster getSubjects()
         { return (NodeToTriplesMapFaster) subjects; }
 
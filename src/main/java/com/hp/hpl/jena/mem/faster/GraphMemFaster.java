@@ -43,6 +43,19 @@ public class GraphMemFaster extends GraphMemBase
     @Override public void performAdd( Triple t )
         { if (!getReifier().handledAdd( t )) store.add( t ); }
 
+    /**
+        Add the triples to the store in one pass over each of its indexes,
+        having first passed each one to the reifier, as performAdd does.
+    */
+    @Override protected void performAddAll( Triple [] triples, int count, boolean parallel )
+        {
+        Triple [] plain = new Triple[count];
+        int n = 0;
+        for (int i = 0; i < count; i += 1)
+            if (!getReifier().handledAdd( triples[i] )) plain[n++] = triples[i];
+        ((FasterTripleStore) store).addAll( plain, n, parallel );
+        }
+
     @Override public void performDelete( Triple t )
         { if (!getReifier().handledRemove( t )) store.delete( t ); }
 
@@ -61,12 +74,19 @@ public class GraphMemFaster extends GraphMemBase
     /**
         The GraphMemFasterStatisticsHandler exploits the existing FasterTripleStore
         indexes to deliver statistics information for single-concrete-node queries
-        and for trivial cases of two-concrete-node queries.        
+        and for two-concrete-node queries. The per-node counts are just the sizes
+        of the index bunches, which the store maintains anyway.        
         
      	@author kers
     */
     protected static class GraphMemFasterStatisticsHandler implements GraphStatisticsHandler
         {
+        /**
+            Two-concrete-node queries whose smaller bunch has at most this many
+            triples are counted exactly; others are estimated.
+        */
+        public static final int SCAN_LIMIT = 64;
+        
         protected final FasterTripleStore store;
         protected final Reifier reifier;
         
@@ -91,11 +111,10 @@ public class GraphMemFaster extends GraphMemBase
             <p>If only one of S, P, O is concrete, answers the number of triples
             with that value in that field.
             
-            <p>If two of S, P, P are concrete and at least one of them has no
-            corresponding triples, answers 0.
-            
-            <p>Otherwise answers -1, ie, no information available. (May change;
-            the two degenerate cases might deserve an answer.)
+            <p>If two of S, P, O are concrete and at least one of them has no
+            corresponding triples, answers 0. If one of them has only a few
+            triples, answers the exact count. Otherwise answers an estimate
+            which assumes the two fields are independent.
             
          	@see com.hp.hpl.jena.graph.GraphStatisticsHandler#getStatistic(com.hp.hpl.jena.graph.Node, com.hp.hpl.jena.graph.Node, com.hp.hpl.jena.graph.Node)
          */
@@ -136,14 +155,15 @@ public class GraphMemFaster extends GraphMemBase
         public long countsInMap( Node a, NodeToTriplesMapFaster mapA, Node b, NodeToTriplesMapFaster mapB )
             {
             long countA = countInMap( a, mapA ), countB = countInMap( b, mapB );
-            return countA == 0 || countB == 0 ? 0 : -1L;
+            if (countA == 0 || countB == 0) return 0;
+            if (countA <= countB && countA <= SCAN_LIMIT) return mapA.countMatching( a, mapB.getIndexedField(), b );
+            if (countB <= SCAN_LIMIT) return mapB.countMatching( b, mapA.getIndexedField(), a );
+            long estimate = countA * countB / Math.max( 1, store.size() );
+            return Math.max( 1, Math.min( estimate, Math.min( countA, countB ) ) );
             }
         
         public long countInMap( Node n, NodeToTriplesMapFaster map )
-            {
-            TripleBunch b = map.get( n.getIndexingValue() );
-            return b == null ? 0 : b.size();
-            }
+            { return map.countFor( n ); }
         }
     
     /**
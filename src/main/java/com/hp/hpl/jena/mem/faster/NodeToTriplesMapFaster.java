@@ -29,6 +29,12 @@ import com.hp.hpl.jena.util.iterator.*;
 
 public class NodeToTriplesMapFaster extends NodeToTriplesMapBase
     {    
+    /**
+        The largest number of triples held in an ArrayBunch before it is
+        replaced by a HashedTripleBunch.
+    */
+    protected static final int ARRAY_BUNCH_LIMIT = 9;
+
     public NodeToTriplesMapFaster( Field indexField, Field f2, Field f3 )
        { super( indexField, f2, f3 ); }
     
@@ -46,7 +52,7 @@ public class NodeToTriplesMapFaster extends NodeToTriplesMapBase
            return false;
        else
            {
-           if (s.size() == 9 && s instanceof ArrayBunch)
+           if (s.size() == ARRAY_BUNCH_LIMIT && s instanceof ArrayBunch)
                bunchMap.put( o, s = new HashedTripleBunch( s ) );
            s.add( t );
            size += 1; 
@@ -54,6 +60,110 @@ public class NodeToTriplesMapFaster extends NodeToTriplesMapBase
            } 
        }
     
+    /**
+        Add the first <code>count</code> elements of <code>triples</code> to this
+        NTM in one pass. The triples are sorted by the hash of their index values
+        so that those with the same index value arrive together: the bunch map
+        is presized once for all the new index values, and each bunch is created
+        (or grown) once at its final size rather than a doubling at a time.
+    <p>
+        If <code>added</code> is null, the triples must be distinct and none may
+        already be in this NTM, as when they have been added to another index of
+        the same store. Otherwise duplicates are skipped and the triples which
+        really were added are copied into <code>added</code>. Answer the number of
+        triples added.
+    */
+    public int addAll( Triple [] triples, int count, Triple [] added )
+        {
+        long [] order = new long[count];
+        for (int i = 0; i < count; i += 1)
+            order[i] = (long) getIndexField( triples[i] ).hashCode() << 32 | i;
+        Arrays.sort( order );
+        bunchMap.presize( countHashes( order ) );
+        int result = 0;
+        int start = 0;
+        while (start < count)
+            {
+            int end = start + 1;
+            while (end < count && hashOf( order[end] ) == hashOf( order[start] )) end += 1;
+            result += addSameHash( triples, order, start, end, added, result );
+            start = end;
+            }
+        size += result;
+        return result;
+        }
+
+    private static int hashOf( long entry )
+        { return (int) (entry >> 32); }
+
+    private static int countHashes( long [] order )
+        {
+        int result = 0;
+        for (int i = 0; i < order.length; i += 1)
+            if (i == 0 || hashOf( order[i] ) != hashOf( order[i - 1] )) result += 1;
+        return result;
+        }
+
+    /**
+        Add the triples of <code>order[start..end)</code>, which all have index
+        values with the same hash, a group of equal index values at a time.
+        Unequal values with the same hash are rare, so the grouping is done
+        by a simple scan.
+    */
+    private int addSameHash( Triple [] triples, long [] order, int start, int end, Triple [] added, int addedSoFar )
+        {
+        int result = 0;
+        while (start < end)
+            {
+            Object key = getIndexField( triples[(int) order[start]] );
+            int groupEnd = start + 1;
+            for (int i = groupEnd; i < end; i += 1)
+                if (key.equals( getIndexField( triples[(int) order[i]] ) ))
+                    {
+                    long x = order[i];
+                    order[i] = order[groupEnd];
+                    order[groupEnd++] = x;
+                    }
+            result += addGroup( key, triples, order, start, groupEnd, added, addedSoFar + result );
+            start = groupEnd;
+            }
+        return result;
+        }
+
+    /**
+        Add the triples of <code>order[start..end)</code>, which all have the
+        index value <code>key</code>, to its bunch, sizing the bunch for all of
+        them first.
+    */
+    private int addGroup( Object key, Triple [] triples, long [] order, int start, int end, Triple [] added, int addedSoFar )
+        {
+        int more = end - start;
+        TripleBunch s = bunchMap.get( key );
+        int total = (s == null ? 0 : s.size()) + more;
+        if (s == null)
+            bunchMap.put( key, s = total > ARRAY_BUNCH_LIMIT ? new HashedTripleBunch( total ) : new ArrayBunch() );
+        else if (s instanceof ArrayBunch && total > ARRAY_BUNCH_LIMIT)
+            bunchMap.put( key, s = new HashedTripleBunch( s, more ) );
+        else if (s instanceof HashedTripleBunch)
+            ((HashedTripleBunch) s).presize( more );
+        if (added == null)
+            {
+            for (int i = start; i < end; i += 1) s.add( triples[(int) order[i]] );
+            return more;
+            }
+        int result = 0;
+        for (int i = start; i < end; i += 1)
+            {
+            Triple t = triples[(int) order[i]];
+            if (!s.contains( t ))
+                {
+                s.add( t );
+                added[addedSoFar + result++] = t;
+                }
+            }
+        return result;
+        }
+
     /**
         Remove <code>t</code> from this NTM. Answer <code>true</code> iff the 
         triple was previously in the set, ie, it really truly has been removed. 
@@ -38,6 +38,7 @@ import com.hp.hpl.jena.rdf.model.*;
  *  <li>N3-PP: Pretty Printer (the default)</li>
  *  <li>N3-PLAIN: Plain, record/frame-oriented format</li> 
  *  <li>N3-TRIPLES: Triples, with prefixes.</li>
+ *  <li>TURTLE-STREAMING: Turtle written while walking the model, without a preparation pass.</li>
  *  </ul>
  *  </p>
  *
@@ -98,6 +99,14 @@ public class N3JenaWriter implements RDFWriter
     static public final String turtleWriter          = "TURTLE" ;
     static public final String turtleWriterAlt1      = "Turtle" ;
     static public final String turtleWriterAlt2      = "TTL" ;
+
+    /**
+     * Name of the streaming Turtle writer.  This writer writes each subject
+     * as it is reached, inlining only blank nodes and lists that can be
+     * recognised by looking at their neighbours, so it needs no memory
+     * proportional to the model.
+     */
+    static public final String turtleWriterStreaming = "TURTLE-STREAMING" ;
     
     protected N3JenaWriterCommon writer = null ;
     
@@ -126,6 +135,9 @@ public class N3JenaWriter implements RDFWriter
             return w ;
         }
         
+        if ( writerName.equalsIgnoreCase(turtleWriterStreaming) )
+            return new N3JenaWriterStreaming() ;
+        
         // Don't know or default.
         return new N3JenaWriterPP() ;
     }
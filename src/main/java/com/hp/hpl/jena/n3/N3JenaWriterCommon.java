@@ -238,7 +238,7 @@ public class N3JenaWriterCommon implements RDFWriter
     protected void processModel(Model baseModel)
     {
         prefixMap = baseModel.getNsPrefixMap() ;
-        Model model = ModelFactory.withHiddenStatements( baseModel );
+        Model model = withHiddenStatements( baseModel );
         bNodesMap = new HashMap<Resource, String>() ;
 
         // PrefixMapping (to Jena 2.5.7 at least)
@@ -288,6 +288,13 @@ public class N3JenaWriterCommon implements RDFWriter
         bNodesMap = null ;
     }
 
+    // The model actually walked: the base model plus any statements
+    // hidden by its reifier.
+    protected Model withHiddenStatements(Model baseModel)
+    {
+        return ModelFactory.withHiddenStatements(baseModel) ;
+    }
+
     protected void writeModel(Model model)
     {
        // Needed only for no prefixes, no blank first line. 
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.n3;
+
+import java.util.LinkedHashSet ;
+import java.util.Set ;
+
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.rdf.model.* ;
+import com.hp.hpl.jena.util.iterator.ClosableIterator ;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
+import com.hp.hpl.jena.util.iterator.WrappedIterator ;
+import com.hp.hpl.jena.vocabulary.RDF ;
+
+/** A Turtle writer that writes as it walks the subjects of the model.
+ *  <p>
+ *  Unlike the pretty printer there is no preparation pass and no table
+ *  of blank nodes: subjects come straight from the store's subject index,
+ *  blank node labels are derived from the node's own id, and everything
+ *  that decides the layout is found by looking at the neighbourhood of a
+ *  node.  Memory use is bounded by the largest subject, not by the model.
+ *  </p>
+ *  <p>
+ *  A blank node that is the object of exactly one statement is written
+ *  inline as <code>[ ... ]</code>, or as <code>( ... )</code> if it is the
+ *  head of a well-formed RDF list, unless that would nest more than
+ *  <code>maxInlineDepth</code> levels deep.  Only the prefixes declared in
+ *  the model are used.
+ *  </p>
+ */
+
+public class N3JenaWriterStreaming extends N3JenaWriterCommon
+{
+    static final protected String objectListSep = " , " ;
+
+    // How deep one-reference blank nodes may be nested.  A chain of
+    // one-reference blank nodes longer than this (or a cycle of them) is
+    // written with labels at the top level instead.
+    protected int maxInlineDepth = getIntValue("maxInlineDepth", 1000) ;
+
+    // Inline depth of the resource currently being written.
+    protected int depth = 0 ;
+
+    public N3JenaWriterStreaming()
+    {
+        // Only allow "a" for rdf:type.
+        wellKnownPropsMap = wellKnownPropsMapTurtle ;
+    }
+
+    // Walking a union with the hidden statements would lose the subject
+    // index, so only do it when the reifier holds anything.  (Reification
+    // triples the reifier exposes are not in the subject index either.)
+    @Override
+    protected Model withHiddenStatements(Model baseModel)
+    {
+        ExtendedIterator<Triple> reified = baseModel.getGraph().getReifier().find(Triple.ANY) ;
+        boolean noneReified = ! reified.hasNext() ;
+        reified.close() ;
+        return noneReified ? baseModel : super.withHiddenStatements(baseModel) ;
+    }
+
+    @Override
+    protected void writeModel(Model model)
+    {
+        boolean doingFirst = true ;
+        ResIterator rIter = listSubjects(model) ;
+        for ( ; rIter.hasNext() ; )
+        {
+            Resource subject = rIter.nextResource() ;
+            int d = inlineDepth(subject) ;
+            if ( d > 0 )
+                // Written inside the statement that refers to it.
+                continue ;
+
+            if ( doingFirst )
+                doingFirst = false ;
+            else
+                out.println() ;
+
+            // Too deep or part of a cycle: nothing below it is inlined.
+            depth = ( d == 0 ) ? 0 : maxInlineDepth ;
+            writeOneGraphNode(subject) ;
+        }
+        rIter.close() ;
+        depth = 0 ;
+    }
+
+    @Override
+    protected void finishWriting()
+    {
+        out.flush() ;
+    }
+
+    // rdf:type first, then the other properties in the order the store has them.
+    @Override
+    protected ClosableIterator<Property> preparePropertiesForSubject(Resource r)
+    {
+        Set<Property> properties = new LinkedHashSet<Property>() ;
+        if ( r.hasProperty(RDF.type) )
+            properties.add(RDF.type) ;
+        StmtIterator sIter = r.listProperties() ;
+        for ( ; sIter.hasNext() ; )
+            properties.add(sIter.nextStatement().getPredicate()) ;
+        sIter.close() ;
+        return WrappedIterator.create(properties.iterator()) ;
+    }
+
+    @Override
+    protected void writeObjectList(Resource subject, Property property)
+    {
+        String propStr = formatProperty(property) ;
+        out.print(propStr) ;
+        out.incIndent(indentObject) ;
+        if ( (propStr.length()+minGap) <= widePropertyLen )
+            out.print(pad(calcPropertyPadding(propStr))) ;
+        else
+            out.println() ;
+
+        StmtIterator sIter = subject.listProperties(property) ;
+        for ( ; sIter.hasNext() ; )
+        {
+            writeObject(sIter.nextStatement().getObject()) ;
+            if ( sIter.hasNext() )
+                out.print(objectListSep) ;
+        }
+        sIter.close() ;
+        out.decIndent(indentObject) ;
+    }
+
+    @Override
+    protected void writeObject(RDFNode node)
+    {
+        if ( node instanceof Literal )
+        {
+            writeLiteral((Literal)node) ;
+            return ;
+        }
+
+        Resource rObj = (Resource)node ;
+        if ( depth < maxInlineDepth && soleReferrer(rObj) != null )
+        {
+            // Its only reference is the statement being written.
+            int saved = depth ;
+            depth++ ;
+            if ( isInlineList(rObj) )
+                writeList(rObj) ;
+            else
+                writeNested(rObj) ;
+            depth = saved ;
+            return ;
+        }
+        out.print(formatResource(rObj)) ;
+    }
+
+    protected void writeNested(Resource r)
+    {
+        ClosableIterator<Property> iter = preparePropertiesForSubject(r) ;
+        if ( ! iter.hasNext() )
+            out.print("[]") ;
+        else
+        {
+            out.print("[ ") ;
+            out.incIndent(2) ;
+            writePropertiesForSubject(r, iter) ;
+            out.decIndent(2) ;
+            out.println() ;
+            out.print("]") ;
+        }
+        iter.close() ;
+    }
+
+    // Each cell is one deeper than the one before, as if written nested.
+    protected void writeList(Resource head)
+    {
+        int saved = depth ;
+        out.print("(") ;
+        out.incIndent(2) ;
+        for ( Resource cell = head ; ! cell.equals(RDF.nil) ; depth++ )
+        {
+            if ( ! cell.equals(head) )
+                out.print(" ") ;
+            writeObject(cell.getRequiredProperty(RDF.first).getObject()) ;
+            cell = cell.getRequiredProperty(RDF.rest).getResource() ;
+        }
+        out.print(")") ;
+        out.decIndent(2) ;
+        depth = saved ;
+    }
+
+    // A well-formed list whose cells are blank nodes with just rdf:first
+    // and rdf:rest, each referred to only by the cell before, and which
+    // fits within the inline depth.  The head is at the current depth.
+    protected boolean isInlineList(Resource head)
+    {
+        Resource cell = head ;
+        for ( int d = depth ; d <= maxInlineDepth ; d++ )
+        {
+            if ( ! checkListElement(cell) )
+                return false ;
+            Resource next = cell.getRequiredProperty(RDF.rest).getResource() ;
+            if ( next.equals(RDF.nil) )
+                return true ;
+            if ( soleReferrer(next) == null )
+                return false ;
+            cell = next ;
+        }
+        return false ;
+    }
+
+    protected boolean checkListElement(Resource cell)
+    {
+        if ( ! cell.isAnon() )
+            return false ;
+        int first = 0 ;
+        int rest = 0 ;
+        StmtIterator sIter = cell.listProperties() ;
+        for ( ; sIter.hasNext() ; )
+        {
+            Statement s = sIter.nextStatement() ;
+            if ( s.getPredicate().equals(RDF.first) )
+                first++ ;
+            else if ( s.getPredicate().equals(RDF.rest) && s.getObject().isResource() )
+                rest++ ;
+            else
+            {
+                sIter.close() ;
+                return false ;
+            }
+        }
+        return first == 1 && rest == 1 ;
+    }
+
+    /** The inline depth of a subject: 0 if it is written at the top level,
+     *  n if it is written inline n levels below a top level subject, or -1
+     *  if it is a one-reference blank node that still has to be written at
+     *  the top level because it is too deep or on a cycle.
+     */
+    protected int inlineDepth(Resource r)
+    {
+        Resource x = r ;
+        for ( int d = 0 ; d <= maxInlineDepth ; d++ )
+        {
+            Resource parent = soleReferrer(x) ;
+            if ( parent == null )
+                return d ;
+            x = parent ;
+        }
+        return -1 ;
+    }
+
+    /** The subject of the only statement with <code>r</code> as object,
+     *  or null if <code>r</code> is not a blank node with exactly one such
+     *  statement.
+     */
+    protected Resource soleReferrer(Resource r)
+    {
+        if ( ! r.isAnon() )
+            return null ;
+        StmtIterator sIter = r.getModel().listStatements(null, null, r) ;
+        Resource referrer = sIter.hasNext() ? sIter.nextStatement().getSubject() : null ;
+        if ( sIter.hasNext() )
+            referrer = null ;
+        sIter.close() ;
+        return referrer ;
+    }
+
+    @Override
+    protected String formatResource(Resource r)
+    {
+        if ( ! r.isAnon() )
+            return super.formatResource(r) ;
+
+        if ( ! alwaysAllocateBNodeLabel )
+        {
+            StmtIterator sIter = r.getModel().listStatements(null, null, r) ;
+            boolean referenced = sIter.hasNext() ;
+            sIter.close() ;
+            if ( ! referenced )
+                return "[]" ;
+        }
+        return bNodeLabel(r) ;
+    }
+
+    // Labels come from the blank node id so no map of labels is needed.
+    // Ids are hex digits separated by ':' and '-', written as 'y' and 'z';
+    // any other character that is not a letter or digit, and 'x', 'y' and
+    // 'z' themselves, are written as 'x' and four hex digits.
+    protected String bNodeLabel(Resource r)
+    {
+        String id = r.getId().getLabelString() ;
+        StringBuffer sbuff = new StringBuffer(id.length()+8) ;
+        sbuff.append("_:b") ;
+        for ( int i = 0 ; i < id.length() ; i++ )
+        {
+            char c = id.charAt(i) ;
+            if ( c == ':' )
+                sbuff.append('y') ;
+            else if ( c == '-' )
+                sbuff.append('z') ;
+            else if ( ( c >= 'a' && c < 'x' ) ||
+                      ( c >= 'A' && c <= 'Z' ) ||
+                      ( c >= '0' && c <= '9' ) )
+                sbuff.append(c) ;
+            else
+            {
+                String hex = Integer.toHexString(c) ;
+                sbuff.append('x') ;
+                for ( int j = hex.length() ; j < 4 ; j++ )
+                    sbuff.append('0') ;
+                sbuff.append(hex) ;
+            }
+        }
+        return sbuff.toString() ;
+    }
+}
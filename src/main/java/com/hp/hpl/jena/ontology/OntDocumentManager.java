@@ -25,11 +25,14 @@ package com.hp.hpl.jena.ontology;
 ///////////////
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.hp.hpl.jena.JenaRuntime;
 import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.rdf.model.impl.ModelMakerImpl;
 import com.hp.hpl.jena.util.*;
 import com.hp.hpl.jena.vocabulary.OntDocManagerVocab;
 import com.hp.hpl.jena.vocabulary.RDF;
@@ -118,6 +121,13 @@ public class OntDocumentManager
     /** Logger for this class */
     private static Logger log = LoggerFactory.getLogger( OntDocumentManager.class );
 
+    /**
+     * The default number of threads used to read imported documents: the value of the
+     * system property <code>jena.ontdocmgr.threads</code>, or else the number of processors
+     */
+    public static final int DEFAULT_IMPORT_THREADS = Integer.parseInt( JenaRuntime.getSystemProperty(
+            "jena.ontdocmgr.threads", "" + Runtime.getRuntime().availableProcessors() ) );
+
 
     // Instance variables
     //////////////////////////////////
@@ -134,6 +144,9 @@ public class OntDocumentManager
     /** Flag: process the imports closure */
     protected boolean m_processImports = true;
 
+    /** The number of threads used to read imported documents */
+    protected int m_importThreads = DEFAULT_IMPORT_THREADS;
+
     /** List of URI's that will be ignored when doing imports processing */
     protected Set<String> m_ignoreImports = new HashSet<String>();
 
@@ -632,6 +645,44 @@ public class OntDocumentManager
     }
 
 
+    /**
+     * <p>
+     * Answer the number of threads used to read the documents in the imports closure
+     * of a model.
+     * </p>
+     *
+     * @return The number of threads used to read imports
+     * @see #setImportThreads
+     */
+    public int getImportThreads() {
+        return m_importThreads;
+    }
+
+
+    /**
+     * <p>
+     * Set the number of threads used to read the documents in the imports closure of
+     * a model. With more than one, documents that are not already cached are read at
+     * the same time on a pool of that many threads, and the imports of each document
+     * are followed as soon as it has been read; the sub-models are then added to the
+     * ontology model in the same order as they would be with a single thread. The
+     * {@linkplain #setReadHook read hook} and {@linkplain #setReadFailureHandler read
+     * failure handler} may then be called from the pool threads, one at a time. Reading in parallel
+     * is only done when the import model getter of the model's specification is the
+     * usual {@link ModelMakerImpl}.
+     * </p>
+     *
+     * @param threads The number of threads, at least one
+     * @exception IllegalArgumentException if threads is less than one
+     */
+    public void setImportThreads( int threads ) {
+        if (threads < 1) {
+            throw new IllegalArgumentException( "threads must be at least 1: " + threads );
+        }
+        m_importThreads = threads;
+    }
+
+
     /**
      * <p>
      * Set the policy flag that indicates whether loaded models are cached by URI
@@ -761,6 +812,11 @@ public class OntDocumentManager
      * @param readQueue The queue of imports to load
      */
     protected void loadImports( OntModel model, List<String> readQueue ) {
+        if (m_importThreads > 1) {
+            // read the closure in parallel first, then add it to the model in order below
+            readImports( model, new ArrayList<String>( readQueue ) );
+        }
+
         while (!readQueue.isEmpty()) {
             // we process the import statements as a FIFO queue
             String importURI = readQueue.remove( 0 );
@@ -776,6 +832,101 @@ public class OntDocumentManager
     }
 
 
+    /**
+     * <p>Read the documents in the imports closure of the queue that are not yet loaded,
+     * on a pool of threads, so that loadImports can then take them from the cache (or
+     * from the import model maker, if caching is off). The imports of a document are
+     * queued as soon as it has been read, so documents are read as they are discovered.
+     * Does nothing unless the import model getter is a <code>ModelMakerImpl</code>, which
+     * hands back the model given to its reader without looking at it.</p>
+     * @param model The model whose imports are to be read
+     * @param readQueue The queue of imports to read, which is used up
+     */
+    protected void readImports( OntModel model, List<String> readQueue ) {
+        OntModelSpec spec = model.getSpecification();
+        if (!(spec.getImportModelGetter() instanceof ModelMakerImpl)) {
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool( m_importThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r, "OntDocumentManager" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        CompletionService<Model> done = new ExecutorCompletionService<Model>( pool );
+        Map<Future<Model>, String> reading = new HashMap<Future<Model>, String>();
+        Set<String> seen = new HashSet<String>();
+
+        try {
+            while (!readQueue.isEmpty() || !reading.isEmpty()) {
+                Model in;
+                if (readQueue.isEmpty()) {
+                    // wait for the next document to be read, and cache it
+                    Future<Model> next = take( done );
+                    String importURI = reading.remove( next );
+                    in = get( next );
+                    addModel( importURI, in );
+                }
+                else {
+                    String importURI = readQueue.remove( 0 );
+                    if (model.hasLoadedImport( importURI ) || ignoringImport( importURI ) || !seen.add( importURI )) {
+                        continue;
+                    }
+
+                    in = getModel( importURI );
+                    if (in == null) {
+                        ReadLater reader = new ReadLater( done );
+                        in = fetchLoadedImportModel( spec, importURI, reader );
+                        if (reader.m_future != null) {
+                            reading.put( reader.m_future, importURI );
+                            continue;
+                        }
+                    }
+                }
+
+                if (in != model) {
+                    queueImports( in, readQueue, model.getProfile() );
+                }
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+
+    /** Answer the next completed read */
+    private Future<Model> take( CompletionService<Model> done ) {
+        try {
+            return done.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JenaException( e );
+        }
+    }
+
+
+    /** Answer the model of a completed read, passing on anything it threw */
+    private Model get( Future<Model> read ) {
+        try {
+            return read.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JenaException( e );
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new JenaException( e.getCause() );
+        }
+    }
+
+
     /**
      * <p>Unload all of the imports in the queue</p>
      * @param model The model to unload the imports from
@@ -1000,7 +1151,13 @@ public class OntDocumentManager
 
         // if not cached, we must load it from source
         if (in == null) {
-            in = fetchLoadedImportModel( model.getSpecification(), importURI );
+            in = fetchLoadedImportModel( model.getSpecification(), importURI, new ModelReader() {
+                                            @Override
+                                            public Model readModel( Model toRead, String URL ) {
+                                               read( toRead, URL, true );
+                                               return toRead;
+                                            }
+                                         } );
         }
         return in;
         }
@@ -1009,9 +1166,10 @@ public class OntDocumentManager
     /**
      * @param spec
      * @param importURI
+     * @param reader Reads the document into the model if the import model getter has not got it
      * @return
      */
-    private Model fetchLoadedImportModel( OntModelSpec spec, String importURI ) {
+    private Model fetchLoadedImportModel( OntModelSpec spec, String importURI, ModelReader reader ) {
         // workaround - default model maker can apparently create models that are closed
         // TODO: this really suggests a bug in ModelMaker, kers to investigate
         ModelMaker maker = spec.getImportModelMaker();
@@ -1027,14 +1185,7 @@ public class OntDocumentManager
         }
 
         // otherwise, we use the model maker to get the model anew
-        Model m = spec.getImportModelGetter()
-                   .getModel( importURI, new ModelReader() {
-                                            @Override
-                                            public Model readModel( Model toRead, String URL ) {
-                                               read( toRead, URL, true );
-                                               return toRead;
-                                            }
-                                         } );
+        Model m = spec.getImportModelGetter().getModel( importURI, reader );
 
         return m;
     }
@@ -1052,9 +1203,13 @@ public class OntDocumentManager
      */
     protected boolean read( Model model, String uri, boolean warn ) {
         boolean success = false;
+        ReadHook hook = m_readHook;
         try {
-            // invoke the pre-read hook
-            String source = m_readHook.beforeRead( model, uri, this );
+            // invoke the pre-read hook - imports may be read on several threads, but hooks see one at a time
+            String source;
+            synchronized (hook) {
+                source = hook.beforeRead( model, uri, this );
+            }
             if (source == null) {
                 log.warn( "Read hook returned null source, so assuming old value: " + uri );
                 source = uri;
@@ -1065,13 +1220,18 @@ public class OntDocumentManager
             }
 
             // now the post-read hook
-            m_readHook.afterRead( model, source, this );
+            synchronized (hook) {
+                hook.afterRead( model, source, this );
+            }
             success = true;
         }
         catch (Exception e) {
             // if there is a read failure handler, invoke it now
-            if (getReadFailureHandler() != null) {
-                getReadFailureHandler().handleFailedRead( uri, model, e );
+            ReadFailureHandler handler = getReadFailureHandler();
+            if (handler != null) {
+                synchronized (handler) {
+                    handler.handleFailedRead( uri, model, e );
+                }
             }
             else {
                 // otherwise, log the error
@@ -1088,6 +1248,7 @@ public class OntDocumentManager
     protected void setDefaults() {
         setCacheModels( true );
         setProcessImports( true );
+        setImportThreads( DEFAULT_IMPORT_THREADS );
         setDefaultPrefixMappings();
     }
 
@@ -1175,4 +1336,31 @@ public class OntDocumentManager
         }
 
     }
+
+    /**
+     * A model reader that reads the document on the pool of a {@link #readImports}
+     * call instead of at once, and remembers the pending read.
+     */
+    private class ReadLater
+        implements ModelReader
+    {
+        private final CompletionService<Model> m_pool;
+        private Future<Model> m_future;
+
+        private ReadLater( CompletionService<Model> pool ) {
+            m_pool = pool;
+        }
+
+        @Override
+        public Model readModel( final Model toRead, final String URL ) {
+            m_future = m_pool.submit( new Callable<Model>() {
+                @Override
+                public Model call() {
+                    read( toRead, URL, true );
+                    return toRead;
+                }
+            } );
+            return toRead;
+        }
+    }
 }
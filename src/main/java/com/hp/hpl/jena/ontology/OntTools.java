@@ -25,6 +25,8 @@ package com.hp.hpl.jena.ontology;
 ///////////////
 import java.util.*;
 
+import com.hp.hpl.jena.ontology.impl.ClassHierarchyIndex;
+import com.hp.hpl.jena.ontology.impl.OntModelImpl;
 import com.hp.hpl.jena.rdf.model.*;
 import com.hp.hpl.jena.shared.JenaException;
 import com.hp.hpl.jena.util.iterator.Filter;
@@ -79,6 +81,9 @@ public class OntTools
      * <p>Both of these conditions are true of the built-in Jena OWL reasoners,
      * such as {@link OntModelSpec#OWL_MEM_MICRO_RULE_INF}, and external DL
      * reasoners such as Pellet.</p>
+     * <p>If the model keeps a {@link ClassHierarchyIndex} (see
+     * {@link OntModelImpl#setClassHierarchyIndexed(boolean)}), the LCA is instead
+     * taken from the index, which needs neither of these conditions.</p>
      *
      * @param m The ontology model being queried to find the LCA, which should conform
      * to the reasoner capabilities described above
@@ -118,6 +123,11 @@ public class OntTools
             return root;
         }
 
+        // use the class hierarchy index, if the model has one
+        if (m instanceof OntModelImpl && ((OntModelImpl) m).getClassHierarchyIndex() != null) {
+            return ((OntModelImpl) m).getClassHierarchyIndex().getLCA( root, u, v );
+        }
+
         if (u.hasSubClass( v )) {
             return u;
         }
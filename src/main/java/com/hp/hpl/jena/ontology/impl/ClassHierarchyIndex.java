@@ -0,0 +1,706 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Package
+///////////////
+package com.hp.hpl.jena.ontology.impl;
+
+
+// Imports
+///////////////
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.ontology.*;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.util.iterator.*;
+import com.hp.hpl.jena.vocabulary.*;
+
+
+/**
+ * <p>
+ * A materialised index of the class hierarchy of an {@link OntModelImpl}, which
+ * answers direct sub- and super-class, hierarchy root and lowest common ancestor
+ * queries in time proportional to the size of the answer, rather than by
+ * re-scanning the <code>subClassOf</code> statements on each call.
+ * </p>
+ * <p>
+ * The index is built from the <code>subClassOf</code> statements visible in the
+ * model, including any inferred by the reasoner, and from the classes listed by
+ * {@link OntModel#listClasses()}. Classes that are equivalent, i.e. that lie on a
+ * <code>subClassOf</code> cycle, are merged into a single node, and the direct
+ * edges of the resulting DAG are those of its transitive reduction. Each node
+ * records its depth, being the length of the longest path to it from a node
+ * without super-classes, and its ancestors, as a sorted array of node numbers.
+ * Note that the direct relation is therefore computed against the transitive
+ * closure of <code>subClassOf</code>, even in a model without a reasoner.
+ * </p>
+ * <p>
+ * A listener on the model discards the index when a statement that may change
+ * the hierarchy is added or removed, and it is rebuilt on the next query. Changes
+ * made directly to a sub-model, without going through the ontology model, are
+ * only seen after {@link OntModel#rebind()}. The index is created with
+ * {@link OntModelImpl#setClassHierarchyIndexed(boolean)}.
+ * </p>
+ */
+public class ClassHierarchyIndex
+{
+    // Constants
+    //////////////////////////////////
+
+    private static final int[] NONE = new int[0];
+
+
+    // Static variables
+    //////////////////////////////////
+
+
+    // Instance variables
+    //////////////////////////////////
+
+    /** The model whose classes are indexed */
+    protected OntModelImpl m_model;
+
+    /** The listener that discards the index when the model changes */
+    protected HierarchyListener m_listener = new HierarchyListener();
+
+    /** The current index, or null if it must be rebuilt */
+    private volatile Hierarchy m_hierarchy = null;
+
+    /** Counts changes to the model, so that an index built during a change is not kept */
+    private volatile int m_changes = 0;
+
+
+    // Constructors
+    //////////////////////////////////
+
+    /**
+     * <p>Construct an index of the class hierarchy of the given model, and start
+     * listening for changes to the model. The index itself is built when it is
+     * first needed.</p>
+     * @param model The ontology model to index
+     */
+    public ClassHierarchyIndex( OntModelImpl model ) {
+        m_model = model;
+        m_model.register( m_listener );
+    }
+
+
+    // External signature methods
+    //////////////////////////////////
+
+    /**
+     * <p>Answer the direct sub-classes of the given class, as
+     * {@link OntClass#listSubClasses(boolean) listSubClasses(true)} would.</p>
+     * @param cls A class
+     * @return An iterator over the direct sub-classes of <code>cls</code>
+     */
+    public ExtendedIterator<OntClass> listDirectSubClasses( Resource cls ) {
+        Hierarchy h = getHierarchy();
+        int n = h.nodeId( cls.asNode() );
+        return (n < 0) ? NullIterator.<OntClass>instance() : h.listMembers( h.m_children[h.m_component[n]] );
+    }
+
+    /**
+     * <p>Answer the direct super-classes of the given class, as
+     * {@link OntClass#listSuperClasses(boolean) listSuperClasses(true)} would.</p>
+     * @param cls A class
+     * @return An iterator over the direct super-classes of <code>cls</code>
+     */
+    public ExtendedIterator<OntClass> listDirectSuperClasses( Resource cls ) {
+        Hierarchy h = getHierarchy();
+        int n = h.nodeId( cls.asNode() );
+        return (n < 0) ? NullIterator.<OntClass>instance() : h.listMembers( h.m_parents[h.m_component[n]] );
+    }
+
+    /**
+     * <p>Answer true if <code>sup</code> is a direct super-class of <code>cls</code>.</p>
+     * @param cls A class
+     * @param sup A candidate direct super-class
+     * @return True if <code>sup</code> is a direct super-class of <code>cls</code>
+     */
+    public boolean hasDirectSuperClass( Resource cls, Resource sup ) {
+        Hierarchy h = getHierarchy();
+        int n = h.nodeId( cls.asNode() );
+        int s = h.nodeId( sup.asNode() );
+        if (n < 0 || s < 0) {
+            return false;
+        }
+        int[] parents = h.m_parents[h.m_component[n]];
+        int target = h.m_component[s];
+        for (int i = 0; i < parents.length; i++) {
+            if (parents[i] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <p>Answer true if <code>sup</code> is a super-class of <code>cls</code>,
+     * directly or otherwise, or is equivalent to it.</p>
+     * @param cls A class
+     * @param sup A candidate super-class
+     * @return True if <code>sup</code> is <code>cls</code> or one of its ancestors
+     */
+    public boolean isSubClassOf( Resource cls, Resource sup ) {
+        Hierarchy h = getHierarchy();
+        int n = h.nodeId( cls.asNode() );
+        int s = h.nodeId( sup.asNode() );
+        return n >= 0 && s >= 0 && h.isAncestor( h.m_component[s], h.m_component[n] );
+    }
+
+    /**
+     * <p>Answer the depth of the given class: the number of edges on the longest
+     * path of direct super-classes from the class up to a class that has no
+     * super-class.</p>
+     * @param cls A class
+     * @return The depth of <code>cls</code>, or -1 if it is not in the hierarchy
+     */
+    public int getDepth( Resource cls ) {
+        Hierarchy h = getHierarchy();
+        int n = h.nodeId( cls.asNode() );
+        return (n < 0) ? -1 : h.m_depth[h.m_component[n]];
+    }
+
+    /**
+     * <p>Answer the root classes of the hierarchy, as
+     * {@link OntModel#listHierarchyRootClasses()} would: the classes, other than
+     * the terms of the ontology language, whose only direct super-classes, if any,
+     * are Top and <code>rdfs:Resource</code>.</p>
+     * @return An iterator over the root classes of the hierarchy
+     */
+    public ExtendedIterator<OntClass> listHierarchyRootClasses() {
+        Hierarchy h = getHierarchy();
+        List<OntClass> roots = new ArrayList<OntClass>( h.m_roots.length );
+        for (int i = 0; i < h.m_roots.length; i++) {
+            roots.add( h.asOntClass( h.m_roots[i] ) );
+        }
+        return WrappedIterator.create( roots.iterator() );
+    }
+
+    /**
+     * <p>Answer the lowest common ancestor of <code>u</code> and <code>v</code>
+     * below <code>root</code>: of the classes that are super-classes of both, or
+     * are one of them, and are <code>root</code> or a sub-class of it, one of those
+     * with the greatest depth. A root class that is not in the hierarchy, as
+     * <code>owl:Thing</code> often is in a model without a reasoner, is taken to be
+     * a super-class of every class.</p>
+     * @param root The root class
+     * @param u A class
+     * @param v A class
+     * @return The lowest common ancestor of <code>u</code> and <code>v</code>,
+     * <code>root</code> if they have no other common ancestor, or null if
+     * <code>root</code> is in the hierarchy but not an ancestor of both
+     */
+    public OntClass getLCA( Resource root, Resource u, Resource v ) {
+        Hierarchy h = getHierarchy();
+        int r = h.nodeId( root.asNode() );
+        int a = h.nodeId( u.asNode() );
+        int b = h.nodeId( v.asNode() );
+        if (a < 0 || b < 0) {
+            return (r < 0) ? root.as( OntClass.class ) : null;
+        }
+
+        int rootComponent = (r < 0) ? -1 : h.m_component[r];
+        int[] x = h.m_ancestors[h.m_component[a]];
+        int[] y = h.m_ancestors[h.m_component[b]];
+        int best = -1;
+
+        // both arrays are sorted, so we can merge them to find the common ancestors
+        for (int i = 0, j = 0; i < x.length && j < y.length; ) {
+            if (x[i] < y[j]) {
+                i++;
+            }
+            else if (x[i] > y[j]) {
+                j++;
+            }
+            else {
+                int c = x[i];
+                if ((rootComponent < 0 || h.isAncestor( rootComponent, c )) &&
+                    (best < 0 || h.m_depth[c] > h.m_depth[best]))
+                {
+                    best = c;
+                }
+                i++;
+                j++;
+            }
+        }
+
+        if (best < 0) {
+            return (r < 0) ? root.as( OntClass.class ) : null;
+        }
+        else if (best == rootComponent) {
+            return root.as( OntClass.class );
+        }
+        else if (best == h.m_component[a]) {
+            return u.as( OntClass.class );
+        }
+        else if (best == h.m_component[b]) {
+            return v.as( OntClass.class );
+        }
+        return h.asOntClass( h.m_members[best][0] );
+    }
+
+    /**
+     * <p>Discard the current index, so that it is rebuilt when it is next needed.</p>
+     */
+    public void invalidate() {
+        m_changes++;
+        m_hierarchy = null;
+    }
+
+    /**
+     * <p>Stop listening to the model and discard the index.</p>
+     */
+    public void close() {
+        m_model.unregister( m_listener );
+        invalidate();
+    }
+
+
+    // Internal implementation methods
+    //////////////////////////////////
+
+    /** Answer the current index, building it if need be */
+    protected Hierarchy getHierarchy() {
+        Hierarchy h = m_hierarchy;
+        if (h == null) {
+            synchronized (this) {
+                h = m_hierarchy;
+                if (h == null) {
+                    int changes = m_changes;
+                    h = new Hierarchy();
+                    if (changes == m_changes) {
+                        m_hierarchy = h;
+                    }
+                }
+            }
+        }
+        return h;
+    }
+
+    /** Answer true if the given statement may change the class hierarchy */
+    protected boolean affectsHierarchy( Statement s ) {
+        // with a reasoner, any change may change the inferred hierarchy
+        if (m_model.getGraph() instanceof InfGraph) {
+            return true;
+        }
+        Property p = s.getPredicate();
+        return p.equals( m_model.getProfile().SUB_CLASS_OF() ) || p.equals( RDF.type );
+    }
+
+
+    //==============================================================================
+    // Inner class definitions
+    //==============================================================================
+
+    /**
+     * The index itself, built from the model when it is constructed. The classes
+     * are numbered in the order they are found, and the nodes of the DAG are
+     * numbered so that each node comes after all of its ancestors.
+     */
+    protected class Hierarchy
+    {
+        /** Class number of each class node */
+        private Map<Node, Integer> m_ids = new HashMap<Node, Integer>();
+
+        /** Class node of each class number */
+        private List<Node> m_nodes = new ArrayList<Node>();
+
+        /** DAG node of each class */
+        private int[] m_component;
+
+        /** Classes of each DAG node */
+        private int[][] m_members;
+
+        /** Direct parents and children of each DAG node */
+        private int[][] m_parents;
+        private int[][] m_children;
+
+        /** Depth of each DAG node */
+        private int[] m_depth;
+
+        /** Ancestors of each DAG node, including itself, in ascending order */
+        private int[][] m_ancestors;
+
+        /** The hierarchy root classes */
+        private int[] m_roots;
+
+        Hierarchy() {
+            // the sub-class edges, as pairs of class numbers
+            IntList edges = new IntList();
+            Node subClassOf = m_model.getProfile().SUB_CLASS_OF().asNode();
+            for (Iterator<Triple> i = m_model.getGraph().find( Node.ANY, subClassOf, Node.ANY ); i.hasNext(); ) {
+                Triple t = i.next();
+                int sub = id( t.getSubject() );
+                int sup = id( t.getObject() );
+                if (sub != sup) {
+                    edges.add( sub );
+                    edges.add( sup );
+                }
+            }
+
+            // the classes that may be roots
+            IntList classes = new IntList();
+            Resource nothing = m_model.getProfile().NOTHING();
+            for (Iterator<OntClass> i = m_model.listClasses(); i.hasNext(); ) {
+                OntClass c = i.next();
+                if (!c.isOntLanguageTerm() && !c.equals( nothing )) {
+                    classes.add( id( c.asNode() ) );
+                }
+            }
+
+            int[][] supers = adjacency( edges );
+            findComponents( supers );
+            findParents( supers );
+            reduce();
+            findChildren();
+            findRoots( classes );
+        }
+
+        /** Answer the class number of n, or -1 */
+        int nodeId( Node n ) {
+            Integer id = m_ids.get( n );
+            return (id == null) ? -1 : id.intValue();
+        }
+
+        /** Answer true if DAG node a is an ancestor of, or is, DAG node c */
+        boolean isAncestor( int a, int c ) {
+            return Arrays.binarySearch( m_ancestors[c], a ) >= 0;
+        }
+
+        /** Answer the given class as an OntClass */
+        OntClass asOntClass( int n ) {
+            return m_model.getNodeAs( m_nodes.get( n ), OntClass.class );
+        }
+
+        /** Answer an iterator over all of the classes of the given DAG nodes */
+        ExtendedIterator<OntClass> listMembers( int[] components ) {
+            List<OntClass> result = new ArrayList<OntClass>();
+            for (int i = 0; i < components.length; i++) {
+                int[] members = m_members[components[i]];
+                for (int j = 0; j < members.length; j++) {
+                    result.add( asOntClass( members[j] ) );
+                }
+            }
+            return WrappedIterator.create( result.iterator() );
+        }
+
+        private int id( Node n ) {
+            Integer id = m_ids.get( n );
+            if (id == null) {
+                id = Integer.valueOf( m_nodes.size() );
+                m_ids.put( n, id );
+                m_nodes.add( n );
+            }
+            return id.intValue();
+        }
+
+        /** Answer the super-classes of each class, from the pairs in edges */
+        private int[][] adjacency( IntList edges ) {
+            int n = m_nodes.size();
+            int[] count = new int[n];
+            for (int i = 0; i < edges.size(); i += 2) {
+                count[edges.get( i )]++;
+            }
+            int[][] result = new int[n][];
+            for (int i = 0; i < n; i++) {
+                result[i] = (count[i] == 0) ? NONE : new int[count[i]];
+                count[i] = 0;
+            }
+            for (int i = 0; i < edges.size(); i += 2) {
+                int sub = edges.get( i );
+                result[sub][count[sub]++] = edges.get( i + 1 );
+            }
+            return result;
+        }
+
+        /**
+         * Merge the classes on each sub-class cycle into one DAG node, using
+         * Tarjan's strongly connected components algorithm. The components
+         * are completed, and so numbered, super-classes first.
+         */
+        private void findComponents( int[][] supers ) {
+            int n = m_nodes.size();
+            int[] index = new int[n];
+            int[] low = new int[n];
+            int[] stack = new int[n];
+            int[] calls = new int[n];
+            int[] next = new int[n];
+            boolean[] onStack = new boolean[n];
+            Arrays.fill( index, -1 );
+            m_component = new int[n];
+            List<int[]> members = new ArrayList<int[]>();
+            int counter = 0, sp = 0;
+
+            for (int start = 0; start < n; start++) {
+                if (index[start] >= 0) {
+                    continue;
+                }
+                int cp = 0;
+                calls[cp++] = start;
+                index[start] = low[start] = counter++;
+                stack[sp++] = start;
+                onStack[start] = true;
+
+                while (cp > 0) {
+                    int v = calls[cp - 1];
+                    if (next[v] < supers[v].length) {
+                        int w = supers[v][next[v]++];
+                        if (index[w] < 0) {
+                            index[w] = low[w] = counter++;
+                            stack[sp++] = w;
+                            onStack[w] = true;
+                            calls[cp++] = w;
+                        }
+                        else if (onStack[w]) {
+                            low[v] = Math.min( low[v], index[w] );
+                        }
+                    }
+                    else {
+                        cp--;
+                        if (low[v] == index[v]) {
+                            // v is the first of a component, which is the top of the stack down to v
+                            int size = 0;
+                            while (stack[sp - 1 - size] != v) {
+                                size++;
+                            }
+                            int[] component = new int[++size];
+                            for (int i = size - 1; i >= 0; i--) {
+                                int w = stack[--sp];
+                                onStack[w] = false;
+                                m_component[w] = members.size();
+                                component[i] = w;
+                            }
+                            members.add( component );
+                        }
+                        if (cp > 0) {
+                            int u = calls[cp - 1];
+                            low[u] = Math.min( low[u], low[v] );
+                        }
+                    }
+                }
+            }
+
+            m_members = members.toArray( new int[members.size()][] );
+        }
+
+        /** Find the DAG nodes adjacent to each one, before the redundant edges are removed */
+        private void findParents( int[][] supers ) {
+            int size = m_members.length;
+            int[] seen = new int[size];
+            Arrays.fill( seen, -1 );
+            m_parents = new int[size][];
+            IntList parents = new IntList();
+
+            for (int c = 0; c < size; c++) {
+                parents.clear();
+                int[] members = m_members[c];
+                for (int i = 0; i < members.length; i++) {
+                    int[] s = supers[members[i]];
+                    for (int j = 0; j < s.length; j++) {
+                        int p = m_component[s[j]];
+                        if (p != c && seen[p] != c) {
+                            seen[p] = c;
+                            parents.add( p );
+                        }
+                    }
+                }
+                m_parents[c] = parents.toArray();
+            }
+        }
+
+        /**
+         * Compute the depth and ancestors of each DAG node, and remove the parents
+         * that are also ancestors of another parent. Each parent is the ancestor
+         * only of deeper parents, so taking the parents deepest first, a parent is
+         * redundant if it is among the ancestors of those taken before it.
+         */
+        private void reduce() {
+            int size = m_members.length;
+            int[] seen = new int[size];
+            Arrays.fill( seen, -1 );
+            m_depth = new int[size];
+            m_ancestors = new int[size][];
+            IntList ancestors = new IntList();
+            IntList direct = new IntList();
+
+            // nodes are numbered so that each comes after its ancestors
+            for (int c = 0; c < size; c++) {
+                int[] parents = m_parents[c];
+                sortByDepth( parents );
+                ancestors.clear();
+                direct.clear();
+
+                for (int i = 0; i < parents.length; i++) {
+                    int p = parents[i];
+                    if (seen[p] == c) {
+                        continue;
+                    }
+                    direct.add( p );
+                    int[] a = m_ancestors[p];
+                    for (int j = 0; j < a.length; j++) {
+                        if (seen[a[j]] != c) {
+                            seen[a[j]] = c;
+                            ancestors.add( a[j] );
+                        }
+                    }
+                }
+
+                m_depth[c] = (parents.length == 0) ? 0 : m_depth[parents[0]] + 1;
+                ancestors.add( c );
+                int[] a = ancestors.toArray();
+                Arrays.sort( a );
+                m_ancestors[c] = a;
+                m_parents[c] = direct.toArray();
+            }
+        }
+
+        /** Sort DAG nodes by decreasing depth */
+        private void sortByDepth( int[] nodes ) {
+            for (int i = 1; i < nodes.length; i++) {
+                int n = nodes[i];
+                int j = i;
+                for (; j > 0 && m_depth[nodes[j - 1]] < m_depth[n]; j--) {
+                    nodes[j] = nodes[j - 1];
+                }
+                nodes[j] = n;
+            }
+        }
+
+        private void findChildren() {
+            int size = m_members.length;
+            int[] count = new int[size];
+            for (int c = 0; c < size; c++) {
+                for (int i = 0; i < m_parents[c].length; i++) {
+                    count[m_parents[c][i]]++;
+                }
+            }
+            m_children = new int[size][];
+            for (int c = 0; c < size; c++) {
+                m_children[c] = (count[c] == 0) ? NONE : new int[count[c]];
+                count[c] = 0;
+            }
+            for (int c = 0; c < size; c++) {
+                for (int i = 0; i < m_parents[c].length; i++) {
+                    int p = m_parents[c][i];
+                    m_children[p][count[p]++] = c;
+                }
+            }
+        }
+
+        /** The roots are those classes whose direct super-classes are all Top or rdfs:Resource */
+        private void findRoots( IntList classes ) {
+            Resource thing = m_model.getProfile().THING();
+            Set<Node> tops = new HashSet<Node>();
+            tops.add( RDFS.Resource.asNode() );
+            if (thing != null) {
+                tops.add( thing.asNode() );
+            }
+
+            IntList roots = new IntList();
+            boolean[] seen = new boolean[m_nodes.size()];
+            for (int i = 0; i < classes.size(); i++) {
+                int n = classes.get( i );
+                if (seen[n]) {
+                    continue;
+                }
+                seen[n] = true;
+                boolean root = true;
+                int[] parents = m_parents[m_component[n]];
+                for (int j = 0; root && j < parents.length; j++) {
+                    int[] members = m_members[parents[j]];
+                    for (int k = 0; root && k < members.length; k++) {
+                        root = tops.contains( m_nodes.get( members[k] ) );
+                    }
+                }
+                if (root) {
+                    roots.add( n );
+                }
+            }
+            m_roots = roots.toArray();
+        }
+    }
+
+    /** A growable list of ints */
+    private static class IntList
+    {
+        private int[] m_values = new int[16];
+        private int m_size = 0;
+
+        void add( int value ) {
+            if (m_size == m_values.length) {
+                m_values = Arrays.copyOf( m_values, m_size * 2 );
+            }
+            m_values[m_size++] = value;
+        }
+
+        int get( int i ) {
+            return m_values[i];
+        }
+
+        int size() {
+            return m_size;
+        }
+
+        void clear() {
+            m_size = 0;
+        }
+
+        int[] toArray() {
+            return (m_size == 0) ? NONE : Arrays.copyOf( m_values, m_size );
+        }
+    }
+
+    /** Listener that discards the index when the hierarchy may have changed */
+    protected class HierarchyListener
+        extends StatementListener
+    {
+        @Override
+        public void addedStatement( Statement added ) {
+            if (affectsHierarchy( added )) {
+                invalidate();
+            }
+        }
+
+        @Override
+        public void removedStatement( Statement removed ) {
+            if (affectsHierarchy( removed )) {
+                invalidate();
+            }
+        }
+
+        @Override
+        public void addedStatements( Model m ) {
+            invalidate();
+        }
+
+        @Override
+        public void removedStatements( Model m ) {
+            invalidate();
+        }
+
+        @Override
+        public void notifyEvent( Model m, Object event ) {
+            invalidate();
+        }
+    }
+}
@@ -196,6 +196,12 @@ public class OntClassImpl
      */
     @Override
     public ExtendedIterator<OntClass> listSuperClasses( boolean direct ) {
+        ClassHierarchyIndex index = direct ? getClassHierarchyIndex() : null;
+        if (index != null) {
+            checkProfile( getProfile().SUB_CLASS_OF(), "SUB_CLASS_OF" );
+            return index.listDirectSuperClasses( this );
+        }
+
         return UniqueExtendedIterator.create(
                 listDirectPropertyValues( getProfile().SUB_CLASS_OF(), "SUB_CLASS_OF", OntClass.class, getProfile().SUB_CLASS_OF(), direct, false )
                 .filterDrop( new SingleEqualityFilter<OntClass>( this ) ) );
@@ -242,7 +248,14 @@ public class OntClassImpl
         }
         else {
             // we want the direct, not general relationship
-            // first try to find an inf graph that can do the work for us
+            // first try the class hierarchy index, if the model has one
+            ClassHierarchyIndex index = getClassHierarchyIndex();
+            if (index != null) {
+                checkProfile( getProfile().SUB_CLASS_OF(), "SUB_CLASS_OF" );
+                return index.hasDirectSuperClass( this, cls );
+            }
+
+            // next try to find an inf graph that can do the work for us
             InfGraph ig = null;
             if (getGraph() instanceof InfGraph) {
                 ig = (InfGraph) getGraph();
@@ -387,6 +400,12 @@ public class OntClassImpl
      */
     @Override
     public ExtendedIterator<OntClass> listSubClasses( boolean direct ) {
+        ClassHierarchyIndex index = direct ? getClassHierarchyIndex() : null;
+        if (index != null) {
+            checkProfile( getProfile().SUB_CLASS_OF(), "SUB_CLASS_OF" );
+            return index.listDirectSubClasses( this );
+        }
+
         return UniqueExtendedIterator.create(
                 listDirectPropertyValues( getProfile().SUB_CLASS_OF(), "SUB_CLASS_OF", OntClass.class, getProfile().SUB_CLASS_OF(), direct, true )
                 .filterDrop( new SingleEqualityFilter<OntClass>( this ) ) );
@@ -955,6 +974,14 @@ public class OntClassImpl
     // Internal implementation methods
     //////////////////////////////////
 
+    /**
+     * <p>Answer the class hierarchy index of the model containing this class.</p>
+     * @return The model's class hierarchy index, or null if it does not have one
+     */
+    protected ClassHierarchyIndex getClassHierarchyIndex() {
+        return (getModel() instanceof OntModelImpl) ? ((OntModelImpl) getModel()).getClassHierarchyIndex() : null;
+    }
+
     /**
      * <p>Answer true if this class has the given class as a direct super-class, without using
      * extra help from the reasoner.</p>
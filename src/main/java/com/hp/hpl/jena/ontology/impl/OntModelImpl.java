@@ -95,6 +95,9 @@ public class OntModelImpl extends ModelCom implements OntModel
     /** The listener that detects dynamically added or removed imports statements */
     protected ImportsListener m_importsListener = null;
 
+    /** The index of the class hierarchy, if enabled */
+    protected ClassHierarchyIndex m_hierarchyIndex = null;
+
     /** Cached deductions model */
     private Model m_deductionsModel = null;
 
@@ -515,6 +518,11 @@ public class OntModelImpl extends ModelCom implements OntModel
      */
     @Override
     public ExtendedIterator<OntClass> listHierarchyRootClasses() {
+        // use the class hierarchy index if there is one
+        if (m_hierarchyIndex != null) {
+            return m_hierarchyIndex.listHierarchyRootClasses();
+        }
+
         // look for the shortcut of using direct subClass on :Thing
         if (getReasoner() != null) {
             Model conf = getReasoner().getReasonerCapabilities();
@@ -2455,6 +2463,7 @@ public class OntModelImpl extends ModelCom implements OntModel
     @Override
     public void addSubModel( Model model, boolean rebind ) {
         getUnionGraph().addGraph( model.getGraph() );
+        invalidateClassHierarchyIndex();
         if (rebind) {
             rebind();
         }
@@ -2497,6 +2506,7 @@ public class OntModelImpl extends ModelCom implements OntModel
             // we need to get the base graph when removing a ontmodel
             getUnionGraph().removeGraph( ((MultiUnion) subG).getBaseGraph() );
         }
+        invalidateClassHierarchyIndex();
 
         if (rebind) {
             rebind();
@@ -2609,6 +2619,43 @@ public class OntModelImpl extends ModelCom implements OntModel
     }
 
 
+    /**
+     * <p>Set the flag that controls whether this model keeps a {@link ClassHierarchyIndex}
+     * of its class hierarchy. While the index is enabled, direct sub- and super-class
+     * queries on the classes of the model, {@link #listHierarchyRootClasses()} and
+     * {@link OntTools#getLCA} are answered from the index rather than by searching the
+     * <code>subClassOf</code> statements. Note that the index computes the direct
+     * relation against the transitive closure of <code>subClassOf</code>, also when
+     * there is no reasoner, and it is used in preference to the reasoner's own direct
+     * sub-class relation.</p>
+     * @param indexed If true, build and maintain the index; if false, discard it.
+     * Default false.
+     */
+    public void setClassHierarchyIndexed( boolean indexed ) {
+        if (indexed) {
+            if (m_hierarchyIndex == null) {
+                m_hierarchyIndex = new ClassHierarchyIndex( this );
+            }
+        }
+        else {
+            if (m_hierarchyIndex != null) {
+                m_hierarchyIndex.close();
+                m_hierarchyIndex = null;
+            }
+        }
+    }
+
+
+    /**
+     * <p>Answer the index of the class hierarchy of this model.</p>
+     * @return The class hierarchy index, or null if it is not enabled
+     * @see #setClassHierarchyIndexed(boolean)
+     */
+    public ClassHierarchyIndex getClassHierarchyIndex() {
+        return m_hierarchyIndex;
+    }
+
+
     /**
      * <p>Answer the ontology model specification that was used to construct this model</p>
      * @return An ont model spec instance.
@@ -2710,6 +2757,7 @@ public class OntModelImpl extends ModelCom implements OntModel
         if (getGraph() instanceof InfGraph) {
             ((InfGraph) getGraph()).rebind();
         }
+        invalidateClassHierarchyIndex();
     }
 
     /**
@@ -2842,6 +2890,13 @@ public class OntModelImpl extends ModelCom implements OntModel
     //////////////////////////////////
 
 
+    /** Discard the class hierarchy index, if any, so that it is rebuilt when next used */
+    protected void invalidateClassHierarchyIndex() {
+        if (m_hierarchyIndex != null) {
+            m_hierarchyIndex.invalidate();
+        }
+    }
+
     private static void initSyntaxCheckerClass() {
         if (owlSyntaxCheckerClass == null ) {
             try {
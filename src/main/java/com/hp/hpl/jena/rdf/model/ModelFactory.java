@@ -26,6 +26,7 @@ import com.hp.hpl.jena.graph.Factory ;
 import com.hp.hpl.jena.graph.Graph ;
 import com.hp.hpl.jena.graph.compose.Union ;
 import com.hp.hpl.jena.graph.impl.FileGraphMaker ;
+import com.hp.hpl.jena.graph.impl.MappedGraphMaker ;
 import com.hp.hpl.jena.graph.impl.SimpleGraphMaker ;
 import com.hp.hpl.jena.ontology.OntModel ;
 import com.hp.hpl.jena.ontology.OntModelSpec ;
@@ -190,6 +191,29 @@ public class ModelFactory extends ModelFactoryBase
     public static ModelMaker createFileModelMaker( String root, ReificationStyle style )
         { return new ModelMakerImpl( new FileGraphMaker( root, style ) ); }
 
+    /**
+        Answer a ModelMaker that constructs memory-based Models whose changes
+        are journalled, as they are made, to memory-mapped files in the root
+        directory. Opening a Model replays its journal, and nothing need be
+        written when it is closed. The model has the Standard reification style.
+
+        @param root the name of the directory in which the journal files are held
+        @return a ModelMaker linked to the journals in the root
+    */
+    public static ModelMaker createMappedModelMaker( String root )
+        { return createMappedModelMaker( root, Standard ); }
+
+    /**
+        Answer a ModelMaker that constructs memory-based Models whose changes
+        are journalled to memory-mapped files in the root directory.
+
+        @param root the name of the directory in which the journal files are held
+        @param style the desired reification style
+        @return a ModelMaker linked to the journals in the root
+    */
+    public static ModelMaker createMappedModelMaker( String root, ReificationStyle style )
+        { return new ModelMakerImpl( new MappedGraphMaker( root, style ) ); }
+
     /**
         Answer a ModelMaker that constructs memory-based Models that do
         not persist past JVM termination. The model has the Standard reification
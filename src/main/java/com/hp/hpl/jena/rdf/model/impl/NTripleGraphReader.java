@@ -0,0 +1,885 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.rdf.model.impl;
+
+import java.io.*;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.mem.GraphMemBulkUpdateHandler;
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.shared.*;
+import com.hp.hpl.jena.util.FileUtils;
+
+/**
+ * N-Triple reader which reads straight into a Graph. The input is scanned a
+ * buffer at a time, the Nodes and Triples are built directly rather than
+ * through the Model API, and the triples are handed to the graph's
+ * BulkUpdateHandler in batches of BATCH_SIZE.
+ * <p>
+ * It accepts what NTripleReader does (and the \U, \b, \f and \' escapes of
+ * later N-Triples) and reports errors the same way: the rest of a line in
+ * error is skipped, and a SyntaxError is thrown once all the input has been
+ * read. Triples are added as they are read, so those before and after an
+ * error are in the graph.
+ * <p>
+ * Large inputs can be parsed on several threads at once, see setThreads.
+ */
+public class NTripleGraphReader implements RDFReader {
+
+    /** The number of chars read from the input at a time */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /** The number of triples handed to the graph at a time */
+    public static final int BATCH_SIZE = 1 << 12;
+
+    /** The default size, in bytes or chars, of the pieces the input is split into for a parallel read */
+    public static final int CHUNK_SIZE = 1 << 22;
+
+    /** The number of slots in the cache of recently read URI nodes */
+    private static final int URI_CACHE_SIZE = 1 << 12;
+
+    private RDFErrorHandler errorHandler = new RDFDefaultErrorHandler();
+
+    private Graph graph;
+
+    /** Already with ": " at end for error messages */
+    private String base;
+
+    private Reader in;
+    private char[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    /** Start of the token being read, which must be kept when the buffer is refilled, or -1 */
+    private int mark = -1;
+
+    /** The number of chars discarded from the front of the buffer so far */
+    private long offset;
+
+    private int line;
+    private long lineStart;
+
+    private final StringBuilder sb = new StringBuilder();
+
+    /** Recently read URIs, by hash of their text */
+    private Node[] uris;
+
+    private Map<String, Node> anons;
+
+    private Node lastType;
+    private RDFDatatype lastDatatype;
+
+    private Triple[] batch;
+    private int batchCount;
+    private int errCount;
+    private int threads = 1;
+    private int chunkSize = CHUNK_SIZE;
+
+    public NTripleGraphReader() {
+    }
+
+    @Override
+    public void read(Model model, InputStream in, String base) {
+        read(model.getGraph(), in, base);
+    }
+
+    @Override
+    public void read(Model model, Reader reader, String base) {
+        read(model.getGraph(), reader, base);
+    }
+
+    @Override
+    public void read(Model model, String url) {
+        read(model.getGraph(), url);
+    }
+
+    /**
+     * Read N-Triples from <code>url</code> into <code>graph</code>.
+     */
+    public void read(Graph graph, String url) {
+        InputStream stream;
+        try {
+            stream = new URL(url).openStream();
+        } catch (IOException e) {
+            throw new JenaException(e);
+        }
+        try {
+            read(graph, stream, url);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                throw new JenaException(e);
+            }
+        }
+    }
+
+    /**
+     * Read N-Triples from <code>in</code> into <code>graph</code>.
+     */
+    public void read(Graph graph, InputStream in, String base) {
+        if (threads > 1) {
+            load(graph, base, new ByteChunks(in, chunkSize), null);
+        } else {
+            // N-Triples must be in ASCII, we permit UTF-8.
+            load(graph, base, null, FileUtils.asUTF8(in));
+        }
+    }
+
+    /**
+     * Read N-Triples from <code>reader</code> into <code>graph</code>. The
+     * graph is told of the start and finish of the read with
+     * GraphEvents.startRead and finishRead.
+     */
+    public void read(Graph graph, Reader reader, String base) {
+        load(graph, base, threads > 1 ? new CharChunks(reader, chunkSize) : null, reader);
+    }
+
+    /**
+     * Set the number of threads used to parse the input. With more than one,
+     * the input is split into newline aligned chunks of about the chunk size
+     * which are parsed at the same time, each with its own node cache, and
+     * added to the graph in order, a chunk at a time. Each triple must then
+     * be on a line of its own, as N-Triples requires but NTripleReader does
+     * not. The default is one.
+     * <p>
+     * Only the parsing is spread over the threads. The triples are still
+     * added to the graph by the reading thread, one at a time (a GraphMem
+     * updates each of its indexes on a thread of its own), so a load can
+     * take no less time than adding its triples, however many threads parse.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the size, in bytes or chars, of the chunks a parallel read splits
+     * the input into. The default is CHUNK_SIZE.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) throw new IllegalArgumentException("chunk size must be at least 1: " + chunkSize);
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * The properties are "threads", the number of threads used to parse the
+     * input (see setThreads), and "chunkSize" (see setChunkSize), each as an
+     * Integer or a String.
+     */
+    @Override
+    public Object setProperty(String propName, Object propValue) {
+        if (propName.equals("threads")) {
+            Integer old = threads;
+            setThreads(intValue(propValue));
+            return old;
+        }
+        if (propName.equals("chunkSize")) {
+            Integer old = chunkSize;
+            setChunkSize(intValue(propValue));
+            return old;
+        }
+        errorHandler.error(new UnknownPropertyException( propName ));
+        return null;
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString().trim());
+    }
+
+    @Override
+    public RDFErrorHandler setErrorHandler(RDFErrorHandler errHandler) {
+        RDFErrorHandler old = this.errorHandler;
+        this.errorHandler = errHandler;
+        return old;
+    }
+
+    private void load(Graph graph, String base, Chunks chunks, Reader reader) {
+        this.graph = graph;
+        this.base = base == null ? "" : (base + ": ");
+        errCount = 0;
+        GraphEventManager gem = graph.getEventManager();
+        gem.notifyEvent(graph, GraphEvents.startRead);
+        try {
+            if (chunks == null) {
+                parse(reader);
+            } else {
+                loadChunks(chunks);
+            }
+        } finally {
+            gem.notifyEvent(graph, GraphEvents.finishRead);
+        }
+        if (errCount != 0) {
+            throw new SyntaxError( "unknown" );
+        }
+    }
+
+    /**
+     * Parse all of <code>reader</code>, answering the number of lines read.
+     */
+    int parse(Reader reader) {
+        in = reader;
+        buf = new char[BUFFER_SIZE];
+        pos = limit = 0;
+        eof = false;
+        mark = -1;
+        offset = 0;
+        line = 1;
+        lineStart = 0;
+        uris = new Node[URI_CACHE_SIZE];
+        anons = new HashMap<String, Node>();
+        batch = new Triple[BATCH_SIZE];
+        batchCount = 0;
+        try {
+            readTriples();
+            return line - 1;
+        } finally {
+            in = null;
+            buf = null;
+            uris = null;
+            anons = null;
+            batch = null;
+        }
+    }
+
+    /**
+     * Parse the chunks on a pool of threads, keeping at most two chunks a
+     * thread in hand, and add their triples to the graph in order on this
+     * thread. Errors and warnings are also passed on here, in order and with
+     * their line numbers in the whole input.
+     */
+    private void loadChunks(Chunks chunks) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "NTripleGraphReader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        String anonPrefix = AnonId.create().getLabelString() + ":";
+        BulkUpdateHandler bulk = graph.getBulkUpdateHandler();
+        GraphMemBulkUpdateHandler memBulk = bulk instanceof GraphMemBulkUpdateHandler ? (GraphMemBulkUpdateHandler) bulk : null;
+        boolean wasParallel = memBulk != null && memBulk.isParallel();
+        if (memBulk != null) memBulk.setParallel(true);
+        try {
+            LinkedList<Future<ChunkParser>> pending = new LinkedList<Future<ChunkParser>>();
+            int lines = 0;
+            Reader chunk;
+            while ((chunk = chunks.next()) != null) {
+                pending.add(pool.submit(new ChunkParser(chunk, anonPrefix)));
+                if (pending.size() >= 2 * threads) {
+                    lines = addChunk(bulk, pending.removeFirst(), lines);
+                }
+            }
+            while (!pending.isEmpty()) {
+                lines = addChunk(bulk, pending.removeFirst(), lines);
+            }
+        } finally {
+            pool.shutdownNow();
+            if (memBulk != null) memBulk.setParallel(wasParallel);
+        }
+    }
+
+    private int addChunk(BulkUpdateHandler bulk, Future<ChunkParser> future, int lines) {
+        ChunkParser chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JenaException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new JenaException(e.getCause());
+        }
+        for (Problem p: chunk.problems) {
+            if (!p.warning) errCount++;
+            problem(p.warning, p.sort, p.message, lines + p.line, p.column);
+        }
+        if (chunk.triples.length > 0) {
+            bulk.add(chunk.triples);
+        }
+        return lines + chunk.lines;
+    }
+
+    /** Thrown, after the error handler has been told, to abandon a triple */
+    private static class BadTriple extends RuntimeException {
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private static final BadTriple BAD_TRIPLE = new BadTriple();
+
+    protected void readTriples() {
+        while (skipWhiteSpace()) {
+            try {
+                Node subject = readSubject();
+                skipWhiteSpace();
+                if (peek() != '<') syntaxError("expected URI");
+                Node predicate = readURI();
+                skipWhiteSpace();
+                Node object = readObject();
+                skipWhiteSpace();
+                if (peek() != '.') syntaxError("expected \".\"");
+                pos++;
+                add(new Triple(subject, predicate, object));
+            } catch (BadTriple e) {
+                errCount++;
+                skipLine();
+            }
+        }
+        flush();
+    }
+
+    private void add(Triple t) {
+        batch[batchCount++] = t;
+        if (batchCount == batch.length) flush();
+    }
+
+    private void flush() {
+        if (batchCount == 0) return;
+        emit(batchCount == batch.length ? batch : Arrays.copyOf(batch, batchCount));
+        batch = new Triple[BATCH_SIZE];
+        batchCount = 0;
+    }
+
+    /** Deliver a batch of the triples read */
+    void emit(Triple[] triples) {
+        graph.getBulkUpdateHandler().add(triples);
+    }
+
+    private Node readSubject() {
+        switch (peek()) {
+            case '<' :
+                return readURI();
+            case '_' :
+                return readBlank();
+            default :
+                syntaxError("unexpected input");
+                return null;
+        }
+    }
+
+    private Node readObject() {
+        switch (peek()) {
+            case '"' :
+                return readLiteral(false);
+            case 'x' :
+                deprecated("Use ^^rdf:XMLLiteral not xml\"literals\", .");
+                expect("xml");
+                if (peek() != '"') syntaxError("expected \"\"\"");
+                return readLiteral(true);
+            case '<' :
+                return readURI();
+            case '_' :
+                return readBlank();
+            default :
+                syntaxError("unexpected input");
+                return null;
+        }
+    }
+
+    /**
+     * Read a &lt;URI&gt;, starting at the '&lt;'. URIs without escapes are
+     * looked up in the cache straight from the buffer.
+     */
+    private Node readURI() {
+        pos++;
+        mark = pos;
+        int hash = 0;
+        while (true) {
+            if (pos == limit && !fill()) syntaxError("premature end of file");
+            char c = buf[pos];
+            if (c == '>') break;
+            if (c == '\\') return Node.createURI(readEscapedURI());
+            if (c == '\n') syntaxError("expected '>'");
+            hash = 31 * hash + c;
+            pos++;
+        }
+        Node node = uriNode(mark, pos - mark, hash);
+        mark = -1;
+        pos++;
+        return node;
+    }
+
+    private String readEscapedURI() {
+        sb.setLength(0);
+        sb.append(buf, mark, pos - mark);
+        mark = -1;
+        while (true) {
+            if (peek() == '\n') syntaxError("expected '>'");
+            char c = next();
+            if (c == '>') return sb.toString();
+            if (c == '\\') {
+                char e = next();
+                if (e == 'u') sb.appendCodePoint(readHex(4));
+                else if (e == 'U') sb.appendCodePoint(readHex(8));
+                else syntaxError("expected \"u\"");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private Node uriNode(int start, int length, int hash) {
+        int slot = (hash ^ (hash >>> 16)) & (URI_CACHE_SIZE - 1);
+        Node node = uris[slot];
+        if (node == null || !sameChars(node.getURI(), start, length)) {
+            node = Node.createURI(new String(buf, start, length));
+            uris[slot] = node;
+        }
+        return node;
+    }
+
+    private boolean sameChars(String s, int start, int length) {
+        if (s.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != buf[start + i]) return false;
+        }
+        return true;
+    }
+
+    private Node readBlank() {
+        pos++;
+        if (peek() != ':') syntaxError("expected \":\"");
+        pos++;
+        mark = pos;
+        while (pos < limit || fill()) {
+            char c = buf[pos];
+            if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_')) break;
+            pos++;
+        }
+        if (pos == mark) syntaxError("expected bNode label");
+        String label = new String(buf, mark, pos - mark);
+        mark = -1;
+        return anon(label);
+    }
+
+    /** Answer the blank node for a label, which is the same throughout one input */
+    Node anon(String label) {
+        Node node = anons.get(label);
+        if (node == null) {
+            node = Node.createAnon();
+            anons.put(label, node);
+        }
+        return node;
+    }
+
+    /**
+     * Read a literal, starting at its opening quote, with any language tag
+     * or datatype.
+     */
+    private Node readLiteral(boolean isXml) {
+        pos++;
+        mark = pos;
+        String lex = null;
+        while (lex == null) {
+            if (pos == limit && !fill()) syntaxError("premature end of file");
+            char c = buf[pos];
+            if (c == '"') {
+                lex = new String(buf, mark, pos - mark);
+                mark = -1;
+                pos++;
+            } else if (c == '\\') {
+                lex = readEscapedLiteral();
+            } else {
+                if (c == '\n') newLine(pos);
+                pos++;
+            }
+        }
+        String lang = "";
+        int c = peek();
+        if (c == '@') {
+            pos++;
+            lang = readLang();
+        } else if (c == '-') {
+            pos++;
+            deprecated("Language tags should be introduced with @ not -.");
+            lang = readLang();
+        }
+        if (isXml) {
+            return Node.createLiteral(lex, "", true);
+        }
+        if (peek() == '^') {
+            expect("^^");
+            if (peek() != '<') syntaxError("ill-formed datatype");
+            Node type = readURI();
+            if (lang.length() > 0) {
+                deprecated("Language tags are not permitted on typed literals.");
+            }
+            return Node.createLiteral(lex, "", datatype(type));
+        }
+        return Node.createLiteral(lex, lang, false);
+    }
+
+    private String readEscapedLiteral() {
+        sb.setLength(0);
+        sb.append(buf, mark, pos - mark);
+        mark = -1;
+        while (true) {
+            char c = next();
+            if (c == '"') return sb.toString();
+            if (c == '\\') {
+                char e = next();
+                switch (e) {
+                    case 'n' : sb.append('\n'); break;
+                    case 'r' : sb.append('\r'); break;
+                    case 't' : sb.append('\t'); break;
+                    case 'b' : sb.append('\b'); break;
+                    case 'f' : sb.append('\f'); break;
+                    case '"' :
+                    case '\'' :
+                    case '\\' : sb.append(e); break;
+                    case 'u' : sb.appendCodePoint(readHex(4)); break;
+                    case 'U' : sb.appendCodePoint(readHex(8)); break;
+                    default :
+                        syntaxError("illegal escape sequence '" + e + "'");
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private RDFDatatype datatype(Node type) {
+        if (type != lastType) {
+            lastDatatype = TypeMapper.getInstance().getSafeTypeByName(type.getURI());
+            lastType = type;
+        }
+        return lastDatatype;
+    }
+
+    private String readLang() {
+        mark = pos;
+        while (pos < limit || fill()) {
+            char c = buf[pos];
+            if (!(Character.isLetterOrDigit(c) || c == '-')) break;
+            pos++;
+        }
+        String lang = new String(buf, mark, pos - mark);
+        mark = -1;
+        return lang;
+    }
+
+    private int readHex(int digits) {
+        int value = 0;
+        for (int i = 0; i < digits; i++) {
+            int d = Character.digit(next(), 16);
+            if (d < 0) syntaxError("bad unicode escape sequence");
+            value = (value << 4) + d;
+        }
+        if (!Character.isValidCodePoint(value)) syntaxError("bad unicode escape sequence");
+        return value;
+    }
+
+    private void expect(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (peek() != str.charAt(i)) syntaxError("expected \"" + str + "\"");
+            pos++;
+        }
+    }
+
+    /**
+     * Skip white space and comments, answering false if the end of the
+     * input has been reached.
+     */
+    private boolean skipWhiteSpace() {
+        while (pos < limit || fill()) {
+            char c = buf[pos];
+            if (c == '#') {
+                skipLine();
+            } else if (Character.isWhitespace(c)) {
+                if (c == '\n') newLine(pos);
+                pos++;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void skipLine() {
+        mark = -1;
+        while (pos < limit || fill()) {
+            char c = buf[pos++];
+            if (c == '\n') {
+                newLine(pos - 1);
+                return;
+            }
+        }
+    }
+
+    private void newLine(int at) {
+        line++;
+        lineStart = offset + at + 1;
+    }
+
+    /** Answer the next char without consuming it, or -1 at the end of the input */
+    private int peek() {
+        return pos < limit || fill() ? buf[pos] : -1;
+    }
+
+    /** Consume and answer the next char, which must be there */
+    private char next() {
+        if (pos == limit && !fill()) syntaxError("premature end of file");
+        char c = buf[pos++];
+        if (c == '\n') newLine(pos - 1);
+        return c;
+    }
+
+    /**
+     * Read more input into the buffer, keeping anything from <code>mark</code>
+     * on. Answer false if there is no more.
+     */
+    private boolean fill() {
+        if (eof) return false;
+        int keep = mark < 0 ? pos : mark;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, limit - keep);
+            offset += keep;
+            limit -= keep;
+            pos -= keep;
+            if (mark >= 0) mark = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        try {
+            int n;
+            do {
+                n = in.read(buf, limit, buf.length - limit);
+            } while (n == 0);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            limit += n;
+            return true;
+        } catch (IOException e) {
+            throw new JenaException(e);
+        }
+    }
+
+    private void deprecated(String s) {
+        problem(true, "Deprecation warning", s, line, offset + pos - lineStart + 1);
+    }
+
+    private void syntaxError(String s) {
+        problem(false, "Syntax error", s, line, offset + pos - lineStart + 1);
+        throw BAD_TRIPLE;
+    }
+
+    /** Tell the error handler of an error, or a warning, at a line and column */
+    void problem(boolean warning, String sort, String msg, int atLine, long column) {
+        SyntaxError e = new SyntaxError(base
+            + sort
+            + " at line "
+            + atLine
+            + " position "
+            + column
+            + ": "
+            + msg);
+        if (warning) {
+            errorHandler.warning(e);
+        } else {
+            errorHandler.error(e);
+        }
+    }
+
+    private static class Problem {
+        final boolean warning;
+        final String sort;
+        final String message;
+        final int line;
+        final long column;
+
+        Problem(boolean warning, String sort, String message, int line, long column) {
+            this.warning = warning;
+            this.sort = sort;
+            this.message = message;
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    /**
+     * Parses one chunk of a parallel load, keeping its triples and problems
+     * for the loading thread. Blank nodes are labelled from the label in the
+     * input and a prefix for the whole load, so chunks agree on them without
+     * sharing a table.
+     */
+    private static class ChunkParser extends NTripleGraphReader implements Callable<ChunkParser> {
+        private final Reader chunk;
+        private final String anonPrefix;
+        private final List<Triple[]> batches = new ArrayList<Triple[]>();
+        final List<Problem> problems = new ArrayList<Problem>();
+        Triple[] triples;
+        int lines;
+
+        ChunkParser(Reader chunk, String anonPrefix) {
+            this.chunk = chunk;
+            this.anonPrefix = anonPrefix;
+        }
+
+        @Override
+        public ChunkParser call() {
+            lines = parse(chunk);
+            int size = 0;
+            for (Triple[] b: batches) size += b.length;
+            triples = new Triple[size];
+            int at = 0;
+            for (Triple[] b: batches) {
+                System.arraycopy(b, 0, triples, at, b.length);
+                at += b.length;
+            }
+            batches.clear();
+            return this;
+        }
+
+        @Override
+        void emit(Triple[] triples) {
+            batches.add(triples);
+        }
+
+        @Override
+        Node anon(String label) {
+            return Node.createAnon(new AnonId(anonPrefix + label));
+        }
+
+        @Override
+        void problem(boolean warning, String sort, String msg, int atLine, long column) {
+            problems.add(new Problem(warning, sort, msg, atLine, column));
+        }
+    }
+
+    /** Newline aligned pieces of an input, each of which can be parsed on its own */
+    private interface Chunks {
+        /** Answer the next piece, or null at the end of the input */
+        Reader next();
+    }
+
+    private static class ByteChunks implements Chunks {
+        private final InputStream in;
+        private final int chunkSize;
+        private byte[] rest = new byte[0];
+        private boolean eof;
+
+        ByteChunks(InputStream in, int chunkSize) {
+            this.in = in;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public Reader next() {
+            if (eof && rest.length == 0) return null;
+            byte[] chunk = Arrays.copyOf(rest, Math.max(chunkSize, rest.length * 2));
+            int length = rest.length;
+            int end;
+            while (true) {
+                length = fill(chunk, length);
+                end = length;
+                if (eof) break;
+                while (end > 0 && chunk[end - 1] != '\n') end--;
+                if (end > 0) break;
+                chunk = Arrays.copyOf(chunk, chunk.length * 2);
+            }
+            rest = Arrays.copyOfRange(chunk, end, length);
+            return FileUtils.asUTF8(new ByteArrayInputStream(chunk, 0, end));
+        }
+
+        private int fill(byte[] chunk, int length) {
+            try {
+                while (length < chunk.length) {
+                    int n = in.read(chunk, length, chunk.length - length);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    length += n;
+                }
+                return length;
+            } catch (IOException e) {
+                throw new JenaException(e);
+            }
+        }
+    }
+
+    private static class CharChunks implements Chunks {
+        private final Reader in;
+        private final int chunkSize;
+        private char[] rest = new char[0];
+        private boolean eof;
+
+        CharChunks(Reader in, int chunkSize) {
+            this.in = in;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public Reader next() {
+            if (eof && rest.length == 0) return null;
+            char[] chunk = Arrays.copyOf(rest, Math.max(chunkSize, rest.length * 2));
+            int length = rest.length;
+            int end;
+            while (true) {
+                length = fill(chunk, length);
+                end = length;
+                if (eof) break;
+                while (end > 0 && chunk[end - 1] != '\n') end--;
+                if (end > 0) break;
+                chunk = Arrays.copyOf(chunk, chunk.length * 2);
+            }
+            rest = Arrays.copyOfRange(chunk, end, length);
+            return new CharArrayReader(chunk, 0, end);
+        }
+
+        private int fill(char[] chunk, int length) {
+            try {
+                while (length < chunk.length) {
+                    int n = in.read(chunk, length, chunk.length - length);
+                    if (n < 0) {
+                        eof = true;
+                        break;
+                    }
+                    length += n;
+                }
+                return length;
+            } catch (IOException e) {
+                throw new JenaException(e);
+            }
+        }
+    }
+}
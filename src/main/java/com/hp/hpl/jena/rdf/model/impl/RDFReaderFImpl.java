@@ -34,6 +34,9 @@ public class RDFReaderFImpl extends Object implements RDFReaderF {
     private static final String GRDDLREADER = "com.hp.hpl.jena.grddl.GRDDLReader";
     private static final String TURTLEREADER = "com.hp.hpl.jena.n3.turtle.TurtleReader" ;
     
+    // Old reader (a char at a time, through the Model API)
+    //private static final String NTRIPLEREADER = Jena.PATH + ".rdf.model.impl.NTripleReader" ;
+    
     // Old reader (N3 based)
     //private static final String TURTLEREADER = "com.hp.hpl.jena.n3.N3TurtleJenaReader" ;
 
@@ -55,8 +58,8 @@ public class RDFReaderFImpl extends Object implements RDFReaderF {
     protected static final String DEFAULTREADERS[] = {
         "com.hp.hpl.jena.rdf.arp.JenaReader",
         "com.hp.hpl.jena.rdf.arp.JenaReader",
-        Jena.PATH + ".rdf.model.impl.NTripleReader",
-        Jena.PATH + ".rdf.model.impl.NTripleReader",
+        Jena.PATH + ".rdf.model.impl.NTripleGraphReader",
+        Jena.PATH + ".rdf.model.impl.NTripleGraphReader",
         TURTLEREADER, //com.hp.hpl.jena.n3.N3JenaReader.class.getName(),  // N3 replaced by a Turtle-based parser 
         TURTLEREADER,
         TURTLEREADER,
@@ -41,6 +41,7 @@ public class RDFWriterFImpl extends Object implements RDFWriterF {
     protected static final String LANGS[] =
         { "RDF/XML",
           "RDF/XML-ABBREV",
+          "RDF/XML-STREAMING",
           "N-TRIPLE",
           "N-TRIPLES",
           "N3",
@@ -50,7 +51,8 @@ public class RDFWriterFImpl extends Object implements RDFWriterF {
           N3JenaWriter.n3WriterTriplesAlt,
           N3JenaWriter.turtleWriter,
           N3JenaWriter.turtleWriterAlt1, 
-          N3JenaWriter.turtleWriterAlt2 
+          N3JenaWriter.turtleWriterAlt2,
+          N3JenaWriter.turtleWriterStreaming
         };
     // default readers for each language
 
@@ -58,6 +60,7 @@ public class RDFWriterFImpl extends Object implements RDFWriterF {
         {
             Jena.PATH + ".xmloutput.impl.Basic",
             Jena.PATH + ".xmloutput.impl.Abbreviated",
+            Jena.PATH + ".xmloutput.impl.Streaming",
             Jena.PATH + ".rdf.model.impl.NTripleWriter",
             Jena.PATH + ".rdf.model.impl.NTripleWriter",
             Jena.PATH + ".n3.N3JenaWriter",
@@ -73,6 +76,7 @@ public class RDFWriterFImpl extends Object implements RDFWriterF {
             Jena.PATH + ".n3.N3TurtleJenaWriter",   // Alternative names for Turtle
             Jena.PATH + ".n3.N3TurtleJenaWriter",
             Jena.PATH + ".n3.N3TurtleJenaWriter",
+            Jena.PATH + ".n3.N3JenaWriterStreaming",
              };
 
     protected static final String DEFAULTLANG = LANGS[0];
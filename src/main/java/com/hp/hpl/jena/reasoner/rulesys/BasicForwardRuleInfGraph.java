@@ -72,6 +72,9 @@ public class BasicForwardRuleInfGraph extends BaseInfGraph implements ForwardRul
     /** Flag which, if true, enables tracing of rule actions to logger.info */
     protected boolean traceOn = false;
     
+    /** The number of threads used by a RETE engine to run monotonic forward rules */
+    protected int forwardThreads = 1;
+    
     private static Logger logger = LoggerFactory.getLogger(BasicForwardRuleInfGraph.class);
     
 //=======================================================================
@@ -249,6 +252,28 @@ public class BasicForwardRuleInfGraph extends BaseInfGraph implements ForwardRul
     public void setFunctorFiltering(boolean param) {
         filterFunctors = param;
     }
+    
+    /**
+     * Set the number of threads used to run the forward rules when the rule
+     * engine is a RETE engine and the rules are monotonic. The default is 1,
+     * which runs the rules on the calling thread. The deductions do not depend
+     * on the number of threads, and for any number above one nor does the
+     * order in which they are made.
+     */
+    public void setForwardThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        forwardThreads = threads;
+        if (engine instanceof RETEEngine) {
+            ((RETEEngine)engine).setThreads(threads);
+        }
+    }
+    
+    /**
+     * Return the number of threads used to run monotonic forward rules.
+     */
+    public int getForwardThreads() {
+        return forwardThreads;
+    }
    
     /**
      * Extended find interface used in situations where the implementator
@@ -72,6 +72,19 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
     
     /** Static switch from Basic to RETE implementation of the forward component */
     public static boolean useRETE = true;
+    
+    /** Name of the forward engine which matches rules a triple at a time, see {@link FRuleEngine} */
+    public static final String FORWARD_ENGINE_TUPLE = "tuple";
+    
+    /** Name of the RETE forward engine, see {@link RETEEngine} */
+    public static final String FORWARD_ENGINE_RETE = "rete";
+    
+    /** Name of the semi-naive forward engine, see {@link SemiNaiveEngine} */
+    public static final String FORWARD_ENGINE_SEMINAIVE = "semiNaive";
+    
+    /** The name of the forward engine to use, null to choose between RETE and tuple engines using useRETE.
+     *  Not initialized here because the engine is instantiated by the superclass constructor. */
+    protected String forwardEngine;
 
     /** Flag, if true then subClass and subProperty lattices will be optimized using TGCs */
     protected boolean useTGCCaching = false;
@@ -94,6 +107,10 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
     /** Flag to request datatype range validation be included in the validation step */
     protected boolean requestDatatypeRangeValidation = false;
     
+    /** Predicates of the triples and backward rules changed by the add or delete being
+     *  processed, used to limit which tabled goals are reset. Null at other times. */
+    protected Set<Node> changedPredicates;
+    
     static Logger logger = LoggerFactory.getLogger(FBRuleInfGraph.class);
 
 //  =======================================================================
@@ -160,21 +177,57 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
      */
     @Override
     protected void instantiateRuleEngine(List<Rule> rules) {
+        if (FORWARD_ENGINE_SEMINAIVE.equals(forwardEngine)) {
+            if (rules != null) {
+                engine = new SemiNaiveEngine(this, rules);
+            } else {
+                engine = new SemiNaiveEngine(this);
+            }
+            return;
+        }
+        boolean rete = (forwardEngine == null) ? useRETE : FORWARD_ENGINE_RETE.equals(forwardEngine);
         if (rules != null) {
-            if (useRETE) {
+            if (rete) {
                 engine = new RETEEngine(this, rules);
             } else {
                 engine = new FRuleEngine(this, rules);
             }
         } else {
-            if (useRETE) {
+            if (rete) {
                 engine = new RETEEngine(this);
             } else {
                 engine = new FRuleEngine(this);
             }
         }
+        if (engine instanceof RETEEngine) {
+            ((RETEEngine)engine).setThreads(forwardThreads);
+        }
     }
 
+    /**
+     * Set the forward engine used to run the forward rules, one of
+     * FORWARD_ENGINE_TUPLE, FORWARD_ENGINE_RETE or FORWARD_ENGINE_SEMINAIVE,
+     * or null to use the RETE engine if useRETE is set. The engine is replaced
+     * so this should be called before the graph is prepared.
+     */
+    public void setForwardEngine(String name) {
+        if (name != null && !name.equals(FORWARD_ENGINE_TUPLE) && !name.equals(FORWARD_ENGINE_RETE)
+                && !name.equals(FORWARD_ENGINE_SEMINAIVE)) {
+            throw new IllegalArgumentException("Unknown forward engine: " + name);
+        }
+        forwardEngine = name;
+        instantiateRuleEngine(rules == null ? rawRules : rules);
+        isPrepared = false;
+    }
+    
+    /**
+     * Return the name of the forward engine set for this graph, or null if the
+     * choice is left to useRETE.
+     */
+    public String getForwardEngine() {
+        return forwardEngine;
+    }
+    
     /**
      * Initialize the LP engine, based on an optional schema graph.
      */    
@@ -264,7 +317,11 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
             logger.debug("Adding rule " + brule);
         }
         bEngine.addRule(brule);
-        bEngine.reset();
+        if (changedPredicates != null) {
+            changedPredicates.add(headPredicate(brule));
+        } else {
+            bEngine.reset();
+        }
     }
        
     /**
@@ -277,7 +334,24 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
             logger.debug("Deleting rule " + brule);
         }
         bEngine.deleteRule(brule);
-        bEngine.reset();
+        if (changedPredicates != null) {
+            changedPredicates.add(headPredicate(brule));
+        } else {
+            bEngine.reset();
+        }
+    }
+    
+    /**
+     * Return the predicate of the goals a backward rule can answer, Node.ANY
+     * if that is not fixed.
+     */
+    private static Node headPredicate(Rule brule) {
+        Object head = brule.getHeadElement(0);
+        if (head instanceof TriplePattern) {
+            Node predicate = ((TriplePattern)head).getPredicate();
+            if (predicate.isConcrete()) return predicate;
+        }
+        return Node.ANY;
     }
     
     /**
@@ -332,8 +406,13 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
     @Override
     public void addDeduction(Triple t) {
         getCurrentDeductionsGraph().add(t);
+        boolean cached = false;
         if (useTGCCaching) {
-            transitiveEngine.add(t);
+            cached = transitiveEngine.add(t);
+        }
+        if (changedPredicates != null) {
+            // Closure caches answer more than the one predicate
+            changedPredicates.add(cached ? Node.ANY : t.getPredicate());
         }
     }
 
@@ -530,6 +609,62 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
         super.setTraceOn(state);
         bEngine.setTraceOn(state);
     }
+    
+    /**
+     * Set to true to allow backward chaining queries from different threads
+     * to run in parallel. Each thread then has its own goal tables, and the 
+     * results of completed tabled goals are shared between them. The graph
+     * should be prepared before it is queried from several threads, and
+     * must not be updated while such queries are open.
+     */
+    public void setConcurrentQueries(boolean concurrent) {
+        bEngine.setConcurrent(concurrent);
+    }
+    
+    /**
+     * Return true if backward chaining queries from different threads can run in parallel.
+     */
+    public boolean isConcurrentQueries() {
+        return bEngine.isConcurrent();
+    }
+    
+    /**
+     * Set to true to let a backward chaining goal be answered by filtering the
+     * complete table of a more general goal, rather than by running it.
+     */
+    public void setTableSubsumption(boolean subsumption) {
+        bEngine.setTableSubsumption(subsumption);
+    }
+    
+    /**
+     * Return true if backward chaining goals can be answered from the tables of more general goals.
+     */
+    public boolean isTableSubsumption() {
+        return bEngine.isTableSubsumption();
+    }
+    
+    /**
+     * Set the most results to keep in the backward chaining goal tables. When
+     * there are more, the tables of the least recently used completed goals are
+     * dropped. 0 for no limit.
+     */
+    public void setTableCapacity(int capacity) {
+        bEngine.setTableCapacity(capacity);
+    }
+    
+    /**
+     * Return the most results kept in the backward chaining goal tables, 0 for no limit.
+     */
+    public int getTableCapacity() {
+        return bEngine.getTableCapacity();
+    }
+    
+    /**
+     * Return the current size of the backward chaining goal tables and counts of their use.
+     */
+    public LPTableStatistics getTableStatistics() {
+        return bEngine.getTableStatistics();
+    }
 
     /**
      * Set to true to enable derivation caching
@@ -632,31 +767,33 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
     /**
      * Add one triple to the data graph, run any rules triggered by
      * the new data item, recursively adding any generated triples.
+     * Only the tabled backward goals which might depend on the changes
+     * are reset.
      */
     @Override
     public synchronized void performAdd(Triple t) {
         version++;
+        boolean wasVisible = isPrepared && 
+            (fdata.getGraph().contains(t) || fdeductions.getGraph().contains(t));
         fdata.getGraph().add(t);
         if (useTGCCaching) {
             if (transitiveEngine.add(t)) isPrepared = false;
         }
         if (isPrepared) {
-            boolean needReset = false;
-            if (preprocessorHooks != null && preprocessorHooks.size() > 0) {
-                if (preprocessorHooks.size() > 1) {
-                    for (Iterator<RulePreprocessHook> i = preprocessorHooks.iterator(); i.hasNext();) {
-                        if (i.next().needsRerun(this, t)) {
-                            needReset = true; break;
-                        }
-                    }
-                } else {
-                    needReset = preprocessorHooks.get(0).needsRerun(this, t);
-                }
-            }
-            if (needReset) {
+            if (preprocessorHooksNeedRerun(t)) {
                 isPrepared = false;
             } else {
-                engine.add(t);
+                if (!wasVisible) {
+                    // Already known triples can't trigger anything new
+                    changedPredicates = new HashSet<Node>();
+                    changedPredicates.add(t.getPredicate());
+                    try {
+                        engine.add(t);
+                    } finally {
+                        resetChangedGoals();
+                    }
+                }
+                return;
             }
         }
         bEngine.reset();
@@ -664,9 +801,14 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
 
     /** 
      * Removes the triple t (if possible) from the set belonging to this graph. 
+     * If the forward rules are all monotonic the deductions are maintained
+     * incrementally, see {@link RETEEngine#delete(Triple)}, and only the 
+     * tabled backward goals which might depend on the changes are reset.
+     * Otherwise, or if the transitive closure caches or preprocessing hooks 
+     * are affected, the graph is prepared again from scratch.
      */   
     @Override
-    public void performDelete(Triple t) {
+    public synchronized void performDelete(Triple t) {
         version++;
         boolean removeIsFromBase = fdata.getGraph().contains(t);
         fdata.getGraph().delete(t);
@@ -678,19 +820,66 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
                 isPrepared = false;
             }
         } 
-        // Full incremental remove processing requires reference counting
-        // of all deductions. It's not clear the cost of maintaining the
-        // reference counts is worth it so the current implementation
-        // forces a recompute if any external deletes are performed.
         if (isPrepared) {
+            if (!removeIsFromBase) return;
+            if (incrementalDelete(t)) return;
             bEngine.deleteAllRules();
             isPrepared = false;
-            // Re-enable the code below when/if ref counting is added and remove above
-            // if (removeIsFromBase) engine.delete(t);
         }
         bEngine.reset();
     }
     
+    /**
+     * Propagate the removal of a data triple through the forward engine
+     * incrementally, resetting only the affected tabled goals.
+     * @return false if that was not possible and the graph needs to be prepared again 
+     */
+    protected boolean incrementalDelete(Triple t) {
+        if ( !(engine instanceof RETEEngine) ) return false;
+        RETEEngine rete = (RETEEngine)engine;
+        if (!rete.isMonotonic() || preprocessorHooksNeedRerun(t)) return false;
+        changedPredicates = new HashSet<Node>();
+        changedPredicates.add(t.getPredicate());
+        try {
+            if (!rete.delete(t)) return false;
+            for (Iterator<Triple> i = rete.getLastRetracted().iterator(); i.hasNext(); ) {
+                Triple d = i.next();
+                if (useTGCCaching && !fdata.getGraph().contains(d) && transitiveEngine.delete(d)) {
+                    // The closure caches can't be maintained incrementally
+                    return false;
+                }
+                changedPredicates.add(d.getPredicate());
+            }
+            resetChangedGoals();
+            return true;
+        } finally {
+            changedPredicates = null;
+        }
+    }
+    
+    /**
+     * Return true if any of the preprocessing hooks needs to be rerun 
+     * because of a change to the given triple.
+     */
+    protected boolean preprocessorHooksNeedRerun(Triple t) {
+        if (preprocessorHooks != null) {
+            for (Iterator<RulePreprocessHook> i = preprocessorHooks.iterator(); i.hasNext();) {
+                if (i.next().needsRerun(this, t)) return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Reset the tabled backward goals which might depend on the changed
+     * predicates recorded during the current update, and stop recording.
+     */
+    private void resetChangedGoals() {
+        Set<Node> changed = changedPredicates;
+        changedPredicates = null;
+        if (changed != null) bEngine.reset(changed);
+    }
+    
     /**
      * Return a new inference graph which is a clone of the current graph
      * together with an additional set of data premises. Attempts to the replace
@@ -893,8 +1082,8 @@ public class FBRuleInfGraph  extends BasicForwardRuleInfGraph implements Backwar
     protected boolean preloadDeductions(Graph preloadIn) {
         Graph d = fdeductions.getGraph();
         FBRuleInfGraph preload = (FBRuleInfGraph)preloadIn;
-        // If the rule set is the same we can reuse those as well
-        if (preload.rules == rules) {
+        // If the rule set and forward engine are the same we can reuse those as well
+        if (preload.rules == rules && preload.engine.getClass() == engine.getClass()) {
             // Load raw deductions
             for (Iterator<Triple> i = preload.getDeductionsGraph().find(null, null, null); i.hasNext(); ) {
                 d.add( i.next() );
@@ -51,6 +51,15 @@ public class FBRuleReasoner implements RuleReasoner {
     /** Flag which, if true, enables tracing of rule actions to logger.info */
     boolean traceOn = false;
 //    boolean traceOn = true;
+    
+    /** Flag which, if true, lets backward chaining queries from different threads run in parallel */
+    protected boolean concurrentQueries = false;
+
+    /** Flag which, if true, lets tabled goals be answered from the tables of more general goals */
+    protected boolean tableSubsumption = false;
+
+    /** The most results to keep in the tables of backward chaining goals, 0 for no limit */
+    protected int tableCapacity = 0;
 
     /** Flag, if true we cache the closure of the pure rule set with its axioms */
     protected static final boolean cachePreload = true;
@@ -206,6 +215,9 @@ public class FBRuleReasoner implements RuleReasoner {
         FBRuleReasoner fbr  = new FBRuleReasoner(rules, graph, factory);
         fbr.setDerivationLogging(recordDerivations);
         fbr.setTraceOn(traceOn);
+        fbr.setConcurrentQueries(concurrentQueries);
+        fbr.setTableSubsumption(tableSubsumption);
+        fbr.setTableCapacity(tableCapacity);
         return fbr;
     }
     
@@ -236,6 +248,9 @@ public class FBRuleReasoner implements RuleReasoner {
         FBRuleInfGraph graph = new FBRuleInfGraph( this, rules, schemaArg, style );
         graph.setDerivationLogging( recordDerivations );
         graph.setTraceOn( traceOn );
+        graph.setConcurrentQueries( concurrentQueries );
+        graph.setTableSubsumption( tableSubsumption );
+        graph.setTableCapacity( tableCapacity );
         graph.rebind( data );
         return graph;
     }
@@ -330,6 +345,54 @@ public class FBRuleReasoner implements RuleReasoner {
     public boolean isTraceOn() {
         return traceOn;
     } 
+    
+    /**
+     * Set to true to allow backward chaining queries from different threads
+     * to run in parallel on the inference graphs created by this reasoner.
+     */
+    public void setConcurrentQueries(boolean state) {
+        concurrentQueries = state;
+    }
+    
+    /**
+     * Return true if backward chaining queries from different threads
+     * can run in parallel.
+     */
+    public boolean isConcurrentQueries() {
+        return concurrentQueries;
+    }
+    
+    /**
+     * Set to true to let a backward chaining goal be answered by filtering the
+     * complete table of a more general goal, on the inference graphs created by
+     * this reasoner.
+     */
+    public void setTableSubsumption(boolean state) {
+        tableSubsumption = state;
+    }
+    
+    /**
+     * Return true if backward chaining goals can be answered from the tables
+     * of more general goals.
+     */
+    public boolean isTableSubsumption() {
+        return tableSubsumption;
+    }
+    
+    /**
+     * Set the most results to keep in the backward chaining goal tables of the
+     * inference graphs created by this reasoner, 0 for no limit.
+     */
+    public void setTableCapacity(int capacity) {
+        tableCapacity = capacity;
+    }
+    
+    /**
+     * Return the most results kept in the backward chaining goal tables, 0 for no limit.
+     */
+    public int getTableCapacity() {
+        return tableCapacity;
+    }
 
     /**
      * Set a configuration parameter for the reasoner. The supported parameters
@@ -337,6 +400,9 @@ public class FBRuleReasoner implements RuleReasoner {
      * <ul>
      * <li>PROPderivationLogging - set to true to enable recording all rule derivations</li>
      * <li>PROPtraceOn - set to true to enable verbose trace information to be sent to the logger INFO channel</li>
+     * <li>PROPconcurrentQueries - set to true to let backward chaining queries from different threads run in parallel</li>
+     * <li>PROPtableSubsumption - set to true to answer tabled goals from the complete tables of more general goals</li>
+     * <li>PROPtableCapacity - the most results to keep in the tables of completed goals, 0 for no limit</li>
      * </ul> 
      * 
      * @param parameter the property identifying the parameter to be changed
@@ -391,6 +457,9 @@ public class FBRuleReasoner implements RuleReasoner {
      * <ul>
      * <li>PROPderivationLogging - set to true to enable recording all rule derivations</li>
      * <li>PROPtraceOn - set to true to enable verbose trace information to be sent to the logger INFO channel</li>
+     * <li>PROPconcurrentQueries - set to true to let backward chaining queries from different threads run in parallel</li>
+     * <li>PROPtableSubsumption - set to true to answer tabled goals from the complete tables of more general goals</li>
+     * <li>PROPtableCapacity - the most results to keep in the tables of completed goals, 0 for no limit</li>
      * </ul> 
      * @param parameter the property identifying the parameter to be changed
      * @param value the new value for the parameter, typically this is a wrapped
@@ -404,6 +473,15 @@ public class FBRuleReasoner implements RuleReasoner {
         } else if (parameter.equals(ReasonerVocabulary.PROPtraceOn)) {
             traceOn =  Util.convertBooleanPredicateArg(parameter, value);
             return true;
+        } else if (parameter.equals(ReasonerVocabulary.PROPconcurrentQueries)) {
+            concurrentQueries =  Util.convertBooleanPredicateArg(parameter, value);
+            return true;
+        } else if (parameter.equals(ReasonerVocabulary.PROPtableSubsumption)) {
+            tableSubsumption =  Util.convertBooleanPredicateArg(parameter, value);
+            return true;
+        } else if (parameter.equals(ReasonerVocabulary.PROPtableCapacity)) {
+            tableCapacity =  Util.convertIntegerPredicateArg(parameter, value);
+            return true;
         } else {
             return false;
         }
@@ -61,6 +61,12 @@ public class GenericRuleReasoner extends FBRuleReasoner {
     /** Flag, if true then find results will be filtered to remove functors and illegal RDF */
     public boolean filterFunctors = true;
     
+    /** The number of threads used to run monotonic forward rules, only applicable to FORWARD_RETE and HYBRID modes */
+    protected int forwardThreads = 1;
+    
+    /** The name of the engine used to run the forward rules, only applicable to HYBRID modes, null for the default */
+    protected String forwardEngine;
+    
     /** A prebuilt copy of the OWL translation hook */
     private static final OWLRuleTranslationHook owlTranslator = new OWLRuleTranslationHook();
     
@@ -70,6 +76,9 @@ public class GenericRuleReasoner extends FBRuleReasoner {
     /** Constant - the mode description for pure forward chaining, using RETE engine */
     public static final RuleMode FORWARD_RETE = new RuleMode("forwardRETE");
     
+    /** Constant - the mode description for pure forward chaining, using the semi-naive engine */
+    public static final RuleMode FORWARD_SEMINAIVE = new RuleMode("forwardSemiNaive");
+    
     /** Constant - the mode description for pure backward chaining */
     public static final RuleMode BACKWARD = new RuleMode("backward");
     
@@ -187,6 +196,53 @@ public class GenericRuleReasoner extends FBRuleReasoner {
         filterFunctors = param;
     }
     
+    /**
+     * Set the number of threads used to run the forward rules, if they are
+     * monotonic. The pending triples are then run through the RETE network in
+     * rounds, with the rules shared out between the threads. The deductions
+     * do not depend on the number of threads, and for any number above one nor
+     * does the order in which they are made. Default is 1. This is only
+     * implemented for the FORWARD_RETE and HYBRID modes.
+     */
+    public void setForwardThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalParameterException("forwardThreads must be at least 1, not " + threads);
+        }
+        forwardThreads = threads;
+    }
+    
+    /**
+     * Return the number of threads used to run monotonic forward rules.
+     */
+    public int getForwardThreads() {
+        return forwardThreads;
+    }
+    
+    /**
+     * Set the engine used to run the forward rules in HYBRID mode, one of
+     * FBRuleInfGraph.FORWARD_ENGINE_TUPLE, FORWARD_ENGINE_RETE or
+     * FORWARD_ENGINE_SEMINAIVE. The default is the RETE engine. The pure
+     * forward modes choose their engine through the rule mode instead.
+     */
+    public void setForwardEngine(String name) {
+        if (!FBRuleInfGraph.FORWARD_ENGINE_TUPLE.equals(name) && !FBRuleInfGraph.FORWARD_ENGINE_RETE.equals(name)
+                && !FBRuleInfGraph.FORWARD_ENGINE_SEMINAIVE.equals(name)) {
+            throw new IllegalParameterException("forwardEngine can only be 'tuple', 'rete' or 'semiNaive', not " + name);
+        }
+        if (!name.equals(forwardEngine)) {
+            forwardEngine = name;
+            preload = null;
+        }
+    }
+    
+    /**
+     * Return the name of the engine used to run the forward rules in HYBRID mode,
+     * or null if it has not been set.
+     */
+    public String getForwardEngine() {
+        return forwardEngine;
+    }
+    
     /**
      * Add a new preprocessing hook defining an operation that
      * should be run when the inference graph is being prepared. This can be
@@ -286,17 +342,25 @@ public class GenericRuleReasoner extends FBRuleReasoner {
         } else if (parameter.equals(ReasonerVocabulary.PROPenableTGCCaching)) {
             enableTGCCaching =  Util.convertBooleanPredicateArg(parameter, value);
             
+        } else if (parameter.equals(ReasonerVocabulary.PROPforwardThreads)) {
+            setForwardThreads( Util.convertIntegerPredicateArg(parameter, value) );
+            
+        } else if (parameter.equals(ReasonerVocabulary.PROPforwardEngine)) {
+            setForwardEngine( value.toString() );
+            
         } else if (parameter.equals(ReasonerVocabulary.PROPruleMode)) {
             if (value.equals(FORWARD.name)) {
                 mode = FORWARD;
             } else if (value.equals(FORWARD_RETE.name)) {
                 mode = FORWARD_RETE;
+            } else if (value.equals(FORWARD_SEMINAIVE.name)) {
+                mode = FORWARD_SEMINAIVE;
             } else if (value.equals(BACKWARD.name)) {
                 mode = BACKWARD;
             } else if (value.equals(HYBRID.name)) {
                 mode = HYBRID;
             } else {
-                throw new IllegalParameterException("PROPruleMode can only be 'forward'm 'forwardRETE', 'backward', 'hybrid', not " + value);
+                throw new IllegalParameterException("PROPruleMode can only be 'forward'm 'forwardRETE', 'forwardSemiNaive', 'backward', 'hybrid', not " + value);
             }
             
         } else if (parameter.equals(ReasonerVocabulary.PROPruleSet)) {
@@ -329,20 +393,31 @@ public class GenericRuleReasoner extends FBRuleReasoner {
             ((InfGraph)graph).prepare();
         } else if (mode == FORWARD_RETE) {
                 graph = new RETERuleInfGraph(this, rules, null, tbox);
+                ((RETERuleInfGraph)graph).setForwardThreads(forwardThreads);
                 ((InfGraph)graph).prepare();
+        } else if (mode == FORWARD_SEMINAIVE) {
+            graph = new SemiNaiveRuleInfGraph(this, rules, null, tbox);
+            ((InfGraph)graph).prepare();
         } else if (mode == BACKWARD) {
             graph = tbox;
         } else {
             List<Rule> ruleSet = rules;
             graph = new FBRuleInfGraph(this, ruleSet, getPreload(), tbox);
+            if (forwardEngine != null) ((FBRuleInfGraph)graph).setForwardEngine(forwardEngine);
             if (enableTGCCaching) ((FBRuleInfGraph)graph).setUseTGCCache();
+            ((FBRuleInfGraph)graph).setForwardThreads(forwardThreads);
             ((FBRuleInfGraph)graph).prepare();
         }
         GenericRuleReasoner grr = new GenericRuleReasoner(rules, graph, factory, mode);
         grr.setDerivationLogging(recordDerivations);
         grr.setTraceOn(traceOn);
+        grr.setConcurrentQueries(concurrentQueries);
+        grr.setTableSubsumption(tableSubsumption);
+        grr.setTableCapacity(tableCapacity);
         grr.setTransitiveClosureCaching(enableTGCCaching);
         grr.setFunctorFiltering(filterFunctors);
+        grr.setForwardThreads(forwardThreads);
+        if (forwardEngine != null) grr.setForwardEngine(forwardEngine);
         if (preprocessorHooks != null) {
             for (Iterator<RulePreprocessHook> i = preprocessorHooks.iterator(); i.hasNext(); ) {
                 grr.addPreprocessingHook(i.next());
@@ -373,16 +448,29 @@ public class GenericRuleReasoner extends FBRuleReasoner {
                 graph = new RETERuleInfGraph(this, rules, schemaArg);
                 ((BasicForwardRuleInfGraph)graph).setTraceOn(traceOn);
                 ((BasicForwardRuleInfGraph)graph).setFunctorFiltering(filterFunctors);
+                ((BasicForwardRuleInfGraph)graph).setForwardThreads(forwardThreads);
+        } else if (mode == FORWARD_SEMINAIVE) {
+            graph = new SemiNaiveRuleInfGraph(this, rules, schemaArg);
+            ((BasicForwardRuleInfGraph)graph).setTraceOn(traceOn);
+            ((BasicForwardRuleInfGraph)graph).setFunctorFiltering(filterFunctors);
         } else if (mode == BACKWARD) {
             graph = new LPBackwardRuleInfGraph(this, getBruleStore(), data, schemaArg);
             ((LPBackwardRuleInfGraph)graph).setTraceOn(traceOn);
+            ((LPBackwardRuleInfGraph)graph).setConcurrentQueries(concurrentQueries);
+            ((LPBackwardRuleInfGraph)graph).setTableSubsumption(tableSubsumption);
+            ((LPBackwardRuleInfGraph)graph).setTableCapacity(tableCapacity);
         } else {
             List<Rule> ruleSet = ((FBRuleInfGraph)schemaArg).getRules();
             FBRuleInfGraph fbgraph = new FBRuleInfGraph(this, ruleSet, schemaArg);
             graph = fbgraph; 
+            if (forwardEngine != null) fbgraph.setForwardEngine(forwardEngine);
             if (enableTGCCaching) fbgraph.setUseTGCCache();
             fbgraph.setTraceOn(traceOn);
+            fbgraph.setConcurrentQueries(concurrentQueries);
+            fbgraph.setTableSubsumption(tableSubsumption);
+            fbgraph.setTableCapacity(tableCapacity);
             fbgraph.setFunctorFiltering(filterFunctors);
+            fbgraph.setForwardThreads(forwardThreads);
             if (preprocessorHooks!= null) {
                 for (Iterator<RulePreprocessHook> i = preprocessorHooks.iterator(); i.hasNext(); ) {
                     fbgraph.addPreprocessingHook(i.next());
@@ -402,6 +490,7 @@ public class GenericRuleReasoner extends FBRuleReasoner {
         // We only support this in HYBRID mode
         if (cachePreload && preload == null && mode == HYBRID) {
             preload = new FBRuleInfGraph( this, rules, null, Factory.createDefaultGraph() );
+            if (forwardEngine != null) ((FBRuleInfGraph)preload).setForwardEngine(forwardEngine);
             if (enableTGCCaching) ((FBRuleInfGraph)preload).setUseTGCCache();
             preload.prepare();
         }
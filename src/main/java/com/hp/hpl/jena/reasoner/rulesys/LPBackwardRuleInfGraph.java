@@ -276,6 +276,60 @@ public class LPBackwardRuleInfGraph extends BaseInfGraph implements BackwardRule
     public boolean isTraceOn() {
         return engine.isTraceOn();
     }
+    
+    /**
+     * Set to true to allow queries from different threads to run in parallel,
+     * sharing the results of completed tabled goals. The graph must not be
+     * updated while such queries are open.
+     */
+    public void setConcurrentQueries(boolean concurrent) {
+        engine.setConcurrent(concurrent);
+    }
+    
+    /**
+     * Return true if queries from different threads can run in parallel.
+     */
+    public boolean isConcurrentQueries() {
+        return engine.isConcurrent();
+    }
+    
+    /**
+     * Set to true to let a backward chaining goal be answered by filtering the
+     * complete table of a more general goal, rather than by running it.
+     */
+    public void setTableSubsumption(boolean subsumption) {
+        engine.setTableSubsumption(subsumption);
+    }
+    
+    /**
+     * Return true if backward chaining goals can be answered from the tables of more general goals.
+     */
+    public boolean isTableSubsumption() {
+        return engine.isTableSubsumption();
+    }
+    
+    /**
+     * Set the most results to keep in the backward chaining goal tables. When
+     * there are more, the tables of the least recently used completed goals are
+     * dropped. 0 for no limit.
+     */
+    public void setTableCapacity(int capacity) {
+        engine.setTableCapacity(capacity);
+    }
+    
+    /**
+     * Return the most results kept in the backward chaining goal tables, 0 for no limit.
+     */
+    public int getTableCapacity() {
+        return engine.getTableCapacity();
+    }
+    
+    /**
+     * Return the current size of the backward chaining goal tables and counts of their use.
+     */
+    public LPTableStatistics getTableStatistics() {
+        return engine.getTableStatistics();
+    }
         
 //    =======================================================================
 //     Interface between infGraph and the goal processing machinery
@@ -108,6 +108,9 @@ public class OWLFBRuleReasoner extends FBRuleReasoner {
         graph.addPreprocessingHook(new OWLRuleTranslationHook());
         graph.setDerivationLogging(recordDerivations);
         graph.setTraceOn(traceOn);
+        graph.setConcurrentQueries(concurrentQueries);
+        graph.setTableSubsumption(tableSubsumption);
+        graph.setTableCapacity(tableCapacity);
         graph.rebind(data);
         graph.setDatatypeRangeValidation(true);
                 
@@ -76,6 +76,10 @@ public class OWLMicroReasonerFactory implements ReasonerFactory {
             if (doTrace != null) {
                 reasoner.setTraceOn(doTrace.booleanValue());
             }
+            Boolean doConcurrent = Util.checkBinaryPredicate(ReasonerVocabulary.PROPconcurrentQueries, configuration);
+            if (doConcurrent != null) {
+                reasoner.setConcurrentQueries(doConcurrent.booleanValue());
+            }
         }
         return reasoner;
     }
@@ -155,6 +155,9 @@ public class RDFSRuleReasoner extends GenericRuleReasoner {
         graph = fbgraph; 
         if (enableTGCCaching) fbgraph.setUseTGCCache();
         fbgraph.setTraceOn(traceOn);
+        fbgraph.setConcurrentQueries(concurrentQueries);
+        fbgraph.setTableSubsumption(tableSubsumption);
+        fbgraph.setTableCapacity(tableCapacity);
         if (preprocessorHooks!= null) {
             for (RulePreprocessHook rulePreprocessHook : preprocessorHooks)
             {
@@ -181,6 +184,9 @@ public class RDFSRuleReasoner extends GenericRuleReasoner {
         RDFSRuleReasoner grr = new RDFSRuleReasoner(graph, factory);
         grr.setDerivationLogging(recordDerivations);
         grr.setTraceOn(traceOn);
+        grr.setConcurrentQueries(concurrentQueries);
+        grr.setTableSubsumption(tableSubsumption);
+        grr.setTableCapacity(tableCapacity);
         grr.setTransitiveClosureCaching(enableTGCCaching);
         grr.setFunctorFiltering(filterFunctors);
         if (preprocessorHooks != null) {
@@ -86,6 +86,7 @@ public class RETERuleInfGraph extends BasicForwardRuleInfGraph {
         } else {
             engine = new RETEEngine(this);
         }
+        ((RETEEngine)engine).setThreads(forwardThreads);
     }
 
     /**
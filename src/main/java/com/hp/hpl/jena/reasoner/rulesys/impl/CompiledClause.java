@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.impl;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.reasoner.rulesys.Functor;
+import com.hp.hpl.jena.reasoner.rulesys.Node_RuleVariable;
+
+/**
+ * Base class for the JVM classes generated by {@link LPClauseCompiler} from
+ * the byte code of a single rule clause. A compiled clause runs the
+ * unification and argument set up instructions of the clause; the call,
+ * builtin and proceed instructions, and so the frame and choice point
+ * handling, are left to the {@link LPInterpreter}.
+ * <p>
+ * The generated classes are defined in their own class loader so they can
+ * only reach the interpreter state through the protected helpers here.
+ * </p>
+ */
+public abstract class CompiledClause {
+
+    /** The Object arguments of the clause's byte codes */
+    protected final Object[] args;
+
+    /** The argument counter at each program counter offset in the clause's byte codes */
+    protected final int[] argIndex;
+
+    /**
+     * Constructor.
+     * @param args the Object arguments of the clause's byte codes
+     * @param argIndex the argument counter at each program counter offset
+     */
+    protected CompiledClause(Object[] args, int[] argIndex) {
+        this.args = args;
+        this.argIndex = argIndex;
+    }
+
+    /**
+     * Run the clause from the given program counter up to the next call,
+     * builtin or proceed instruction.
+     * @param interpreter the interpreter running the clause
+     * @param argVars the argument variables of the interpreter
+     * @param tVars the temporary variables of the interpreter
+     * @param pVars the permanent variables of the current environment
+     * @param pc the program counter offset to start from
+     * @return the program counter offset of the instruction to be run next by
+     * the interpreter, or -1 if the clause fails
+     */
+    protected abstract int run(LPInterpreter interpreter, Node[] argVars, Node[] tVars, Node[] pVars, int pc);
+
+    /**
+     * Return false if the head of the clause cannot match a call with the given
+     * arguments, because an argument is bound to a value other than a constant
+     * in the head. Used to skip the clause without setting up an environment
+     * for it. Generated classes override this when the head has constants.
+     * @param argVars the arguments of the call, with the trail unwound to the call
+     */
+    protected boolean mayMatch(Node[] argVars) {
+        return true;
+    }
+
+    /**
+     * Return the argument counter for the given program counter offset.
+     */
+    int argIndex(int pc) {
+        return argIndex[pc];
+    }
+
+    //  =======================================================================
+    //  Helpers for the generated code
+
+    /** Unify an argument with a constant, GET_CONSTANT */
+    protected static boolean getConstant(LPInterpreter interpreter, Node arg, Node constant) {
+        if (arg instanceof Node_RuleVariable) arg = ((Node_RuleVariable)arg).deref();
+        if (arg instanceof Node_RuleVariable) {
+            interpreter.bind(arg, constant);
+            return true;
+        }
+        return arg.sameValueAs(constant);
+    }
+
+    /** Return true if an argument is bound to a value which does not match a constant */
+    protected static boolean mismatch(Node arg, Node constant) {
+        if (arg instanceof Node_RuleVariable) arg = ((Node_RuleVariable)arg).deref();
+        return !(arg instanceof Node_RuleVariable) && !arg.sameValueAs(constant);
+    }
+
+    /** Unify two nodes, UNIFY_VARIABLE and UNIFY_TEMP */
+    protected static boolean unify(LPInterpreter interpreter, Node n1, Node n2) {
+        return interpreter.unify(n1, n2);
+    }
+
+    /** Deconstruct or build a functor in the object argument, GET_FUNCTOR */
+    protected static boolean getFunctor(LPInterpreter interpreter, Functor functor) {
+        return interpreter.getFunctor(functor);
+    }
+
+    /** Build a functor in the object argument, MAKE_FUNCTOR */
+    protected static void makeFunctor(LPInterpreter interpreter, Functor functor) {
+        interpreter.makeFunctor(functor);
+    }
+
+    /** Allocate the permanent variables of the current environment, ALLOCATE */
+    protected static Node[] allocate(LPInterpreter interpreter, int n) {
+        interpreter.envFrame.allocate(n);
+        return interpreter.envFrame.pVars;
+    }
+
+    /** Return a fresh variable, PUT_NEW_VARIABLE and CLEAR_ARG */
+    protected static Node newVariable(int index) {
+        return new Node_RuleVariable(null, index);
+    }
+
+    /** Dereference a node, PUT_DEREF_VARIABLE */
+    protected static Node deref(Node node) {
+        return LPInterpreter.deref(node);
+    }
+
+    /** Test if a node is bound to a value, TEST_BOUND and TEST_UNBOUND */
+    protected static boolean isBound(Node node) {
+        return !LPInterpreter.deref(node).isVariable();
+    }
+}
@@ -20,7 +20,10 @@ package com.hp.hpl.jena.reasoner.rulesys.impl;
 
 import java.util.*;
 
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.reasoner.TriplePattern;
+import com.hp.hpl.jena.reasoner.rulesys.Functor;
 
 /**
  * A generator represents a set of memoized results for a single 
@@ -64,12 +67,25 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
     /** Flags whether the generator is live/dead/unknown during completion checking */
     protected LFlag completionState;
     
-    /** The goal the generator is satisfying - just used in debugging */
+    /** The goal the generator is satisfying, used in debugging and to share completed results */
     protected TriplePattern goal;
     
     /** True if this generator can produce at most one answer */
     protected boolean isSingleton;
     
+    /** True if the generator completed by exhausting its goal, rather than being closed early */
+    protected boolean isExhausted;
+    
+    /** The number of results counted against the engine's table capacity, 0 if not counted */
+    protected int tableSize = 0;
+    
+    /** Index of the results of a complete generator by subject, built when first needed
+     *  to answer a more specific goal */
+    protected Map<Node, List<Triple>> bySubject;
+    
+    /** Index of the results of a complete generator by object, built when first needed */
+    protected Map<Node, List<Triple>> byObject;
+    
 //    /** Distance of generator from top level goal, used in scheduling */
 //    protected int depth = DEFAULT_DEPTH;
 //    
@@ -89,6 +105,23 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
         if (!isSingleton) resultSet = new HashSet<Object>();
     }
     
+    /**
+     * Constructor for a generator which is already complete.
+     * 
+     * @param goal the goal the generator is satisfying
+     * @param results the complete set of results for the goal, which must not
+     * be changed again
+     */
+    public Generator(TriplePattern goal, ArrayList<Object> results) {
+        this.goal = goal;
+        this.results = results;
+        isSingleton = goal.isGround();
+        isReady = false;
+        completionState = LFlag.DEAD;
+        generatingCPs = null;
+        isExhausted = true;
+    }
+    
     /**
      * Return the number of results available from this context.
      */
@@ -96,6 +129,63 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
         return results.size();
     }
     
+    /**
+     * Return the results of this complete generator which match the given,
+     * more specific, goal. Used to answer that goal without running it.
+     * @param specific a goal whose variables are all variables of this generator's goal
+     */
+    public synchronized ArrayList<Object> resultsMatching(TriplePattern specific) {
+        Node s = specific.getSubject();
+        Node p = specific.getPredicate();
+        Node o = specific.getObject();
+        Collection<?> candidates = results;
+        if (!s.isVariable()) {
+            if (bySubject == null) bySubject = index(0);
+            candidates = bySubject.get(s);
+        } else if (!o.isVariable() && !o.isLiteral()) {
+            if (byObject == null) byObject = index(2);
+            candidates = byObject.get(o);
+        }
+        ArrayList<Object> matching = new ArrayList<Object>();
+        if (candidates != null) {
+            for (Iterator<?> i = candidates.iterator(); i.hasNext(); ) {
+                Triple t = (Triple) i.next();
+                if ((s.isVariable() || s.equals(t.getSubject()))
+                        && (p.isVariable() || p.equals(t.getPredicate()))
+                        && (o.isVariable() || o.sameValueAs(t.getObject()))) {
+                    matching.add(t);
+                }
+            }
+        }
+        return matching;
+    }
+    
+    /**
+     * Index the results by their subjects (position 0) or objects (position 2).
+     */
+    private Map<Node, List<Triple>> index(int position) {
+        Map<Node, List<Triple>> index = new HashMap<Node, List<Triple>>();
+        for (Iterator<Object> i = results.iterator(); i.hasNext(); ) {
+            Triple t = (Triple) i.next();
+            Node key = position == 0 ? t.getSubject() : t.getObject();
+            List<Triple> bucket = index.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<Triple>(2);
+                index.put(key, bucket);
+            }
+            bucket.add(t);
+        }
+        return index;
+    }
+    
+    /**
+     * Return true if results for the given goal can be found by filtering the
+     * results of a goal which is more general.
+     */
+    public static boolean canSubsume(TriplePattern goal) {
+        return !Functor.isFunctor(goal.getObject());
+    }
+    
     /**
      * Return true if the generator is ready to be scheduled (i.e. it is not
      * known to be complete and not known to be waiting for a dependent generator).
@@ -138,6 +228,14 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
         return interpreter == null;
     }
     
+    /**
+     * Return true if the generator is complete and holds every result for
+     * its goal, so the results can be reused by later queries.
+     */
+    public boolean isExhausted() {
+        return isExhausted;
+    }
+    
 //    /**
 //     * Return the estimated number of generators between the top level goal and this one.
 //     */
@@ -158,6 +256,9 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
      */
     public void setComplete() {
         if (!isComplete()) {
+            LPBRuleEngine engine = interpreter.getEngine();
+            // An interpreter closed from outside has been stopped early, not exhausted
+            boolean exhausted = !interpreter.isComplete;
             interpreter.close();
             interpreter = null;
             resultSet = null;
@@ -172,6 +273,10 @@ public class Generator implements LPAgendaEntry, LPInterpreterContext {
             }
             generatingCPs = null;
             consumingCPs.clear();
+            isExhausted = exhausted;
+            if (exhausted) {
+                engine.generatorCompleted(this);
+            }
         }
     }
     
@@ -26,6 +26,8 @@ import com.hp.hpl.jena.util.iterator.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * LP version of the core backward chaining engine. For each parent inference
@@ -33,6 +35,27 @@ import java.util.*;
  * instance. The shared instance holds any common result caching, rule store
  * and global state data. However, all the processing is done by instances
  * of the LPInterpreter - one per query.
+ * <p>
+ * Normally all queries are run under the engine's lock, so queries on
+ * different threads are serialized. In concurrent mode (see {@link #setConcurrent})
+ * each thread runs its queries on its own worker engine, with its own tables
+ * and agenda, so that independent queries can proceed in parallel. Once a
+ * tabled goal is complete its results are published to a table shared by all
+ * the workers, so that work done on one thread is reused by the others.
+ * The workers are held weakly by thread and are dropped when the tables are
+ * reset. Unless a table capacity is set, a worker only keeps the tables of
+ * goals in progress, the complete ones being held in the shared table.
+ * </p>
+ * <p>
+ * With table subsumption on (see {@link #setTableSubsumption}) a goal which has
+ * no table of its own is answered, if possible, by filtering the complete table
+ * of a more general goal, so that for example <code>(a rdf:type ?x)</code> reuses
+ * the results of <code>(?s rdf:type ?x)</code>. This is off by default because
+ * builtins such as <code>bound</code> can make a rule give different answers for
+ * a specific goal than for a general one. The tables can also be given a capacity
+ * (see {@link #setTableCapacity}), beyond which the least recently used tables of
+ * completed goals are dropped.
+ * </p>
  * 
  * @author <a href="mailto:der@hplb.hpl.hp.com">Dave Reynolds</a>
  * @version $Revision: 1.2 $ on $Date: 2010-05-08 19:38:22 $
@@ -59,7 +82,7 @@ public class LPBRuleEngine {
     
     /** Table mapping tabled goals to generators for those goals.
      *  This is here so that partial goal state can be shared across multiple queries. */
-    protected HashMap<TriplePattern, Generator> tabledGoals = new HashMap<TriplePattern, Generator>();
+    protected HashMap<TriplePattern, Generator> tabledGoals = newTable();
     
     /** Set of generators waiting to be run */
     protected LinkedList<LPAgendaEntry> agenda = new LinkedList<LPAgendaEntry>();
@@ -69,6 +92,37 @@ public class LPBRuleEngine {
     /** Optional profile of number of time each rule is entered, set to non-null to profile */
     protected HashMap<String, Count> profile;
     
+    /** The engine for which this is a per-thread worker, null for a top level engine */
+    protected LPBRuleEngine root;
+    
+    /** True if queries from each thread should be run by a separate worker engine */
+    protected volatile boolean concurrent = false;
+    
+    /** The worker engine for each thread, used in concurrent mode. Held weakly by thread
+     *  so that the workers of threads which have gone don't keep the engine alive.
+     *  Also used to lock changes to the completed goals table */
+    protected final Map<Thread, LPBRuleEngine> workers = new WeakHashMap<Thread, LPBRuleEngine>();
+    
+    /** Table mapping tabled goals to the results of their completed generators, 
+     *  shared between the worker engines. Null unless in concurrent mode. */
+    protected volatile ConcurrentHashMap<TriplePattern, ArrayList<Object>> completedGoals;
+    
+    /** True if goals may be answered from the complete tables of more general goals */
+    protected volatile boolean tableSubsumption = false;
+    
+    /** The most results to keep in the tables of completed goals, 0 for no limit */
+    protected volatile int tableCapacity = 0;
+    
+    /** The number of results held in the tables of completed goals */
+    protected int tableSize = 0;
+    
+    /** Counts of goals found in the tables, answered from a more general table,
+     *  run afresh and dropped from the tables. Kept by the top level engine only. */
+    protected final AtomicLong tableHits = new AtomicLong();
+    protected final AtomicLong tableSubsumedHits = new AtomicLong();
+    protected final AtomicLong tableMisses = new AtomicLong();
+    protected final AtomicLong tableEvictions = new AtomicLong();
+    
     /** The number of generator cycles to wait before running a completion check.
      *  If set to 0 then checks will be done in the generator each time. */
     public static final int CYCLES_BETWEEN_COMPLETION_CHECK = 3;
@@ -97,6 +151,18 @@ public class LPBRuleEngine {
         ruleStore = new LPRuleStore();
     }
     
+    /**
+     * Constructor. Creates a worker engine, used to run the queries of the current
+     * thread, which shares the rules and the completed goals of the given engine.
+     * @param root the top level engine on whose behalf the worker runs
+     */
+    protected LPBRuleEngine(LPBRuleEngine root) {
+        this.root = root;
+        this.infGraph = root.infGraph;
+        this.ruleStore = root.ruleStore;
+        this.completedGoals = root.completedGoals;
+    }
+    
 //  =======================================================================
 //  Control methods
     
@@ -105,19 +171,212 @@ public class LPBRuleEngine {
      * @param goal the query to be processed
      * @return a closable iterator over the query results
      */
-    public synchronized ExtendedIterator<Triple> find(TriplePattern goal) {
-        LPInterpreter interpreter = new LPInterpreter(this, goal);
-        activeInterpreters.add(interpreter);
-        return WrappedIterator.create( new LPTopGoalIterator(interpreter));
+    public ExtendedIterator<Triple> find(TriplePattern goal) {
+        if (concurrent) {
+            return worker().find(goal);
+        }
+        synchronized (this) {
+            LPInterpreter interpreter = new LPInterpreter(this, goal);
+            activeInterpreters.add(interpreter);
+            return WrappedIterator.create( new LPTopGoalIterator(interpreter));
+        }
     }
     
     /**
      * Clear all tabled results.
      */
     public synchronized void reset() {
+        flush(null);
+    }
+    
+    /**
+     * Clear the tabled results which might depend on triples or rules with
+     * the given predicates. Complete tables for other goals are kept.
+     * @param changed the predicates of the triples and backward rules which
+     * have been added or removed, Node.ANY if any predicate might have changed
+     */
+    public synchronized void reset(Collection<Node> changed) {
+        if (changed.isEmpty()) return;
+        Set<Node> affected = ruleStore.affectedPredicates(changed);
+        flush(affected == null ? null : new HashSet<Node>(affected));
+    }
+    
+    /**
+     * Clear the tabled results for the affected predicates, or all of them
+     * if affected is null.
+     */
+    protected synchronized void flush(Set<Node> affected) {
         checkSafeToUpdate();
-        tabledGoals = new HashMap<TriplePattern, Generator>();
+        tableSize = 0;
+        if (affected == null) {
+            tabledGoals = newTable();
+        } else {
+            HashMap<TriplePattern, Generator> kept = newTable();
+            for (Iterator<Map.Entry<TriplePattern, Generator>> i = tabledGoals.entrySet().iterator(); i.hasNext(); ) {
+                Map.Entry<TriplePattern, Generator> entry = i.next();
+                if (entry.getValue().isExhausted() && !isAffected(entry.getKey(), affected)) {
+                    kept.put(entry.getKey(), entry.getValue());
+                    tableSize += entry.getValue().tableSize;
+                }
+            }
+            tabledGoals = kept;
+        }
         agenda.clear();
+        if (root == null) {
+            List<LPBRuleEngine> copy;
+            synchronized (workers) {
+                ConcurrentHashMap<TriplePattern, ArrayList<Object>> completed = null;
+                if (concurrent) {
+                    completed = new ConcurrentHashMap<TriplePattern, ArrayList<Object>>();
+                    if (affected != null && completedGoals != null) {
+                        for (Iterator<Map.Entry<TriplePattern, ArrayList<Object>>> i = completedGoals.entrySet().iterator(); i.hasNext(); ) {
+                            Map.Entry<TriplePattern, ArrayList<Object>> entry = i.next();
+                            if (!isAffected(entry.getKey(), affected)) {
+                                completed.put(entry.getKey(), entry.getValue());
+                            }
+                        }
+                    }
+                }
+                completedGoals = completed;
+                copy = new ArrayList<LPBRuleEngine>(workers.values());
+                if (affected == null) {
+                    // The workers are made again as they are needed
+                    workers.clear();
+                } else {
+                    // Nothing can reach the tables of a dead thread's worker now
+                    for (Iterator<Thread> i = workers.keySet().iterator(); i.hasNext(); ) {
+                        if (!i.next().isAlive()) i.remove();
+                    }
+                }
+            }
+            for (Iterator<LPBRuleEngine> i = copy.iterator(); i.hasNext(); ) {
+                i.next().flush(affected);
+            }
+        } else {
+            completedGoals = root.completedGoals;
+        }
+    }
+    
+    /**
+     * Return true if the answers to the goal might depend on the affected predicates.
+     */
+    private static boolean isAffected(TriplePattern goal, Set<Node> affected) {
+        Node predicate = goal.getPredicate();
+        return !predicate.isConcrete() || affected.contains(predicate);
+    }
+    
+    /**
+     * Create an empty table of goals, in least recently used order.
+     */
+    private static HashMap<TriplePattern, Generator> newTable() {
+        return new LinkedHashMap<TriplePattern, Generator>(16, 0.75f, true);
+    }
+    
+    /**
+     * Set whether queries from different threads should be run concurrently.
+     * If true, each thread runs its queries on its own worker engine, and
+     * results for completed tabled goals are shared between the workers.
+     * Any current queries are closed and all tabled results cleared.
+     */
+    public synchronized void setConcurrent(boolean concurrent) {
+        if (this.concurrent != concurrent) {
+            this.concurrent = concurrent;
+            reset();
+        }
+    }
+    
+    /**
+     * Return true if queries from different threads are run concurrently.
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+    
+    /**
+     * Set whether a goal without a table of its own may be answered by filtering
+     * the complete table of a more general goal.
+     */
+    public void setTableSubsumption(boolean subsumption) {
+        tableSubsumption = subsumption;
+    }
+    
+    /**
+     * Return true if goals may be answered from the tables of more general goals.
+     */
+    public boolean isTableSubsumption() {
+        return root == null ? tableSubsumption : root.isTableSubsumption();
+    }
+    
+    /**
+     * Set the most results to keep in the tables of completed goals, in each
+     * worker engine in concurrent mode. When there are more, the least recently
+     * used tables of completed goals are dropped. 0, the default, for no limit.
+     */
+    public synchronized void setTableCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Table capacity must not be negative: " + capacity);
+        }
+        tableCapacity = capacity;
+        evict();
+        for (Iterator<LPBRuleEngine> i = getWorkers().iterator(); i.hasNext(); ) {
+            LPBRuleEngine worker = i.next();
+            synchronized (worker) {
+                worker.evict();
+            }
+        }
+    }
+    
+    /**
+     * Return the most results kept in the tables of completed goals, 0 for no limit.
+     */
+    public int getTableCapacity() {
+        return root == null ? tableCapacity : root.getTableCapacity();
+    }
+    
+    /**
+     * Return the current size of the goal tables and counts of their use
+     * since the engine was created, including those of any worker engines.
+     */
+    public LPTableStatistics getTableStatistics() {
+        int goals, results;
+        synchronized (this) {
+            goals = tabledGoals.size();
+            results = tableSize;
+        }
+        for (Iterator<LPBRuleEngine> i = getWorkers().iterator(); i.hasNext(); ) {
+            LPBRuleEngine worker = i.next();
+            synchronized (worker) {
+                goals += worker.tabledGoals.size();
+                results += worker.tableSize;
+            }
+        }
+        return new LPTableStatistics(goals, results, tableHits.get(), tableSubsumedHits.get(),
+                tableMisses.get(), tableEvictions.get());
+    }
+    
+    /**
+     * Return the worker engine for the current thread, creating and
+     * registering one if there is none.
+     */
+    protected LPBRuleEngine worker() {
+        Thread thread = Thread.currentThread();
+        synchronized (workers) {
+            LPBRuleEngine worker = workers.get(thread);
+            if (worker == null) {
+                worker = new LPBRuleEngine(this);
+                workers.put(thread, worker);
+            }
+            return worker;
+        }
+    }
+    
+    /**
+     * Return a snapshot of the current worker engines.
+     */
+    protected List<LPBRuleEngine> getWorkers() {
+        synchronized (workers) {
+            return new ArrayList<LPBRuleEngine>(workers.values());
+        }
     }
     
     /**
@@ -160,7 +419,8 @@ public class LPBRuleEngine {
     }
     
     /**
-     * Stop the current work. Forcibly stop all current query instances over this engine.
+     * Stop the current work. Forcibly stop all current query instances over this engine,
+     * and drop any worker engines.
      */
     public synchronized void halt() {
         ArrayList<LPInterpreter> copy = new ArrayList<LPInterpreter>(activeInterpreters);  
@@ -168,6 +428,14 @@ public class LPBRuleEngine {
         for (Iterator<LPInterpreter> i = copy.iterator(); i.hasNext(); ) {
             i.next().close();
         }
+        List<LPBRuleEngine> halted;
+        synchronized (workers) {
+            halted = new ArrayList<LPBRuleEngine>(workers.values());
+            workers.clear();
+        }
+        for (Iterator<LPBRuleEngine> i = halted.iterator(); i.hasNext(); ) {
+            i.next().halt();
+        }
     }
        
     /**
@@ -182,7 +450,7 @@ public class LPBRuleEngine {
      * Return true if traces of rule firings should be logged.
      */
     public boolean isTraceOn() {
-        return traceOn;
+        return root == null ? traceOn : root.isTraceOn();
     }
        
     /**
@@ -196,7 +464,7 @@ public class LPBRuleEngine {
      * Return true in derivations should be logged.
      */
     public boolean getDerivationLogging() {
-        return recordDerivations;
+        return root == null ? recordDerivations : root.getDerivationLogging();
     }
 
     /** Return the rule store associated with the inference graph */
@@ -235,6 +503,12 @@ public class LPBRuleEngine {
                 ((LPTopGoalIterator)i.next()).close();
             }
         }
+        for (Iterator<LPBRuleEngine> i = getWorkers().iterator(); i.hasNext(); ) {
+            LPBRuleEngine worker = i.next();
+            synchronized (worker) {
+                worker.checkSafeToUpdate();
+            }
+        }
     }
     
     
@@ -256,7 +530,7 @@ public class LPBRuleEngine {
      * @param clauses the precomputed set of code blocks used to implement the goal
      */
     public synchronized Generator generatorFor(TriplePattern goal, List<RuleClauseCode> clauses) {
-        Generator generator = tabledGoals.get(goal);
+        Generator generator = tabledGenerator(goal);
         if (generator == null) {
             LPInterpreter interpreter = new LPInterpreter(this, goal, clauses, false);
             activeInterpreters.add(interpreter);
@@ -273,7 +547,7 @@ public class LPBRuleEngine {
      * @param goal the goal whose results are to be generated
      */
     public synchronized Generator generatorFor(TriplePattern goal) {
-        Generator generator = tabledGoals.get(goal);
+        Generator generator = tabledGenerator(goal);
         if (generator == null) {
             LPInterpreter interpreter = new LPInterpreter(this, goal, false);
             activeInterpreters.add(interpreter);
@@ -284,6 +558,149 @@ public class LPBRuleEngine {
         return generator;
     }
     
+    /**
+     * Return the generator already tabled for the given goal, or a complete one
+     * made from the shared results of the goal or the results of a more general
+     * goal, or null if the goal has to be run.
+     */
+    protected Generator tabledGenerator(TriplePattern goal) {
+        LPBRuleEngine stats = root == null ? this : root;
+        Generator generator = tabledGoals.get(goal);
+        if (generator != null) {
+            stats.tableHits.incrementAndGet();
+            return generator;
+        }
+        generator = completedGenerator(goal);
+        if (generator != null) {
+            stats.tableHits.incrementAndGet();
+        } else if (isTableSubsumption() && Generator.canSubsume(goal)) {
+            generator = subsumingGenerator(goal);
+            if (generator != null) {
+                stats.tableSubsumedHits.incrementAndGet();
+            }
+        }
+        if (generator == null) {
+            stats.tableMisses.incrementAndGet();
+            return null;
+        }
+        if (keepsCompleteTables()) {
+            tabledGoals.put(goal, generator);
+            addToTableSize(generator);
+        }
+        return generator;
+    }
+    
+    /**
+     * Return true if this engine keeps the tables of complete goals. A worker
+     * engine without a table capacity leaves them to the shared table, so its
+     * own tables only hold goals in progress.
+     */
+    protected boolean keepsCompleteTables() {
+        return root == null || completedGoals == null || getTableCapacity() > 0;
+    }
+    
+    /**
+     * Return a completed generator for the goal holding the results of a complete
+     * table for a more general goal which match it, or null if there is no such
+     * table. The most specific such table is used.
+     */
+    protected Generator subsumingGenerator(TriplePattern goal) {
+        Node[] nodes = new Node[] {goal.getSubject(), goal.getPredicate(), goal.getObject()};
+        // Generalize one concrete position at a time, then two, then three
+        for (int variables = 1; variables <= 3; variables++) {
+            for (int mask = 1; mask < 8; mask++) {
+                if (Integer.bitCount(mask) != variables) continue;
+                boolean applies = true;
+                Node[] general = new Node[3];
+                for (int i = 0; i < 3; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        applies &= !nodes[i].isVariable();
+                        general[i] = null;
+                    } else {
+                        general[i] = nodes[i];
+                    }
+                }
+                if (!applies) continue;
+                TriplePattern pattern = new TriplePattern(general[0], general[1], general[2]);
+                Generator complete = tabledGoals.get(pattern);
+                if (complete == null || !complete.isExhausted()) {
+                    complete = completedGenerator(pattern);
+                }
+                if (complete != null && complete.isExhausted()) {
+                    return new Generator(goal, complete.resultsMatching(goal));
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Return a completed generator holding the shared results for the given goal,
+     * or null if no worker engine has completed that goal.
+     */
+    protected Generator completedGenerator(TriplePattern goal) {
+        Map<TriplePattern, ArrayList<Object>> completed = completedGoals;
+        if (completed == null) return null;
+        ArrayList<Object> results = completed.get(goal);
+        return results == null ? null : new Generator(goal, results);
+    }
+    
+    /**
+     * Called when a generator has found all the results for its goal. In concurrent
+     * mode those results are made available to all the worker engines.
+     */
+    public void generatorCompleted(Generator generator) {
+        Map<TriplePattern, ArrayList<Object>> completed = completedGoals;
+        if (completed != null) {
+            completed.put(generator.goal, generator.results);
+        }
+        synchronized (this) {
+            if (tabledGoals.containsKey(generator.goal)) {
+                if (completed != null && !keepsCompleteTables()) {
+                    tabledGoals.remove(generator.goal);
+                } else {
+                    addToTableSize(generator);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Count the results of a complete generator which has been tabled against
+     * the table capacity, and drop old tables if there is not room for them.
+     */
+    protected synchronized void addToTableSize(Generator generator) {
+        if (generator.tableSize == 0 && generator.isComplete()) {
+            generator.tableSize = generator.numResults();
+            tableSize += generator.tableSize;
+            evict();
+        }
+    }
+    
+    /**
+     * Drop the least recently used tables of completed goals until the results
+     * held are within the table capacity.
+     */
+    protected synchronized void evict() {
+        int capacity = getTableCapacity();
+        if (capacity == 0 || tableSize <= capacity) return;
+        LPBRuleEngine stats = root == null ? this : root;
+        ConcurrentHashMap<TriplePattern, ArrayList<Object>> completed = completedGoals;
+        for (Iterator<Map.Entry<TriplePattern, Generator>> i = tabledGoals.entrySet().iterator(); i.hasNext() && tableSize > capacity; ) {
+            Map.Entry<TriplePattern, Generator> entry = i.next();
+            Generator generator = entry.getValue();
+            if (generator.isComplete()) {
+                i.remove();
+                tableSize -= generator.tableSize;
+                generator.tableSize = 0;
+                stats.tableEvictions.incrementAndGet();
+                if (completed != null) {
+                    completed.remove(entry.getKey(), generator.results);
+                }
+            }
+        }
+    }
+    
     /**
      * Register that a generator or specific generator state (Consumer choice point)
      * is now ready to run.
@@ -362,13 +779,20 @@ public class LPBRuleEngine {
      * Record a rule invocation in the profile count.
      */
     public void incrementProfile(RuleClauseCode clause) {
-        if (profile != null) {
-            String index = clause.toString();
-            Count count = profile.get(index);
-            if (count == null) {
-                profile.put(index, new Count(clause).inc());
-            } else {
-                count.inc();
+        if (root != null) {
+            root.incrementProfile(clause);
+        } else {
+            HashMap<String, Count> table = profile;
+            if (table != null) {
+                synchronized (table) {
+                    String index = clause.toString();
+                    Count count = table.get(index);
+                    if (count == null) {
+                        table.put(index, new Count(clause).inc());
+                    } else {
+                        count.inc();
+                    }
+                }
             }
         }
     }
@@ -0,0 +1,776 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.impl;
+
+import java.lang.ref.*;
+import java.util.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles the byte code of LP rule clauses into JVM classes, one per clause,
+ * extending {@link CompiledClause}. Each generated class has a single
+ * <code>run</code> method which switches on the program counter to the
+ * straight line code for the segment of the clause starting there, with the
+ * operands of the clause byte codes built in. Segments end at
+ * the call, builtin and proceed instructions, which are left to the
+ * {@link LPInterpreter}.
+ * <p>
+ * The class files are written directly, in the version 49 format which needs
+ * no stack map frames. Clauses with the same byte code share a generated
+ * class, which is given the constants of each clause when it is instantiated.
+ * A clause which cannot be compiled is left to be interpreted.
+ * <p>
+ * Each generated class is defined by a class loader of its own and is only
+ * weakly held by the cache, so that it can be unloaded once the rule stores
+ * whose clauses use it have gone.
+ * </p>
+ */
+public class LPClauseCompiler {
+
+    static Logger logger = LoggerFactory.getLogger(LPClauseCompiler.class);
+
+    /** The largest clause byte code to compile, keeps the generated code within 16 bit branch offsets */
+    static final int MAX_CLAUSE_CODE = 1024;
+
+    /** The generated classes, indexed by the clause byte code they implement */
+    private static final Map<String, ClassReference> classes = new HashMap<String, ClassReference>();
+
+    /** The queue of references to generated classes which have been unloaded */
+    private static final ReferenceQueue<Class<?>> unloaded = new ReferenceQueue<Class<?>>();
+
+    /** The number of classes generated so far, used to name them */
+    private static int generated = 0;
+
+    /** Internal names of the classes used by the generated code */
+    private static final String COMPILED_CLAUSE = "com/hp/hpl/jena/reasoner/rulesys/impl/CompiledClause";
+    private static final String INTERPRETER = "Lcom/hp/hpl/jena/reasoner/rulesys/impl/LPInterpreter;";
+    private static final String NODE = "com/hp/hpl/jena/graph/Node";
+    private static final String FUNCTOR = "com/hp/hpl/jena/reasoner/rulesys/Functor";
+    private static final String NODE_ARRAY = "[L" + NODE + ";";
+
+    /** Descriptor of the run method */
+    private static final String RUN_DESCRIPTOR =
+        "(" + INTERPRETER + NODE_ARRAY + NODE_ARRAY + NODE_ARRAY + "I)I";
+
+    /** Local variable slots of the run method */
+    private static final int L_INTERPRETER = 1, L_ARGS = 2, L_TEMPS = 3, L_PERMS = 4, L_PC = 5;
+
+    /**
+     * Compile a set of clauses, setting the compiled form of each one which
+     * can be compiled.
+     */
+    public static void compile(Collection<RuleClauseCode> clauses) {
+        for (Iterator<RuleClauseCode> i = clauses.iterator(); i.hasNext(); ) {
+            RuleClauseCode clause = i.next();
+            clause.compiled = compile(clause);
+        }
+    }
+
+    /**
+     * Compile a single clause.
+     * @return the compiled clause, or null if it cannot be compiled
+     */
+    public static CompiledClause compile(RuleClauseCode clause) {
+        byte[] code = clause.getCode();
+        if (code == null || code.length > MAX_CLAUSE_CODE) return null;
+        int[] argIndex = argIndex(code);
+        if (argIndex == null) return null;
+        try {
+            Class<?> c = classFor(code, argIndex);
+            return (CompiledClause) c.getConstructor(Object[].class, int[].class)
+                            .newInstance(clause.getArgs(), argIndex);
+        } catch (Exception e) {
+            logger.warn("Could not compile LP clause " + clause + ", it will be interpreted", e);
+        } catch (LinkageError e) {
+            logger.warn("Could not compile LP clause " + clause + ", it will be interpreted", e);
+        }
+        return null;
+    }
+
+    /**
+     * Return the class generated for the given clause byte code, generating
+     * it if this is the first clause with that code. The constants of a clause
+     * are passed to the constructor, so clauses which differ only in their
+     * constants share a class, as do the clauses of rule stores built from
+     * the same rules, and the class is only compiled by the JVM once while
+     * any of them is in use.
+     */
+    private static synchronized Class<?> classFor(byte[] code, int[] argIndex) {
+        for (Reference<?> r = unloaded.poll(); r != null; r = unloaded.poll()) {
+            String key = ((ClassReference) r).key;
+            if (classes.get(key) == r) classes.remove(key);
+        }
+        char[] chars = new char[code.length];
+        for (int i = 0; i < code.length; i++) chars[i] = (char) (code[i] & 0xff);
+        String key = new String(chars);
+        ClassReference ref = classes.get(key);
+        Class<?> c = ref == null ? null : ref.get();
+        if (c == null) {
+            String name = COMPILED_CLAUSE + "_" + generated++;
+            byte[] classFile = new ClassWriter(name, code, argIndex).write();
+            c = new ClauseLoader(CompiledClause.class.getClassLoader()).define(name.replace('/', '.'), classFile);
+            classes.put(key, new ClassReference(key, c));
+        }
+        return c;
+    }
+
+    /**
+     * Weak reference to a generated class, which remembers the byte code it
+     * was cached under so that its entry can be removed once it is unloaded.
+     */
+    static class ClassReference extends WeakReference<Class<?>> {
+
+        final String key;
+
+        ClassReference(String key, Class<?> c) {
+            super(c, unloaded);
+            this.key = key;
+        }
+    }
+
+    /**
+     * Return the argument counter at each program counter offset of the
+     * byte code, or null if the code has instructions the compiler does not know.
+     */
+    static int[] argIndex(byte[] code) {
+        int[] argIndex = new int[code.length + 1];
+        int ac = 0;
+        for (int pc = 0; pc < code.length; ) {
+            argIndex[pc] = ac;
+            byte op = code[pc];
+            int operands = operands(op);
+            if (operands < 0) return null;
+            if (usesArg(op)) ac++;
+            pc += 1 + operands;
+            if (pc > code.length) return null;
+        }
+        argIndex[code.length] = ac;
+        return argIndex;
+    }
+
+    /**
+     * Return the number of operand bytes of an instruction, -1 if not known.
+     */
+    private static int operands(byte op) {
+        switch (op) {
+        case RuleClauseCode.GET_VARIABLE:
+        case RuleClauseCode.UNIFY_VARIABLE:
+        case RuleClauseCode.GET_TEMP:
+        case RuleClauseCode.UNIFY_TEMP:
+        case RuleClauseCode.PUT_NEW_VARIABLE:
+        case RuleClauseCode.PUT_VARIABLE:
+        case RuleClauseCode.PUT_DEREF_VARIABLE:
+        case RuleClauseCode.PUT_TEMP:
+            return 2;
+        case RuleClauseCode.GET_CONSTANT:
+        case RuleClauseCode.PUT_CONSTANT:
+        case RuleClauseCode.TEST_BOUND:
+        case RuleClauseCode.TEST_UNBOUND:
+        case RuleClauseCode.CLEAR_ARG:
+        case RuleClauseCode.ALLOCATE:
+        case RuleClauseCode.CALL_BUILTIN:
+            return 1;
+        case RuleClauseCode.GET_FUNCTOR:
+        case RuleClauseCode.MAKE_FUNCTOR:
+        case RuleClauseCode.CALL_PREDICATE:
+        case RuleClauseCode.CALL_PREDICATE_INDEX:
+        case RuleClauseCode.LAST_CALL_PREDICATE:
+        case RuleClauseCode.CALL_TRIPLE_MATCH:
+        case RuleClauseCode.CALL_TABLED:
+        case RuleClauseCode.CALL_WILD_TABLED:
+        case RuleClauseCode.PROCEED:
+            return 0;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * Return true if an instruction takes an Object argument.
+     */
+    private static boolean usesArg(byte op) {
+        switch (op) {
+        case RuleClauseCode.GET_CONSTANT:
+        case RuleClauseCode.PUT_CONSTANT:
+        case RuleClauseCode.GET_FUNCTOR:
+        case RuleClauseCode.MAKE_FUNCTOR:
+        case RuleClauseCode.CALL_PREDICATE:
+        case RuleClauseCode.CALL_PREDICATE_INDEX:
+        case RuleClauseCode.LAST_CALL_PREDICATE:
+        case RuleClauseCode.CALL_BUILTIN:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Return true if an instruction is run by the interpreter rather than
+     * by the compiled code.
+     */
+    private static boolean isControl(byte op) {
+        switch (op) {
+        case RuleClauseCode.CALL_PREDICATE:
+        case RuleClauseCode.CALL_PREDICATE_INDEX:
+        case RuleClauseCode.LAST_CALL_PREDICATE:
+        case RuleClauseCode.CALL_TRIPLE_MATCH:
+        case RuleClauseCode.CALL_TABLED:
+        case RuleClauseCode.CALL_WILD_TABLED:
+        case RuleClauseCode.CALL_BUILTIN:
+        case RuleClauseCode.PROCEED:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Return true if an instruction might change the argument variables, or
+     * is run by the interpreter.
+     */
+    private static boolean writesArgs(byte op) {
+        switch (op) {
+        case RuleClauseCode.ALLOCATE:
+        case RuleClauseCode.GET_VARIABLE:
+        case RuleClauseCode.GET_TEMP:
+        case RuleClauseCode.GET_CONSTANT:
+        case RuleClauseCode.UNIFY_VARIABLE:
+        case RuleClauseCode.UNIFY_TEMP:
+        case RuleClauseCode.TEST_BOUND:
+        case RuleClauseCode.TEST_UNBOUND:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Class loader for the generated classes.
+     */
+    static class ClauseLoader extends ClassLoader {
+
+        ClauseLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
+    /**
+     * Writer for the class file of a single compiled clause.
+     */
+    static class ClassWriter {
+
+        // JVM opcodes used by the generated code
+        static final int ICONST_M1 = 0x02, ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11;
+        static final int ILOAD = 0x15, ALOAD = 0x19, ALOAD_0 = 0x2a, AALOAD = 0x32;
+        static final int ASTORE = 0x3a, AASTORE = 0x53, DUP_X2 = 0x5b;
+        static final int IFEQ = 0x99, IFNE = 0x9a, LOOKUPSWITCH = 0xab, IRETURN = 0xac, RETURN = 0xb1;
+        static final int GETFIELD = 0xb4, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, CHECKCAST = 0xc0;
+
+        /** Internal name of the class */
+        final String name;
+
+        /** The clause byte code */
+        final byte[] code;
+
+        /** The argument counter at each program counter offset */
+        final int[] argIndex;
+
+        /** The constant pool entries, as bytes, and their indices */
+        final Bytes pool = new Bytes();
+        final Map<String, Integer> poolIndex = new HashMap<String, Integer>();
+        int poolCount = 1;
+
+        /** The code of the run method */
+        final Bytes run = new Bytes();
+
+        /** Offsets in the run method of branches to the failure exit */
+        final List<Integer> failBranches = new ArrayList<Integer>();
+
+        ClassWriter(String name, byte[] code, int[] argIndex) {
+            this.name = name;
+            this.code = code;
+            this.argIndex = argIndex;
+        }
+
+        /**
+         * Return the bytes of the class file.
+         */
+        byte[] write() {
+            int thisClass = classRef(name);
+            int superClass = classRef(COMPILED_CLAUSE);
+            int codeAttribute = utf8("Code");
+            Bytes init = new Bytes();
+            init.u1(ALOAD_0);
+            init.u1(ALOAD);
+            init.u1(1);
+            init.u1(ALOAD);
+            init.u1(2);
+            init.u1(INVOKESPECIAL);
+            init.u2(methodRef(COMPILED_CLAUSE, "<init>", "([Ljava/lang/Object;[I)V"));
+            init.u1(RETURN);
+            int initName = utf8("<init>");
+            int initDescriptor = utf8("([Ljava/lang/Object;[I)V");
+            writeRun();
+            int runName = utf8("run");
+            int runDescriptor = utf8(RUN_DESCRIPTOR);
+            Bytes guard = writeMayMatch();
+            int guardName = utf8("mayMatch");
+            int guardDescriptor = utf8("(" + NODE_ARRAY + ")Z");
+
+            Bytes out = new Bytes();
+            out.u4(0xCAFEBABE);
+            out.u2(0);                      // minor version
+            out.u2(49);                     // major version, no stack maps needed
+            out.u2(poolCount);
+            out.append(pool);
+            out.u2(0x1000 | 0x0020 | 0x0010 | 0x0001);  // synthetic super final public
+            out.u2(thisClass);
+            out.u2(superClass);
+            out.u2(0);                      // interfaces
+            out.u2(0);                      // fields
+            out.u2(guard == null ? 2 : 3); // methods
+            writeMethod(out, 0x0001, initName, initDescriptor, codeAttribute, 3, 3, init);
+            writeMethod(out, 0x0001 | 0x1000, runName, runDescriptor, codeAttribute, 8, 6, run);
+            if (guard != null) {
+                writeMethod(out, 0x0001 | 0x1000, guardName, guardDescriptor, codeAttribute, 6, 2, guard);
+            }
+            out.u2(0);                      // attributes
+            return out.toByteArray();
+        }
+
+        /**
+         * Write a method with a code attribute.
+         */
+        private void writeMethod(Bytes out, int access, int name, int descriptor, int codeAttribute,
+                        int maxStack, int maxLocals, Bytes body) {
+            out.u2(access);
+            out.u2(name);
+            out.u2(descriptor);
+            out.u2(1);
+            out.u2(codeAttribute);
+            out.u4(12 + body.length);
+            out.u2(maxStack);
+            out.u2(maxLocals);
+            out.u4(body.length);
+            out.append(body);
+            out.u2(0);                      // exception table
+            out.u2(0);                      // attributes
+        }
+
+        /**
+         * Write the code of the run method: a switch on the program counter to
+         * the segments, each of which returns the offset of the control
+         * instruction which ends it, and a shared failure exit.
+         */
+        private void writeRun() {
+            List<Integer> entries = new ArrayList<Integer>();
+            entries.add(0);
+            for (int pc = 0; pc < code.length; pc += 1 + operands(code[pc])) {
+                byte op = code[pc];
+                int next = pc + 1 + operands(op);
+                if (isControl(op) && op != RuleClauseCode.PROCEED && next < code.length) {
+                    entries.add(next);
+                }
+            }
+
+            run.u1(ILOAD);
+            run.u1(L_PC);
+            int switchStart = run.length;
+            run.u1(LOOKUPSWITCH);
+            while (run.length % 4 != 0) run.u1(0);
+            int defaultOffset = run.length;
+            run.u4(0);
+            run.u4(entries.size());
+            int pairsStart = run.length;
+            for (int i = 0; i < entries.size(); i++) {
+                run.u4(entries.get(i));
+                run.u4(0);
+            }
+
+            // Unknown entry points are handed back to the interpreter
+            run.putU4(defaultOffset, run.length - switchStart);
+            run.u1(ILOAD);
+            run.u1(L_PC);
+            run.u1(IRETURN);
+
+            for (int i = 0; i < entries.size(); i++) {
+                run.putU4(pairsStart + i * 8 + 4, run.length - switchStart);
+                writeSegment(entries.get(i));
+            }
+
+            int fail = run.length;
+            run.u1(ICONST_M1);
+            run.u1(IRETURN);
+            for (Iterator<Integer> i = failBranches.iterator(); i.hasNext(); ) {
+                int branch = i.next();
+                run.putU2(branch + 1, fail - branch);
+            }
+        }
+
+        /**
+         * Write the code of the mayMatch method, which tests the arguments of a
+         * call against the constants the head of the clause unifies them with,
+         * or return null if the head has no constants.
+         */
+        private Bytes writeMayMatch() {
+            Bytes guard = new Bytes();
+            List<Integer> branches = new ArrayList<Integer>();
+            for (int pc = 0; !writesArgs(code[pc]); pc += 1 + operands(code[pc])) {
+                if (code[pc] == RuleClauseCode.GET_CONSTANT) {
+                    // mismatch(argVars[a], (Node) args[ac])
+                    guard.u1(ALOAD_0 + 1);
+                    push(guard, code[pc + 1]);
+                    guard.u1(AALOAD);
+                    guard.u1(ALOAD_0);
+                    guard.u1(GETFIELD);
+                    guard.u2(fieldRef(name, "args", "[Ljava/lang/Object;"));
+                    push(guard, argIndex[pc]);
+                    guard.u1(AALOAD);
+                    guard.u1(CHECKCAST);
+                    guard.u2(classRef(NODE));
+                    guard.u1(INVOKESTATIC);
+                    guard.u2(methodRef(COMPILED_CLAUSE, "mismatch", "(L" + NODE + ";L" + NODE + ";)Z"));
+                    branches.add(guard.length);
+                    guard.u1(IFNE);
+                    guard.u2(0);
+                }
+            }
+            if (branches.isEmpty()) return null;
+            guard.u1(ICONST_0 + 1);
+            guard.u1(IRETURN);
+            int fail = guard.length;
+            guard.u1(ICONST_0);
+            guard.u1(IRETURN);
+            for (Iterator<Integer> i = branches.iterator(); i.hasNext(); ) {
+                int branch = i.next();
+                guard.putU2(branch + 1, fail - branch);
+            }
+            return guard;
+        }
+
+        /**
+         * Write the code for the instructions from the given offset up to
+         * the next control instruction.
+         */
+        private void writeSegment(int start) {
+            int pc = start;
+            while (true) {
+                byte op = code[pc];
+                if (isControl(op)) {
+                    push(pc);
+                    run.u1(IRETURN);
+                    return;
+                }
+                int ac = argIndex[pc];
+                int a = pc + 1 < code.length ? code[pc + 1] : 0;
+                int b = pc + 2 < code.length ? code[pc + 2] : 0;
+                switch (op) {
+                case RuleClauseCode.GET_VARIABLE:       // pVars[a] = argVars[b]
+                    copy(L_PERMS, a, L_ARGS, b);
+                    break;
+                case RuleClauseCode.GET_TEMP:           // tVars[a] = argVars[b]
+                    copy(L_TEMPS, a, L_ARGS, b);
+                    break;
+                case RuleClauseCode.PUT_VARIABLE:       // argVars[b] = pVars[a]
+                    copy(L_ARGS, b, L_PERMS, a);
+                    break;
+                case RuleClauseCode.PUT_TEMP:           // argVars[b] = tVars[a]
+                    copy(L_ARGS, b, L_TEMPS, a);
+                    break;
+                case RuleClauseCode.GET_CONSTANT:       // unify argVars[a] with constant
+                    load(L_INTERPRETER);
+                    element(L_ARGS, a);
+                    constant(ac, NODE);
+                    invoke("getConstant", "(" + INTERPRETER + "L" + NODE + ";L" + NODE + ";)Z");
+                    failIf(IFEQ);
+                    break;
+                case RuleClauseCode.GET_FUNCTOR:
+                    load(L_INTERPRETER);
+                    constant(ac, FUNCTOR);
+                    invoke("getFunctor", "(" + INTERPRETER + "L" + FUNCTOR + ";)Z");
+                    failIf(IFEQ);
+                    break;
+                case RuleClauseCode.UNIFY_VARIABLE:     // unify argVars[b] with pVars[a]
+                case RuleClauseCode.UNIFY_TEMP:         // unify argVars[b] with tVars[a]
+                    load(L_INTERPRETER);
+                    element(L_ARGS, b);
+                    element(op == RuleClauseCode.UNIFY_VARIABLE ? L_PERMS : L_TEMPS, a);
+                    invoke("unify", "(" + INTERPRETER + "L" + NODE + ";L" + NODE + ";)Z");
+                    failIf(IFEQ);
+                    break;
+                case RuleClauseCode.PUT_NEW_VARIABLE:   // argVars[b] = pVars[a] = new variable
+                    load(L_ARGS);
+                    push(b);
+                    load(L_PERMS);
+                    push(a);
+                    push(a);
+                    invoke("newVariable", "(I)L" + NODE + ";");
+                    run.u1(DUP_X2);
+                    run.u1(AASTORE);
+                    run.u1(AASTORE);
+                    break;
+                case RuleClauseCode.PUT_DEREF_VARIABLE: // argVars[b] = deref(pVars[a])
+                    load(L_ARGS);
+                    push(b);
+                    element(L_PERMS, a);
+                    invoke("deref", "(L" + NODE + ";)L" + NODE + ";");
+                    run.u1(AASTORE);
+                    break;
+                case RuleClauseCode.PUT_CONSTANT:       // argVars[a] = constant
+                    load(L_ARGS);
+                    push(a);
+                    constant(ac, NODE);
+                    run.u1(AASTORE);
+                    break;
+                case RuleClauseCode.CLEAR_ARG:          // argVars[a] = new variable
+                    load(L_ARGS);
+                    push(a);
+                    push(a);
+                    invoke("newVariable", "(I)L" + NODE + ";");
+                    run.u1(AASTORE);
+                    break;
+                case RuleClauseCode.MAKE_FUNCTOR:
+                    load(L_INTERPRETER);
+                    constant(ac, FUNCTOR);
+                    invoke("makeFunctor", "(" + INTERPRETER + "L" + FUNCTOR + ";)V");
+                    break;
+                case RuleClauseCode.ALLOCATE:           // pVars = new environment of size a
+                    load(L_INTERPRETER);
+                    push(a);
+                    invoke("allocate", "(" + INTERPRETER + "I)" + NODE_ARRAY);
+                    run.u1(ASTORE);
+                    run.u1(L_PERMS);
+                    break;
+                case RuleClauseCode.TEST_BOUND:
+                case RuleClauseCode.TEST_UNBOUND:
+                    element(L_ARGS, a);
+                    invoke("isBound", "(L" + NODE + ";)Z");
+                    failIf(op == RuleClauseCode.TEST_BOUND ? IFEQ : IFNE);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected LP instruction " + op);
+                }
+                pc += 1 + operands(op);
+            }
+        }
+
+        /** Load a reference local */
+        private void load(int local) {
+            if (local <= 3) {
+                run.u1(ALOAD_0 + local);
+            } else {
+                run.u1(ALOAD);
+                run.u1(local);
+            }
+        }
+
+        /** Push an int constant */
+        private void push(int value) {
+            push(run, value);
+        }
+
+        /** Push an int constant in the given method code */
+        private static void push(Bytes method, int value) {
+            if (value >= -1 && value <= 5) {
+                method.u1(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                method.u1(BIPUSH);
+                method.u1(value);
+            } else {
+                method.u1(SIPUSH);
+                method.u2(value);
+            }
+        }
+
+        /** Push an element of an array held in a local */
+        private void element(int local, int index) {
+            load(local);
+            push(index);
+            run.u1(AALOAD);
+        }
+
+        /** Copy an element of one local array to another */
+        private void copy(int toLocal, int toIndex, int fromLocal, int fromIndex) {
+            load(toLocal);
+            push(toIndex);
+            element(fromLocal, fromIndex);
+            run.u1(AASTORE);
+        }
+
+        /** Push an Object argument of the clause, cast to the given class */
+        private void constant(int index, String type) {
+            run.u1(ALOAD_0);
+            run.u1(GETFIELD);
+            run.u2(fieldRef(name, "args", "[Ljava/lang/Object;"));
+            push(index);
+            run.u1(AALOAD);
+            run.u1(CHECKCAST);
+            run.u2(classRef(type));
+        }
+
+        /** Call a static helper of CompiledClause */
+        private void invoke(String method, String descriptor) {
+            run.u1(INVOKESTATIC);
+            run.u2(methodRef(COMPILED_CLAUSE, method, descriptor));
+        }
+
+        /** Branch to the failure exit on the given condition */
+        private void failIf(int opcode) {
+            failBranches.add(run.length);
+            run.u1(opcode);
+            run.u2(0);
+        }
+
+        //  Constant pool
+
+        private int utf8(String value) {
+            Integer index = poolIndex.get("U" + value);
+            if (index == null) {
+                pool.u1(1);
+                pool.utf(value);
+                index = add("U" + value);
+            }
+            return index;
+        }
+
+        private int classRef(String internalName) {
+            Integer index = poolIndex.get("C" + internalName);
+            if (index == null) {
+                int nameIndex = utf8(internalName);
+                pool.u1(7);
+                pool.u2(nameIndex);
+                index = add("C" + internalName);
+            }
+            return index;
+        }
+
+        private int nameAndType(String member, String descriptor) {
+            String key = "N" + member + " " + descriptor;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                int nameIndex = utf8(member);
+                int descriptorIndex = utf8(descriptor);
+                pool.u1(12);
+                pool.u2(nameIndex);
+                pool.u2(descriptorIndex);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int methodRef(String owner, String member, String descriptor) {
+            return memberRef(10, owner, member, descriptor);
+        }
+
+        private int fieldRef(String owner, String member, String descriptor) {
+            return memberRef(9, owner, member, descriptor);
+        }
+
+        private int memberRef(int tag, String owner, String member, String descriptor) {
+            String key = "R" + tag + owner + "." + member + " " + descriptor;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                int classIndex = classRef(owner);
+                int natIndex = nameAndType(member, descriptor);
+                pool.u1(tag);
+                pool.u2(classIndex);
+                pool.u2(natIndex);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            int index = poolCount++;
+            poolIndex.put(key, index);
+            return index;
+        }
+    }
+
+    /**
+     * Growable byte buffer for the class file.
+     */
+    static class Bytes {
+
+        byte[] data = new byte[256];
+
+        int length = 0;
+
+        void u1(int b) {
+            if (length == data.length) data = Arrays.copyOf(data, length * 2);
+            data[length++] = (byte) b;
+        }
+
+        void u2(int s) {
+            u1(s >> 8);
+            u1(s);
+        }
+
+        void u4(int i) {
+            u2(i >> 16);
+            u2(i);
+        }
+
+        void putU2(int offset, int s) {
+            data[offset] = (byte) (s >> 8);
+            data[offset + 1] = (byte) s;
+        }
+
+        void putU4(int offset, int i) {
+            putU2(offset, i >> 16);
+            putU2(offset + 2, i);
+        }
+
+        /** Append a string in the modified UTF-8 of the class file format */
+        void utf(String s) {
+            Bytes encoded = new Bytes();
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= 0x0001 && c <= 0x007f) {
+                    encoded.u1(c);
+                } else if (c <= 0x07ff) {
+                    encoded.u1(0xc0 | (c >> 6));
+                    encoded.u1(0x80 | (c & 0x3f));
+                } else {
+                    encoded.u1(0xe0 | (c >> 12));
+                    encoded.u1(0x80 | ((c >> 6) & 0x3f));
+                    encoded.u1(0x80 | (c & 0x3f));
+                }
+            }
+            u2(encoded.length);
+            append(encoded);
+        }
+
+        void append(Bytes other) {
+            for (int i = 0; i < other.length; i++) {
+                u1(other.data[i]);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(data, length);
+        }
+    }
+}
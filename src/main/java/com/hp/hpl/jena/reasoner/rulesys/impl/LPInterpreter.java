@@ -252,6 +252,7 @@ public class LPInterpreter {
         ChoicePointFrame choice = null;
         byte[] code;
         Object[] args;
+        CompiledClause compiled;
         boolean traceOn = engine.isTraceOn();
         boolean recordDerivations = engine.getDerivationLogging();
         
@@ -267,6 +268,15 @@ public class LPInterpreter {
                 }
                 
                 clause = choice.nextClause();
+                int trailMark = choice.trailIndex;
+                if (trailMark < trail.size()) {
+                    unwindTrail(trailMark);
+                }
+                if (clause.compiled != null && !traceOn && !clause.compiled.mayMatch(choice.argVars)) {
+                    // The clause head cannot match, skip it without setting up an environment
+                    continue main;
+                }
+                
                 // Create an execution environment for the new choice of clause
                 if (recordDerivations) {
                     envFrame = new EnvironmentFrameWithDerivation(clause);
@@ -279,10 +289,6 @@ public class LPInterpreter {
                 
                 // Restore the choice point state
                 System.arraycopy(choice.argVars, 0, argVars, 0, RuleClauseCode.MAX_ARGUMENT_VARS);
-                int trailMark = choice.trailIndex;
-                if (trailMark < trail.size()) {
-                    unwindTrail(trailMark);
-                }
                 pc = ac = 0;
                 if (recordDerivations) {
                     ((EnvironmentFrameWithDerivation)envFrame).initDerivationRecord(argVars);
@@ -395,8 +401,19 @@ public class LPInterpreter {
                 Node arg, constant;
                 code = clause.getCode();
                 args = clause.getArgs();
+                compiled = clause.compiled;
         
                 while (true) {
+                    if (compiled != null) {
+                        // Run the compiled form up to the next call, builtin or proceed
+                        pc = compiled.run(this, argVars, tVars, pVars, pc);
+                        if (pc < 0) {
+                            if (traceOn) logger.info("FAIL " + clause);
+                            continue main;
+                        }
+                        ac = compiled.argIndex(pc);
+                        pVars = envFrame.pVars;
+                    }
                     switch (code[pc++]) {
                         case RuleClauseCode.TEST_BOUND:
                             ai = code[pc++];
@@ -448,36 +465,7 @@ public class LPInterpreter {
                             break;
                             
                         case RuleClauseCode.GET_FUNCTOR:
-                            Functor func = (Functor)args[ac++];
-                            boolean match = false;
-                            Node o = argVars[2];
-                            if (o instanceof Node_RuleVariable) o = ((Node_RuleVariable)o).deref();
-                            if (Functor.isFunctor(o)) {
-                                Functor funcArg = (Functor)o.getLiteralValue();
-                                if (funcArg.getName().equals(func.getName())) {
-                                    if (funcArg.getArgLength() == func.getArgLength()) {
-                                        Node[] fargs = funcArg.getArgs();
-                                        for (int i = 0; i < fargs.length; i++) {
-                                            argVars[i+3] = fargs[i];
-                                        }
-                                        match = true;
-                                    }
-                                }
-                            } else if (o.isVariable()) {
-                                // Construct a new functor in place
-                                Node[] fargs = new Node[func.getArgLength()];
-                                Node[] templateArgs = func.getArgs();
-                                for (int i = 0; i < fargs.length; i++) {
-                                    Node template = templateArgs[i];
-                                    if (template.isVariable()) template = new Node_RuleVariable(null, i+3);
-                                    fargs[i] = template;
-                                    argVars[i+3] = template;
-                                }
-                                Node newFunc = Functor.makeFunctorNode(func.getName(), fargs);
-                                bind(((Node_RuleVariable)o).deref(), newFunc);
-                                match = true;
-                            }
-                            if (!match) {
+                            if (!getFunctor((Functor)args[ac++])) {
                                 if (traceOn) logger.info("FAIL " + clause);
                                 continue main;      // fail to unify functor shape
                             }
@@ -536,10 +524,7 @@ public class LPInterpreter {
                             break;
                             
                         case RuleClauseCode.MAKE_FUNCTOR:
-                            Functor f = (Functor)args[ac++];
-                            Node[] fargs = new Node[f.getArgLength()];
-                            System.arraycopy(argVars, 3, fargs, 0, fargs.length);
-                            argVars[2] = Functor.makeFunctorNode(f.getName(), fargs);
+                            makeFunctor((Functor)args[ac++]);
                             break;
                         
                         case RuleClauseCode.LAST_CALL_PREDICATE:
@@ -700,6 +685,54 @@ public class LPInterpreter {
         iContext = ccp.context;
     }
     
+    /**
+     * Unify the object argument with the shape of a functor, GET_FUNCTOR.
+     * A functor argument with the same name and arity has its arguments copied
+     * into the argument variables from A3, an unbound argument is bound to a new
+     * functor built from the template.
+     * @return true if the unification succeeds
+     */
+    boolean getFunctor(Functor func) {
+        Node o = argVars[2];
+        if (o instanceof Node_RuleVariable) o = ((Node_RuleVariable)o).deref();
+        if (Functor.isFunctor(o)) {
+            Functor funcArg = (Functor)o.getLiteralValue();
+            if (funcArg.getName().equals(func.getName())) {
+                if (funcArg.getArgLength() == func.getArgLength()) {
+                    Node[] fargs = funcArg.getArgs();
+                    for (int i = 0; i < fargs.length; i++) {
+                        argVars[i+3] = fargs[i];
+                    }
+                    return true;
+                }
+            }
+        } else if (o.isVariable()) {
+            // Construct a new functor in place
+            Node[] fargs = new Node[func.getArgLength()];
+            Node[] templateArgs = func.getArgs();
+            for (int i = 0; i < fargs.length; i++) {
+                Node template = templateArgs[i];
+                if (template.isVariable()) template = new Node_RuleVariable(null, i+3);
+                fargs[i] = template;
+                argVars[i+3] = template;
+            }
+            Node newFunc = Functor.makeFunctorNode(func.getName(), fargs);
+            bind(((Node_RuleVariable)o).deref(), newFunc);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Build a functor from the argument variables from A3 into the object
+     * argument, MAKE_FUNCTOR.
+     */
+    void makeFunctor(Functor f) {
+        Node[] fargs = new Node[f.getArgLength()];
+        System.arraycopy(argVars, 3, fargs, 0, fargs.length);
+        argVars[2] = Functor.makeFunctorNode(f.getName(), fargs);
+    }
+    
     /**
      * Unify two nodes. Current implementation does not support functors.
      * @return true if the unifcation succeeds
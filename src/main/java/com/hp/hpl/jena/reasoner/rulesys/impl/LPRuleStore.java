@@ -21,6 +21,7 @@ package com.hp.hpl.jena.reasoner.rulesys.impl;
 import com.hp.hpl.jena.reasoner.TriplePattern;
 import com.hp.hpl.jena.reasoner.rulesys.*;
 import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.shared.impl.JenaParameters;
 
 import java.util.*;
 
@@ -34,7 +35,11 @@ import java.util.*;
 public class LPRuleStore extends RuleStore {
     
     /** Flag to indicate whether the rules have been compiled into code objects */
-    protected boolean isCompiled = false;
+    protected volatile boolean isCompiled = false;
+    
+    /** Flag set while the rules are being compiled, so that lookups made by the
+     *  compiler itself do not restart the compilation */
+    protected boolean isCompiling = false;
     
     /** A map from predicate to a list of RuleClauseCode objects for that predicate.
      *  Uses Node_RuleVariable.WILD for wildcard predicates.
@@ -56,6 +61,19 @@ public class LPRuleStore extends RuleStore {
     /** True if all goals should be treated as tabled */
     protected boolean allTabled = false;
     
+    /** Map from a predicate to the head predicates of the rules whose bodies use it,
+     *  built on demand. Node.ANY as a key stands for rules which might use any
+     *  predicate, as a value for rules whose head predicate is a variable. */
+    protected Map<Node, Set<Node>> dependents;
+    
+    /** Names of the builtins which only look at their arguments, never the graph */
+    protected static final Set<String> PURE_BUILTINS = new HashSet<String>(Arrays.asList(new String[] {
+            "addOne", "bound", "difference", "equal", "ge", "greaterThan", "isBNode",
+            "isDType", "isFunctor", "isLiteral", "le", "lessThan", "makeSkolem", "makeTemp",
+            "max", "min", "notBNode", "notDType", "notEqual", "notFunctor", "notLiteral",
+            "now", "print", "product", "quotient", "regex", "strConcat", "sum", "unbound",
+            "uriConcat" }));
+    
     /**
      * Construct a rule store containing the given rules.
      * @param rules the rules to initialize the store with.
@@ -160,13 +178,98 @@ public class LPRuleStore extends RuleStore {
         }
     }
     
+    /**
+     * Return the predicates of the goals whose answers might change when
+     * triples or rules with the given predicates are added or removed. 
+     * Follows the rules back from body to head, so a goal is affected if 
+     * its predicate changed or if it might be derived from an affected goal.
+     * @param changed the changed predicates, a non-concrete node stands for any predicate 
+     * @return the affected predicates, or null if any goal might be affected
+     */
+    public synchronized Set<Node> affectedPredicates(Collection<Node> changed) {
+        if (dependents == null) {
+            buildDependents();
+        }
+        Set<Node> affected = new HashSet<Node>();
+        List<Node> agenda = new ArrayList<Node>();
+        for (Iterator<Node> i = changed.iterator(); i.hasNext(); ) {
+            Node predicate = i.next();
+            if (!predicate.isConcrete()) return null;
+            if (affected.add(predicate)) agenda.add(predicate);
+        }
+        if (!changed.isEmpty()) agenda.add(Node.ANY);
+        while (!agenda.isEmpty()) {
+            Set<Node> heads = dependents.get(agenda.remove(agenda.size() - 1));
+            if (heads == null) continue;
+            if (heads.contains(Node.ANY)) return null;
+            for (Iterator<Node> i = heads.iterator(); i.hasNext(); ) {
+                Node head = i.next();
+                if (affected.add(head)) agenda.add(head);
+            }
+        }
+        return affected;
+    }
+    
+    /**
+     * Build the map from body to head predicates used to find affected goals.
+     */
+    private void buildDependents() {
+        dependents = new HashMap<Node, Set<Node>>();
+        for (Iterator<Rule> ri = getAllRules().iterator(); ri.hasNext(); ) {
+            Rule r = ri.next();
+            ClauseEntry term = r.getHeadElement(0);
+            if (!(term instanceof TriplePattern)) continue;
+            Node head = ((TriplePattern)term).getPredicate();
+            Node headKey = head.isVariable() ? Node.ANY : head;
+            for (int i = 0; i < r.bodyLength(); i++) {
+                ClauseEntry clause = r.getBodyElement(i);
+                if (clause instanceof TriplePattern) {
+                    Node predicate = ((TriplePattern)clause).getPredicate();
+                    if (!predicate.isVariable()) {
+                        addDependent(predicate, headKey);
+                    } else if (!predicate.equals(head)) {
+                        // A variable shared with the head only reads the goal's own predicate
+                        addDependent(Node.ANY, headKey);
+                    }
+                } else if (clause instanceof Functor) {
+                    if (!PURE_BUILTINS.contains(((Functor)clause).getName())) {
+                        addDependent(Node.ANY, headKey);
+                    }
+                }
+            }
+        }
+    }
+    
+    private void addDependent(Node body, Node head) {
+        Set<Node> heads = dependents.get(body);
+        if (heads == null) {
+            heads = new HashSet<Node>();
+            dependents.put(body, heads);
+        }
+        heads.add(head);
+    }
+    
     /**
      * Compile all the rules in a table. initially just indexed on predicate but want to 
      * add better indexing for the particular cases of wildcard rules and type rules. 
+     * Synchronized, and only marks the store as compiled once it is complete, so
+     * that concurrent queries never see a partially built index.
      */
-    protected void compileAll() {
+    protected synchronized void compileAll() {
+        if (isCompiled || isCompiling) return;
+        isCompiling = true;
+        try {
+            doCompileAll();
+        } finally {
+            isCompiling = false;
+        }
         isCompiled = true;
-        
+    }
+    
+    /**
+     * Build the code maps and compile all the rules.
+     */
+    private void doCompileAll() {
         predicateToCodeMap = new HashMap<Node, List<RuleClauseCode>>();
         allRuleClauseCodes = new ArrayList<RuleClauseCode>();
         indexPredicateToCodeMap = new HashMap<Node, Map<Node, List<RuleClauseCode>>>();
@@ -248,6 +351,18 @@ public class LPRuleStore extends RuleStore {
             RuleClauseCode code = i.next();
             code.compile(this);
         }
+        if (JenaParameters.enableLPClauseCompilation) {
+            LPClauseCompiler.compile(allRuleClauseCodes);
+        }
+    }
+    
+    /**
+     * Remove all the rules from the store.
+     */
+    @Override
+    public synchronized void deleteAllRules() {
+        dependents = null;
+        super.deleteAllRules();
     }
     
     /**
@@ -258,8 +373,9 @@ public class LPRuleStore extends RuleStore {
      * @param isAdd true to add, false to remove 
      */
     @Override
-    protected void doAddRemoveRule(Rule rule, boolean isAdd) {
+    protected synchronized void doAddRemoveRule(Rule rule, boolean isAdd) {
         isCompiled = false;
+        dependents = null;
         super.doAddRemoveRule(rule, isAdd);
     }
 
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.impl;
+
+/**
+ * A snapshot of the size and use of the goal tables of an {@link LPBRuleEngine}.
+ * The sizes are those at the time of the snapshot, the counts are totals since
+ * the engine was created.
+ */
+public class LPTableStatistics {
+
+    /** The number of goals in the tables */
+    protected int goals;
+
+    /** The number of results held in the tables of completed goals */
+    protected int results;
+
+    /** The number of times a goal was found in the tables */
+    protected long hits;
+
+    /** The number of times a goal was answered from the table of a more general goal */
+    protected long subsumedHits;
+
+    /** The number of times a goal had to be run */
+    protected long misses;
+
+    /** The number of completed goals dropped from the tables to keep within their capacity */
+    protected long evictions;
+
+    /**
+     * Constructor.
+     */
+    public LPTableStatistics(int goals, int results, long hits, long subsumedHits, long misses, long evictions) {
+        this.goals = goals;
+        this.results = results;
+        this.hits = hits;
+        this.subsumedHits = subsumedHits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /** Return the number of goals in the tables */
+    public int getGoals() {
+        return goals;
+    }
+
+    /** Return the number of results held in the tables of completed goals */
+    public int getResults() {
+        return results;
+    }
+
+    /** Return the number of times a goal was found in the tables */
+    public long getHits() {
+        return hits;
+    }
+
+    /** Return the number of times a goal was answered from the table of a more general goal */
+    public long getSubsumedHits() {
+        return subsumedHits;
+    }
+
+    /** Return the number of times a goal had to be run */
+    public long getMisses() {
+        return misses;
+    }
+
+    /** Return the number of completed goals dropped from the tables */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /** Printable form */
+    @Override
+    public String toString() {
+        return "LP tables: " + goals + " goals, " + results + " results, " + hits + " hits, "
+                + subsumedHits + " subsumed hits, " + misses + " misses, " + evictions + " evictions";
+    }
+}
@@ -23,9 +23,17 @@ import com.hp.hpl.jena.reasoner.rulesys.*;
 import com.hp.hpl.jena.graph.*;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import com.hp.hpl.jena.shared.JenaException;
 import com.hp.hpl.jena.util.OneToManyMap;
 import com.hp.hpl.jena.util.PrintUtil;
+import com.hp.hpl.jena.util.iterator.ClosableIterator;
 import com.hp.hpl.jena.util.iterator.ConcatenatedIterator;
 
 import org.slf4j.Logger;
@@ -52,6 +60,9 @@ public class RETEEngine implements FRuleEngineI {
     /** Queue of newly added triples waiting to be processed */
     protected List<Triple> addsPending = new ArrayList<Triple>();
     
+    /** The triples in addsPending, so that a triple is only queued once */
+    protected Set<Triple> addsPendingSet = new HashSet<Triple>();
+    
     /** Queue of newly deleted triples waiting to be processed */
     protected List<Triple> deletesPending = new ArrayList<Triple>();
     
@@ -77,6 +88,40 @@ public class RETEEngine implements FRuleEngineI {
     /** True if all the rules are monotonic, so we short circuit the conflict set processing */
     boolean isMonotonic = true;
     
+    /** Deductions withdrawn during the over-delete phase of an incremental delete, null at other times */
+    protected List<Triple> retracted;
+    
+    /** Set if the over-delete phase of an incremental delete has withdrawn a backward rule */
+    protected boolean retractedRules;
+    
+    /** The deductions withdrawn, and not derived again, by the last incremental delete */
+    protected List<Triple> lastRetracted;
+    
+    /** Index from head predicate to the rules which might deduce triples with that predicate,
+     *  Node.ANY is used for wildcard predicates. Built on the first incremental delete. */
+    protected OneToManyMap<Node, Rule> headIndex;
+    
+    /** The number of threads used to run a monotonic rule set over the pending triples */
+    protected int threads = 1;
+    
+    /** The tasks which run the join networks of the rules in a saturation round, built on first use */
+    protected List<RoundTask> ruleTasks;
+    
+    /** The filter nodes of the rules with a single body clause, which hold no state, by predicate */
+    protected OneToManyMap<Node, RETENode> statelessIndex;
+    
+    /** The task in ruleTasks which runs each filter node of a rule with joins */
+    protected Map<RETENode, RoundTask> filterTasks;
+    
+    /** The position of each filter node in the order inject runs them for a triple */
+    protected Map<RETENode, Integer> filterOrder;
+    
+    /** The saturation round task being run by the current thread, if any */
+    protected final ThreadLocal<RoundTask> currentTask = new ThreadLocal<RoundTask>();
+    
+    /** The number of pending triples needed before a saturation round is run on a pool of threads */
+    public static final int PARALLEL_THRESHOLD = 256;
+    
     protected static Logger logger = LoggerFactory.getLogger(FRuleEngine.class);
     
 //  =======================================================================
@@ -174,16 +219,88 @@ public class RETEEngine implements FRuleEngineI {
     
     /**
      * Remove one triple to the data graph.
+     * <p>
+     * For monotonic rule sets this maintains the deductions incrementally,
+     * using the delete and rederive approach. The network first withdraws
+     * every deduction whose derivation used the triple, directly or
+     * indirectly. Each withdrawn deduction which can still be derived in
+     * one step from what is left is then restored, and the restored
+     * deductions are propagated forward again. Non-monotonic rule sets
+     * just propagate the delete through the network.</p>
      * @return true if the effects could be correctly propagated or
      * false if not (in which case the entire engine should be restarted).
      */
     @Override
     public synchronized boolean delete(Triple t) {
-        deleteTriple(t, false);
+        lastRetracted = null;
+        if (!isMonotonic) {
+            deleteTriple(t, false);
+            runAll();
+            return true;
+        }
+        if (rules == null) return false;
+        boolean wasDeduction = infGraph.getCurrentDeductionsGraph().contains(t);
+        retracted = new ArrayList<Triple>();
+        retractedRules = false;
+        List<Triple> candidates;
+        try {
+            deleteTriple(t, wasDeduction);
+            runAll();
+            candidates = retracted;
+        } finally {
+            retracted = null;
+        }
+        // Backward rules are not reference counted so we can't tell if they should survive
+        if (retractedRules) return false;
+        if (!wasDeduction) candidates.add(t);
+        for (Iterator<Triple> i = candidates.iterator(); i.hasNext(); ) {
+            Triple c = i.next();
+            if (!isVisible(c)) rederive(c);
+        }
         runAll();
+        lastRetracted = new ArrayList<Triple>();
+        Graph deductions = infGraph.getCurrentDeductionsGraph();
+        for (Iterator<Triple> i = candidates.iterator(); i.hasNext(); ) {
+            Triple c = i.next();
+            if (c != t && !deductions.contains(c)) lastRetracted.add(c);
+        }
         return true;
     }
     
+    /**
+     * Return the deductions which the last call to delete withdrew and could
+     * not derive again, or null if that delete was not processed incrementally.
+     */
+    public List<Triple> getLastRetracted() {
+        return lastRetracted;
+    }
+    
+    /**
+     * Return true if all the rules are monotonic, so that deletes can be
+     * processed incrementally.
+     */
+    public boolean isMonotonic() {
+        return isMonotonic;
+    }
+    
+    /**
+     * Set the number of threads used to run a monotonic rule set over the
+     * pending triples. With more than one thread the triples are processed in
+     * rounds, see {@link #runAll}. The default is 1, which runs the rules
+     * one triple at a time on the calling thread.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.threads = threads;
+    }
+    
+    /**
+     * Return the number of threads used to run a monotonic rule set.
+     */
+    public int getThreads() {
+        return threads;
+    }
+    
     /**
      * Return the number of rules fired since this rule engine instance
      * was created and initialized
@@ -234,6 +351,7 @@ public class RETEEngine implements FRuleEngineI {
         RETERuleContext context = new RETERuleContext(infGraph, this);
         Map<RETENode, RETENode> netCopy = new HashMap<RETENode, RETENode>();
         clauseIndex = new OneToManyMap<Node, RETENode>();
+        ruleTasks = null;
         for (Iterator<Map.Entry<Node, RETENode>> i = rs.clauseIndex.entrySet().iterator(); i.hasNext(); ) {
             Map.Entry<Node, RETENode> entry = i.next();
             clauseIndex.put( entry.getKey(), entry.getValue().clone( netCopy, context ) );
@@ -244,6 +362,13 @@ public class RETEEngine implements FRuleEngineI {
      * Add a rule firing request to the conflict set.
      */
     public void requestRuleFiring(Rule rule, BindingEnvironment env, boolean isAdd) {
+        if (!isAdd && retracted != null && !retractedRules) {
+            for (int i = 0; i < rule.headLength(); i++) {
+                if (rule.getHeadElement(i) instanceof Rule) {
+                    retractedRules = true;
+                }
+            }
+        }
         conflictSet.add(rule, env, isAdd);
     }
     
@@ -259,6 +384,7 @@ public class RETEEngine implements FRuleEngineI {
         clauseIndex = new OneToManyMap<Node, RETENode>();
         predicatePatterns = new OneToManyMap<Node, Node>();
         wildcardRule = false;
+        ruleTasks = null;
             
         for (Iterator<Rule> it = rules.iterator(); it.hasNext(); ) {
             Rule rule = it.next();
@@ -301,8 +427,9 @@ public class RETEEngine implements FRuleEngineI {
                         // First clause, no joins yet
                         prior = clauseNode;
                     } else {
-                        RETEQueue leftQ = new RETEQueue(matchIndices);
-                        RETEQueue rightQ = new RETEQueue(matchIndices);
+                        // Index the join memories on the join variables unless this is a pure cross product
+                        RETEQueue leftQ = matchIndices.isEmpty() ? new RETEQueue(matchIndices) : new RETEHashedQueue(matchIndices);
+                        RETEQueue rightQ = matchIndices.isEmpty() ? new RETEQueue(matchIndices) : new RETEHashedQueue(matchIndices);
                         leftQ.setSibling(rightQ);
                         rightQ.setSibling(leftQ);
                         clauseNode.setContinuation(rightQ);
@@ -364,7 +491,7 @@ public class RETEEngine implements FRuleEngineI {
             logger.debug("Add triple: " + PrintUtil.print(triple));
         }
         if (deletesPending.size() > 0) deletesPending.remove(triple);
-        if (!addsPending.contains(triple))      // Experimental, not sure why it wasn't done before
+        if (addsPendingSet.add(triple))      // Experimental, not sure why it wasn't done before
             addsPending.add(triple);
         if (deduction) {
             infGraph.addDeduction(triple);
@@ -377,10 +504,20 @@ public class RETEEngine implements FRuleEngineI {
      * @param deduction true if the remove has been generated by the rules 
      */
     public synchronized void deleteTriple(Triple triple, boolean deduction) {
-        addsPending.remove(triple);
+        if (addsPendingSet.remove(triple)) addsPending.remove(triple);
         deletesPending.add(triple);
         if (deduction) {
-            infGraph.getCurrentDeductionsGraph().delete(triple);
+            Graph deductions = infGraph.getCurrentDeductionsGraph();
+            if (retracted != null) {
+                if (deductions.contains(triple)) {
+                    retracted.add(triple);
+                } else {
+                    // Visible by some other route, e.g. a transitive closure cache,
+                    // so the network should keep it
+                    deletesPending.remove(triple);
+                }
+            }
+            deductions.delete(triple);
             Graph raw = infGraph.getRawGraph();
             // deduction retractions should not remove asserted facts, so commented out next line
             // raw.delete(triple);
@@ -392,6 +529,151 @@ public class RETEEngine implements FRuleEngineI {
         }
     }
     
+    /**
+     * Return true if the triple is in the data or the deductions.
+     */
+    protected boolean isVisible(Triple t) {
+        ClosableIterator<Triple> i = infGraph.findDataMatches(t.getSubject(), t.getPredicate(), t.getObject());
+        try {
+            return i.hasNext();
+        } finally {
+            i.close();
+        }
+    }
+    
+    /**
+     * Rederive phase of an incremental delete. Look for a rule firing which
+     * deduces the given triple from the current data and deductions and, if
+     * there is one, fire it again. 
+     * @return true if the triple was derived again
+     */
+    protected boolean rederive(Triple t) {
+        if (headIndex == null) {
+            headIndex = new OneToManyMap<Node, Rule>();
+            for (Iterator<Rule> i = rules.iterator(); i.hasNext(); ) {
+                Rule r = i.next();
+                if (r.isBackward()) continue;
+                for (int j = 0; j < r.headLength(); j++) {
+                    Object head = r.getHeadElement(j);
+                    if (head instanceof TriplePattern) {
+                        Node predicate = ((TriplePattern)head).getPredicate();
+                        Node key = predicate.isVariable() ? Node.ANY : predicate;
+                        if (!headIndex.contains(key, r)) headIndex.put(key, r);
+                    }
+                }
+            }
+        }
+        Iterator<Rule> i1 = headIndex.getAll(t.getPredicate());
+        Iterator<Rule> i2 = headIndex.getAll(Node.ANY);
+        for (Iterator<Rule> i = new ConcatenatedIterator<Rule>(i1, i2); i.hasNext(); ) {
+            Rule r = i.next();
+            for (int j = 0; j < r.headLength(); j++) {
+                Object head = r.getHeadElement(j);
+                if (head instanceof TriplePattern) {
+                    BindingVector env = new BindingVector(r.getNumVars());
+                    if (match((TriplePattern)head, t, env)) {
+                        List<TriplePattern> clauses = new ArrayList<TriplePattern>(r.bodyLength());
+                        for (int k = 0; k < r.bodyLength(); k++) {
+                            Object clause = r.getBodyElement(k);
+                            if (clause instanceof TriplePattern) {
+                                clauses.add((TriplePattern)clause);
+                            }
+                        }
+                        if (refire(r, clauses, env)) return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Find a match for the remaining body clauses of a rule against the
+     * data and deductions and, if there is one, fire the rule.
+     * Clauses are tried most bound first.
+     * @return true if the rule fired
+     */
+    private boolean refire(Rule rule, List<TriplePattern> clauses, BindingVector env) {
+        if (clauses.isEmpty()) {
+            RETERuleContext context = new RETERuleContext(infGraph, this);
+            context.setRule(rule);
+            context.setEnv(env);
+            if (!context.shouldFire(true)) return false;
+            RETEConflictSet.execute(context, true);
+            return true;
+        }
+        int best = 0;
+        int bestscore = -1;
+        for (int i = 0; i < clauses.size(); i++) {
+            TriplePattern clause = clauses.get(i);
+            int score = FRuleEngine.scoreNodeBoundness(clause.getSubject(), env) * 3 +
+                        FRuleEngine.scoreNodeBoundness(clause.getPredicate(), env) * 2 +
+                        FRuleEngine.scoreNodeBoundness(clause.getObject(), env) * 3;
+            if (score > bestscore) {
+                bestscore = score;
+                best = i;
+            }
+        }
+        List<TriplePattern> rest = new ArrayList<TriplePattern>(clauses);
+        TriplePattern clause = rest.remove(best);
+        Node objPattern = env.getBinding(clause.getObject());
+        if (Functor.isFunctor(objPattern)) {
+            // Can't search on functor patterns so leave that as a wildcard
+            objPattern = null;
+        }
+        ClosableIterator<Triple> i = infGraph.findDataMatches(
+                            env.getBinding(clause.getSubject()),
+                            env.getBinding(clause.getPredicate()),
+                            objPattern);
+        try {
+            while (i.hasNext()) {
+                BindingVector next = new BindingVector(env);
+                if (match(clause, i.next(), next) && refire(rule, rest, next)) {
+                    // Stop at the first match, the rule firing has changed the deductions
+                    return true;
+                }
+            }
+        } finally {
+            i.close();
+        }
+        return false;
+    }
+    
+    /**
+     * Test if a TriplePattern matches a Triple, extending the bindings in env.
+     * The environment may be partially updated if the match fails.
+     */
+    private static boolean match(TriplePattern pattern, Triple triple, BindingVector env) {
+        return match(pattern.getPredicate(), triple.getPredicate(), env)
+            && match(pattern.getObject(), triple.getObject(), env)
+            && match(pattern.getSubject(), triple.getSubject(), env);
+    }
+    
+    /**
+     * Test if a pattern Node matches a Node, extending the bindings in env.
+     */
+    private static boolean match(Node pattern, Node node, BindingVector env) {
+        if (pattern instanceof Node_RuleVariable) {
+            return env.bind(((Node_RuleVariable)pattern).getIndex(), node);
+        } else if (pattern instanceof Node_ANY) {
+            return true;
+        } else if (Functor.isFunctor(pattern)) {
+            if (!Functor.isFunctor(node)) return false;
+            Functor patternF = (Functor) pattern.getLiteralValue();
+            Functor nodeF = (Functor) node.getLiteralValue();
+            if (!patternF.getName().equals(nodeF.getName())) return false;
+            Node[] patternArgs = patternF.getArgs();
+            Node[] nodeArgs = nodeF.getArgs();
+            if (patternArgs.length != nodeArgs.length) return false;
+            for (int i = 0; i < patternArgs.length; i++) {
+                if (!match(patternArgs[i], nodeArgs[i], env)) return false;
+            }
+            return true;
+        } else {
+            return pattern.sameValueAs(node);
+        }
+    }
+    
     /**
      * Increment the rule firing count, called by the terminal nodes in the
      * network.
@@ -407,7 +689,9 @@ public class RETEEngine implements FRuleEngineI {
     protected synchronized Triple nextAddTriple() {
         int size = addsPending.size(); 
         if (size > 0) {
-            return addsPending.remove(size - 1);
+            Triple t = addsPending.remove(size - 1);
+            addsPendingSet.remove(t);
+            return t;
         }
         return null;
     }
@@ -427,8 +711,23 @@ public class RETEEngine implements FRuleEngineI {
     /**
      * Process the queue of pending insert/deletes until the queues are empty.
      * Public to simplify unit tests - not normally called directly.
+     * <p>
+     * If the rule set is monotonic and more than one thread has been set,
+     * the inserts are run in rounds. Each round takes all the pending inserts
+     * and runs them through the network, on a pool of threads when there are
+     * enough of them. The join network of a rule is only run by one thread,
+     * while the rules with a single clause are shared out by triple. The rule
+     * firings are buffered and then run on the calling thread, sorted by the
+     * insert which triggered them, so that the deductions are made in the same
+     * order for any number of threads above one. The inserts they make form the
+     * next round. A single thread runs the inserts one at a time instead, which
+     * makes the same deductions but not necessarily in the same order.</p>
      */
     public void runAll() {
+        if (threads > 1 && isMonotonic) {
+            runRounds();
+            return;
+        }
         while(true) {
             boolean isAdd = false;
             Triple next = nextDeleteTriple();
@@ -446,6 +745,177 @@ public class RETEEngine implements FRuleEngineI {
         }
     }
     
+    /**
+     * Run the pending insert/deletes of a monotonic rule set in rounds until the
+     * queues are empty.
+     */
+    private void runRounds() {
+        ExecutorService pool = null;
+        try {
+            while (true) {
+                Triple next = nextDeleteTriple();
+                if (next != null) {
+                    inject(next, false);
+                    continue;
+                }
+                List<Triple> batch;
+                synchronized (this) {
+                    if (addsPending.isEmpty()) return;
+                    batch = addsPending;
+                    addsPending = new ArrayList<Triple>();
+                    addsPendingSet.clear();
+                }
+                boolean parallel = batch.size() >= PARALLEL_THRESHOLD;
+                if (parallel && pool == null) pool = createPool();
+                List<Firing> firings = runRound(batch, parallel ? pool : null);
+                for (Iterator<Firing> i = firings.iterator(); i.hasNext(); ) {
+                    Firing f = i.next();
+                    f.terminal.fire(f.env, true);
+                }
+            }
+        } finally {
+            if (pool != null) pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Run one round of inserts through the network.
+     * @param batch the triples to insert
+     * @param pool the pool of threads to run the round on, or null to run it on the calling thread
+     * @return the rule firings requested by the network, in the order they should be run
+     */
+    private List<Firing> runRound(List<Triple> batch, ExecutorService pool) {
+        if (ruleTasks == null) partitionNetwork();
+        for (Iterator<RoundTask> i = ruleTasks.iterator(); i.hasNext(); ) {
+            i.next().start(batch);
+        }
+        int chunks = pool == null ? 1 : threads;
+        RoundTask[] statelessTasks = new RoundTask[chunks];
+        for (int i = 0; i < chunks; i++) {
+            statelessTasks[i] = new RoundTask(this, statelessIndex);
+            statelessTasks[i].start(batch);
+        }
+        // Share out the triples by the filters they reach
+        int chunkSize = (batch.size() + chunks - 1) / chunks;
+        for (int pos = 0; pos < batch.size(); pos++) {
+            Node predicate = batch.get(pos).getPredicate();
+            Iterator<RETENode> i1 = clauseIndex.getAll(predicate);
+            Iterator<RETENode> i2 = clauseIndex.getAll(Node.ANY);
+            for (Iterator<RETENode> i = new ConcatenatedIterator<RETENode>(i1, i2); i.hasNext(); ) {
+                RoundTask task = filterTasks.get(i.next());
+                if (task == null) task = statelessTasks[pos / chunkSize];
+                task.addPosition(pos);
+            }
+        }
+        List<RoundTask> tasks = new ArrayList<RoundTask>();
+        for (Iterator<RoundTask> i = ruleTasks.iterator(); i.hasNext(); ) {
+            RoundTask task = i.next();
+            if (task.size > 0) tasks.add(task);
+        }
+        for (int i = 0; i < chunks; i++) {
+            if (statelessTasks[i].size > 0) tasks.add(statelessTasks[i]);
+        }
+        if (pool == null || tasks.size() < 2) {
+            for (Iterator<RoundTask> i = tasks.iterator(); i.hasNext(); ) {
+                i.next().call();
+            }
+        } else {
+            waitFor(pool, tasks);
+        }
+        List<Firing> firings = new ArrayList<Firing>();
+        for (Iterator<RoundTask> i = tasks.iterator(); i.hasNext(); ) {
+            RoundTask task = i.next();
+            firings.addAll(task.firings);
+            task.finish();
+        }
+        // Stable, so the firings of one filter node for one triple keep their order
+        Collections.sort(firings);
+        return firings;
+    }
+    
+    /**
+     * Share out the filter nodes of the network between the saturation round
+     * tasks. All the filter nodes of a rule with joins go to the same task, since
+     * its join queues are not thread safe.
+     */
+    private void partitionNetwork() {
+        ruleTasks = new ArrayList<RoundTask>();
+        statelessIndex = new OneToManyMap<Node, RETENode>();
+        filterTasks = new IdentityHashMap<RETENode, RoundTask>();
+        filterOrder = new IdentityHashMap<RETENode, Integer>();
+        Map<RETENode, RoundTask> terminalTasks = new IdentityHashMap<RETENode, RoundTask>();
+        int wildcardOffset = clauseIndex.size();
+        for (Iterator<Node> i = clauseIndex.keySet().iterator(); i.hasNext(); ) {
+            Node predicate = i.next();
+            int order = predicate.equals(Node.ANY) ? wildcardOffset : 0;
+            for (Iterator<RETENode> j = clauseIndex.getAll(predicate); j.hasNext(); ) {
+                RETEClauseFilter filter = (RETEClauseFilter) j.next();
+                filterOrder.put(filter, new Integer(order++));
+                RETENode terminal = filter.continuation;
+                if (!(terminal instanceof RETEQueue)) {
+                    statelessIndex.put(predicate, filter);
+                    continue;
+                }
+                while (terminal instanceof RETEQueue) {
+                    terminal = ((RETEQueue)terminal).continuation;
+                }
+                RoundTask task = terminalTasks.get(terminal);
+                if (task == null) {
+                    task = new RoundTask(this, new OneToManyMap<Node, RETENode>());
+                    terminalTasks.put(terminal, task);
+                    ruleTasks.add(task);
+                }
+                task.index.put(predicate, filter);
+                filterTasks.put(filter, task);
+            }
+        }
+    }
+    
+    /**
+     * Buffer a rule firing if it was requested while running a saturation round
+     * task. Called by the terminal nodes before they check the rule's guards.
+     * @return true if the firing was buffered, to be run later on the calling thread
+     */
+    protected boolean deferFiring(RETETerminal terminal, BindingVector env) {
+        if (threads < 2) return false;
+        RoundTask task = currentTask.get();
+        if (task == null) return false;
+        task.firings.add(new Firing(terminal, env, task.position, task.order));
+        return true;
+    }
+    
+    /**
+     * Create the pool of threads used to run saturation rounds.
+     */
+    private ExecutorService createPool() {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "RETEEngine");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+    
+    /**
+     * Run a set of tasks on the pool and wait for them all to finish.
+     */
+    private static void waitFor(ExecutorService pool, List<RoundTask> tasks) {
+        try {
+            for (Future<Object> f : pool.invokeAll(tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JenaException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new JenaException(e.getCause());
+        }
+    }
+    
     /**
      * Inject a single triple into the RETE network
      */
@@ -561,6 +1031,122 @@ public class RETEEngine implements FRuleEngineI {
         }
     }
     
+    /**
+     * A share of the work of a saturation round: a set of filter nodes and the
+     * positions of the triples in the round which reach them.
+     */
+    protected static class RoundTask implements Callable<Object> {
+        
+        /** The engine running the round */
+        protected RETEEngine engine;
+        
+        /** The filter nodes run by this task, by predicate */
+        protected OneToManyMap<Node, RETENode> index;
+        
+        /** The triples of the round */
+        protected List<Triple> batch;
+        
+        /** The positions in the batch of the triples to run, in ascending order */
+        protected int[] positions = new int[16];
+        
+        /** The number of positions */
+        protected int size;
+        
+        /** The rule firings requested so far */
+        protected List<Firing> firings = new ArrayList<Firing>();
+        
+        /** The position of the triple being run */
+        protected int position;
+        
+        /** The order of the filter node being run */
+        protected int order;
+        
+        /** Constructor */
+        RoundTask(RETEEngine engine, OneToManyMap<Node, RETENode> index) {
+            this.engine = engine;
+            this.index = index;
+        }
+        
+        /** Set up the task for a new round */
+        void start(List<Triple> roundBatch) {
+            batch = roundBatch;
+            size = 0;
+        }
+        
+        /** Add the position of a triple to run, ignoring repeats */
+        void addPosition(int pos) {
+            if (size > 0 && positions[size - 1] == pos) return;
+            if (size == positions.length) {
+                int[] newPositions = new int[size * 2];
+                System.arraycopy(positions, 0, newPositions, 0, size);
+                positions = newPositions;
+            }
+            positions[size++] = pos;
+        }
+        
+        /** Release the state of the round */
+        void finish() {
+            batch = null;
+            firings = new ArrayList<Firing>();
+        }
+        
+        /** Run the triples through the filter nodes of this task */
+        @Override
+        public Object call() {
+            engine.currentTask.set(this);
+            try {
+                for (int k = 0; k < size; k++) {
+                    position = positions[k];
+                    Triple t = batch.get(position);
+                    Iterator<RETENode> i1 = index.getAll(t.getPredicate());
+                    Iterator<RETENode> i2 = index.getAll(Node.ANY);
+                    for (Iterator<RETENode> i = new ConcatenatedIterator<RETENode>(i1, i2); i.hasNext(); ) {
+                        RETEClauseFilter filter = (RETEClauseFilter) i.next();
+                        order = engine.filterOrder.get(filter).intValue();
+                        filter.fire(t, true);
+                    }
+                }
+            } finally {
+                engine.currentTask.remove();
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * A rule firing buffered during a saturation round. Firings are ordered
+     * by the triple and then the filter node which led to them.
+     */
+    protected static class Firing implements Comparable<Firing> {
+        
+        /** The terminal node of the rule */
+        protected RETETerminal terminal;
+        
+        /** The bindings of the rule */
+        protected BindingVector env;
+        
+        /** The position in the round of the triple which led to the firing */
+        protected int position;
+        
+        /** The order of the filter node which led to the firing */
+        protected int order;
+        
+        /** Constructor */
+        Firing(RETETerminal terminal, BindingVector env, int position, int order) {
+            this.terminal = terminal;
+            this.env = env;
+            this.position = position;
+            this.order = order;
+        }
+        
+        @Override
+        public int compareTo(Firing other) {
+            if (position != other.position) return position < other.position ? -1 : 1;
+            if (order != other.order) return order < other.order ? -1 : 1;
+            return 0;
+        }
+    }
+    
     /**
      * Structure used to wrap up processed rule indexes.
      */
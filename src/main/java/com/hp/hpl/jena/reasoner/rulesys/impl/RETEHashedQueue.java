@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.impl;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.impl.LiteralLabel;
+import com.hp.hpl.jena.reasoner.rulesys.Functor;
+import com.hp.hpl.jena.util.iterator.ConcatenatedIterator;
+import com.hp.hpl.jena.util.iterator.NullIterator;
+
+/**
+ * Version of the RETE join queue which indexes its stored tokens on the
+ * values of the join variables. Probes from the sibling queue then only
+ * visit the tokens with a matching key rather than the whole queue.
+ * <p>
+ * Keys are built from the indexing value of each join node, so that
+ * literals which are sameValueAs one another (e.g. differing only in language
+ * case or in the lexical form of a decimal) fall in the same bucket. Literals
+ * of non-XSD datatypes, whose notion of value equality we can't rely on, are
+ * not hashed. Tokens carrying such values are kept in a separate set which
+ * is always scanned, and probes carrying them fall back to a full scan.
+ * All candidates are still checked with sameValueAs by the join itself.</p>
+ */
+public class RETEHashedQueue extends RETEQueue {
+
+    /** Map from join key to the set of distinct tokens in the queue with that key */
+    protected HashMap<Object, Set<BindingVector>> index = new HashMap<Object, Set<BindingVector>>();
+
+    /** Tokens whose join values could not be reduced to a hash key */
+    protected Set<BindingVector> unindexed = new HashSet<BindingVector>();
+
+    /**
+     * Constructor. The queue is not usable until it has been bound
+     * to a sibling and a continuation node.
+     * @param A set of variable indices which should match between the two inputs
+     */
+    public RETEHashedQueue(byte[] matchIndices) {
+        super(matchIndices);
+    }
+
+    /**
+     * Constructor. The queue is not usable until it has been bound
+     * to a sibling and a continuation node.
+     * @param A List of variable indices which should match between the two inputs
+     */
+    public RETEHashedQueue(List<? extends Byte> matchIndexList) {
+        super(matchIndexList);
+    }
+
+    /**
+     * Return the stored tokens which share the join key of the given environment,
+     * plus any unhashable tokens.
+     */
+    @Override
+    protected Iterator<BindingVector> candidatesFor(Node[] envNodes) {
+        Object key = joinKey(envNodes);
+        if (key == null) {
+            return super.candidatesFor(envNodes);
+        }
+        Set<BindingVector> bucket = index.get(key);
+        if (unindexed.isEmpty()) {
+            return bucket == null ? NullIterator.<BindingVector>instance() : bucket.iterator();
+        } else if (bucket == null) {
+            return unindexed.iterator();
+        } else {
+            return new ConcatenatedIterator<BindingVector>(bucket.iterator(), unindexed.iterator());
+        }
+    }
+
+    /**
+     * Record a new distinct token in the join index.
+     */
+    @Override
+    protected void tokenAdded(BindingVector env) {
+        Object key = joinKey(env.getEnvironment());
+        if (key == null) {
+            unindexed.add(env);
+        } else {
+            Set<BindingVector> bucket = index.get(key);
+            if (bucket == null) {
+                bucket = new HashSet<BindingVector>();
+                index.put(key, bucket);
+            }
+            bucket.add(env);
+        }
+    }
+
+    /**
+     * Remove a token which is no longer in the queue from the join index.
+     */
+    @Override
+    protected void tokenRemoved(BindingVector env) {
+        Object key = joinKey(env.getEnvironment());
+        if (key == null) {
+            unindexed.remove(env);
+        } else {
+            Set<BindingVector> bucket = index.get(key);
+            if (bucket != null) {
+                bucket.remove(env);
+                if (bucket.isEmpty()) index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Compute the join key for an environment. For single variable joins this
+     * is just the key for that variable's value, otherwise it is a list of
+     * the individual keys.
+     * @return the key or null if one of the join values can't be hashed
+     */
+    protected Object joinKey(Node[] envNodes) {
+        if (matchIndices.length == 1) {
+            return keyFor(envNodes[matchIndices[0]]);
+        }
+        Object[] keys = new Object[matchIndices.length];
+        for (int i = 0; i < matchIndices.length; i++) {
+            Object key = keyFor(envNodes[matchIndices[i]]);
+            if (key == null) return null;
+            keys[i] = key;
+        }
+        return Arrays.asList(keys);
+    }
+
+    /**
+     * Return a hash key for a single bound node such that nodes which are
+     * sameValueAs each other have equal keys, or null if we can't guarantee
+     * that for this node or it is not bound.
+     */
+    public static Object keyFor(Node n) {
+        if (n == null) {
+            return null;
+        } else if (n.isLiteral()) {
+            LiteralLabel label = n.getLiteral();
+            RDFDatatype dt = label.getDatatype();
+            if (dt != null && !(dt instanceof XSDDatatype) && !(dt instanceof Functor.FunctorDatatype)) {
+                return null;
+            }
+            Object value = label.getIndexingValue();
+            if (value instanceof BigDecimal) {
+                // BigDecimal.equals is sensitive to scale, sameValueAs is not
+                BigDecimal d = (BigDecimal)value;
+                return d.signum() == 0 ? BigDecimal.ZERO : d.stripTrailingZeros();
+            }
+            return value;
+        }
+        return n;
+    }
+
+    /**
+     * Create a new, empty and unlinked hashed queue with the same join indices.
+     */
+    @Override
+    protected RETEQueue createEmptyCopy() {
+        return new RETEHashedQueue(matchIndices);
+    }
+}
@@ -95,6 +95,7 @@ public class RETEQueue implements RETESinkNode, RETESourceNode {
             // no entry yet
             if (!isAdd) return;
             queue.put(env, new Count(1));
+            tokenAdded(env);
         } else {
             if (isAdd) {
                 count.inc();
@@ -102,14 +103,15 @@ public class RETEQueue implements RETESinkNode, RETESourceNode {
                 count.dec();
                 if (count.getCount() == 0) {
                     queue.remove(env);
+                    tokenRemoved(env);
                 }
             }
         }
         
         // Cross match new token against the entries in the sibling queue
-        for (Iterator<BindingVector> i = sibling.queue.keySet().iterator(); i.hasNext(); ) {
+        Node[] envNodes = env.getEnvironment();
+        for (Iterator<BindingVector> i = sibling.candidatesFor(envNodes); i.hasNext(); ) {
             Node[] candidate = i.next().getEnvironment();
-            Node[] envNodes = env.getEnvironment();
             boolean matchOK = true;
             for (int j = 0; j < matchIndices.length; j++) {
                 int index = matchIndices[j];
@@ -131,6 +133,30 @@ public class RETEQueue implements RETESinkNode, RETESourceNode {
             }
         }
     }
+    
+    /**
+     * Return the stored tokens which might join with the given environment
+     * coming from the sibling queue. This version returns every stored token,
+     * subclasses may narrow the set using an index over the join variables.
+     * All candidates are still checked for a match by the caller. 
+     */
+    protected Iterator<BindingVector> candidatesFor(Node[] envNodes) {
+        return queue.keySet().iterator();
+    }
+    
+    /**
+     * Hook called when a new distinct token has been added to the store.
+     */
+    protected void tokenAdded(BindingVector env) {
+        // No index to maintain in the basic queue
+    }
+    
+    /**
+     * Hook called when the last copy of a token has been removed from the store.
+     */
+    protected void tokenRemoved(BindingVector env) {
+        // No index to maintain in the basic queue
+    }
 
     /**
      * Inner class used to represent an updatable count.
@@ -165,6 +191,14 @@ public class RETEQueue implements RETESinkNode, RETESourceNode {
         }
     }
     
+    /**
+     * Create a new, empty and unlinked queue of the same type and join shape 
+     * as this one. Used during cloning.
+     */
+    protected RETEQueue createEmptyCopy() {
+        return new RETEQueue(matchIndices);
+    }
+    
     /**
      * Clone this node in the network.
      * @param context the new context to which the network is being ported
@@ -173,11 +207,15 @@ public class RETEQueue implements RETESinkNode, RETESourceNode {
     public RETENode clone(Map<RETENode, RETENode> netCopy, RETERuleContext context) {
         RETEQueue clone = (RETEQueue)netCopy.get(this);
         if (clone == null) {
-            clone = new RETEQueue(matchIndices);
+            clone = createEmptyCopy();
             netCopy.put(this, clone);
             clone.setSibling((RETEQueue)sibling.clone(netCopy, context));
             clone.setContinuation((RETESinkNode)continuation.clone(netCopy, context));
-            clone.queue.putAll(queue);
+            // Copy the counts as well, the clone may see deletions the original does not
+            for (Map.Entry<BindingVector, Count> entry : queue.entrySet()) {
+                clone.queue.put(entry.getKey(), new Count(entry.getValue().getCount()));
+                clone.tokenAdded(entry.getKey());
+            }
         }
         return clone;
     }
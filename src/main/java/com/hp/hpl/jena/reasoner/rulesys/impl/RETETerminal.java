@@ -74,6 +74,8 @@ public class RETETerminal implements RETESinkNode {
      */
     @Override
     public void fire(BindingVector env, boolean isAdd) {
+        // In a saturation round the guards are checked when the firing is run
+        if (isAdd && context.getEngine().deferFiring(this, env)) return;
         Rule rule = context.getRule();
         context.setEnv(env);
         
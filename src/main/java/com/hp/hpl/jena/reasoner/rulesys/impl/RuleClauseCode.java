@@ -50,6 +50,9 @@ public class RuleClauseCode {
     
     /** starting byte code offset for body terms */
     protected int[] termStart;
+    
+    /** The compiled JVM form of the byte codes, null if the clause is interpreted */
+    protected CompiledClause compiled;
      
 //  =======================================================================
 //  Instruction set constants
@@ -177,6 +180,14 @@ public class RuleClauseCode {
         return args;
     }
     
+    /**
+     * Return the JVM class compiled from this clauses' byte codes, or null
+     * if the clause is interpreted.
+     */
+    public CompiledClause getCompiled() {
+        return compiled;
+    }
+    
     /**
      * Return the rule from which this code block was compiled.
      */
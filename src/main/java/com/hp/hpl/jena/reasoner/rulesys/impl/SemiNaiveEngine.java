@@ -0,0 +1,1042 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.impl;
+
+import java.util.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.*;
+import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.util.PrintUtil;
+
+/**
+ * A semi-naive, set at a time, version of the forward rule engine. It
+ * needs to reference an enclosing ForwardInfGraphI which holds the raw
+ * data and deductions.
+ * <p>
+ * The engine keeps its own store of the triples the rules can match,
+ * encoded as integer ids from a dictionary of the nodes, with hash indexes
+ * on the predicate, subject and object. Nodes which are the same value,
+ * such as equal typed literals, keep their own ids but share a value id,
+ * which the indexes, constants and joins use so that nodes are matched with
+ * sameValueAs as in the other engines. The rules are run in rounds.
+ * In each round every rule body is evaluated as a chain of hash joins in
+ * which one clause is matched against the triples added by the previous
+ * round (the delta), the clauses before it against the triples known before
+ * that round and the clauses after it against all the triples known at the
+ * start of the round. Each match of a rule body is therefore found exactly
+ * once. The deductions of a round form the delta of the next one.</p>
+ * <p>
+ * Like the RETE engine it only sees the triples it is given and the
+ * triples it deduces. Deletes are not handled incrementally, and triples
+ * removed by rule actions such as remove and drop stay visible to the rules,
+ * so the engine is meant for monotonic rule sets.</p>
+ */
+public class SemiNaiveEngine implements FRuleEngineI {
+    
+    /** The parent InfGraph which is employing this engine instance */
+    protected ForwardRuleInfGraphI infGraph;
+    
+    /** Set of rules being used */
+    protected List<Rule> rules;
+    
+    /** The compiled forms of the forward rules with at least one triple pattern in their body */
+    protected List<RulePlan> plans;
+    
+    /** List of predicates used in rules to assist in fast data loading */
+    protected HashSet<Node> predicatesUsed;
+    
+    /** Flag, if true then there is a wildcard predicate in the rule set so that selective insert is not useful */
+    protected boolean wildcardRule;
+     
+    /** Set to true to flag that derivations should be logged */
+    protected boolean recordDerivations;
+    
+    /** The triples known to the engine */
+    protected Facts facts;
+    
+    /** The number of triples in the store which have been run through the rules */
+    protected int processed;
+    
+    /** The context used to run builtins and rule heads */
+    protected BFRuleContext context;
+    
+    /** The bindings of the rule being matched, the id of each variable or -1 */
+    protected int[] bindings = new int[0];
+    
+    /** The variables bound so far by the rule being matched, so they can be unbound again */
+    protected int[] trail = new int[8];
+    
+    /** The number of entries in the trail */
+    protected int trailTop;
+    
+    /** performance stats - number of rules fired */
+    long nRulesFired = 0;
+    
+    /** performance stats - number of rounds run */
+    long nRounds = 0;
+    
+    /** Pattern code for a wildcard */
+    static final int ANY = -1;
+    
+    /** Pattern code for a functor, which is matched structurally */
+    static final int FUNCTOR = -2;
+    
+    protected static Logger logger = LoggerFactory.getLogger(FRuleEngine.class);
+    
+//  =======================================================================
+//  Constructors
+
+    /**
+     * Constructor.
+     * @param parent the F or FB infGraph that it using this engine, the parent graph
+     * holds the deductions graph and source data.
+     * @param rules the rule set to be processed
+     */
+    public SemiNaiveEngine(ForwardRuleInfGraphI parent, List<Rule> rules) {
+        infGraph = parent;
+        this.rules = rules;
+    }
+
+    /**
+     * Constructor. Build an empty engine to which rules must be added
+     * using setRuleStore().
+     * @param parent the F or FB infGraph that it using this engine, the parent graph
+     * holds the deductions graph and source data.
+     */
+    public SemiNaiveEngine(ForwardRuleInfGraphI parent) {
+        infGraph = parent;
+    }
+    
+//  =======================================================================
+//  Control methods
+
+    /**
+     * Process all available data. This should be called once a deductions graph
+     * has be prepared and loaded with any precomputed deductions. It will process
+     * the rule axioms and all relevant existing exiting data entries.
+     * @param ignoreBrules set to true if rules written in backward notation should be ignored
+     * @param inserts the set of triples to be processed, normally this is the
+     * raw data graph but may include additional deductions made by preprocessing hooks
+     */
+    @Override
+    public void init(boolean ignoreBrules, Finder inserts) {
+        facts = new Facts();
+        processed = 0;
+        compile(rules, ignoreBrules);
+        findAndProcessAxioms();
+        insertAndRun(inserts);
+    }
+    
+    /**
+     * Process all available data. This version expects that all the axioms 
+     * have already be preprocessed and the rules already compiled.
+     * @param inserts the set of triples to be processed, normally this is the
+     * raw data graph but may include additional deductions made by preprocessing hooks
+     */
+    @Override
+    public void fastInit(Finder inserts) {
+        if (facts == null) facts = new Facts();
+        insertAndRun(inserts);
+    }
+
+    /**
+     * Add one triple to the data graph, run any rules triggered by
+     * the new data item, recursively adding any generated triples.
+     */
+    @Override
+    public synchronized void add(Triple t) {
+        facts.add(t);
+        run();
+    }
+    
+    /**
+     * Remove one triple to the data graph.
+     * @return true if the effects could be correctly propagated or
+     * false if not (in which case the entire engine should be restarted).
+     */
+    @Override
+    public synchronized boolean delete(Triple t) {
+        // Incremental delete not supported
+        return false;
+    }
+    
+    /**
+     * Return the number of rules fired since this rule engine instance
+     * was created and initialized
+     */
+    @Override
+    public long getNRulesFired() {
+        return nRulesFired;
+    }
+    
+    /**
+     * Return the number of rounds run since this rule engine instance
+     * was created and initialized
+     */
+    public long getNRounds() {
+        return nRounds;
+    }
+    
+    /**
+     * Return true if the internal engine state means that tracing is worthwhile.
+     * It will return false during the axiom bootstrap phase.
+     */
+    @Override
+    public boolean shouldTrace() {
+        return true;
+    }
+
+    /**
+     * Set to true to enable derivation caching
+     */
+    @Override
+    public void setDerivationLogging(boolean recordDerivations) {
+        this.recordDerivations = recordDerivations;
+    }
+    
+    /**
+     * Access the precomputed internal rule form. Used when precomputing the
+     * internal axiom closures. The store includes the triples known to the
+     * engine, whose ids the compiled rules refer to.
+     */
+    @Override
+    public Object getRuleStore() {
+        return new RuleStore(plans, predicatesUsed, wildcardRule, facts);
+    }
+    
+    /**
+     * Set the internal rule from from a precomputed state. The engine starts
+     * from a copy of the triples known to the engine which made the store,
+     * all of which have already been run through the rules.
+     */
+    @Override
+    public void setRuleStore(Object ruleStore) {
+        RuleStore rs = (RuleStore)ruleStore;
+        plans = rs.plans;
+        predicatesUsed = rs.predicatesUsed;
+        wildcardRule = rs.wildcardRule;
+        facts = rs.facts.copy();
+        processed = facts.size;
+    }
+    
+//  =======================================================================
+//  Compiler support  
+
+    /**
+     * Compile a list of rules into the internal rule store representation.
+     * The constants of the rules are entered in the dictionary of the
+     * current store.
+     * @param rules the list of Rule objects
+     * @param ignoreBrules set to true if rules written in backward notation should be ignored
+     */
+    public void compile(List<Rule> rules, boolean ignoreBrules) {
+        plans = new ArrayList<RulePlan>();
+        predicatesUsed = new HashSet<Node>();
+        wildcardRule = false;
+        for (Iterator<Rule> i = rules.iterator(); i.hasNext(); ) {
+            Rule r = i.next();
+            if (ignoreBrules && r.isBackward()) continue;
+            List<ClausePattern> patterns = new ArrayList<ClausePattern>();
+            for (int j = 0; j < r.bodyLength(); j++) {
+                Object clause = r.getBodyElement(j);
+                if (clause instanceof TriplePattern) {
+                    TriplePattern pattern = (TriplePattern) clause;
+                    patterns.add(new ClausePattern(pattern, facts));
+                    Node predicate = pattern.getPredicate();
+                    if (predicate.isVariable() || predicate.equals(Node.ANY)) {
+                        wildcardRule = true;
+                    } else {
+                        predicatesUsed.add(predicate);
+                    }
+                }
+            }
+            if (!patterns.isEmpty()) {
+                plans.add(new RulePlan(r, patterns.toArray(new ClausePattern[patterns.size()])));
+            }
+        }
+        if (wildcardRule) predicatesUsed = null;
+    }
+    
+//  =======================================================================
+//  Internal methods
+
+    /**
+     * Scan the rules for any axioms and add their triples to the store,
+     * and their backward rules to the graph.
+     */
+    protected void findAndProcessAxioms() {
+        BFRuleContext axiomContext = new BFRuleContext(infGraph);
+        for (Iterator<Rule> i = rules.iterator(); i.hasNext(); ) {
+            Rule r = i.next();
+            if (r.bodyLength() == 0) {
+                for (int j = 0; j < r.headLength(); j++) {
+                    Object head = r.getHeadElement(j);
+                    if (head instanceof TriplePattern) {
+                        TriplePattern h = (TriplePattern) head;
+                        Triple t = new Triple(h.getSubject(), h.getPredicate(), h.getObject());
+                        if (!facts.contains(t) && !axiomContext.contains(t)) {
+                            infGraph.addDeduction(t);
+                        }
+                        facts.add(t);
+                    } else if (head instanceof Rule) {
+                        Rule b = (Rule) head;
+                        if (b.isBackward()) {
+                            infGraph.addBRule(b);
+                        } else {
+                            throw new ReasonerException("Found non-backward subrule : " + b); 
+                        }
+                    }
+                }
+            }
+        }
+    }
+        
+    /**
+     * Scan the rules for any actions and run those
+     */
+    protected void findAndProcessActions() {
+        BFRuleContext actionContext = new BFRuleContext(infGraph);
+        for (Iterator<Rule> i = rules.iterator(); i.hasNext(); ) {
+            Rule r = i.next();
+            if (r.bodyLength() == 0) {
+                for (int j = 0; j < r.headLength(); j++) {
+                    Object head = r.getHeadElement(j);
+                    if (head instanceof Functor) {
+                        Functor f = (Functor)head;
+                        Builtin imp = f.getImplementor();
+                        if (imp != null) {
+                            actionContext.setRule(r);
+                            imp.headAction(f.getArgs(), f.getArgLength(), actionContext);
+                        } else {
+                            throw new ReasonerException("Invoking undefined Functor " + f.getName() +" in " + r.toShortString());
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Run the rule actions, add the relevant triples of the inserts to the
+     * store and run the rules to a fixpoint.
+     */
+    private void insertAndRun(Finder inserts) {
+        if (rules != null) findAndProcessActions();
+        if (wildcardRule) {
+            for (Iterator<Triple> i = inserts.find(new TriplePattern(null, null, null)); i.hasNext(); ) {
+                facts.add(i.next());
+            }
+        } else {
+            for (Iterator<Node> p = predicatesUsed.iterator(); p.hasNext(); ) {
+                Node predicate = p.next();
+                for (Iterator<Triple> i = inserts.find(new TriplePattern(null, predicate, null)); i.hasNext(); ) {
+                    facts.add(i.next());
+                }
+            }
+        }
+        run();
+    }
+    
+    /**
+     * Run rounds of the rules until no new triples are deduced.
+     */
+    private void run() {
+        if (context == null) context = new BFRuleContext(infGraph);
+        while (processed < facts.size) {
+            int deltaStart = processed;
+            int deltaEnd = facts.size;
+            nRounds++;
+            if (infGraph.shouldTrace()) {
+                logger.debug("Round " + nRounds + ": " + (deltaEnd - deltaStart) + " new triples");
+            }
+            for (Iterator<RulePlan> i = plans.iterator(); i.hasNext(); ) {
+                RulePlan plan = i.next();
+                if (bindings.length < plan.numVars) bindings = new int[plan.numVars];
+                Arrays.fill(bindings, -1);
+                for (int d = 0; d < plan.patterns.length; d++) {
+                    runDelta(plan, d, deltaStart, deltaEnd);
+                }
+            }
+            processed = deltaEnd;
+        }
+    }
+    
+    /**
+     * Find the matches of a rule body in which the given clause matches a
+     * triple of the delta, and fire the rule for each.
+     */
+    private void runDelta(RulePlan plan, int d, int deltaStart, int deltaEnd) {
+        ClausePattern pattern = plan.patterns[d];
+        if (pattern.p >= 0) {
+            // Triples are chained newest first, so the delta is a run of the chain
+            for (int f = facts.byPredicate.first(pattern.p); f >= deltaStart; f = facts.byPredicate.next[f]) {
+                if (f < deltaEnd) joinFrom(plan, d, f, deltaStart, deltaEnd);
+            }
+        } else {
+            for (int f = deltaStart; f < deltaEnd; f++) {
+                joinFrom(plan, d, f, deltaStart, deltaEnd);
+            }
+        }
+    }
+    
+    /**
+     * Match a triple of the delta against a clause and join the rest of the body.
+     */
+    private void joinFrom(RulePlan plan, int d, int f, int deltaStart, int deltaEnd) {
+        int mark = trailTop;
+        if (match(plan.patterns[d], f)) {
+            join(plan, d, plan.orders[d], 0, deltaStart, deltaEnd);
+        }
+        undo(mark);
+    }
+    
+    /**
+     * Match the remaining clauses of a rule body, in the planned order, and
+     * fire the rule for each complete match. Clauses before the delta clause
+     * only match triples known before the round, those after it match any
+     * triple known at the start of the round.
+     */
+    private void join(RulePlan plan, int d, int[] order, int k, int deltaStart, int deltaEnd) {
+        if (k == order.length) {
+            fire(plan);
+            return;
+        }
+        int c = order[k];
+        ClausePattern pattern = plan.patterns[c];
+        int limit = c < d ? deltaStart : deltaEnd;
+        int s = resolve(pattern.s);
+        int p = resolve(pattern.p);
+        int o = resolve(pattern.o);
+        Index index;
+        long key;
+        if (p >= 0 && s >= 0) {
+            index = facts.byPredicateSubject;
+            key = Index.pair(p, s);
+        } else if (p >= 0 && o >= 0) {
+            index = facts.byPredicateObject;
+            key = Index.pair(p, o);
+        } else if (s >= 0) {
+            index = facts.bySubject;
+            key = s;
+        } else if (o >= 0) {
+            index = facts.byObject;
+            key = o;
+        } else if (p >= 0) {
+            index = facts.byPredicate;
+            key = p;
+        } else {
+            for (int f = 0; f < limit; f++) {
+                joinNext(plan, d, order, k, f, deltaStart, deltaEnd);
+            }
+            return;
+        }
+        for (int f = index.first(key); f >= 0; f = index.next[f]) {
+            if (f < limit) joinNext(plan, d, order, k, f, deltaStart, deltaEnd);
+        }
+    }
+    
+    /**
+     * Match a triple against the k'th clause of a join order and join the rest.
+     */
+    private void joinNext(RulePlan plan, int d, int[] order, int k, int f, int deltaStart, int deltaEnd) {
+        int mark = trailTop;
+        if (match(plan.patterns[order[k]], f)) {
+            join(plan, d, order, k + 1, deltaStart, deltaEnd);
+        }
+        undo(mark);
+    }
+    
+    /**
+     * Return the value id a pattern code stands for under the current bindings,
+     * or -1 if it is not bound to a single node.
+     */
+    private int resolve(int code) {
+        if (code >= 0) return code;
+        if (code <= -3 && bindings[-3 - code] >= 0) return facts.values[bindings[-3 - code]];
+        return -1;
+    }
+    
+    /**
+     * Test if a triple in the store matches a clause, extending the bindings.
+     * The bindings may be partially extended if the match fails.
+     */
+    private boolean match(ClausePattern pattern, int f) {
+        return match(pattern.p, pattern.pattern.getPredicate(), facts.predicates[f])
+            && match(pattern.o, pattern.pattern.getObject(), facts.objects[f])
+            && match(pattern.s, pattern.pattern.getSubject(), facts.subjects[f]);
+    }
+    
+    /**
+     * Test if a node id matches a pattern code, extending the bindings.
+     * @param code the pattern code
+     * @param node the pattern node, used for functors
+     * @param id the id of the node in the triple
+     */
+    private boolean match(int code, Node node, int id) {
+        if (code >= 0) {
+            return code == facts.values[id];
+        } else if (code == ANY) {
+            return true;
+        } else if (code == FUNCTOR) {
+            return matchFunctor(node, facts.nodes[id]);
+        } else {
+            return bind(-3 - code, id);
+        }
+    }
+    
+    /**
+     * Test if a node matches a functor pattern, extending the bindings.
+     */
+    private boolean matchFunctor(Node pattern, Node node) {
+        if (pattern instanceof Node_RuleVariable) {
+            return bind(((Node_RuleVariable)pattern).getIndex(), facts.intern(node));
+        } else if (pattern instanceof Node_ANY) {
+            return true;
+        } else if (Functor.isFunctor(pattern)) {
+            if (!Functor.isFunctor(node)) return false;
+            Functor patternF = (Functor) pattern.getLiteralValue();
+            Functor nodeF = (Functor) node.getLiteralValue();
+            if (!patternF.getName().equals(nodeF.getName())) return false;
+            Node[] patternArgs = patternF.getArgs();
+            Node[] nodeArgs = nodeF.getArgs();
+            if (patternArgs.length != nodeArgs.length) return false;
+            for (int i = 0; i < patternArgs.length; i++) {
+                if (!matchFunctor(patternArgs[i], nodeArgs[i])) return false;
+            }
+            return true;
+        } else {
+            return pattern.sameValueAs(node);
+        }
+    }
+    
+    /**
+     * Bind a variable to a node id, or check its existing binding.
+     */
+    private boolean bind(int var, int id) {
+        int current = bindings[var];
+        if (current >= 0) return current == id || facts.values[current] == facts.values[id];
+        bindings[var] = id;
+        if (trailTop == trail.length) {
+            int[] newTrail = new int[trailTop * 2];
+            System.arraycopy(trail, 0, newTrail, 0, trailTop);
+            trail = newTrail;
+        }
+        trail[trailTop++] = var;
+        return true;
+    }
+    
+    /**
+     * Unbind the variables bound since the given trail mark.
+     */
+    private void undo(int mark) {
+        while (trailTop > mark) {
+            bindings[trail[--trailTop]] = -1;
+        }
+    }
+    
+    /**
+     * Fire a rule for the current bindings: check the guard clauses and
+     * then run the head. New triples go to the deductions graph and to the
+     * store, where they form part of the delta of the next round.
+     */
+    private void fire(RulePlan plan) {
+        Rule rule = plan.rule;
+        context.resetEnv(plan.numVars);
+        context.setRule(rule);
+        BindingStack env = context.getEnvStack();
+        for (int v = 0; v < plan.numVars; v++) {
+            if (bindings[v] >= 0) env.bind(v, facts.nodes[bindings[v]]);
+        }
+        // Check any non-pattern clauses 
+        for (int i = 0; i < rule.bodyLength(); i++) {
+            Object clause = rule.getBodyElement(i);
+            if (clause instanceof Functor) {
+                if (!((Functor)clause).evalAsBodyClause(context)) {
+                    return;       // guard failed
+                }
+            }
+        }
+        nRulesFired++;
+        if (infGraph.shouldTrace()) {
+            logger.info("Fired rule: " + rule.toShortString() + " = " + rule.instantiate(env));
+        }
+        List<Triple> matchList = null;
+        if (recordDerivations) {
+            // Create derivation record
+            matchList = new ArrayList<Triple>(rule.bodyLength());
+            for (int i = 0; i < rule.bodyLength(); i++) {
+                Object clause = rule.getBodyElement(i);
+                if (clause instanceof TriplePattern) {
+                    matchList.add(env.instantiate((TriplePattern)clause));
+                } 
+            }
+        }
+        for (int i = 0; i < rule.headLength(); i++) {
+            Object hClause = rule.getHeadElement(i);
+            if (hClause instanceof TriplePattern) {
+                Triple t = env.instantiate((TriplePattern) hClause);
+                if (!facts.contains(t) && !context.contains(t)) {
+                    context.add(t);
+                    if (recordDerivations) {
+                        infGraph.logDerivation(t, new RuleDerivation(rule, t, matchList, infGraph));
+                    }
+                }
+            } else if (hClause instanceof Functor) {
+                Functor f = (Functor)hClause;
+                Builtin imp = f.getImplementor();
+                if (imp != null) {
+                    imp.headAction(f.getBoundArgs(env), f.getArgLength(), context);
+                } else {
+                    throw new ReasonerException("Invoking undefined Functor " + f.getName() +" in " + rule.toShortString());
+                }
+            } else if (hClause instanceof Rule) {
+                Rule r = (Rule)hClause;
+                if (r.isBackward()) {
+                    infGraph.addBRule(r.instantiate(env));
+                } else {
+                    throw new ReasonerException("Found non-backward subrule : " + r); 
+                }
+            }
+        }
+        // Assert the new triples and queue them for the next round
+        context.flushPending();
+        Triple t;
+        while ((t = context.getNextTriple()) != null) {
+            if (infGraph.shouldTrace()) {
+                logger.debug("Adding triple: " + PrintUtil.print(t));
+            }
+            facts.add(t);
+        }
+    }
+    
+//=======================================================================
+// Inner classes
+
+    /**
+     * A triple pattern from a rule body, with its nodes encoded as pattern
+     * codes: a value id for a constant, ANY, FUNCTOR, or -3 - index for a variable.
+     */
+    protected static class ClausePattern {
+        
+        /** The clause */
+        protected TriplePattern pattern;
+        
+        /** The pattern codes of the subject, predicate and object */
+        protected int s, p, o;
+        
+        /** Constructor */
+        ClausePattern(TriplePattern pattern, Facts facts) {
+            this.pattern = pattern;
+            s = code(pattern.getSubject(), facts);
+            p = code(pattern.getPredicate(), facts);
+            o = code(pattern.getObject(), facts);
+        }
+        
+        /** Return the pattern code for a node */
+        static int code(Node node, Facts facts) {
+            if (node instanceof Node_RuleVariable) {
+                return -3 - ((Node_RuleVariable)node).getIndex();
+            } else if (node instanceof Node_ANY || node.isVariable()) {
+                return ANY;
+            } else if (Functor.isFunctor(node)) {
+                return FUNCTOR;
+            } else {
+                return facts.values[facts.intern(node)];
+            }
+        }
+        
+        /** Return true if the pattern code stands for a node bound in the given set of variables */
+        static boolean isBound(int code, Set<Integer> bound) {
+            return code >= 0 || (code <= -3 && bound.contains(new Integer(-3 - code)));
+        }
+        
+        /** Add the variables of the clause to a set */
+        void addVariables(Set<Integer> vars) {
+            if (s <= -3) vars.add(new Integer(-3 - s));
+            if (p <= -3) vars.add(new Integer(-3 - p));
+            if (o <= -3) vars.add(new Integer(-3 - o));
+            if (o == FUNCTOR) {
+                List<Node> functorVars = new ArrayList<Node>();
+                addFunctorVariables(pattern.getObject(), functorVars);
+                for (Iterator<Node> i = functorVars.iterator(); i.hasNext(); ) {
+                    vars.add(new Integer(((Node_RuleVariable)i.next()).getIndex()));
+                }
+            }
+        }
+        
+        /** Collect the variables nested in a functor pattern */
+        private static void addFunctorVariables(Node node, List<Node> vars) {
+            if (node instanceof Node_RuleVariable) {
+                vars.add(node);
+            } else if (Functor.isFunctor(node)) {
+                Node[] args = ((Functor)node.getLiteralValue()).getArgs();
+                for (int i = 0; i < args.length; i++) {
+                    addFunctorVariables(args[i], vars);
+                }
+            }
+        }
+        
+        /**
+         * Score the clause as the next to join given a set of bound variables,
+         * on the same basis as FRuleEngine.scoreNodeBoundness.
+         */
+        int score(Set<Integer> bound) {
+            return score(s, bound) * 3 + score(p, bound) * 2 + score(o, bound) * 3;
+        }
+        
+        private static int score(int code, Set<Integer> bound) {
+            if (isBound(code, bound)) return 3;
+            return (code == ANY) ? 0 : 1;
+        }
+    }
+    
+    /**
+     * The compiled form of a rule: its triple patterns and, for each of them,
+     * the order in which to join the others once it has been matched.
+     */
+    protected static class RulePlan {
+        
+        /** The rule */
+        protected Rule rule;
+        
+        /** The number of variables in the rule */
+        protected int numVars;
+        
+        /** The triple patterns of the rule body, in body order */
+        protected ClausePattern[] patterns;
+        
+        /** For each pattern, the order in which to join the other patterns once it is matched */
+        protected int[][] orders;
+        
+        /** Constructor */
+        RulePlan(Rule rule, ClausePattern[] patterns) {
+            this.rule = rule;
+            this.numVars = rule.getNumVars();
+            this.patterns = patterns;
+            orders = new int[patterns.length][];
+            for (int d = 0; d < patterns.length; d++) {
+                orders[d] = plan(d);
+            }
+        }
+        
+        /**
+         * Order the remaining patterns, most bound first, given that
+         * pattern d is matched first.
+         */
+        private int[] plan(int d) {
+            Set<Integer> bound = new HashSet<Integer>();
+            patterns[d].addVariables(bound);
+            boolean[] done = new boolean[patterns.length];
+            done[d] = true;
+            int[] order = new int[patterns.length - 1];
+            for (int k = 0; k < order.length; k++) {
+                int best = -1;
+                int bestscore = -1;
+                for (int i = 0; i < patterns.length; i++) {
+                    if (done[i]) continue;
+                    int score = patterns[i].score(bound);
+                    if (score > bestscore) {
+                        bestscore = score;
+                        best = i;
+                    }
+                }
+                order[k] = best;
+                done[best] = true;
+                patterns[best].addVariables(bound);
+            }
+            return order;
+        }
+    }
+    
+    /**
+     * A hash index from a long key to the triples with that key. Each key
+     * leads to the most recently added of its triples, which are chained
+     * newest first through the next array.
+     */
+    protected static class Index {
+        
+        /** The keys, open addressed */
+        protected long[] keys;
+        
+        /** One more than the first triple for each key, 0 for an empty slot */
+        protected int[] heads;
+        
+        /** The next (older) triple with the same key as each triple, or -1 */
+        protected int[] next;
+        
+        /** The number of keys */
+        protected int size;
+        
+        /** Constructor */
+        Index() {
+            keys = new long[64];
+            heads = new int[64];
+            next = new int[64];
+        }
+        
+        /** Return a key made of two ids */
+        static long pair(int a, int b) {
+            return ((long)a << 32) | (b & 0xffffffffL);
+        }
+        
+        /** Return the slot for a key, either holding it or empty */
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            int mask = keys.length - 1;
+            int i = (int)(h ^ (h >>> 32)) & mask;
+            while (heads[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+        
+        /** Return the newest triple with the given key, or -1 if there is none */
+        int first(long key) {
+            return heads[slot(key)] - 1;
+        }
+        
+        /** Add a triple under a key */
+        void add(long key, int f) {
+            if (f >= next.length) {
+                next = Arrays.copyOf(next, Math.max(f + 1, next.length * 2));
+            }
+            int i = slot(key);
+            if (heads[i] == 0) {
+                keys[i] = key;
+                next[f] = -1;
+                heads[i] = f + 1;
+                if (++size * 2 > keys.length) grow();
+            } else {
+                next[f] = heads[i] - 1;
+                heads[i] = f + 1;
+            }
+        }
+        
+        /** Double the table of keys */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new long[oldKeys.length * 2];
+            heads = new int[oldHeads.length * 2];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldHeads[j] != 0) {
+                    int i = slot(oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    heads[i] = oldHeads[j];
+                }
+            }
+        }
+        
+        /** Return a copy of the index */
+        Index copy() {
+            Index index = new Index();
+            index.keys = keys.clone();
+            index.heads = heads.clone();
+            index.next = next.clone();
+            index.size = size;
+            return index;
+        }
+    }
+    
+    /**
+     * The store of triples known to the engine. Nodes are entered in a
+     * dictionary which gives each distinct node an id, and each distinct value
+     * a value id, the id of the first node entered with that value. Triples
+     * are kept as columns of node ids in the order they were added, with hash
+     * indexes by value id on the predicate, subject, object and
+     * predicate-subject and predicate-object pairs, and a hash set of the node
+     * ids to drop repeats.
+     */
+    protected static class Facts {
+        
+        /** Map from a node to its id */
+        protected Map<Node, Integer> ids = new HashMap<Node, Integer>();
+        
+        /** Map from the indexing value of a node to its value id */
+        protected Map<Object, Integer> valueIds = new HashMap<Object, Integer>();
+        
+        /** The node for each id */
+        protected Node[] nodes = new Node[64];
+        
+        /** The value id of each id */
+        protected int[] values = new int[64];
+        
+        /** The number of ids */
+        protected int nodeCount;
+        
+        /** The subject, predicate and object ids of each triple */
+        protected int[] subjects = new int[64], predicates = new int[64], objects = new int[64];
+        
+        /** The number of triples */
+        protected int size;
+        
+        /** The indexes */
+        protected Index byPredicate = new Index(), bySubject = new Index(), byObject = new Index(),
+            byPredicateSubject = new Index(), byPredicateObject = new Index();
+        
+        /** Open addressed set of the triples, one more than each triple, 0 for an empty slot */
+        protected int[] table = new int[128];
+        
+        /**
+         * Return the key used to give the same value id to nodes with the same
+         * value. Ill-formed typed literals only have the same value as other
+         * ill-formed literals with the same lexical form and language.
+         */
+        private static Object valueKeyFor(Node node) {
+            if (node.isLiteral() && node.getLiteralDatatype() != null && !node.getLiteral().isWellFormed()) {
+                return Arrays.asList("ill-formed", node.getLiteralLexicalForm(), node.getLiteralLanguage().toLowerCase());
+            }
+            return node.getIndexingValue();
+        }
+        
+        /** Return the id of a node, entering it in the dictionary if it is new */
+        int intern(Node node) {
+            Integer id = ids.get(node);
+            if (id != null) return id.intValue();
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodeCount * 2);
+                values = Arrays.copyOf(values, nodeCount * 2);
+            }
+            nodes[nodeCount] = node;
+            ids.put(node, new Integer(nodeCount));
+            Object key = valueKeyFor(node);
+            Integer value = valueIds.get(key);
+            if (value == null) {
+                value = new Integer(nodeCount);
+                valueIds.put(key, value);
+            }
+            values[nodeCount] = value.intValue();
+            return nodeCount++;
+        }
+        
+        /** Return the id of a node, or -1 if it is not in the dictionary */
+        int lookup(Node node) {
+            Integer id = ids.get(node);
+            return (id == null) ? -1 : id.intValue();
+        }
+        
+        /** Return the slot of the set for a triple, either holding it or empty */
+        private int slot(int s, int p, int o) {
+            int mask = table.length - 1;
+            int i = ((s * 31 + p) * 31 + o) * 0x9E3779B9;
+            i = (i ^ (i >>> 16)) & mask;
+            while (table[i] != 0) {
+                int f = table[i] - 1;
+                if (subjects[f] == s && predicates[f] == p && objects[f] == o) break;
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+        
+        /** Return true if the store holds the triple */
+        boolean contains(Triple t) {
+            int s = lookup(t.getSubject());
+            int p = lookup(t.getPredicate());
+            int o = lookup(t.getObject());
+            if (s < 0 || p < 0 || o < 0) return false;
+            return table[slot(s, p, o)] != 0;
+        }
+        
+        /** Add a triple to the store, unless it is already there */
+        void add(Triple t) {
+            int s = intern(t.getSubject());
+            int p = intern(t.getPredicate());
+            int o = intern(t.getObject());
+            int i = slot(s, p, o);
+            if (table[i] != 0) return;
+            if (size == subjects.length) {
+                subjects = Arrays.copyOf(subjects, size * 2);
+                predicates = Arrays.copyOf(predicates, size * 2);
+                objects = Arrays.copyOf(objects, size * 2);
+            }
+            int f = size++;
+            subjects[f] = s;
+            predicates[f] = p;
+            objects[f] = o;
+            table[i] = f + 1;
+            if (size * 2 > table.length) growTable();
+            int sv = values[s], pv = values[p], ov = values[o];
+            byPredicate.add(pv, f);
+            bySubject.add(sv, f);
+            byObject.add(ov, f);
+            byPredicateSubject.add(Index.pair(pv, sv), f);
+            byPredicateObject.add(Index.pair(pv, ov), f);
+        }
+        
+        /** Double the set of triples */
+        private void growTable() {
+            table = new int[table.length * 2];
+            for (int f = 0; f < size; f++) {
+                table[slot(subjects[f], predicates[f], objects[f])] = f + 1;
+            }
+        }
+        
+        /** Return a copy of the store */
+        Facts copy() {
+            Facts facts = new Facts();
+            facts.ids = new HashMap<Node, Integer>(ids);
+            facts.valueIds = new HashMap<Object, Integer>(valueIds);
+            facts.nodes = nodes.clone();
+            facts.values = values.clone();
+            facts.nodeCount = nodeCount;
+            facts.subjects = subjects.clone();
+            facts.predicates = predicates.clone();
+            facts.objects = objects.clone();
+            facts.size = size;
+            facts.byPredicate = byPredicate.copy();
+            facts.bySubject = bySubject.copy();
+            facts.byObject = byObject.copy();
+            facts.byPredicateSubject = byPredicateSubject.copy();
+            facts.byPredicateObject = byPredicateObject.copy();
+            facts.table = table.clone();
+            return facts;
+        }
+    }
+    
+    /**
+     * Structure used to wrap up processed rule indexes.
+     */
+    public static class RuleStore {
+    
+        /** The compiled rules */
+        protected List<RulePlan> plans;
+    
+        /** List of predicates used in rules to assist in fast data loading */
+        protected HashSet<Node> predicatesUsed;
+    
+        /** Flag, if true then there is a wildcard predicate in the rule set so that selective insert is not useful */
+        protected boolean wildcardRule;
+        
+        /** The triples known to the engine, whose dictionary the compiled rules use */
+        protected Facts facts;
+        
+        /** Constructor */
+        RuleStore(List<RulePlan> plans, HashSet<Node> predicatesUsed, boolean wildcardRule, Facts facts) {
+            this.plans = plans;
+            this.predicatesUsed = predicatesUsed;
+            this.wildcardRule = wildcardRule;
+            this.facts = facts;
+        }
+    }
+
+}
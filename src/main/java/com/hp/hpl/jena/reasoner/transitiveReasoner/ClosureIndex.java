@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.reasoner.transitiveReasoner;
+
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.util.iterator.*;
+
+/**
+ * Interval index over the predecessor closure of the lead nodes in a
+ * TransitiveGraphCache (Agrawal, Borgida and Jagadish 1989).
+ * <p>
+ * Each lead node is given an integer label by a post order walk of the
+ * predecessor links which starts from the roots of the graph. The labels of
+ * the nodes reached from a node through the spanning tree of that walk form
+ * a single interval, so for tree shaped graphs the closed predecessors of a
+ * node can be held as one pair of integers. Links outside the spanning tree
+ * just add further intervals. A node A has a path to B iff the label of A lies 
+ * in one of the intervals of B, and the closed predecessors of B can be listed
+ * by running through its intervals, without walking the graph.</p>
+ * <p>
+ * Adding a link between two existing components only needs the intervals of 
+ * the target and its closed successors to be extended, new nodes are just given 
+ * fresh labels. Other changes to the graph (merging components or deleting 
+ * links) invalidate the index, which must then be rebuilt.</p>
+ */
+class ClosureIndex {
+
+    /** Label of a node which has not been reached by this index */
+    static final int UNLABELLED = -1;
+    
+    /** Label of a node whose predecessors are still being walked */
+    static final int VISITING = -2;
+    
+    /** The lead nodes, indexed by their label */
+    protected GraphNode[] nodes;
+    
+    /** The number of labels in use */
+    protected int size = 0;
+    
+    /**
+     * Constructor. Build the index for all the lead nodes in the given collection.
+     */
+    public ClosureIndex(Collection<GraphNode> graphNodes) {
+        List<GraphNode> leads = new ArrayList<GraphNode>();
+        for (Iterator<GraphNode> i = graphNodes.iterator(); i.hasNext(); ) {
+            GraphNode n = i.next();
+            if (n.leadNode() == n) {
+                n.label = UNLABELLED;
+                n.intervals = null;
+                leads.add(n);
+            }
+        }
+        nodes = new GraphNode[leads.size() + 16];
+        // Start from the roots so the spanning trees cover as much as possible
+        for (Iterator<GraphNode> i = leads.iterator(); i.hasNext(); ) {
+            GraphNode n = i.next();
+            if (n.succ.isEmpty()) labelFrom(n);
+        }
+        // Should be nothing left in a cycle free graph but be safe
+        for (Iterator<GraphNode> i = leads.iterator(); i.hasNext(); ) {
+            labelFrom(i.next());
+        }
+    }
+    
+    /**
+     * Label all the unlabelled nodes which can reach the given root, 
+     * in post order. Iterative since deep hierarchies would overflow the stack.
+     */
+    private void labelFrom(GraphNode root) {
+        if (root.label != UNLABELLED) return;
+        ArrayList<GraphNode> nodeStack = new ArrayList<GraphNode>();
+        ArrayList<Iterator<GraphNode>> iteratorStack = new ArrayList<Iterator<GraphNode>>();
+        ArrayList<Integer> lowStack = new ArrayList<Integer>();
+        root.label = VISITING;
+        nodeStack.add(root);
+        iteratorStack.add(root.pred.iterator());
+        lowStack.add(size);
+        while (!nodeStack.isEmpty()) {
+            int top = nodeStack.size() - 1;
+            Iterator<GraphNode> it = iteratorStack.get(top);
+            if (it.hasNext()) {
+                GraphNode p = it.next();
+                if (p.label == UNLABELLED) {
+                    p.label = VISITING;
+                    nodeStack.add(p);
+                    iteratorStack.add(p.pred.iterator());
+                    lowStack.add(size);
+                }
+            } else {
+                GraphNode n = nodeStack.remove(top);
+                iteratorStack.remove(top);
+                int low = lowStack.remove(top);
+                int label = newLabel(n);
+                // The spanning tree below n plus whatever its predecessors reach
+                int[] intervals = new int[] {low, label};
+                for (Iterator<GraphNode> i = n.pred.iterator(); i.hasNext(); ) {
+                    GraphNode p = i.next();
+                    if (p.intervals != null) intervals = union(intervals, p.intervals);
+                }
+                n.intervals = intervals;
+            }
+        }
+    }
+    
+    /**
+     * Allocate the next label to the given node.
+     */
+    private int newLabel(GraphNode n) {
+        if (size == nodes.length) {
+            GraphNode[] newNodes = new GraphNode[size * 2];
+            System.arraycopy(nodes, 0, newNodes, 0, size);
+            nodes = newNodes;
+        }
+        n.label = size;
+        nodes[size] = n;
+        return size++;
+    }
+    
+    /**
+     * Return true if the given lead node is labelled by this index.
+     */
+    private boolean isLabelled(GraphNode n) {
+        return n.label >= 0 && n.label < size && nodes[n.label] == n;
+    }
+    
+    /**
+     * Make sure the given lead node, which might be new to the graph, is labelled.
+     */
+    private void ensureLabelled(GraphNode n) {
+        if (!isLabelled(n)) {
+            int label = newLabel(n);
+            n.intervals = new int[] {label, label};
+        }
+    }
+    
+    /**
+     * Update the index after a new link from start to end, two lead nodes
+     * which are not in the same component. Must be called before the
+     * closed successors of end are changed.
+     */
+    public void addLink(GraphNode start, GraphNode end) {
+        ensureLabelled(start);
+        ensureLabelled(end);
+        int[] added = start.intervals;
+        end.intervals = union(end.intervals, added);
+        for (Iterator<GraphNode> i = end.succClosed.iterator(); i.hasNext(); ) {
+            GraphNode s = i.next();
+            ensureLabelled(s);
+            s.intervals = union(s.intervals, added);
+        }
+    }
+    
+    /**
+     * Return true if there is a path from the lead node from to the lead node to.
+     */
+    public boolean pathTo(GraphNode from, GraphNode to) {
+        if (!isLabelled(from) || !isLabelled(to)) return from == to;
+        int[] intervals = to.intervals;
+        int label = from.label;
+        // Binary search for the last interval starting at or before label
+        int lo = 0, hi = intervals.length / 2 - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (intervals[mid * 2] <= label) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi >= 0 && label <= intervals[hi * 2 + 1];
+    }
+    
+    /**
+     * Return an iterator over the triples linking each closed predecessor 
+     * of the given node to it.
+     * @param node the graph node for rdfNode
+     * @param rdfNode the RDF node whose predecessors are wanted
+     * @param predicate the predicate for the returned triples
+     */
+    public ExtendedIterator<Triple> listPredecessorTriples(GraphNode node, Node rdfNode, Node predicate) {
+        GraphNode lead = node.leadNode();
+        if (!isLabelled(lead)) {
+            return new SingletonIterator<Triple>(new Triple(rdfNode, predicate, rdfNode));
+        }
+        return new IntervalWalker(lead.intervals, rdfNode, predicate);
+    }
+    
+    /**
+     * Return the union of two sorted lists of disjoint intervals, merging
+     * those that overlap or are adjacent.
+     */
+    static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int n = 0, i = 0, j = 0;
+        while (i < a.length || j < b.length) {
+            int lo, hi;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                lo = a[i]; hi = a[i + 1]; i += 2;
+            } else {
+                lo = b[j]; hi = b[j + 1]; j += 2;
+            }
+            if (n > 0 && lo <= result[n - 1] + 1) {
+                if (hi > result[n - 1]) result[n - 1] = hi;
+            } else {
+                result[n++] = lo;
+                result[n++] = hi;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+    
+    /**
+     * Iterator over the nodes whose labels fall within a set of intervals,
+     * together with their aliases, returning a triple linking each to the root.
+     */
+    class IntervalWalker extends NiceIterator<Triple> {
+        
+        /** The intervals being walked */
+        final int[] intervals;
+        
+        /** The root node for reconstructing triples */
+        final Node root;
+        
+        /** The predicate for reconstructing triples */
+        final Node predicate;
+        
+        /** Index of the current interval */
+        int interval = 0;
+        
+        /** The next label to visit in the current interval */
+        int label;
+        
+        /** The last node visited */
+        GraphNode current;
+        
+        /** Iterator over the aliases of the last node visited */
+        Iterator<GraphNode> aliasIterator = null;
+        
+        /** The next value to be returned */
+        Triple next;
+        
+        IntervalWalker(int[] intervals, Node root, Node predicate) {
+            this.intervals = intervals;
+            this.root = root;
+            this.predicate = predicate;
+            this.label = intervals.length > 0 ? intervals[0] : 0;
+            next = new Triple(root, predicate, root);   // implicit reflexive case
+        }
+        
+        @Override public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override public Triple next() {
+            if (next == null) throw new NoSuchElementException();
+            Triple toReturn = next;
+            walkOne();
+            return toReturn;
+        }
+        
+        protected void walkOne() {
+            while (true) {
+                if (aliasIterator != null) {
+                    while (aliasIterator.hasNext()) {
+                        Node alias = aliasIterator.next().rdfNode;
+                        if (!alias.equals(root) && !alias.equals(current.rdfNode)) {
+                            next = new Triple(alias, predicate, root);
+                            return;
+                        }
+                    }
+                    aliasIterator = null;
+                }
+                if (interval >= intervals.length) {
+                    next = null;
+                    return;
+                }
+                if (label > intervals[interval + 1]) {
+                    interval += 2;
+                    if (interval < intervals.length) label = intervals[interval];
+                    continue;
+                }
+                current = nodes[label++];
+                aliasIterator = current.siblingIterator();
+                if (!current.rdfNode.equals(root)) {
+                    next = new Triple(current.rdfNode, predicate, root);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -45,6 +45,12 @@ class GraphNode {
 	/** An optional cache of the triples that represent succClosed */
 	protected List<Triple> succClosedTriples;
 	
+	/** The label of this node in the ClosureIndex, if any */
+	protected int label = ClosureIndex.UNLABELLED;
+	
+	/** The intervals of ClosureIndex labels of the closed predecessors of this node */
+	protected int[] intervals;
+	
 	/** 
 	     Plain Siblings for simple nodes. For the lead node in a SCC will be a Leader
 	     with components containing all the nodes in the SCC. For non-lead nodes 
@@ -92,7 +92,8 @@ public class TransitiveEngine {
     }
    
     /**
-     * Constructor.
+     * Constructor. Turns on the closure indexes of the caches, the
+     * indexes are built when first queried after the caches are loaded.
      * @param subClassCache pre-initialized subclass TGC
      * @param subPropertyCache pre-initialized subproperty TGC
      */
@@ -100,6 +101,8 @@ public class TransitiveEngine {
                              TransitiveGraphCache subPropertyCache) {
          this.subClassCache = subClassCache;
          this.subPropertyCache = subPropertyCache;
+         subClassCache.setIndexing(true);
+         subPropertyCache.setIndexing(true);
     }
    
     /**
@@ -130,6 +133,8 @@ public class TransitiveEngine {
                TransitiveEngine.checkOccuranceUtility(subClassOf, newDataG, subPropertyCache))) {
              subClassCache = new TransitiveGraphCache(directSubClassOf, subClassOf);
              subPropertyCache = new TransitiveGraphCache(directSubPropertyOf, subPropertyOf);
+             subClassCache.setIndexing(true);
+             subPropertyCache.setIndexing(true);
              TransitiveEngine.cacheSubPropUtility(data, subPropertyCache);
              TransitiveEngine.cacheSubClassUtility(data, subPropertyCache, subClassCache);
          }        
@@ -38,16 +38,20 @@ import java.util.*;
  * manifested triples for the links.
  * </p><p>
  * Cycles are currently handled by collapsing strongly connected components.
- * Incremental deletes would be possible but at the price of substanially 
- * more storage and code complexity. We compromise by doing the easy cases
- * incrementally but some deletes (those that break strongly connected components)
- * will trigger a fresh rebuild.
+ * Deletes of links between different components are done incrementally, in the
+ * style of delete-and-rederive: only the nodes which can reach the start of the
+ * deleted link are revisited, in topological order, and each of them only 
+ * drops those successors which were reachable through the far end of the link
+ * and cannot be rederived from its remaining links. Deletes within a strongly
+ * connected component, which might break it, are batched up and trigger a 
+ * rebuild of the affected part of the graph.
  * </p><p>
- * TODO Combine this with interval indexes (Agrawal, Borigda and Jagadish 1989) 
- * for storing the closure of the predecessor relationship. Typical graphs
- * will be nearly tree shaped so the successor closure is modest (L^2 where
- * L is the depth of the tree branch) but the predecessor closure would be 
- * expensive. The interval index would handle predecessor closure nicely.
+ * Typical graphs will be nearly tree shaped so the successor closure is modest 
+ * (L^2 where L is the depth of the tree branch) but the predecessor closure would be 
+ * expensive to store. Instead queries for closed predecessors walk the graph, or if 
+ * indexing is enabled use an interval index (Agrawal, Borgida and Jagadish 1989) 
+ * over the predecessor closure, see ClosureIndex. The index is maintained as links are
+ * added and rebuilt on the next query after a delete or a cycle is found.
  * </p>
  * @author <a href="mailto:der@hplb.hpl.hp.com">Dave Reynolds</a>
  * @version $Revision: 1.1 $
@@ -64,6 +68,12 @@ public class TransitiveGraphCache implements Finder {
 	 *  representing the closed relation should also be cached. */
 	protected boolean cacheTriples = false;
 	
+	/** Flag controlling whether the closed predecessors are indexed */
+	protected boolean indexing = false;
+	
+	/** The interval index of the closed predecessors, null if not built or out of date */
+	protected ClosureIndex closureIndex;
+	
     /** Map from RDF Node to the corresponding Graph node. */
     protected HashMap<Node, GraphNode> nodeMap = new HashMap<Node, GraphNode>();
     
@@ -76,9 +86,10 @@ public class TransitiveGraphCache implements Finder {
     /** A list of pending deletes which break the cycle-free normal form */
     protected Set<Triple> deletesPending;
     
-	/** The original triples, needed for processing delete operations
-	 * because some information is lost in the SCC process */ 
-	protected Set<Triple> originalTriples = new HashSet<Triple>();
+	/** The original triples, indexed by subject, needed for processing delete 
+	 * operations because some information is lost in the SCC process and the
+	 * transitive reduction */ 
+	protected Map<Node, Set<Triple>> originalTriples = new HashMap<Node, Set<Triple>>();
 	
     /**
      * Inner class used to represent vistors than can be applied to each
@@ -336,7 +347,12 @@ public class TransitiveGraphCache implements Finder {
      * Register a new relation instance in the cache
      */
     public synchronized void addRelation(Triple t) {
-    	originalTriples.add(t);
+        Set<Triple> links = originalTriples.get(t.getSubject());
+        if (links == null) {
+            links = new HashSet<Triple>();
+            originalTriples.put(t.getSubject(), links);
+        }
+        links.add(t);
     	addRelation(t.getSubject(), t.getObject());
     }
     
@@ -369,12 +385,14 @@ public class TransitiveGraphCache implements Finder {
                     return null;
                 } }, members, endN);
             // Then create the SCC
+            closureIndex = null;
             startN.makeLeadNodeFor(members);
             // Now propagate the closure in the normalized graph
             startN.propagateSCC();
         } else {
 	    	// Walk all predecessors of start retracting redundant direct links
 	    	// and adding missing closed links
+            if (closureIndex != null) closureIndex.addLink(startN, endN);
 	        startN.propagateAdd(endN);
 	        startN.assertLinkTo(endN);
         }
@@ -387,52 +405,187 @@ public class TransitiveGraphCache implements Finder {
     /**
      * Remove an instance of a relation from the cache.
      */
-    public void removeRelation(Triple t) {
+    public synchronized void removeRelation(Triple t) {
     	Node start = t.getSubject();
     	Node end = t.getObject();
-    	if (start == end) {
+    	if (start.equals(end)) {
+            removeOriginal(t);
     		return;		// Reflexive case is built in
     	}
+        Set<Triple> links = originalTriples.get(start);
+        if (links == null || !links.contains(t)) {
+            return;     // Not a known link
+        }
     	GraphNode startN = getLead(start);
     	GraphNode endN = getLead(end);
-    	if (startN != endN && !(startN.directPathTo(endN))) {
-    		// indirect link can't be removed by itself
+        if (startN == endN || (deletesPending != null && !deletesPending.isEmpty())) {
+            // This is a remove of a link within an SCC, which might break it,
+            // delay as long as possible and do such deletes in a batch
+            if (deletesPending == null) {
+                deletesPending = new HashSet<Triple>();
+            }
+            deletesPending.add(t);
+            return;
+        }
+        removeOriginal(t);
+    	if (!startN.directPathTo(endN)) {
+    		// redundant link, the closure is unaffected by its removal
     		return;
     	}
-    	// This is a remove of a direct link possibly within an SCC
-    	// Delay as long as possible and do deletes in a batch
-    	if (deletesPending == null) {
-    		deletesPending = new HashSet<Triple>();
-    	}
-    	deletesPending.add(t);
+        removeLink(startN, endN);
+    }
+    
+    /**
+     * Forget an original triple.
+     */
+    private void removeOriginal(Triple t) {
+        Set<Triple> links = originalTriples.get(t.getSubject());
+        if (links != null && links.remove(t) && links.isEmpty()) {
+            originalTriples.remove(t.getSubject());
+        }
+    }
+    
+    /**
+     * Incrementally update the closed and reduced relations after the 
+     * last original link between two different lead nodes has gone. Only
+     * nodes which can reach the start node can be affected, and of their 
+     * successors only the end node and its successors can be lost.
+     */
+    private void removeLink(GraphNode startN, GraphNode endN) {
+        closureIndex = null;
+        Set<GraphNode> suspect = new HashSet<GraphNode>(endN.succClosed);
+        suspect.add(endN);
+        Set<GraphNode> changed = new HashSet<GraphNode>();
+        for (Iterator<GraphNode> i = predecessorsInOrder(startN).iterator(); i.hasNext(); ) {
+            GraphNode n = i.next();
+            Set<GraphNode> targets = linkTargets(n);
+            if (n != startN && Collections.disjoint(targets, changed)) {
+                // None of the successors of n have changed, so neither has n
+                continue;
+            }
+            // Delete those suspect successors which can't be rederived
+            boolean lost = false;
+            for (Iterator<GraphNode> j = suspect.iterator(); j.hasNext(); ) {
+                GraphNode x = j.next();
+                if (n.succClosed.contains(x) && !reachableFrom(targets, x)) {
+                    n.succClosed.remove(x);
+                    lost = true;
+                }
+            }
+            if (lost) changed.add(n);
+            // Rebuild the direct links, a target is direct unless reachable from another one
+            Set<GraphNode> direct = new HashSet<GraphNode>(targets);
+            for (Iterator<GraphNode> j = targets.iterator(); j.hasNext(); ) {
+                direct.removeAll(j.next().succClosed);
+            }
+            for (Iterator<GraphNode> j = new ArrayList<GraphNode>(n.succ).iterator(); j.hasNext(); ) {
+                GraphNode s = j.next();
+                if (!direct.contains(s)) n.retractLinkTo(s);
+            }
+            for (Iterator<GraphNode> j = direct.iterator(); j.hasNext(); ) {
+                n.assertLinkTo(j.next());
+            }
+            n.clearTripleCache();
+        }
+    }
+    
+    /**
+     * Return the given lead node and all the nodes which have a path to it,
+     * in topological order, so that each node comes after all its successors.
+     */
+    private List<GraphNode> predecessorsInOrder(GraphNode start) {
+        List<GraphNode> order = new ArrayList<GraphNode>();
+        Set<GraphNode> seen = new HashSet<GraphNode>();
+        // Iterative depth first walk, deep hierarchies would overflow the stack
+        ArrayList<GraphNode> nodeStack = new ArrayList<GraphNode>();
+        ArrayList<Iterator<GraphNode>> iteratorStack = new ArrayList<Iterator<GraphNode>>();
+        seen.add(start);
+        nodeStack.add(start);
+        iteratorStack.add(start.pred.iterator());
+        while (!nodeStack.isEmpty()) {
+            int top = nodeStack.size() - 1;
+            Iterator<GraphNode> it = iteratorStack.get(top);
+            if (it.hasNext()) {
+                GraphNode p = it.next();
+                if (seen.add(p)) {
+                    nodeStack.add(p);
+                    iteratorStack.add(p.pred.iterator());
+                }
+            } else {
+                order.add(nodeStack.remove(top));
+                iteratorStack.remove(top);
+            }
+        }
+        // Reverse post order of the walk over predecessors
+        Collections.reverse(order);
+        return order;
+    }
+    
+    /**
+     * Return the lead nodes of the targets of all the original links from 
+     * the members of the given lead node, excluding the node itself.
+     */
+    private Set<GraphNode> linkTargets(GraphNode lead) {
+        Set<GraphNode> targets = new HashSet<GraphNode>();
+        Iterator<GraphNode> members = lead.siblingIterator();
+        if (members.hasNext()) {
+            while (members.hasNext()) {
+                addLinkTargets(members.next(), lead, targets);
+            }
+        } else {
+            addLinkTargets(lead, lead, targets);
+        }
+        return targets;
+    }
+    
+    private void addLinkTargets(GraphNode member, GraphNode lead, Set<GraphNode> targets) {
+        Set<Triple> links = originalTriples.get(member.rdfNode);
+        if (links == null) return;
+        for (Iterator<Triple> i = links.iterator(); i.hasNext(); ) {
+            Triple t = i.next();
+            if (t.getSubject().equals(t.getObject())) continue;
+            GraphNode target = nodeMap.get(t.getObject()).leadNode();
+            if (target != lead) targets.add(target);
+        }
+    }
+    
+    /**
+     * Return true if the node x is one of, or a successor of one of, the targets.
+     */
+    private static boolean reachableFrom(Set<GraphNode> targets, GraphNode x) {
+        if (targets.contains(x)) return true;
+        for (Iterator<GraphNode> i = targets.iterator(); i.hasNext(); ) {
+            if (i.next().succClosed.contains(x)) return true;
+        }
+        return false;
     }
 
     /**
-     * Process outstanding delete actions
+     * Process outstanding delete actions. These may break up strongly connected
+     * components so the lead nodes which can reach the start of a deleted link
+     * are rebuilt from scratch, from the remaining original links.
      */
     private void processDeletes() {
-    	// The kernel is the set of start nodes of deleted links
-    	Set<GraphNode> kernel = new HashSet<GraphNode>();
-    	for (Iterator<Triple> i = deletesPending.iterator(); i.hasNext(); ) {
-    		Triple t = i.next();
-    		GraphNode start = nodeMap.get(t.getSubject());
-    		kernel.add(start);
-    	}
-    	
-    	// The predecessor set of kernel
+        closureIndex = null;
+    	// The kernel is the set of lead nodes of the starts of deleted links,
+    	// the pKernel is the kernel together with all its predecessors
     	Set<GraphNode> pKernel = new HashSet<GraphNode>();
-    	pKernel.addAll(kernel);
-    	for (Iterator<GraphNode> i = nodeMap.values().iterator(); i.hasNext(); ) {
-    		GraphNode n = i.next();
-    		for (Iterator<GraphNode> j = kernel.iterator(); j.hasNext();) {
-    			GraphNode target = j.next();
-    			if (n.pathTo(target)) {
-    				pKernel.add(n); break;
-    			}
+    	for (Iterator<Triple> i = deletesPending.iterator(); i.hasNext(); ) {
+    		GraphNode start = nodeMap.get(i.next().getSubject());
+    		if (start != null && !pKernel.contains(start.leadNode())) {
+    			pKernel.addAll(predecessorsInOrder(start.leadNode()));
     		}
     	}
     	
-    	// Cut the pKernel away from the finge of nodes that it connects to
+    	// Delete the triples
+        for (Iterator<Triple> i = deletesPending.iterator(); i.hasNext(); ) {
+            removeOriginal(i.next());
+        }
+    	deletesPending.clear();
+    	
+    	// Cut the pKernel away from the fringe of nodes that it connects to
+    	// and replace all its members by fresh nodes
+    	List<Node> members = new ArrayList<Node>();
     	for (Iterator<GraphNode> i = pKernel.iterator(); i.hasNext(); ) {
     		GraphNode n = i.next();
     		for (Iterator<GraphNode> j = n.succ.iterator(); j.hasNext(); ) {
@@ -441,21 +594,26 @@ public class TransitiveGraphCache implements Finder {
     				fringe.pred.remove(n);
     			}
     		}
-    		n.succ.clear();
-    		n.succClosed.clear();
-    		n.pred.clear();
+    		Iterator<GraphNode> j = n.siblingIterator();
+    		if (j.hasNext()) {
+    		    while (j.hasNext()) members.add(j.next().rdfNode);
+    		} else {
+    		    members.add(n.rdfNode);
+    		}
+    	}
+    	for (Iterator<Node> i = members.iterator(); i.hasNext(); ) {
+    	    Node m = i.next();
+    	    nodeMap.put(m, new GraphNode(m));
     	}
-    	
-    	// Delete the triples
-    	originalTriples.removeAll(deletesPending);
-    	deletesPending.clear();
     	
     	// Reinsert the remaining links
-    	for (Iterator<Triple> i = originalTriples.iterator(); i.hasNext(); ) {
-    		Triple t = i.next();
-    		GraphNode n = nodeMap.get(t.getSubject());
-    		if (pKernel.contains(n)) {
-    			addRelation(t);
+    	for (Iterator<Node> i = members.iterator(); i.hasNext(); ) {
+    		Set<Triple> links = originalTriples.get(i.next());
+    		if (links != null) {
+    		    for (Iterator<Triple> j = links.iterator(); j.hasNext(); ) {
+    		        Triple t = j.next();
+    		        addRelation(t.getSubject(), t.getObject());
+    		    }
     		}
     	}
     }
@@ -569,6 +727,9 @@ public class TransitiveGraphCache implements Finder {
                     // list all backwards from o
                     GraphNode gn_o = nodeMap.get(o);
                     if (gn_o == null) return NullIterator.instance();
+                    if (closed && indexing) {
+                        return getClosureIndex().listPredecessorTriples(gn_o, o, closedPredicate);
+                    }
                     return gn_o.listPredecessorTriples(closed, this);
                 }
             } else {
@@ -603,6 +764,7 @@ public class TransitiveGraphCache implements Finder {
      */
     public TransitiveGraphCache deepCopy() {
         TransitiveGraphCache copy = new TransitiveGraphCache(directPredicate, closedPredicate);
+        copy.setIndexing(indexing);
         Iterator<Triple> i = find(new TriplePattern(null, directPredicate, null));
         while (i.hasNext()) {
             Triple t = i.next();
@@ -614,8 +776,11 @@ public class TransitiveGraphCache implements Finder {
     /**
      * Clear the entire cache contents. 
      */
-    public void clear() {
+    public synchronized void clear() {
         nodeMap.clear();
+        originalTriples.clear();
+        deletesPending = null;
+        closureIndex = null;
     }
 	
     /**
@@ -633,6 +798,36 @@ public class TransitiveGraphCache implements Finder {
     	cacheTriples = enable;
     }
     
+    /**
+     * Enable/disable the interval index of the closed predecessor relation. If this
+     * is enabled queries for all the closed predecessors of a node just run
+     * through the index rather than walking the graph, at the cost of a couple of
+     * integers per node for typical graphs. The index is built on the first such
+     * query and then kept up to date as relations are added, after a delete it
+     * is rebuilt on the next query.
+     */
+    public synchronized void setIndexing(boolean enable) {
+        indexing = enable;
+        if (! enable) closureIndex = null;
+    }
+    
+    /**
+     * Return true if the closed predecessor relation is indexed.
+     */
+    public boolean isIndexing() {
+        return indexing;
+    }
+    
+    /**
+     * Return the closed predecessor index, building it if necessary.
+     */
+    private synchronized ClosureIndex getClosureIndex() {
+        if (closureIndex == null) {
+            closureIndex = new ClosureIndex(nodeMap.values());
+        }
+        return closureIndex;
+    }
+    
     /**
      * Dump a description of the cache to a string for debug.
      */
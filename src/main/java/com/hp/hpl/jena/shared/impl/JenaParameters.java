@@ -87,6 +87,14 @@ public class JenaParameters {
      * XSD numberic typed literal.
      */
     public static boolean enableWhitespaceCheckingOfTypedLiterals = false;
+
+    /**
+     * Set this flag to true (default) to parse the common lexical forms of
+     * xsd:integer, int, long, decimal, double, float, boolean, date and
+     * dateTime directly rather than through the Xerces validator. The values
+     * are the same either way; other lexical forms always go to Xerces.
+     */
+    public static boolean enableFastLiteralParsing = true;
     
     /**
      * Set this flag to true (default) to hide certain internal nodes from the output
@@ -98,6 +106,13 @@ public class JenaParameters {
      */
     public static boolean enableFilteringOfHiddenInfNodes = true;    
     
+    /**
+     * Set this flag to true to compile the byte code of backward (LP) rule
+     * clauses into JVM classes when the rules are loaded, rather than
+     * interpreting it. The answers are the same either way. Default is false.
+     */
+    public static boolean enableLPClauseCompilation = false;
+    
     /**
      * If this flag is true (default) then attmempts to build an OWL inference
      * graph over another OWL inference graph will log a warning message.
@@ -29,6 +29,14 @@ public class CacheManager {
     
     public static final String ENHNODECACHE = "ENHNODECACHE";
 
+    /** A least-recently-used cache that is safe to share between threads,
+     * see {@link LRUCache}. */
+    public static final String LRU = "LRU";
+
+    /** An LRU cache that only admits new entries in place of ones
+     * asked for less often (W-TinyLFU), see {@link LRUCache}. */
+    public static final String TINYLFU = "TINYLFU";
+
     /** Creates new Manager */
     private CacheManager() {
     }
@@ -48,9 +56,10 @@ public class CacheManager {
      *
      */
     public static Cache createCache(String type, String name, int size) {
-        // for now we just have one type
         if (type.equals(RAND)) return new RandCache( name, size );
         if (type.equals(ENHNODECACHE)) return new EnhancedNodeCache( name, size );
+        if (type.equals(LRU)) return new LRUCache( name, size, false );
+        if (type.equals(TINYLFU)) return new LRUCache( name, size, true );
         throw new Error( "Bad cache type: " + type );
     }
 }
@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.util.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache that evicts the least recently used entry when it is full, and
+ * may be used from several threads at once.
+ *
+ * <p>The entries are split by the hash of their keys into segments, each
+ * with its own lock, so that threads using different segments do not wait
+ * for each other. Each segment holds at most its share of the size of the
+ * cache and evicts its own least recently used entry, so the cache as a
+ * whole is close to, but not exactly, LRU. Small caches have a single
+ * segment.</p>
+ *
+ * <p>Plain LRU keeps nothing when the same keys are used over and over
+ * in a cycle longer than the cache. With <code>admission</code> set
+ * (CacheManager.TINYLFU) each segment is a W-TinyLFU cache instead: new
+ * entries go into a small LRU window, and an entry leaving the window
+ * only displaces the least recently used entry of the main part if its
+ * key has been asked for more often, as counted by a small count-min
+ * sketch that halves its counts now and then so that old popularity
+ * fades.</p>
+ */
+public class LRUCache implements Cache, CacheControl {
+
+    /** Segments hold at least this many entries, if the cache is big enough */
+    static final int MIN_SEGMENT_SIZE = 64;
+
+    /** The most segments a cache is split into */
+    static final int MAX_SEGMENTS = 16;
+
+    final String name;                         // e.g. when logging
+
+    private final Segment[] segments;
+
+    private volatile boolean enabled = true;
+
+    private final AtomicLong gets = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** Creates new LRUCache holding at most <code>size</code> entries,
+     * with a TinyLFU admission policy if <code>admission</code> is set */
+    LRUCache(String name, int size, boolean admission) {
+        if (size < 2) {
+            throw new Error("Cache size too small: " + size);
+        }
+        this.name = name;
+        int n = 1;
+        while (n < MAX_SEGMENTS && n * 2 * MIN_SEGMENT_SIZE <= size) {
+            n *= 2;
+        }
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(size / n + (i < size % n ? 1 : 0), admission);
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!enabled) {
+            return null;
+        }
+        count(gets);
+        Segment s = segmentFor(key);
+        Object result;
+        synchronized (s) {
+            result = s.get(key);
+        }
+        if (result != null) {
+            count(hits);
+        }
+        return result;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        // don't allow null values
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        if (enabled) {
+            count(puts);
+            Segment s = segmentFor(key);
+            synchronized (s) {
+                s.put(key, value);
+            }
+        }
+    }
+
+    private Segment segmentFor(Object key) {
+        return segments[spread(key.hashCode()) & (segments.length - 1)];
+    }
+
+    static int spread(int h) {
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    /** Add one to a statistic, halving the statistics if it is about to overflow */
+    private void count(AtomicLong counter) {
+        if (counter.incrementAndGet() == Long.MAX_VALUE) {
+            forgetStats();
+        }
+    }
+
+    @Override
+    public boolean getEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean setEnabled(boolean enabled) {
+        boolean result = this.enabled;
+        this.enabled = enabled;
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        for (Segment s : segments) {
+            synchronized (s) {
+                s.clear();
+            }
+        }
+    }
+
+    @Override
+    public long getGets() {
+        return gets.get();
+    }
+
+    @Override
+    public long getPuts() {
+        return puts.get();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** Get the number of entries evicted, or not admitted, to make room for others
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /** Get the number of entries in the cache
+     * @return the number of entries
+     */
+    public int size() {
+        int result = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                result += s.size();
+            }
+        }
+        return result;
+    }
+
+    protected void forgetStats() {
+        gets.set(gets.get() / 2);
+        puts.set(puts.get() / 2);
+        hits.set(hits.get() / 2);
+        evictions.set(evictions.get() / 2);
+    }
+
+    @Override
+    public String toString() {
+        return "LRUCache " + name + " (" + segments.length + " segments)";
+    }
+
+    /**
+     * A part of the cache: a main map in access order and, with admission,
+     * a window map in front of it and the sketch. Callers lock it.
+     */
+    private final class Segment {
+        private final LinkedHashMap<Object, Object> main;
+        private final LinkedHashMap<Object, Object> window;
+        private final int mainCapacity, windowCapacity;
+        private final FrequencySketch sketch;
+
+        Segment(int capacity, boolean admission) {
+            windowCapacity = admission ? Math.max(1, capacity / 100) : 0;
+            mainCapacity = capacity - windowCapacity;
+            main = new LinkedHashMap<Object, Object>(mainCapacity * 4 / 3 + 1, 0.75f, true);
+            window = admission ? new LinkedHashMap<Object, Object>(windowCapacity * 4 / 3 + 1, 0.75f, true) : null;
+            sketch = admission ? new FrequencySketch(capacity) : null;
+        }
+
+        Object get(Object key) {
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            Object result = main.get(key);
+            if (result == null && window != null) {
+                result = window.get(key);
+            }
+            return result;
+        }
+
+        void put(Object key, Object value) {
+            if (window == null || main.containsKey(key)) {
+                main.put(key, value);
+            } else {
+                window.put(key, value);
+                if (window.size() <= windowCapacity) {
+                    return;
+                }
+                Map.Entry<Object, Object> candidate = removeEldest(window);
+                if (main.size() < mainCapacity) {
+                    main.put(candidate.getKey(), candidate.getValue());
+                    return;
+                }
+                Object victim = main.keySet().iterator().next();
+                if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+                    main.remove(victim);
+                    main.put(candidate.getKey(), candidate.getValue());
+                }
+                evictions.incrementAndGet();
+                return;
+            }
+            if (main.size() > mainCapacity) {
+                removeEldest(main);
+                evictions.incrementAndGet();
+            }
+        }
+
+        private Map.Entry<Object, Object> removeEldest(LinkedHashMap<Object, Object> map) {
+            Iterator<Map.Entry<Object, Object>> it = map.entrySet().iterator();
+            Map.Entry<Object, Object> eldest = it.next();
+            it.remove();
+            return eldest;
+        }
+
+        void clear() {
+            main.clear();
+            if (window != null) {
+                window.clear();
+            }
+        }
+
+        int size() {
+            return main.size() + (window == null ? 0 : window.size());
+        }
+    }
+
+    /**
+     * Estimates how often keys have been asked for: a count-min sketch of
+     * four rows of counters that stop at 15, each row four times as wide as
+     * the capacity of the segment. After ten times as many increments as
+     * the capacity, all counts are halved.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb1a3f3d5, 0x8c1d4f3b, 0xe3b4b1a9};
+
+        private final byte[] table;
+        private final int width;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int w = 16;
+            while (w < 4 * capacity) {
+                w <<= 1;
+            }
+            width = w;
+            table = new byte[4 * w];
+            sampleSize = 10 * Math.max(capacity, 16);
+        }
+
+        int frequency(Object key) {
+            int h = spread(key.hashCode());
+            int result = 15;
+            for (int i = 0; i < 4; i++) {
+                result = Math.min(result, table[index(h, i)]);
+            }
+            return result;
+        }
+
+        void increment(Object key) {
+            int h = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int j = index(h, i);
+                if (table[j] < 15) {
+                    table[j] += 1;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int j = 0; j < table.length; j++) {
+                    table[j] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        /** The counter for a key with spread hash h in row i: the
+         * finalising step of MurmurHash3 on h with a seed for the row */
+        private int index(int h, int i) {
+            int k = h ^ SEEDS[i];
+            k ^= k >>> 16;
+            k *= 0x85ebca6b;
+            k ^= k >>> 13;
+            k *= 0xc2b2ae35;
+            k ^= k >>> 16;
+            return i * width + (k & (width - 1));
+        }
+    }
+}
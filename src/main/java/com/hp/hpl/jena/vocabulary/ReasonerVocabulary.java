@@ -91,6 +91,30 @@ public class ReasonerVocabulary {
      *  caching in a generic rule reasoner. Set to "true" to enable caching. */
     public static final Property PROPenableTGCCaching = ruleReasonerProperty( "enableTGCCaching" );
     
+    /** Property used to switch on/off concurrent backward chaining queries in a
+     *  hybrid or backward rule reasoner. Set to "true" to let queries from different
+     *  threads run in parallel, sharing the results of completed tabled goals. */
+    public static final Property PROPconcurrentQueries = ruleReasonerProperty( "concurrentQueries" );
+    
+    /** Property used to switch on/off answer subsumption for tabled goals in a
+     *  hybrid or backward rule reasoner. Set to "true" to answer goals from the
+     *  complete tables of more general goals. */
+    public static final Property PROPtableSubsumption = ruleReasonerProperty( "tableSubsumption" );
+    
+    /** Property used to bound the memory used by the tabled goals of a hybrid or
+     *  backward rule reasoner. Value is the most results to keep in the tables of
+     *  completed goals, 0 for no limit. */
+    public static final Property PROPtableCapacity = ruleReasonerProperty( "tableCapacity" );
+    
+    /** Property used to run the forward rules of a forwardRETE or hybrid generic rule
+     *  reasoner on several threads. Value is the number of threads, default 1. Only
+     *  used for monotonic rule sets. */
+    public static final Property PROPforwardThreads = ruleReasonerProperty( "forwardThreads" );
+    
+    /** Property used to choose the engine which runs the forward rules of a hybrid
+     *  generic rule reasoner. Value is "tuple", "rete" or "semiNaive", default "rete". */
+    public static final Property PROPforwardEngine = ruleReasonerProperty( "forwardEngine" );
+    
     /** Property used to switch on/off scanning of data for container membership
      * properties in RDFS preprocessing. */
     public static final Property PROPenableCMPScan = ruleReasonerProperty( "enableCMPScan" );
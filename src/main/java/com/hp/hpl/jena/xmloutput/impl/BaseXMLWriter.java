@@ -239,11 +239,26 @@ abstract public class BaseXMLWriter implements RDFXMLWriterI {
         return "".equals( ns.get( uri ) );
     }
         
-    private void addNameSpaces( Model model )  {
+    /**
+        Note the namespaces used by the statements of <code>model</code>.
+        This scans the whole model; writers that only use the declared
+        prefixes override it.
+    */
+    protected void addNameSpaces( Model model )  {
         NsIterator nsIter = model.listNameSpaces();
         while (nsIter.hasNext()) this.addNameSpace( nsIter.nextNs() );
     }
     
+    /**
+        Answer true if every namespace of an element or attribute name was
+        found by <code>addNameSpaces</code> before writing started, so that
+        an unknown one is an internal error. Writers that do not scan the
+        model answer false and get a local declaration for it instead.
+    */
+    protected boolean namespacesScanned() {
+        return true;
+    }
+    
     private void primeNamespace( Model model )
     {
         Map<String, String> m = model.getNsPrefixMap();
@@ -425,7 +440,7 @@ abstract public class BaseXMLWriter implements RDFXMLWriterI {
 		boolean cookUp = false;
 		if (prefix == null) {
             checkURI( namespace );
-			logger.warn(
+			if (namespacesScanned()) logger.warn(
 				"Internal error: unexpected QName URI: <"
 					+ namespace
 					+ ">.  Fixing up with j.cook.up code.",
@@ -477,7 +492,7 @@ abstract public class BaseXMLWriter implements RDFXMLWriterI {
 	@Override
     synchronized public void write(Model baseModel, Writer out, String base)
 		 {        
-        Model model = ModelFactory.withHiddenStatements( baseModel );
+        Model model = withHiddenStatements( baseModel );
 		setupNamespaces( baseModel, model );
 		PrintWriter pw = out instanceof PrintWriter ? (PrintWriter) out : new PrintWriter( out );
 		if (!Boolean.FALSE.equals(showXmlDeclaration)) writeXMLDeclaration( out, pw );
@@ -485,6 +500,14 @@ abstract public class BaseXMLWriter implements RDFXMLWriterI {
 		pw.flush();
 	}
 
+    /**
+        Answer the model to write: <code>baseModel</code> together with the
+        statements hidden by its reifier.
+    */
+    protected Model withHiddenStatements( Model baseModel ) {
+        return ModelFactory.withHiddenStatements( baseModel );
+    }
+
     /**
      	@param baseModel
      	@param model
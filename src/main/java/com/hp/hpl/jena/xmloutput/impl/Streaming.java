@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.xmloutput.impl;
+
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/** Writes out RDF/XML one subject at a time, in memory that does not
+ * grow with the model.
+ * It is not normal to call the constructor directly, but to use
+ * the method RDFWriterF.getWriter("RDF/XML-STREAMING").
+ * <p>
+ * The output is the same striped syntax as "RDF/XML", but:
+ * <ul>
+ * <li>the model is not scanned for the namespaces it uses. The prefixes
+ * declared in the model (or by the <code>NSPREFIXPROPBASE</code> system
+ * properties) are declared on the <code>rdf:RDF</code> element, and a
+ * property in any other namespace declares it on its own element.
+ * <li>blank nodes are written with their long ids, as if the property
+ * <code>"longId"</code> were set, so there is no table of blank nodes.
+ * <li>subjects are taken straight from the model's subject index.
+ * </ul>
+ *  @see com.hp.hpl.jena.rdf.model.RDFWriterF#getWriter(String)
+ */
+public class Streaming extends Basic
+    {
+    public Streaming()
+        { longId = true; }
+
+    /**
+        Walking the union with the hidden statements would build a set of
+        all its subjects, so only do it when the reifier holds anything
+        (triples it exposes are not in the subject index either).
+    */
+    @Override protected Model withHiddenStatements( Model baseModel )
+        {
+        ExtendedIterator<Triple> reified = baseModel.getGraph().getReifier().find( Triple.ANY );
+        try { return reified.hasNext() ? super.withHiddenStatements( baseModel ) : baseModel; }
+        finally { reified.close(); }
+        }
+
+    @Override protected void addNameSpaces( Model model )
+        {}
+
+    @Override protected boolean namespacesScanned()
+        { return false; }
+    }
@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.graph.query.test;
 
 import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.query.Query;
 import com.hp.hpl.jena.mem.*;
 
 import junit.framework.*;
@@ -37,6 +38,8 @@ public class QueryTest extends TestCase
         TestSuite result = new TestSuite();
         result.addTest( new TestSuite( TestQueryGraphMem.class ) );
         result.addTest( new TestSuite( TestQuerySmallGraphMem.class ) );
+        result.addTest( new TestSuite( TestPulledQueryGraphMem.class ) );
+        result.addTest( new TestSuite( TestPulledQuerySmallGraphMem.class ) );
         result.addTestSuite( TestQuery.class );
         result.setName(QueryTest.class.getName());
         return result;
@@ -55,5 +58,40 @@ public class QueryTest extends TestCase
         
         @Override public Graph getGraph() { return new SmallGraphMem(); }       
         }
+
+    /**
+        Runs the query tests with every query executed by pulling rather than
+        by threaded stages.
+    */
+    public static abstract class AbstractTestPulledQuery extends AbstractTestQuery
+        {
+        private boolean pullByDefault;
+        
+        public AbstractTestPulledQuery( String name ) { super( name ); }
+        
+        @Override public void setUp()
+            {
+            pullByDefault = Query.pullByDefault;
+            Query.pullByDefault = true;
+            super.setUp();
+            }
+        
+        @Override public void tearDown()
+            { Query.pullByDefault = pullByDefault; }
+        }
+    
+    public static class TestPulledQueryGraphMem extends AbstractTestPulledQuery
+        {
+        public TestPulledQueryGraphMem( String name ) { super( name ); }
+        
+        @Override public Graph getGraph() { return Factory.createGraphMem(); }       
+        }
+    
+    public static class TestPulledQuerySmallGraphMem extends AbstractTestPulledQuery
+        {
+        public TestPulledQuerySmallGraphMem( String name ) { super( name ); }
+        
+        @Override public Graph getGraph() { return new SmallGraphMem(); }       
+        }
      
     }
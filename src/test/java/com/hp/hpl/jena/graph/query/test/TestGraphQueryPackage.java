@@ -43,6 +43,7 @@ public class TestGraphQueryPackage extends TestCase
         result.addTest( QueryTest.suite() );
         result.addTest( TestQueryReification.suite() );
         result.addTest( TestSimpleTripleSorter.suite() );
+        result.addTest( TestStatisticsTripleSorter.suite() );
         result.addTest( TestExpressions.suite() );
         result.addTest( TestExpressionConstraints.suite() );
         result.addTest( TestEarlyConstraints.suite() );
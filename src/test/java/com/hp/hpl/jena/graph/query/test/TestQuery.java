@@ -54,4 +54,13 @@ public class TestQuery extends QueryTestBase
             assertEquals( expected, q.getPattern() );            
             }
         }
+    
+    public void testPullSetting()
+        {
+        Query q = new Query();
+        assertEquals( Query.pullByDefault, q.isPull() );
+        assertSame( q, q.setPull( true ) );
+        assertTrue( q.isPull() );
+        assertFalse( q.setPull( false ).isPull() );
+        }
     }
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.query.test;
+
+import java.util.*;
+
+import junit.framework.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.query.*;
+import com.hp.hpl.jena.graph.test.*;
+
+public class TestStatisticsTripleSorter extends GraphTestBase
+    {
+    public TestStatisticsTripleSorter( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestStatisticsTripleSorter.class ); }
+
+    /**
+        A graph with many rdf:type triples and only one name triple.
+    */
+    protected Graph skewedGraph()
+        {
+        Graph g = graphWith( "a name N" );
+        for (int i = 0; i < 100; i += 1) g.add( triple( "x" + i + " type C" ) );
+        g.add( triple( "a type C" ) );
+        return g;
+        }
+
+    public void testEmpty()
+        {
+        TripleSorter sorter = new StatisticsTripleSorter( skewedGraph() );
+        assertEquals( 0, sorter.sort( new Triple[] {} ).length );
+        }
+
+    public void testSelectiveTripleFirst()
+        {
+        TripleSorter sorter = new StatisticsTripleSorter( skewedGraph() );
+        Triple [] sorted = sorter.sort( tripleArray( "?x type C; ?x name ?n" ) );
+        assertEquals( Arrays.asList( tripleArray( "?x name ?n; ?x type C" ) ), Arrays.asList( sorted ) );
+        }
+
+    public void testMissingTripleFirst()
+        {
+        TripleSorter sorter = new StatisticsTripleSorter( skewedGraph() );
+        Triple [] sorted = sorter.sort( tripleArray( "?x name ?n; ?x type C; ?x missing ?y" ) );
+        assertEquals( triple( "?x missing ?y" ), sorted[0] );
+        }
+
+    public void testConnectedTriplesPreferred()
+        {
+        TripleSorter sorter = new StatisticsTripleSorter( skewedGraph() );
+        Triple [] sorted = sorter.sort( tripleArray( "?x type C; ?y name ?n; ?y type C" ) );
+        assertEquals( Arrays.asList( tripleArray( "?y name ?n; ?y type C; ?x type C" ) ), Arrays.asList( sorted ) );
+        }
+
+    public void testOrderPreservedForEqualCosts()
+        {
+        TripleSorter sorter = new StatisticsTripleSorter( skewedGraph() );
+        Triple [] triples = tripleArray( "?x type C; ?y type C" );
+        assertEquals( Arrays.asList( triples ), Arrays.asList( sorter.sort( triples ) ) );
+        }
+
+    public void testNoStatisticsUsesSimpleSorter()
+        {
+        TripleSorter sorter = new StatisticsTripleSorter( (GraphStatisticsHandler) null );
+        Triple [] triples = tripleArray( "?x type ?y; ?x name N" );
+        assertEquals
+            ( Arrays.asList( new SimpleTripleSorter().sort( triples ) ),
+            Arrays.asList( sorter.sort( triples ) ) );
+        }
+
+    public void testSortedQueryGivesSameAnswers()
+        {
+        Graph g = skewedGraph();
+        Query q = new Query().addMatch( triple( "?x type C" ) ).addMatch( triple( "?x name ?n" ) );
+        q.setTripleSorter( new StatisticsTripleSorter( g ) );
+        List<Domain> answers = iteratorToList( q.executeBindings( g, nodeArray( "?x ?n" ) ) );
+        assertEquals( 1, answers.size() );
+        assertEquals( nodeList( "a N" ), answers.get( 0 ) );
+        }
+    }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.test;
+
+import com.hp.hpl.jena.graph.*;
+
+/**
+    Timing harness, not part of the test suite, for creating URI and literal
+    nodes from an increasing number of threads at once. With an uncontended
+    node cache the total throughput should grow with the number of cores.
+*/
+public class NodeCreateSpeed
+    {
+    static final int COUNT = 1000000;
+
+    public static void main( String [] args ) throws InterruptedException
+        {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Node.getCache().setCounting( true );
+        for (int threads = 1; threads <= cores; threads *= 2)
+            {
+            Node.getCache().resetCounts();
+            long ticks = run( threads );
+            long rate = (long) threads * COUNT * 1000L / Math.max( 1, ticks );
+            System.err.println
+                ( "+ " + threads + " threads: " + ticks + "ms, " + rate + " nodes/s"
+                + ", hits " + Node.getCache().getHits() + ", misses " + Node.getCache().getMisses() );
+            }
+        }
+
+    static long run( int threads ) throws InterruptedException
+        {
+        Thread [] workers = new Thread[threads];
+        for (int t = 0; t < threads; t += 1)
+            {
+            final int offset = t * 17;
+            workers[t] = new Thread()
+                {
+                @Override public void run()
+                    {
+                    for (int i = 0; i < COUNT; i += 1)
+                        {
+                        int n = (i + offset) % 2000;
+                        if (n % 2 == 0) Node.createURI( "eg:node" + n );
+                        else Node.createLiteral( "literal" + n );
+                        }
+                    }
+                };
+            }
+        long began = System.currentTimeMillis();
+        for (int t = 0; t < threads; t += 1) workers[t].start();
+        for (int t = 0; t < threads; t += 1) workers[t].join();
+        return System.currentTimeMillis() - began;
+        }
+    }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.test;
+
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.impl.*;
+
+import junit.framework.TestSuite;
+
+/**
+    Tests for BlankNodeColouring and the way GraphMatcher uses it to decide
+    isomorphism.
+*/
+public class TestBlankNodeColouring extends GraphTestBase
+    {
+    public TestBlankNodeColouring( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestBlankNodeColouring.class ); }
+
+    public void testStartsWithOneColour()
+        {
+        BlankNodeColouring c = new BlankNodeColouring( graphWith( "_a p _b; _b q 'x'; a r b" ) );
+        assertEquals( 2, c.size() );
+        assertEquals( 1, c.classes() );
+        assertFalse( c.isDiscrete() );
+        assertEquals( c.colourOf( node( "_a" ) ), c.colourOf( node( "_b" ) ) );
+        }
+
+    public void testRefinementSeparatesBlankNodes()
+        {
+        BlankNodeColouring c = new BlankNodeColouring( graphWith( "_a p _b; _b q 'x'" ) );
+        c.refineFully();
+        assertTrue( c.isDiscrete() );
+        assertDiffer( new Long( c.colourOf( node( "_a" ) ) ), new Long( c.colourOf( node( "_b" ) ) ) );
+        }
+
+    public void testColoursDoNotDependOnLabels()
+        {
+        BlankNodeColouring a = new BlankNodeColouring( graphWith( "_a p _b; _b q 'x'; _b r _c" ) );
+        BlankNodeColouring b = new BlankNodeColouring( graphWith( "_z r _y; _x p _z; _z q 'x'" ) );
+        assertTrue( BlankNodeColouring.refineTogether( a, b ) );
+        assertEquals( a.colourOf( node( "_a" ) ), b.colourOf( node( "_x" ) ) );
+        assertEquals( a.colourOf( node( "_b" ) ), b.colourOf( node( "_z" ) ) );
+        assertEquals( a.colourOf( node( "_c" ) ), b.colourOf( node( "_y" ) ) );
+        }
+
+    public void testIsomorphicGraphsHaveTheSameHash()
+        {
+        Graph a = graphWith( "_a p _b; _b q 'x'; _b p _a; s p o" );
+        Graph b = graphWith( "_y p _x; _x p _y; _x q 'x'; s p o" );
+        assertEquals( BlankNodeColouring.hash( a ), BlankNodeColouring.hash( b ) );
+        assertEquals( GraphMatcher.hashCode( a ), GraphMatcher.hashCode( b ) );
+        }
+
+    public void testHashCoversBlankNodeTriples()
+        {
+        Graph a = graphWith( "_a p _b; _b q 'x'" );
+        Graph b = graphWith( "_a p _b; _a q 'x'" );
+        assertDiffer( new Long( BlankNodeColouring.hash( a ) ), new Long( BlankNodeColouring.hash( b ) ) );
+        }
+
+    public void testDiscreteMatch()
+        {
+        Graph a = graphWith( "_a p _b; _b q 'x'; _b r _c; s p o" );
+        Graph b = graphWith( "_z r _y; _x p _z; _z q 'x'; s p o" );
+        Node [][] pairs = GraphMatcher.match( a, b );
+        assertNotNull( pairs );
+        Map<Node, Node> map = new HashMap<Node, Node>();
+        for (int i = 0; i < pairs.length; i += 1) map.put( pairs[i][0], pairs[i][1] );
+        assertEquals( node( "_x" ), map.get( node( "_a" ) ) );
+        assertEquals( node( "_z" ), map.get( node( "_b" ) ) );
+        assertEquals( node( "_y" ), map.get( node( "_c" ) ) );
+        assertEquals( 3, map.size() );
+        }
+
+    public void testRejectsDifferentStructure()
+        {
+        assertNotIsomorphic( "_a p _b; _b p _c", "_a p _b; _c p _b" );
+        assertNotIsomorphic( "_a p _a; _b p _b", "_a p _b; _b p _a" );
+        assertNotIsomorphic( "_a p _b; _b q 'x'", "_a p _b; _b q 'y'" );
+        assertNotIsomorphic( "_a p _b; s p o", "_a p _b; s p x" );
+        assertNotIsomorphic( "_a p _b", "_a p _b; _c p _d" );
+        assertNotIsomorphic( "_a p _b; s p o", "_a p _b; s p o; s p x" );
+        }
+
+    public void testLiteralsOfBlankNodeTriplesMustBeEqual()
+        { assertNotIsomorphic( "_a p 01", "_a p 1" ); }
+
+    public void testAmbiguousPartitionsFallBackToSearch()
+        {
+        Graph hexagon = graphWith( "_a p _b; _b p _c; _c p _d; _d p _e; _e p _f; _f p _a" );
+        Graph triangles = graphWith( "_a p _b; _b p _c; _c p _a; _d p _e; _e p _f; _f p _d" );
+        BlankNodeColouring a = new BlankNodeColouring( hexagon ), b = new BlankNodeColouring( triangles );
+        assertTrue( BlankNodeColouring.refineTogether( a, b ) );
+        assertFalse( a.isDiscrete() );
+        assertFalse( hexagon.isIsomorphicWith( triangles ) );
+        Graph relabelled = graphWith( "_f p _e; _e p _d; _d p _c; _c p _b; _b p _a; _a p _f" );
+        assertTrue( hexagon.isIsomorphicWith( relabelled ) );
+        }
+
+    public void testLargeGraphsOnSeveralThreads()
+        {
+        int threads = BlankNodeColouring.getThreads();
+        BlankNodeColouring.setThreads( 3 );
+        try
+            {
+            int n = 20000;
+            Graph a = chain( n, n );
+            Graph b = chain( n, n );
+            assertTrue( a.isIsomorphicWith( b ) );
+            assertEquals( BlankNodeColouring.hash( a ), BlankNodeColouring.hash( b ) );
+            assertFalse( a.isIsomorphicWith( chain( n, n - 1 ) ) );
+            }
+        finally
+            { BlankNodeColouring.setThreads( threads ); }
+        }
+
+    public void testThreadsMustBePositive()
+        {
+        try { BlankNodeColouring.setThreads( 0 ); fail( "should reject 0 threads" ); }
+        catch (IllegalArgumentException e) { pass(); }
+        }
+
+    /**
+        Answer a chain of <code>n</code> fresh blank nodes linked by eh:/next,
+        where the first <code>labelled</code> of them have a label.
+    */
+    protected Graph chain( int n, int labelled )
+        {
+        Graph g = newGraph();
+        Node p = node( "next" ), label = node( "label" );
+        Node previous = Node.createAnon();
+        for (int i = 0; i < n; i += 1)
+            {
+            Node b = Node.createAnon();
+            g.add( Triple.create( previous, p, b ) );
+            if (i < labelled) g.add( Triple.create( b, label, Node.createLiteral( "n" + i ) ) );
+            previous = b;
+            }
+        return g;
+        }
+
+    protected void assertNotIsomorphic( String a, String b )
+        {
+        assertFalse( graphWith( a ).isIsomorphicWith( graphWith( b ) ) );
+        assertFalse( graphWith( b ).isIsomorphicWith( graphWith( a ) ) );
+        assertNull( GraphMatcher.match( graphWith( a ), graphWith( b ) ) );
+        }
+    }
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.test;
+
+import java.io.File;
+import java.util.*;
+
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.impl.*;
+import com.hp.hpl.jena.shared.*;
+import com.hp.hpl.jena.util.FileUtils;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/**
+    Test MappedGraph by making some journalled graphs and then reopening them.
+*/
+public class TestMappedGraph extends GraphTestBase
+    {
+    public TestMappedGraph( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestMappedGraph.class ); }
+
+    protected File tempFile()
+        { return FileUtils.tempFileName( "mappedGraph", MappedGraphMaker.SUFFIX ); }
+
+    protected Graph reopen( File f )
+        { return new MappedGraph( f, false, true ); }
+
+    public void testReopenSeesContents()
+        {
+        File f = tempFile();
+        Graph g = new MappedGraph( f, true, true );
+        graphAdd( g, "x R y; a P 'literal'; b P 'chat'fr; c P '17'xsd:int; _d Q _e" );
+        g.delete( triple( "x R y" ) );
+        Graph expected = graphWith( "" );
+        expected.getBulkUpdateHandler().add( g );
+        g.close();
+        Graph h = reopen( f );
+        assertIsomorphic( expected, h );
+        h.close();
+        }
+
+    public void testAppendAfterReopen()
+        {
+        File f = tempFile();
+        Graph g = new MappedGraph( f, true, true );
+        graphAdd( g, "x R y" );
+        g.close();
+        Graph h = reopen( f );
+        graphAdd( h, "p S q" );
+        h.close();
+        Graph k = reopen( f );
+        assertIsomorphic( graphWith( "x R y; p S q" ), k );
+        k.close();
+        }
+
+    public void testClearIsJournalled()
+        {
+        File f = tempFile();
+        Graph g = new MappedGraph( f, true, true );
+        graphAdd( g, "x R y; p S q" );
+        g.getBulkUpdateHandler().removeAll();
+        graphAdd( g, "a T b" );
+        g.close();
+        Graph h = reopen( f );
+        assertIsomorphic( graphWith( "a T b" ), h );
+        h.close();
+        }
+
+    public void testJournalGrows()
+        {
+        File f = tempFile();
+        Graph g = new MappedGraph( f, true, true );
+        for (int i = 0; i < 10000; i += 1) g.add( triple( "s" + i + " P o" + (i % 10) ) );
+        g.close();
+        Graph h = reopen( f );
+        assertEquals( 10000, h.size() );
+        assertTrue( h.contains( triple( "s9999 P o9" ) ) );
+        h.close();
+        }
+
+    public void testFindBySubjectAfterReopen()
+        {
+        File f = tempFile();
+        Graph g = new MappedGraph( f, true, true );
+        for (int i = 0; i < 200; i += 1)
+            for (int j = 0; j <= i % 3; j += 1) g.add( triple( "s" + i + " P o" + j ) );
+        g.close();
+        Graph h = reopen( f );
+        for (int i = 0; i < 200; i += 1)
+            {
+            Set<Triple> expected = new HashSet<Triple>();
+            for (int j = 0; j <= i % 3; j += 1) expected.add( triple( "s" + i + " P o" + j ) );
+            assertEquals( expected, h.find( node( "s" + i ), Node.ANY, Node.ANY ).toSet() );
+            }
+        h.close();
+        }
+
+    public void testCheckpointKeepsContents()
+        {
+        File f = tempFile();
+        MappedGraph g = new MappedGraph( f, true, true );
+        for (int i = 0; i < 1000; i += 1) g.add( triple( "s" + i + " P 'v" + i + "'" ) );
+        for (int i = 0; i < 1000; i += 2) g.delete( triple( "s" + i + " P 'v" + i + "'" ) );
+        int before = g.getJournal().length();
+        g.checkpoint();
+        assertEquals( 0, g.getJournal().changes() );
+        assertEquals( 0, g.getJournal().length() );
+        assertTrue( before > 0 );
+        assertEquals( 500, g.getJournal().getSnapshot().size() );
+        assertFalse( new File( f.getPath() + GraphJournal.CHECKPOINT_SUFFIX ).exists() );
+        graphAdd( g, "s0 P 'again'" );
+        g.delete( triple( "s1 P 'v1'" ) );
+        Graph expected = graphWith( "" );
+        expected.getBulkUpdateHandler().add( g );
+        g.close();
+        Graph h = reopen( f );
+        assertIsomorphic( expected, h );
+        assertEquals( 500, h.size() );
+        h.close();
+        }
+
+    public void testSnapshotIsReadInPlace()
+        {
+        File f = tempFile();
+        MappedGraph g = new MappedGraph( f, true, true );
+        graphAdd( g, "a P 'x'; a P '1'xsd:int; b Q _c; _c R 'chat'@fr; d S 2.5" );
+        g.checkpoint();
+        g.close();
+        MappedGraph h = new MappedGraph( f, false, true );
+        assertEquals( 0, h.getJournal().length() );
+        assertEquals( 5, h.getJournal().getSnapshot().size() );
+        assertEquals( 5, h.size() );
+        assertTrue( h.contains( triple( "a P '01'xsd:int" ) ) );
+        assertTrue( h.contains( triple( "b Q _c" ) ) );
+        assertEquals( 2, h.find( node( "a" ), Node.ANY, Node.ANY ).toList().size() );
+        assertEquals( 1, h.find( Node.ANY, Node.ANY, node( "'chat'@fr" ) ).toList().size() );
+        h.delete( triple( "a P 'x'" ) );
+        graphAdd( h, "a P 'y'; d S 2.5" );
+        h.delete( triple( "b Q _c" ) );
+        graphAdd( h, "b Q _c" );
+        Graph expected = graphWith( "a P '1'xsd:int; a P 'y'; b Q _c; _c R 'chat'@fr; d S 2.5" );
+        assertIsomorphic( expected, h );
+        h.close();
+        MappedGraph k = new MappedGraph( f, false, true );
+        assertEquals( 5, k.getJournal().getSnapshot().size() );
+        assertIsomorphic( expected, k );
+        assertEquals( 5, k.getJournal().changes() );
+        k.close();
+        }
+
+    public void testCheckpointRejectedInTransaction()
+        {
+        MappedGraph g = new MappedGraph( tempFile(), true, true );
+        g.getTransactionHandler().begin();
+        try { g.checkpoint(); fail( "should not checkpoint during a transaction" ); }
+        catch (JenaException e) { pass(); }
+        g.getTransactionHandler().commit();
+        g.close();
+        }
+
+    public void testJournalIsCheckpointed()
+        {
+        File f = tempFile();
+        MappedGraph g = new MappedGraph( f, true, true );
+        graphAdd( g, "kept P x" );
+        for (int i = 0; i < 3 * MappedGraph.CHECKPOINT_SLACK; i += 1)
+            {
+            g.add( triple( "s" + (i % 7) + " P o" + i ) );
+            g.delete( triple( "s" + (i % 7) + " P o" + i ) );
+            }
+        assertTrue( g.getJournal().changes() <= MappedGraph.CHECKPOINT_SLACK + 2 );
+        g.close();
+        Graph h = reopen( f );
+        assertIsomorphic( graphWith( "kept P x" ), h );
+        h.close();
+        }
+
+    public void testRemovalsThroughIteratorsAreJournalled()
+        {
+        File f = tempFile();
+        Graph g = new MappedGraph( f, true, true );
+        graphAdd( g, "a P b; a Q c; a R 'd'; x P y; x Q z; u P v; u Q w" );
+        g.getBulkUpdateHandler().remove( node( "a" ), Node.ANY, Node.ANY );
+        ExtendedIterator<Triple> it = g.find( node( "x" ), node( "P" ), Node.ANY );
+        it.next();
+        it.remove();
+        it.close();
+        g.getTransactionHandler().begin();
+        g.getBulkUpdateHandler().remove( Node.ANY, Node.ANY, node( "w" ) );
+        g.getTransactionHandler().commit();
+        assertIsomorphic( graphWith( "x Q z; u P v" ), g );
+        g.close();
+        Graph h = reopen( f );
+        assertIsomorphic( graphWith( "x Q z; u P v" ), h );
+        h.close();
+        }
+
+    public void testCreateStrictFailsIfExists()
+        {
+        File f = tempFile();
+        new MappedGraph( f, true, true ).close();
+        try { new MappedGraph( f, true, true ); fail( "should not be able to create " + f + " twice" ); }
+        catch (AlreadyExistsException e) { pass(); }
+        }
+
+    public void testOpenStrictFailsIfAbsent()
+        {
+        try { reopen( tempFile() ); fail( "should not be able to open a missing journal" ); }
+        catch (DoesNotExistException e) { pass(); }
+        }
+
+    public void testTransactionCommit()
+        {
+        File f = tempFile();
+        Graph g = new MappedGraph( f, true, true );
+        graphAdd( g, "initial hasValue 42" );
+        g.getTransactionHandler().begin();
+        graphAdd( g, "extra hasValue 17" );
+        g.getTransactionHandler().commit();
+        g.close();
+        Graph h = reopen( f );
+        assertIsomorphic( graphWith( "initial hasValue 42; extra hasValue 17" ), h );
+        h.close();
+        }
+
+    public void testTransactionAbort()
+        {
+        File f = tempFile();
+        Graph g = new MappedGraph( f, true, true );
+        graphAdd( g, "initial hasValue 42; also hasURI hello" );
+        g.getTransactionHandler().begin();
+        graphAdd( g, "extra hasValue 17" );
+        g.delete( triple( "also hasURI hello" ) );
+        g.getTransactionHandler().abort();
+        assertIsomorphic( graphWith( "initial hasValue 42; also hasURI hello" ), g );
+        graphAdd( g, "after hasValue 99" );
+        g.close();
+        Graph h = reopen( f );
+        assertIsomorphic( graphWith( "initial hasValue 42; also hasURI hello; after hasValue 99" ), h );
+        h.close();
+        }
+
+    public void testNestedTransactionsRejected()
+        {
+        Graph g = new MappedGraph( tempFile(), true, true );
+        g.getTransactionHandler().begin();
+        try { g.getTransactionHandler().begin(); fail( "nested transactions should be rejected" ); }
+        catch (JenaException e) { pass(); }
+        g.close();
+        }
+
+    public void testUncommittedTransactionDiscardedOnOpen()
+        {
+        File f = tempFile();
+        MappedGraph g = new MappedGraph( f, true, true );
+        graphAdd( g, "kept P x" );
+        g.getTransactionHandler().begin();
+        graphAdd( g, "lost P y" );
+    /* simulate a crash: the journal is released without a commit */
+        g.getJournal().close();
+        Graph h = reopen( f );
+        assertIsomorphic( graphWith( "kept P x" ), h );
+        graphAdd( h, "later P z" );
+        h.close();
+        Graph k = reopen( f );
+        assertIsomorphic( graphWith( "kept P x; later P z" ), k );
+        k.close();
+        }
+
+    public void testClosingNotifys()
+        {
+        final List<File> history = new ArrayList<File>();
+        FileGraph.NotifyOnClose n = new FileGraph.NotifyOnClose()
+            {
+            @Override public void notifyClosed( File f )
+                { history.add( f ); }
+            };
+        File file = tempFile();
+        Graph g = new MappedGraph( n, file, true, true, ReificationStyle.Minimal );
+        assertEquals( new ArrayList<File>(), history );
+        g.close();
+        assertEquals( Arrays.asList( file ), history );
+        }
+    }
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.graph.test;
+
+import java.io.File;
+
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.graph.impl.*;
+import com.hp.hpl.jena.shared.ReificationStyle;
+import com.hp.hpl.jena.util.FileUtils;
+
+/**
+    Test a MappedGraphMaker; use the abstract tests, plus checks that graphs
+    persist between makers.
+*/
+public class TestMappedGraphMaker extends AbstractTestGraphMaker
+    {
+    public TestMappedGraphMaker( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestMappedGraphMaker.class ); }
+
+    @Override
+    public GraphMaker getGraphMaker()
+        {
+        String scratch = FileUtils.getScratchDirectory( "jena-test-MappedGraphMaker" ).getPath();
+        return new MappedGraphMaker( scratch, ReificationStyle.Minimal, true );
+        }
+
+    public void testDetectsExistingFiles()
+        {
+        File scratch = FileUtils.getScratchDirectory( "jena-test-MappedGraphMaker-already" );
+        Graph content = graphWith( "something hasProperty someValue" );
+        MappedGraphMaker A = new MappedGraphMaker( scratch.getPath(), ReificationStyle.Minimal, true );
+        MappedGraphMaker B = new MappedGraphMaker( scratch.getPath(), ReificationStyle.Minimal, true );
+        MappedGraph gA = (MappedGraph) A.createGraph( "already", true );
+        gA.getBulkUpdateHandler().add( content );
+        gA.close();
+        assertTrue( B.hasGraph( "already" ) );
+        assertEquals( setOfStrings( "already" ), B.listGraphs().toSet() );
+        MappedGraph gB = (MappedGraph) B.openGraph( "already", true );
+        assertIsomorphic( content, gB );
+        gB.close();
+        gB.delete();
+        }
+    }
@@ -134,4 +134,83 @@ public class TestNodeCache extends GraphTestBase
         assertEquals( Node.createURI( B ), c.get( B ) );
         }
     
+    /**
+        test that a set-associative cache can hold labels with the same hashcode
+        at the same time.
+    */
+    public void testClashingTwoWay()
+        {
+        String A = "eg:aa", B = "eg:bB";
+        NodeCache c = new NodeCache( 100, 2 );
+        c.put( A, Node.createURI( A ) );
+        c.put( B, Node.createURI( B ) );
+        assertEquals( Node.createURI( A ), c.get( A ) );
+        assertEquals( Node.createURI( B ), c.get( B ) );
+        }
+    
+    /**
+        test that a full set still accepts new entries by displacing old ones.
+    */
+    public void testFullSetDisplaces()
+        {
+        NodeCache c = new NodeCache( 2, 2 );
+        for (int i = 0; i < someURIs.length; i += 1) 
+            {
+            Node it = Node.createURI( someURIs[i] );
+            c.put( someURIs[i], it );
+            assertEquals( it, c.get( someURIs[i] ) );
+            }
+        assertEquals( 2, c.size() );
+        }
+    
+    /**
+        test that the cache is at least as big as requested.
+    */
+    public void testCapacity()
+        {
+        assertEquals( NodeCache.SIZE, new NodeCache().capacity() );
+        assertEquals( 17, new NodeCache( 17 ).capacity() );
+        assertEquals( 20, new NodeCache( 17, 4 ).capacity() );
+        assertEquals( 4, new NodeCache( 17, 4 ).ways() );
+        }
+    
+    /**
+        test that hits and misses are only counted when counting is on.
+    */
+    public void testCounting()
+        {
+        NodeCache c = new NodeCache();
+        c.get( "eg:A" );
+        assertEquals( 0, c.getMisses() );
+        c.setCounting( true );
+        c.get( "eg:A" );
+        c.put( "eg:A", Node.createURI( "eg:A" ) );
+        c.get( "eg:A" );
+        c.get( "eg:A" );
+        assertEquals( 1, c.getMisses() );
+        assertEquals( 2, c.getHits() );
+        c.resetCounts();
+        assertEquals( 0, c.getHits() );
+        assertEquals( 0, c.getMisses() );
+        }
+    
+    /**
+        test that Node.create re-uses nodes from a replacement cache.
+    */
+    public void testNodeSetCache()
+        {
+        NodeCache old = Node.getCache();
+        try
+            {
+            NodeCache c = new NodeCache( 100, 2 );
+            Node.setCache( c );
+            assertSame( c, Node.getCache() );
+            Node a = Node.createURI( "eg:cached" );
+            assertSame( a, Node.createURI( "eg:cached" ) );
+            assertSame( a, c.get( "eg:cached" ) );
+            }
+        finally
+            { Node.setCache( old ); }
+        }
+    
     }
@@ -57,11 +57,14 @@ public class TestPackage extends TestSuite {
         addTest( TestSimpleGraphMaker.suite() );
         addTest( TestFileGraph.suite() );
         addTest( TestFileGraphMaker.suite() );
+        addTest( TestMappedGraph.suite() );
+        addTest( TestMappedGraphMaker.suite() );
         addTest( TestGraphExtract.suite() );
         addTest( TestCapabilities.suite() );
         addTest( TestGraphUtils.suite() );
         addTest( TestGraphPrefixMapping.suite() );       
         addTest( TestGraphMatchWithInference.suite());
+        addTest( TestBlankNodeColouring.suite() );
         addTestSuite( TestGraphEvents.class );
         addTestSuite( TestGraphBaseToString.class );
     }
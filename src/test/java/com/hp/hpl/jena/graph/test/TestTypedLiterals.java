@@ -1088,7 +1088,91 @@ public class TestTypedLiterals extends TestCase {
         assertTrue("lexical form affects equality", ! l1.equals(l2));
         assertTrue("lexical form affects equality",   l1.equals(l3));
     }
-    
+
+    /**
+     * Test that the fast parsers give the same values as Xerces.
+     */
+    public void testFastParsing() {
+        checkFastParse(XSDDatatype.XSDinteger, new String[] {"0", "-0", "+12", "-007", "2147483648",
+                "123456789012345678", "1234567890123456789", "000000000000000000000001", "1.0", " 1", ""});
+        checkFastParse(XSDDatatype.XSDint, new String[] {"42", "-2147483648", "2147483648", "+0", "x"});
+        checkFastParse(XSDDatatype.XSDlong, new String[] {"-9223372036854775808", "9223372036854775808", "12"});
+        checkFastParse(XSDDatatype.XSDdecimal, new String[] {"1.5", "-0.50", "0.000", "5.", ".5", "+1.25",
+                "123456789012345678.5", "1.2345678901234567890", "00000000000000000001.10", "1e5", "."});
+        checkFastParse(XSDDatatype.XSDdouble, new String[] {"1.5", "-1.5e+10", "1E-5", "1.", "1e400", "INF", "NaN", "1e", "e5"});
+        checkFastParse(XSDDatatype.XSDfloat, new String[] {"1.5", "-1.5e+10", "-INF", "1.0f"});
+        checkFastParse(XSDDatatype.XSDboolean, new String[] {"true", "false", "1", "0", "TRUE", " true"});
+        checkFastParse(XSDDatatype.XSDdate, new String[] {"2001-01-01", "2000-02-29", "2001-02-29", "1900-02-29",
+                "2001-13-01", "0000-01-01", "2001-01-01Z", "2001-01-01+05:30", "2001-01-01+14:00", "-2001-01-01"});
+        checkFastParse(XSDDatatype.XSDdateTime, new String[] {"2001-01-01T00:00:00", "2001-01-01T23:59:59Z",
+                "2001-01-01T24:00:00", "2001-01-01T12:30:45.1230", "2001-01-01T12:30:45.000", "2001-01-01T12:30:45.",
+                "2001-01-01T12:30:45.1234567891", "2001-01-01T12:30:60", "2001-12-31T23:59:59-05:00", "2001-01-01T1:30:45"});
+    }
+
+    /**
+     * Check that each lexical form parses to an equal value of the same class, or is
+     * rejected, with and without the fast parsers, and that the literals made either
+     * way have the same value.
+     */
+    private void checkFastParse(XSDDatatype type, String[] lexicalForms) {
+        boolean originalFlag = JenaParameters.enableFastLiteralParsing;
+        try {
+            for (int i = 0; i < lexicalForms.length; i++) {
+                String lex = lexicalForms[i];
+                JenaParameters.enableFastLiteralParsing = false;
+                Object slow = parseOrException(type, lex);
+                LiteralLabel slowLabel = LiteralLabelFactory.createLiteralLabel(lex, "", type);
+                slowLabel.getIndexingValue();
+                JenaParameters.enableFastLiteralParsing = true;
+                Object fast = parseOrException(type, lex);
+                LiteralLabel fastLabel = LiteralLabelFactory.createLiteralLabel(lex, "", type);
+                String what = type.getURI() + " '" + lex + "'";
+                assertEquals(what, slow, fast);
+                assertEquals(what, slow.getClass(), fast.getClass());
+                if (slow instanceof BigDecimal) {
+                    assertEquals(what, ((BigDecimal)slow).scale(), ((BigDecimal)fast).scale());
+                }
+                assertEquals(what, slowLabel.isWellFormed(), fastLabel.isWellFormed());
+                assertTrue(what, slowLabel.sameValueAs(fastLabel));
+                assertTrue(what, fastLabel.sameValueAs(slowLabel));
+            }
+        } finally {
+            JenaParameters.enableFastLiteralParsing = originalFlag;
+        }
+    }
+
+    private Object parseOrException(RDFDatatype type, String lex) {
+        try {
+            return type.parse(lex);
+        } catch (DatatypeFormatException e) {
+            return DatatypeFormatException.class;
+        }
+    }
+
+    /**
+     * Test that XSD literals made from a lexical form are only parsed when
+     * their value is needed, and that ill-formed ones are then reported.
+     */
+    public void testDelayedParsing() {
+        LiteralLabel bad = LiteralLabelFactory.createLiteralLabel("fool", "", XSDDatatype.XSDint);
+        LiteralLabel same = LiteralLabelFactory.createLiteralLabel("fool", "", XSDDatatype.XSDint);
+        assertEquals(bad, same);
+        assertEquals(bad.hashCode(), same.hashCode());
+        assertEquals(XSDDatatype.XSDint, bad.getDatatype());
+        assertFalse(bad.isWellFormed());
+        try {
+            same.getValue();
+            fail("ill-formed literal should not have a value");
+        } catch (DatatypeFormatException e) {}
+
+        LiteralLabel good = LiteralLabelFactory.createLiteralLabel("2001-01-01T12:00:00Z", "", XSDDatatype.XSDdateTime);
+        LiteralLabel made = LiteralLabelFactory.create(good.getValue());
+        assertEquals(good, made);
+        assertEquals(good.hashCode(), made.hashCode());
+        assertEquals(XSDDatatype.XSDdateTime, good.getDatatype());
+        assertTrue(good.sameValueAs(made));
+    }
+
     /**
      * Test parse/unparse pairing for problem datatypes
      */
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem.compact.test;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+/**
+    Timing and footprint harness, not part of the test suite, comparing the
+    default memory graph with the dictionary-encoded one. Run with a fixed
+    heap (eg -Xmx1g) for the bytes-per-triple figures to be comparable.
+*/
+public class CompactStoreSpeed
+    {
+    static final int COUNT = 1000000;
+
+    public static void main( String [] args )
+        {
+        for (int i = 0; i < 3; i += 1)
+            {
+            measure( "GraphMem", Factory.createGraphMem() );
+            measure( "GraphMemCompact", Factory.createGraphMemCompact() );
+            }
+        }
+
+    static Triple newt( int i )
+        {
+        return Triple.create
+            ( Node.createURI( "eg:s" + (i % 100000) ),
+            Node.createURI( "eg:p" + ((i + 11) % 20) ),
+            Node.createURI( "eg:o" + ((i * 31) % 250000) ) );
+        }
+
+    static long usedMemory()
+        {
+        Runtime r = Runtime.getRuntime();
+        for (int i = 0; i < 4; i += 1) System.gc();
+        return r.totalMemory() - r.freeMemory();
+        }
+
+    static void measure( String title, Graph g )
+        {
+        Triple [] triples = new Triple[COUNT];
+        for (int i = 0; i < COUNT; i += 1) triples[i] = newt( i );
+        long before = usedMemory();
+        long began = System.currentTimeMillis();
+        for (int i = 0; i < COUNT; i += 1) g.add( triples[i] );
+        long fill = System.currentTimeMillis() - began;
+        long bytes = usedMemory() - before;
+        began = System.currentTimeMillis();
+        int found = 0;
+        for (int i = 0; i < 100000; i += 1)
+            {
+            ExtendedIterator<Triple> it = g.find( triples[i * 7 % COUNT].getSubject(), Node.ANY, Node.ANY );
+            while (it.hasNext()) { it.next(); found += 1; }
+            }
+        long find = System.currentTimeMillis() - began;
+        System.err.println
+            ( "+ " + title + ": " + g.size() + " triples, fill " + fill + "ms, "
+            + (bytes / Math.max( 1, g.size() )) + " bytes/triple, "
+            + "100000 subject finds " + find + "ms (" + found + " results)" );
+        }
+    }
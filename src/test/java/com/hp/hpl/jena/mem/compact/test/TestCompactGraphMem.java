@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem.compact.test;
+
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.mem.test.AbstractTestGraphMem;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+
+public class TestCompactGraphMem extends AbstractTestGraphMem
+    {
+    public TestCompactGraphMem( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestCompactGraphMem.class ); }
+
+    @Override public Graph getGraph()
+        { return Factory.createGraphMemCompact(); }
+
+    public void testSameValueLiteralsFound()
+        {
+        Graph g = getGraphWith( "x P '1'xsd:int; y P '01'xsd:int; z P '2'xsd:int" );
+        assertEquals( 2, g.find( Node.ANY, Node.ANY, node( "'1'xsd:int" ) ).toList().size() );
+        assertEquals( 1, g.find( node( "z" ), Node.ANY, node( "'02'xsd:int" ) ).toList().size() );
+        assertTrue( g.contains( triple( "y P '001'xsd:int" ) ) );
+        }
+
+    public void testDeleteIsByEquality()
+        {
+        Graph g = getGraphWith( "x P '1'xsd:int" );
+        g.delete( triple( "x P '01'xsd:int" ) );
+        assertEquals( 1, g.size() );
+        g.delete( triple( "x P '1'xsd:int" ) );
+        assertEquals( 0, g.size() );
+        }
+
+    public void testRemoveAllViaIterator()
+        {
+        Graph g = getGraphWith( "a P b; a P c; a Q d; e P b" );
+        ExtendedIterator<Triple> it = g.find( node( "a" ), Node.ANY, Node.ANY );
+        while (it.hasNext()) { it.next(); it.remove(); }
+        assertIsomorphic( graphWith( "e P b" ), g );
+        }
+
+    public void testNodesReusedAfterDelete()
+        {
+        Graph g = getGraphWith( "a P b" );
+        g.delete( triple( "a P b" ) );
+        graphAdd( g, "c Q d" );
+        assertIsomorphic( graphWith( "c Q d" ), g );
+        assertFalse( g.contains( triple( "a P b" ) ) );
+        }
+    }
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem.compact.test;
+
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.impl.TripleStore;
+import com.hp.hpl.jena.graph.test.AbstractTestTripleStore;
+import com.hp.hpl.jena.mem.compact.CompactTripleStore;
+
+public class TestCompactTripleStore extends AbstractTestTripleStore
+    {
+    public TestCompactTripleStore( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestCompactTripleStore.class ); }
+
+    @Override public TripleStore getTripleStore()
+        { return new CompactTripleStore( Graph.emptyGraph ); }
+
+    public void testDictionaryReleasesNodes()
+        {
+        CompactTripleStore store = new CompactTripleStore( Graph.emptyGraph );
+        store.add( triple( "a P b" ) );
+        store.add( triple( "a P c" ) );
+        assertEquals( 4, store.getDictionary().size() );
+        store.add( triple( "a P c" ) );
+        assertEquals( 4, store.getDictionary().size() );
+        store.delete( triple( "a P b" ) );
+        assertEquals( 3, store.getDictionary().size() );
+        store.delete( triple( "a P c" ) );
+        assertEquals( 0, store.getDictionary().size() );
+        }
+    }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.mem.compact.test;
+
+import java.util.*;
+
+import junit.framework.*;
+
+import com.hp.hpl.jena.mem.compact.PackedTripleIndex;
+import com.hp.hpl.jena.test.JenaTestBase;
+
+public class TestPackedTripleIndex extends JenaTestBase
+    {
+    public TestPackedTripleIndex( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestPackedTripleIndex.class ); }
+
+    public void testEmpty()
+        {
+        PackedTripleIndex x = new PackedTripleIndex();
+        assertEquals( 0, x.size() );
+        assertEquals( 0, x.keyCount() );
+        assertFalse( x.contains( 1, 2, 3 ) );
+        assertFalse( x.cursor().advance() );
+        assertFalse( x.cursor( 1 ).advance() );
+        }
+
+    public void testPacking()
+        {
+        long packed = PackedTripleIndex.pack( 17, Integer.MAX_VALUE );
+        assertEquals( 17, PackedTripleIndex.first( packed ) );
+        assertEquals( Integer.MAX_VALUE, PackedTripleIndex.second( packed ) );
+        }
+
+    public void testAddContainsRemove()
+        {
+        PackedTripleIndex x = new PackedTripleIndex();
+        assertTrue( x.add( 1, 2, 3 ) );
+        assertFalse( x.add( 1, 2, 3 ) );
+        assertTrue( x.add( 1, 2, 4 ) );
+        assertTrue( x.add( 5, 2, 3 ) );
+        assertEquals( 3, x.size() );
+        assertEquals( 2, x.keyCount() );
+        assertEquals( 2, x.count( 1 ) );
+        assertTrue( x.contains( 1, 2, 4 ) );
+        assertFalse( x.contains( 1, 3, 2 ) );
+        assertTrue( x.remove( 1, 2, 3 ) );
+        assertFalse( x.remove( 1, 2, 3 ) );
+        assertFalse( x.contains( 1, 2, 3 ) );
+        assertTrue( x.remove( 1, 2, 4 ) );
+        assertEquals( 0, x.count( 1 ) );
+        assertEquals( 1, x.keyCount() );
+        assertEquals( 1, x.size() );
+        }
+
+    public void testManyAgreesWithSet()
+        {
+        PackedTripleIndex x = new PackedTripleIndex();
+        Set<List<Integer>> expected = new HashSet<List<Integer>>();
+        Random r = new Random( 42 );
+        for (int i = 0; i < 20000; i += 1)
+            {
+            int a = 1 + r.nextInt( 50 ), b = 1 + r.nextInt( 30 ), c = 1 + r.nextInt( 30 );
+            List<Integer> t = Arrays.asList( a, b, c );
+            if (r.nextInt( 3 ) == 0)
+                assertEquals( expected.remove( t ), x.remove( a, b, c ) );
+            else
+                assertEquals( expected.add( t ), x.add( a, b, c ) );
+            }
+        assertEquals( expected.size(), x.size() );
+        assertEquals( expected, contents( x.cursor() ) );
+        }
+
+    public void testCursorForKey()
+        {
+        PackedTripleIndex x = new PackedTripleIndex();
+        x.add( 1, 2, 3 );
+        x.add( 1, 4, 5 );
+        x.add( 6, 2, 3 );
+        Set<List<Integer>> expected = new HashSet<List<Integer>>();
+        expected.add( Arrays.asList( 1, 2, 3 ) );
+        expected.add( Arrays.asList( 1, 4, 5 ) );
+        assertEquals( expected, contents( x.cursor( 1 ) ) );
+        }
+
+    public void testCursorForAdjacentKeys()
+        {
+        PackedTripleIndex x = new PackedTripleIndex();
+        for (int a = 1; a <= 50; a += 1)
+            for (int n = 0; n < a % 3 + 1; n += 1) x.add( a, 100 + a, 200 + n );
+        for (int a = 1; a <= 50; a += 1)
+            {
+            Set<List<Integer>> expected = new HashSet<List<Integer>>();
+            for (int n = 0; n < a % 3 + 1; n += 1) expected.add( Arrays.asList( a, 100 + a, 200 + n ) );
+            assertEquals( expected, contents( x.cursor( a ) ) );
+            }
+        }
+
+    public void testKeyCursor()
+        {
+        PackedTripleIndex x = new PackedTripleIndex();
+        for (int i = 1; i < 100; i += 1) x.add( i % 10 + 1, i, i );
+        Set<Integer> keys = new HashSet<Integer>();
+        PackedTripleIndex.Cursor c = x.keyCursor();
+        while (c.advance()) assertTrue( keys.add( c.a() ) );
+        assertEquals( 10, keys.size() );
+        }
+
+    public void testRemoveViaCursor()
+        {
+        PackedTripleIndex x = new PackedTripleIndex();
+        for (int i = 1; i <= 100; i += 1) x.add( i % 3 + 1, i, i );
+        PackedTripleIndex.Cursor c = x.cursor();
+        int seen = 0;
+        while (c.advance()) { seen += 1; if (c.b() % 2 == 0) c.remove(); }
+        assertEquals( 100, seen );
+        assertEquals( 50, x.size() );
+        }
+
+    public void testAddDuringCursorThrowsCME()
+        {
+        PackedTripleIndex x = new PackedTripleIndex();
+        x.add( 1, 2, 3 );
+        PackedTripleIndex.Cursor c = x.cursor();
+        x.add( 4, 5, 6 );
+        try { c.advance(); fail( "should have thrown ConcurrentModificationException" ); }
+        catch (ConcurrentModificationException e) { pass(); }
+        }
+
+    protected static Set<List<Integer>> contents( PackedTripleIndex.Cursor c )
+        {
+        Set<List<Integer>> result = new HashSet<List<Integer>>();
+        while (c.advance()) assertTrue( result.add( Arrays.asList( c.a(), c.b(), c.c() ) ) );
+        return result;
+        }
+    }
@@ -18,11 +18,14 @@
 
 package com.hp.hpl.jena.mem.faster.test;
 
+import java.util.*;
+
 import junit.framework.TestSuite;
 
 import com.hp.hpl.jena.graph.*;
 import com.hp.hpl.jena.graph.test.*;
-import com.hp.hpl.jena.mem.faster.GraphMemFaster;
+import com.hp.hpl.jena.mem.GraphMemBulkUpdateHandler;
+import com.hp.hpl.jena.mem.faster.*;
 import com.hp.hpl.jena.shared.*;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator;
 
@@ -45,6 +48,96 @@ public class TestFasterGraphMem extends AbstractTestGraph
         assertEquals( 0, g.size() );
         }
     
+    public void testBulkAddMatchesSingleAdds()
+        {
+        Triple [] triples = someTriples( 2000 );
+        Graph g = getGraphWith( "s0 P0 o0; x R y" );
+        g.getBulkUpdateHandler().add( triples );
+        Graph expected = getGraphWith( "s0 P0 o0; x R y" );
+        for (int i = 0; i < triples.length; i += 1) expected.add( triples[i] );
+        assertSameIndexes( expected, g, triples );
+        }
+
+    public void testBulkAddInParallel()
+        {
+        Triple [] triples = someTriples( 3 * FasterTripleStore.PARALLEL_THRESHOLD );
+        Graph g = getGraph();
+        ((GraphMemBulkUpdateHandler) g.getBulkUpdateHandler()).setParallel( true );
+        g.getBulkUpdateHandler().add( Arrays.asList( triples ) );
+        Graph expected = getGraph();
+        for (int i = 0; i < triples.length; i += 1) expected.add( triples[i] );
+        assertSameIndexes( expected, g, triples );
+        }
+
+    public void testBulkLoadIterator()
+        {
+        Triple [] triples = someTriples( 500 );
+        Graph g = getGraphWith( "x R y" );
+        ((GraphMemBulkUpdateHandler) g.getBulkUpdateHandler()).bulkLoad( Arrays.asList( triples ).iterator() );
+        Graph expected = getGraphWith( "x R y" );
+        for (int i = 0; i < triples.length; i += 1) expected.add( triples[i] );
+        assertSameIndexes( expected, g, triples );
+        }
+
+    public void testBulkAddNotifiesOnce()
+        {
+        Triple [] triples = someTriples( 100 );
+        Graph g = getAndRegister( L );
+        g.getBulkUpdateHandler().add( triples );
+        L.assertHas( new Object[] {"add[]", g, triples} );
+        }
+
+    public void testBulkLoadWithListenerNotifies()
+        {
+        Triple [] triples = someTriples( 100 );
+        Graph g = getAndRegister( L );
+        ((GraphMemBulkUpdateHandler) g.getBulkUpdateHandler()).bulkLoad( Arrays.asList( triples ).iterator() );
+        L.assertHas( new Object[] {"addIterator", g, Arrays.asList( triples )} );
+        }
+
+    /**
+        Answer <code>n</code> triples, with repeats, spread over a few subjects
+        with many triples each and many subjects with few, and with some
+        literal objects, so that both kinds of bunch are exercised.
+    */
+    protected Triple [] someTriples( int n )
+        {
+        Random r = new Random( 17 );
+        Triple [] result = new Triple[n];
+        for (int i = 0; i < n; i += 1)
+            {
+            Node s = node( "s" + (i % 3 == 0 ? r.nextInt( 5 ) : r.nextInt( n / 4 + 1 )) );
+            Node p = node( "P" + r.nextInt( 7 ) );
+            Node o = i % 5 == 0 ? node( "'" + r.nextInt( 50 ) + "'" ) : node( "o" + r.nextInt( n / 2 + 1 ) );
+            result[i] = Triple.create( s, p, o );
+            }
+        return result;
+        }
+
+    /**
+        Assert that <code>g</code> holds the same triples as <code>expected</code>,
+        looking them up by each of subject, predicate and object.
+    */
+    protected void assertSameIndexes( Graph expected, Graph g, Triple [] triples )
+        {
+        assertEquals( expected.size(), g.size() );
+        assertIsomorphic( expected, g );
+        Set<Triple> patterns = new HashSet<Triple>();
+        for (int i = 0; i < triples.length; i += 1)
+            {
+            Triple t = triples[i];
+            assertTrue( g.contains( t ) );
+            patterns.add( Triple.create( t.getSubject(), Node.ANY, Node.ANY ) );
+            patterns.add( Triple.create( Node.ANY, t.getPredicate(), Node.ANY ) );
+            patterns.add( Triple.create( Node.ANY, Node.ANY, t.getObject() ) );
+            }
+        for (Iterator<Triple> it = patterns.iterator(); it.hasNext();)
+            {
+            Triple pattern = it.next();
+            assertEquals( expected.find( pattern ).toSet(), g.find( pattern ).toSet() );
+            }
+        }
+
     public void testSizeAfterRemove() 
         {
         Graph g = getGraphWith( "x p y" );
@@ -101,13 +194,31 @@ public class TestFasterGraphMem extends AbstractTestGraph
         Graph g = getGraphWith( "a P b; a P c; a Q b; x S y" );
         GraphStatisticsHandler h = g.getStatisticsHandler();
         assertNotNull( h );
-        assertEquals( -1L, h.getStatistic( node( "a" ), node( "P" ), Node.ANY ) );
-        assertEquals( -1L, h.getStatistic( Node.ANY, node( "P" ), node( "b"  ) ) );
-        assertEquals( -1L, h.getStatistic( node( "a" ), Node.ANY, node( "b" ) ) );
+        assertEquals( 2L, h.getStatistic( node( "a" ), node( "P" ), Node.ANY ) );
+        assertEquals( 1L, h.getStatistic( Node.ANY, node( "P" ), node( "b"  ) ) );
+        assertEquals( 2L, h.getStatistic( node( "a" ), Node.ANY, node( "b" ) ) );
+        assertEquals( 0L, h.getStatistic( node( "x" ), node( "P" ), Node.ANY ) );
     //
         assertEquals( 0L, h.getStatistic( node( "no" ), node( "P" ), Node.ANY ) );
         }
     
+    public void testDoubletonStatisticsEstimatedForLargeBunches()
+        {
+        Graph g = getGraphWith( "" );
+        int n = 200;
+        for (int i = 0; i < n; i += 1)
+            {
+            g.add( triple( "a P x" + i ) );
+            g.add( triple( "s" + i + " P b" ) );
+            }
+        g.add( triple( "a P b" ) );
+        GraphStatisticsHandler h = g.getStatisticsHandler();
+        long estimate = h.getStatistic( node( "a" ), node( "P" ), Node.ANY );
+        assertTrue( estimate >= 1 && estimate <= n + 1 );
+        long both = h.getStatistic( node( "a" ), Node.ANY, node( "b" ) );
+        assertTrue( both >= 1 && both <= n + 1 );
+        }
+    
     public void testStatisticsWithOnlyVariables()
         {
         testStatsWithAllVariables( "" );
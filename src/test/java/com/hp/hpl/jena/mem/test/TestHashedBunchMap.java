@@ -42,4 +42,18 @@ public class TestHashedBunchMap extends ModelTestBase
         b.clear();
         assertEquals( 0, b.size() );
         }
+
+    public void testPresizeKeepsEntries()
+        {
+        HashedBunchMap b = new HashedBunchMap();
+        TripleBunch [] bunches = new TripleBunch[20];
+        for (int i = 0; i < bunches.length; i += 1) b.put( "key" + i, bunches[i] = new ArrayBunch() );
+        b.presize( 1000 );
+        assertTrue( b.capacity > 2000 );
+        assertEquals( 20, b.size() );
+        for (int i = 0; i < bunches.length; i += 1) assertSame( bunches[i], b.get( "key" + i ) );
+        int capacity = b.capacity;
+        for (int i = 20; i < 1020; i += 1) b.put( "key" + i, new ArrayBunch() );
+        assertEquals( capacity, b.capacity );
+        }
     }
@@ -65,6 +65,8 @@ public class N3JenaWriterTests extends N3ExternalTestsCom
                          N3JenaWriter.n3WriterPlain)) ;
         addTest(new Test(testName, inputFile, resultsFile,
                          N3JenaWriter.n3WriterTriples)) ;
+        addTest(new Test(testName, inputFile, resultsFile,
+                         N3JenaWriter.turtleWriterStreaming)) ;
 	}
 
 
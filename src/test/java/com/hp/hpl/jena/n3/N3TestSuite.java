@@ -40,5 +40,6 @@ public class N3TestSuite extends TestSuite
 //		addTest(new N3ExternalTests()) ;
 //		addTest(new N3JenaReaderTests()) ;
 		addTest(new N3JenaWriterTests()) ;
+        addTest(TestN3JenaWriterStreaming.suite()) ;
 	}
 }
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.n3;
+
+import java.io.StringReader ;
+import java.io.StringWriter ;
+
+import junit.framework.TestCase ;
+import junit.framework.TestSuite ;
+
+import com.hp.hpl.jena.rdf.model.* ;
+import com.hp.hpl.jena.vocabulary.RDF ;
+
+public class TestN3JenaWriterStreaming extends TestCase
+{
+    public static TestSuite suite()
+    {
+        TestSuite ts = new TestSuite(TestN3JenaWriterStreaming.class) ;
+        ts.setName("TestN3JenaWriterStreaming") ;
+        return ts ;
+    }
+
+    static final String NS = "http://example/" ;
+
+    public void testWriterName()
+    {
+        Model m = ModelFactory.createDefaultModel() ;
+        assertTrue(m.getWriter(N3JenaWriter.turtleWriterStreaming) instanceof N3JenaWriterStreaming) ;
+    }
+
+    public void testPrefixesAndType()
+    {
+        Model m = ModelFactory.createDefaultModel() ;
+        m.setNsPrefix("ex", NS) ;
+        m.add(m.createResource(NS+"s"), RDF.type, m.createResource(NS+"C")) ;
+        m.add(m.createResource(NS+"s"), m.createProperty(NS+"p"), "v") ;
+        String out = roundTrip(m) ;
+        assertTrue(out, out.indexOf("@prefix ex:") >= 0) ;
+        assertTrue(out, out.indexOf("ex:s") >= 0) ;
+        assertTrue(out, out.indexOf(" a ") >= 0) ;
+    }
+
+    public void testOneRefBNodeInlined()
+    {
+        Model m = read("<http://example/s> <http://example/p> [ <http://example/q> [ <http://example/r> 1 ] ] .") ;
+        String out = roundTrip(m) ;
+        assertTrue(out, out.indexOf("_:") < 0) ;
+        assertTrue(out, out.indexOf('[') >= 0) ;
+    }
+
+    public void testSharedBNodeLabelled()
+    {
+        Model m = read("<http://example/s> <http://example/p> _:a . <http://example/t> <http://example/p> _:a . _:a <http://example/q> 1 .") ;
+        String out = roundTrip(m) ;
+        assertTrue(out, out.indexOf("_:b") >= 0) ;
+    }
+
+    public void testList()
+    {
+        Model m = read("<http://example/s> <http://example/p> ( 1 [ <http://example/q> 2 ] ( 3 ) ) .") ;
+        String out = roundTrip(m) ;
+        assertTrue(out, out.indexOf('(') >= 0) ;
+        assertTrue(out, out.indexOf("first") < 0) ;
+    }
+
+    public void testSharedListNotInlined()
+    {
+        roundTrip(read("<http://example/s> <http://example/p> _:l . <http://example/t> <http://example/p> _:l . _:l <"+RDF.first.getURI()+"> 1 ; <"+RDF.rest.getURI()+"> ( 2 ) .")) ;
+    }
+
+    public void testCycleOfOneRefBNodes()
+    {
+        roundTrip(read("_:a <http://example/p> _:b . _:b <http://example/p> _:c . _:c <http://example/p> _:a .")) ;
+        roundTrip(read("_:a <http://example/p> _:a .")) ;
+        roundTrip(read("_:a <http://example/p> _:b . _:b <http://example/p> _:a . _:b <http://example/q> [ <http://example/r> 1 ] .")) ;
+    }
+
+    public void testReification()
+    {
+        Model m = ModelFactory.createDefaultModel() ;
+        Statement st = m.createStatement(m.createResource(NS+"s"), m.createProperty(NS+"p"), "v") ;
+        m.add(st) ;
+        st.createReifiedStatement(NS+"r") ;
+        roundTrip(m) ;
+        st.createReifiedStatement() ;
+        roundTrip(m) ;
+    }
+
+    public void testMaxInlineDepth()
+    {
+        Model m = ModelFactory.createDefaultModel() ;
+        Resource r = m.createResource(NS+"s") ;
+        for ( int i = 0 ; i < 20 ; i++ )
+        {
+            Resource next = m.createResource() ;
+            m.add(r, m.createProperty(NS+"p"), next) ;
+            r = next ;
+        }
+        m.add(r, m.createProperty(NS+"p"), m.createList(new RDFNode[] { m.createTypedLiteral(1), m.createResource() })) ;
+        for ( int max = 0 ; max < 25 ; max++ )
+        {
+            N3JenaWriterStreaming w = new N3JenaWriterStreaming() ;
+            w.maxInlineDepth = max ;
+            roundTrip(m, w) ;
+        }
+    }
+
+    private Model read(String turtle)
+    {
+        Model m = ModelFactory.createDefaultModel() ;
+        m.read(new StringReader(turtle), NS, "TURTLE") ;
+        return m ;
+    }
+
+    private String roundTrip(Model m)
+    {
+        return roundTrip(m, new N3JenaWriterStreaming()) ;
+    }
+
+    private String roundTrip(Model m, RDFWriter w)
+    {
+        StringWriter sw = new StringWriter() ;
+        w.write(m, sw, NS) ;
+        String out = sw.toString() ;
+        Model m2 = ModelFactory.createDefaultModel() ;
+        m2.read(new StringReader(out), NS, "TURTLE") ;
+        assertTrue(out, m.isIsomorphicWith(m2)) ;
+        return out ;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Package
+///////////////
+package com.hp.hpl.jena.ontology.impl;
+
+
+// Imports
+///////////////
+import java.util.*;
+
+import junit.framework.TestCase;
+
+import com.hp.hpl.jena.ontology.*;
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.vocabulary.OWL;
+
+
+/**
+ * <p>
+ * Unit tests for the class hierarchy index of an ontology model.
+ * </p>
+ */
+public class TestClassHierarchyIndex
+    extends TestCase
+{
+    // Constants
+    //////////////////////////////////
+
+    String NS = "http://example.com/test#";
+
+    // Instance variables
+    //////////////////////////////////
+
+    OntModelImpl m_model;
+
+    OntClass m_a;
+    OntClass m_b;
+    OntClass m_c;
+    OntClass m_d;
+    OntClass m_e;
+    OntClass m_f;
+
+    // External signature methods
+    //////////////////////////////////
+
+    @Override
+    protected void setUp() throws Exception {
+        m_model = (OntModelImpl) ModelFactory.createOntologyModel( OntModelSpec.OWL_MEM );
+        m_a = m_model.createClass( NS + "A" );
+        m_b = m_model.createClass( NS + "B" );
+        m_c = m_model.createClass( NS + "C" );
+        m_d = m_model.createClass( NS + "D" );
+        m_e = m_model.createClass( NS + "E" );
+        m_f = m_model.createClass( NS + "F" );
+
+        //       A     F
+        //      / \
+        //     B   C
+        //      \ / \
+        //       D   E
+        m_a.addSubClass( m_b );
+        m_a.addSubClass( m_c );
+        m_b.addSubClass( m_d );
+        m_c.addSubClass( m_d );
+        m_c.addSubClass( m_e );
+    }
+
+    public void testEnable() {
+        assertNull( m_model.getClassHierarchyIndex() );
+        m_model.setClassHierarchyIndexed( true );
+        ClassHierarchyIndex index = m_model.getClassHierarchyIndex();
+        assertNotNull( index );
+        m_model.setClassHierarchyIndexed( true );
+        assertSame( index, m_model.getClassHierarchyIndex() );
+        m_model.setClassHierarchyIndexed( false );
+        assertNull( m_model.getClassHierarchyIndex() );
+    }
+
+    /** The index gives the same answers as the model without it */
+    public void testSameAsUnindexed() {
+        Map<OntClass, Set<OntClass>> subs = new HashMap<OntClass, Set<OntClass>>();
+        Map<OntClass, Set<OntClass>> supers = new HashMap<OntClass, Set<OntClass>>();
+        OntClass[] classes = new OntClass[] {m_a, m_b, m_c, m_d, m_e, m_f};
+        for (int i = 0; i < classes.length; i++) {
+            subs.put( classes[i], classes[i].listSubClasses( true ).toSet() );
+            supers.put( classes[i], classes[i].listSuperClasses( true ).toSet() );
+        }
+        Set<OntClass> roots = m_model.listHierarchyRootClasses().toSet();
+        List<OntClass> named = OntTools.namedHierarchyRoots( m_model );
+
+        m_model.setClassHierarchyIndexed( true );
+        for (int i = 0; i < classes.length; i++) {
+            assertEquals( subs.get( classes[i] ), classes[i].listSubClasses( true ).toSet() );
+            assertEquals( supers.get( classes[i] ), classes[i].listSuperClasses( true ).toSet() );
+        }
+        assertEquals( roots, m_model.listHierarchyRootClasses().toSet() );
+        assertEquals( new HashSet<OntClass>( named ), new HashSet<OntClass>( OntTools.namedHierarchyRoots( m_model ) ) );
+
+        assertTrue( m_d.hasSuperClass( m_b, true ) );
+        assertFalse( m_d.hasSuperClass( m_a, true ) );
+        assertTrue( m_a.hasSubClass( m_c, true ) );
+        assertFalse( m_a.hasSubClass( m_e, true ) );
+    }
+
+    public void testRedundantEdge() {
+        m_a.addSubClass( m_d );
+        m_model.setClassHierarchyIndexed( true );
+        assertEquals( set( m_b, m_c ), m_d.listSuperClasses( true ).toSet() );
+        assertEquals( set( m_b, m_c ), m_a.listSubClasses( true ).toSet() );
+        assertFalse( m_d.hasSuperClass( m_a, true ) );
+    }
+
+    public void testEquivalentClasses() {
+        m_b.addSubClass( m_c );
+        m_c.addSubClass( m_b );
+        m_model.setClassHierarchyIndexed( true );
+        ClassHierarchyIndex index = m_model.getClassHierarchyIndex();
+
+        // B and C are equivalent, so neither is a direct sub-class of the other
+        assertEquals( set( m_b, m_c ), m_a.listSubClasses( true ).toSet() );
+        assertEquals( set( m_d, m_e ), m_b.listSubClasses( true ).toSet() );
+        assertEquals( set( m_a ), m_c.listSuperClasses( true ).toSet() );
+        assertEquals( set( m_b, m_c ), m_d.listSuperClasses( true ).toSet() );
+        assertTrue( index.isSubClassOf( m_b, m_c ) );
+        assertTrue( index.isSubClassOf( m_c, m_b ) );
+        assertEquals( index.getDepth( m_b ), index.getDepth( m_c ) );
+    }
+
+    public void testDepth() {
+        m_model.setClassHierarchyIndexed( true );
+        ClassHierarchyIndex index = m_model.getClassHierarchyIndex();
+        assertEquals( 0, index.getDepth( m_a ) );
+        assertEquals( 1, index.getDepth( m_b ) );
+        assertEquals( 2, index.getDepth( m_d ) );
+        assertEquals( 0, index.getDepth( m_f ) );
+        assertEquals( -1, index.getDepth( m_model.createResource( NS + "X" ) ) );
+        assertTrue( index.isSubClassOf( m_d, m_a ) );
+        assertFalse( index.isSubClassOf( m_a, m_d ) );
+    }
+
+    public void testLCA() {
+        m_model.setClassHierarchyIndexed( true );
+        OntClass thing = m_model.createClass( OWL.Thing.getURI() );
+        assertEquals( m_c, OntTools.getLCA( m_model, m_d, m_e ) );
+        assertEquals( m_a, OntTools.getLCA( m_model, m_b, m_e ) );
+        assertEquals( m_c, OntTools.getLCA( m_model, m_c, m_d ) );
+        assertEquals( thing, OntTools.getLCA( m_model, m_d, m_f ) );
+        assertEquals( m_a, OntTools.getLCA( m_model, m_a, m_b, m_c ) );
+        assertNull( OntTools.getLCA( m_model, m_b, m_d, m_e ) );
+    }
+
+    public void testChanges() {
+        m_model.setClassHierarchyIndexed( true );
+        assertEquals( set( m_b, m_c ), m_a.listSubClasses( true ).toSet() );
+        assertEquals( set( m_a, m_f ), m_model.listHierarchyRootClasses().toSet() );
+
+        m_f.addSubClass( m_a );
+        assertEquals( set( m_a ), m_f.listSubClasses( true ).toSet() );
+        assertEquals( set( m_f ), m_model.listHierarchyRootClasses().toSet() );
+
+        m_c.removeSubClass( m_e );
+        assertEquals( set( m_d ), m_c.listSubClasses( true ).toSet() );
+        assertTrue( m_model.listHierarchyRootClasses().toSet().contains( m_e ) );
+
+        OntClass g = m_model.createClass( NS + "G" );
+        assertTrue( m_model.listHierarchyRootClasses().toSet().contains( g ) );
+        m_d.addSubClass( g );
+        assertEquals( set( g ), m_d.listSubClasses( true ).toSet() );
+    }
+
+    public void testSubModelChanges() {
+        m_model.setClassHierarchyIndexed( true );
+        assertEquals( set(), m_e.listSubClasses( true ).toSet() );
+
+        OntModel sub = ModelFactory.createOntologyModel( OntModelSpec.OWL_MEM );
+        OntClass g = sub.createClass( NS + "G" );
+        g.addSuperClass( sub.getResource( NS + "E" ) );
+        m_model.addSubModel( sub );
+        assertEquals( set( m_model.getOntClass( NS + "G" ) ), m_e.listSubClasses( true ).toSet() );
+
+        m_model.removeSubModel( sub );
+        assertEquals( set(), m_e.listSubClasses( true ).toSet() );
+    }
+
+    public void testInferenceModel() {
+        OntModelImpl m = (OntModelImpl) ModelFactory.createOntologyModel( OntModelSpec.OWL_MEM_MICRO_RULE_INF );
+        OntClass a = m.createClass( NS + "A" );
+        OntClass b = m.createClass( NS + "B" );
+        OntClass c = m.createClass( NS + "C" );
+        a.addSubClass( b );
+        b.addSubClass( c );
+        Set<OntClass> subs = a.listSubClasses( true ).toSet();
+        Set<OntClass> supers = c.listSuperClasses( true ).toSet();
+
+        m.setClassHierarchyIndexed( true );
+        assertEquals( subs, a.listSubClasses( true ).toSet() );
+        assertEquals( supers, c.listSuperClasses( true ).toSet() );
+        assertEquals( set( b ), a.listSubClasses( true ).toSet() );
+
+        a.addSubClass( c );
+        c.addSuperClass( m.createClass( NS + "D" ) );
+        assertEquals( set( b ), a.listSubClasses( true ).toSet() );
+        assertEquals( set( b, m.getOntClass( NS + "D" ) ), c.listSuperClasses( true ).toSet() );
+    }
+
+
+    // Internal implementation methods
+    //////////////////////////////////
+
+    private Set<OntClass> set( OntClass... classes ) {
+        return new HashSet<OntClass>( Arrays.asList( classes ) );
+    }
+}
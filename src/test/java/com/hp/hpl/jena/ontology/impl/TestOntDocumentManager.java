@@ -32,6 +32,7 @@ import junit.framework.TestSuite;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.graph.impl.SimpleGraphMaker;
 import com.hp.hpl.jena.ontology.*;
 import com.hp.hpl.jena.ontology.OntDocumentManager.ReadFailureHandler;
@@ -589,6 +590,58 @@ public class TestOntDocumentManager
     }
 
 
+    public void testImportThreads() {
+        OntDocumentManager o1 = new OntDocumentManager( (String) null );
+        assertEquals( OntDocumentManager.DEFAULT_IMPORT_THREADS, o1.getImportThreads() );
+        o1.setImportThreads( 3 );
+        assertEquals( 3, o1.getImportThreads() );
+        o1.reset();
+        assertEquals( OntDocumentManager.DEFAULT_IMPORT_THREADS, o1.getImportThreads() );
+
+        try {
+            o1.setImportThreads( 0 );
+            fail( "Should not allow zero threads" );
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /** Reading the imports on several threads gives the same sub-models, in the same order, as on one */
+    public void testParallelImports() {
+        for (int i = 0;  i < s_testData.length;  i++) {
+            if (s_testData[i][3] == null && ((Boolean) s_testData[i][2]).booleanValue()) {
+                String source = "file:" + s_testData[i][0] + "/a.owl";
+                OntModel serial = importModel( source, 1 );
+                OntModel parallel = importModel( source, 4 );
+
+                assertEquals( "Marker count not correct", ((Integer) s_testData[i][1]).intValue(), countMarkers( parallel ) );
+                assertEquals( serial.listImportedOntologyURIs( true ), parallel.listImportedOntologyURIs( true ) );
+                List<Graph> expected = serial.getSubGraphs();
+                List<Graph> actual = parallel.getSubGraphs();
+                assertEquals( expected.size(), actual.size() );
+                for (int j = 0;  j < expected.size();  j++) {
+                    assertTrue( "Sub-model " + j + " differs for " + source, expected.get( j ).isIsomorphicWith( actual.get( j ) ) );
+                }
+            }
+        }
+
+        OntModel m = importModel( "file:testing/ontology/testImport6/a.owl", 4 );
+        assertTrue( m.getDocumentManager().getFileManager().hasCachedModel( "file:testing/ontology/testImport6/c.owl" ) );
+    }
+
+    /* load the given source into a model with its own document manager reading imports on the given threads */
+    private OntModel importModel( String source, int threads ) {
+        OntDocumentManager dm = new OntDocumentManager( (String) null );
+        dm.setImportThreads( threads );
+        OntModelSpec spec = new OntModelSpec( ModelFactory.createMemModelMaker(), ModelFactory.createMemModelMaker(),
+                                              dm, null, ProfileRegistry.OWL_LANG );
+        OntModel m = ModelFactory.createOntologyModel( spec, null );
+        m.read( source );
+        return m;
+    }
+
+
     /* count the number of marker statements in the combined model */
     public static int countMarkers( Model m ) {
         int count = 0;
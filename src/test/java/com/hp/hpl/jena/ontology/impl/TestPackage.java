@@ -52,6 +52,7 @@ public class TestPackage extends TestSuite {
         addTest( new TestSuite( TestOntClass.class ));
         addTest( new TestSuite( TestFrameView.class ));
         addTest( new TestSuite( TestOntTools.class ));
+        addTest( new TestSuite( TestClassHierarchyIndex.class ));
     }
 
     private void addTest(String name, TestSuite tc) {
@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.rdf.model.test;
+
+import java.io.*;
+import java.util.*;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.rdf.model.impl.*;
+import com.hp.hpl.jena.shared.SyntaxError;
+
+import junit.framework.TestSuite;
+
+/**
+    Tests for NTripleGraphReader, mostly by comparing what it reads with what
+    the original NTripleReader reads.
+*/
+public class TestNTripleGraphReader extends ModelTestBase
+    {
+    public TestNTripleGraphReader( String name )
+        { super( name ); }
+
+    public static TestSuite suite()
+        { return new TestSuite( TestNTripleGraphReader.class ); }
+
+    public void testIsTheNTripleReader()
+        {
+        Model m = ModelFactory.createDefaultModel();
+        assertInstanceOf( NTripleGraphReader.class, m.getReader( "N-TRIPLE" ) );
+        assertInstanceOf( NTripleGraphReader.class, m.getReader( "N-TRIPLES" ) );
+        }
+
+    public void testSameAsNTripleReader()
+        {
+        String nt =
+            "# a comment\n"
+            + "<http://example.org/a> <http://example.org/p> <http://example.org/b> .\n"
+            + "  <http://example.org/a>\t<http://example.org/p>   \"plain\" . # trailing comment\n"
+            + "<http://example.org/a> <http://example.org/p> \"tagged\"@en-GB .\n"
+            + "<http://example.org/a> <http://example.org/p> \"42\"^^<http://www.w3.org/2001/XMLSchema#int> .\n"
+            + "<http://example.org/a> <http://example.org/p> \"foo\\\"\\\\\\n\\r\\tbar\" .\n"
+            + "<http://example.org/a> <http://example.org/p> \"\\u00E9t\\u00E9\" .\n"
+            + "_:x <http://example.org/p> _:y-1 .\n"
+            + "_:y-1 <http://example.org/q> _:x .\n"
+            + "<http://example.org/\\u00E9> <http://example.org/p> \"\" .\n"
+            + "\n\n<http://example.org/c>\n  <http://example.org/p>\n  <http://example.org/d>\n  .\n";
+        assertIsoModels( readOld( nt ), readNew( nt ) );
+        }
+
+    public void testEscapes()
+        {
+        Model m = readNew( "<a> <p> \"\\U0001F600\\b\\f\\'\" .\n" );
+        Literal l = m.listObjects().next().asLiteral();
+        assertEquals( new StringBuilder().appendCodePoint( 0x1F600 ).append( "\b\f'" ).toString(), l.getLexicalForm() );
+        }
+
+    public void testTypedLiteral()
+        {
+        Model m = readNew( "<a> <p> \"42\"^^<http://www.w3.org/2001/XMLSchema#int> .\n" );
+        Node o = m.getGraph().find( Node.ANY, Node.ANY, Node.ANY ).next().getObject();
+        assertEquals( Node.createLiteral( "42", "", XSDDatatype.XSDint ), o );
+        assertEquals( 42, m.listObjects().next().asLiteral().getInt() );
+        }
+
+    public void testBlankNodeLabels()
+        {
+        Model m = readNew( "_:a <p> _:a .\n_:b <p> _:a .\n" );
+        assertEquals( 2, m.size() );
+        assertEquals( 2, m.listSubjects().toList().size() );
+        Triple t = m.getGraph().find( Node.ANY, Node.ANY, Node.ANY ).next();
+        assertTrue( t.getSubject().isBlank() );
+        assertTrue( t.getObject().isBlank() );
+        }
+
+    public void testTokensAcrossBuffers()
+        {
+        StringBuilder nt = new StringBuilder();
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < NTripleGraphReader.BUFFER_SIZE * 3 / 2; i += 1) big.append( (char) ('a' + i % 26) );
+        int n = NTripleGraphReader.BATCH_SIZE * 3 + 7;
+        for (int i = 0; i < n; i += 1)
+            nt.append( "<http://example.org/s" ).append( i % 1000 ).append( "> <http://example.org/p" )
+                .append( i % 7 ).append( "> \"v" ).append( i ).append( "\" .\n" );
+        nt.append( "<http://example.org/" ).append( big ).append( "> <http://example.org/p> \"" ).append( big ).append( "\\t\" .\n" );
+        Model m = readNew( nt.toString() );
+        assertEquals( n + 1, m.size() );
+        assertIsoModels( readOld( nt.toString() ), m );
+        }
+
+    public void testSyntaxErrorsSkipLines()
+        {
+        String nt =
+            "<eh:/a> <eh:/p> <eh:/b> .\n"
+            + "<eh:/a> <eh:/p> <eh:/b .\n"
+            + "<eh:/a> <eh:/p> \"c\" .\n"
+            + "<eh:/a> \"p\" <eh:/d> .\n"
+            + "<eh:/a> <eh:/p> \"\\z\" .\n"
+            + "<eh:/a> <eh:/p> <eh:/e> .\n";
+        Model m = ModelFactory.createDefaultModel();
+        RDFReader r = new NTripleGraphReader();
+        final List<Exception> errors = new ArrayList<Exception>();
+        r.setErrorHandler( new RDFDefaultErrorHandler()
+            {
+            @Override public void error( Exception e )
+                { errors.add( e ); }
+            } );
+        try
+            {
+            r.read( m, new StringReader( nt ), "" );
+            fail( "should have thrown a SyntaxError" );
+            }
+        catch (SyntaxError e)
+            { pass(); }
+        assertEquals( 3, errors.size() );
+        assertTrue( errors.get( 0 ).getMessage().contains( "line 2" ) );
+        assertTrue( errors.get( 1 ).getMessage().contains( "line 4" ) );
+        assertTrue( errors.get( 2 ).getMessage().contains( "line 5" ) );
+        assertIsoModels( modelWithStatements( "a p b; a p 'c'; a p e" ), m );
+        }
+
+    public void testReadIntoGraph()
+        {
+        Graph g = Factory.createGraphMem();
+        new NTripleGraphReader().read( g, new StringReader( "<a> <p> <b> .\n<a> <p> <b> .\n" ), "" );
+        assertEquals( 1, g.size() );
+        assertTrue( g.contains( Node.createURI( "a" ), Node.createURI( "p" ), Node.createURI( "b" ) ) );
+        }
+
+    public void testThreadsProperty()
+        {
+        NTripleGraphReader r = new NTripleGraphReader();
+        assertEquals( 1, r.getThreads() );
+        assertEquals( 1, r.setProperty( "threads", "4" ) );
+        assertEquals( 4, r.getThreads() );
+        assertEquals( 4, r.setProperty( "threads", 2 ) );
+        assertEquals( 2, r.getThreads() );
+        assertEquals( NTripleGraphReader.CHUNK_SIZE, r.setProperty( "chunkSize", 1000 ) );
+        assertEquals( 1000, r.getChunkSize() );
+        }
+
+    public void testParallelSameAsSerial()
+        {
+        String nt = manyTriples( "<eh:/s" );
+        Graph serial = readNew( nt ).getGraph();
+        NTripleGraphReader r = new NTripleGraphReader();
+        r.setThreads( 4 );
+        r.setChunkSize( CHUNK );
+        Graph fromStream = Factory.createGraphMem();
+        r.read( fromStream, new ByteArrayInputStream( nt.getBytes() ), "" );
+        assertEquals( serial.find( Node.ANY, Node.ANY, Node.ANY ).toSet(), fromStream.find( Node.ANY, Node.ANY, Node.ANY ).toSet() );
+        Graph fromReader = Factory.createGraphMem();
+        r.read( fromReader, new StringReader( nt ), "" );
+        assertEquals( serial.find( Node.ANY, Node.ANY, Node.ANY ).toSet(), fromReader.find( Node.ANY, Node.ANY, Node.ANY ).toSet() );
+        }
+
+    public void testParallelLinesLongerThanChunks()
+        {
+        String lines = manyTriples( "<eh:/s" );
+        String nt = lines.substring( 0, lines.indexOf( '\n', 5000 ) + 1 ) + "<eh:/a> <eh:/p> <eh:/z> .";
+        Graph serial = readNew( nt ).getGraph();
+        NTripleGraphReader r = new NTripleGraphReader();
+        r.setThreads( 2 );
+        r.setChunkSize( 10 );
+        Graph g = Factory.createGraphMem();
+        r.read( g, new ByteArrayInputStream( nt.getBytes() ), "" );
+        assertEquals( serial.find( Node.ANY, Node.ANY, Node.ANY ).toSet(), g.find( Node.ANY, Node.ANY, Node.ANY ).toSet() );
+        }
+
+    public void testParallelBlankNodeLabels()
+        {
+        String nt = manyTriples( "_:b" );
+        Model m = ModelFactory.createDefaultModel();
+        NTripleGraphReader r = new NTripleGraphReader();
+        r.setThreads( 4 );
+        r.setChunkSize( CHUNK );
+        r.read( m, new ByteArrayInputStream( nt.getBytes() ), "" );
+        assertEquals( readNew( nt ).size(), m.size() );
+        assertEquals( 100, m.listSubjects().toList().size() );
+        }
+
+    public void testParallelErrorLines()
+        {
+        String good = manyTriples( "<eh:/s" );
+        int lines = good.split( "\n" ).length;
+        String nt = good + "<eh:/a> <eh:/p> <eh:/b .\n" + good + "<eh:/a> <eh:/p> \"c\" .\n";
+        Model m = ModelFactory.createDefaultModel();
+        NTripleGraphReader r = new NTripleGraphReader();
+        r.setThreads( 3 );
+        r.setChunkSize( CHUNK );
+        final List<Exception> errors = new ArrayList<Exception>();
+        r.setErrorHandler( new RDFDefaultErrorHandler()
+            {
+            @Override public void error( Exception e )
+                { errors.add( e ); }
+            } );
+        try
+            {
+            r.read( m, new ByteArrayInputStream( nt.getBytes() ), "" );
+            fail( "should have thrown a SyntaxError" );
+            }
+        catch (SyntaxError e)
+            { pass(); }
+        assertEquals( 1, errors.size() );
+        assertTrue( errors.get( 0 ).getMessage().contains( "line " + (lines + 1) + " " ) );
+        assertTrue( m.contains( resource( "eh:/a" ), property( "eh:/p" ), "c" ) );
+        }
+
+    public void testParallelUnknownDatatypes()
+        {
+        String prefix = "eh:/datatype/" + System.identityHashCode( this ) + "/";
+        StringBuilder nt = new StringBuilder();
+        for (int i = 0; nt.length() < CHUNK * 10; i += 1)
+            nt.append( "<eh:/s" ).append( i ).append( "> <eh:/p> \"v\"^^<" ).append( prefix ).append( i % 500 ).append( "> .\n" );
+        NTripleGraphReader r = new NTripleGraphReader();
+        r.setThreads( 4 );
+        r.setChunkSize( CHUNK );
+        Graph g = Factory.createGraphMem();
+        r.read( g, new StringReader( nt.toString() ), "" );
+        Set<String> types = new HashSet<String>();
+        for (Iterator<Triple> it = g.find( Node.ANY, Node.ANY, Node.ANY ); it.hasNext();)
+            {
+            Node o = it.next().getObject();
+            types.add( o.getLiteralDatatypeURI() );
+            assertSame( TypeMapper.getInstance().getTypeByName( o.getLiteralDatatypeURI() ), o.getLiteralDatatype() );
+            }
+        assertEquals( 500, types.size() );
+        }
+
+    /**
+        The chunk size for parallel reads in these tests, so that there are
+        several chunks without the input being large.
+    */
+    protected static final int CHUNK = 1 << 14;
+
+    /**
+        Answer about ten chunks of N-Triples whose subjects start with
+        <code>subject</code> followed by a number from 0 to 99.
+    */
+    protected String manyTriples( String subject )
+        {
+        String end = subject.startsWith( "<" ) ? ">" : "";
+        StringBuilder nt = new StringBuilder();
+        for (int i = 0; nt.length() < CHUNK * 10; i += 1)
+            nt.append( subject ).append( i % 100 ).append( end ).append( " <http://example.org/p" )
+                .append( i % 7 ).append( "> \"v" ).append( i ).append( "\" .\n" );
+        return nt.toString();
+        }
+
+    protected Model readNew( String nt )
+        {
+        Model m = ModelFactory.createDefaultModel();
+        new NTripleGraphReader().read( m, new StringReader( nt ), "" );
+        return m;
+        }
+
+    protected Model readOld( String nt )
+        {
+        Model m = ModelFactory.createDefaultModel();
+        new NTripleReader().read( m, new StringReader( nt ), "" );
+        return m;
+        }
+    }
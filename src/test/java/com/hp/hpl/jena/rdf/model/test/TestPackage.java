@@ -58,6 +58,7 @@ public class TestPackage extends TestSuite {
         addTest( "TestSelectors", TestSelectors.suite() );
         addTest( "TestModelEvents", TestModelEvents.suite() );
         addTest( "TestReaderEvents", TestReaderEvents.suite() );
+        addTest( "TestNTripleGraphReader", TestNTripleGraphReader.suite() );
         addTest( "TestList", TestList.suite() );
         addTest( "TestAnonID", TestAnonID.suite() );
         addTestSuite( TestLiteralsInModel.class );
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.test;
+
+import java.util.Iterator;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.util.PrintUtil;
+import com.hp.hpl.jena.vocabulary.*;
+
+/**
+ * Simple timing harness, not part of the test suite, which runs rdf:type
+ * queries against an OWL mini inference graph from an increasing number
+ * of threads, with the LP engine in its normal (serialized) and concurrent
+ * modes. In concurrent mode the total time should fall as threads are added,
+ * up to the number of available processors.
+ */
+public class LPConcurrentQuerySpeed {
+
+    /** Number of classes in the generated class tree */
+    static final int CLASSES = 200;
+    
+    /** Number of instances of each leaf class */
+    static final int INSTANCES = 20;
+    
+    /** Total number of queries run for each measurement, shared among the threads */
+    static final int QUERIES = 4000;
+
+    public static void main(String[] args) throws InterruptedException {
+        Graph data = makeData();
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            long serial = timeQueries(data, false, threads);
+            long concurrent = timeQueries(data, true, threads);
+            System.err.println("+ " + threads + " threads: serialized " + serial + "ms, concurrent " + concurrent + "ms");
+        }
+    }
+    
+    static Node node(String name) {
+        return Node.createURI(PrintUtil.egNS + name);
+    }
+
+    /**
+     * Build a binary tree of classes, each leaf class having some instances.
+     */
+    static Graph makeData() {
+        Graph data = Factory.createGraphMem();
+        for (int i = 0; i < CLASSES; i++) {
+            Node c = node("C" + i);
+            data.add(Triple.create(c, RDF.type.asNode(), OWL.Class.asNode()));
+            if (i > 0) data.add(Triple.create(c, RDFS.subClassOf.asNode(), node("C" + ((i - 1) / 2))));
+            if (2 * i + 1 >= CLASSES) {
+                for (int j = 0; j < INSTANCES; j++) {
+                    data.add(Triple.create(node("i" + i + "_" + j), RDF.type.asNode(), c));
+                }
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Run an iterator to completion, returning the number of results.
+     */
+    static int count(Iterator<Triple> i) {
+        int n = 0;
+        while (i.hasNext()) {
+            i.next();
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Time the query mix on a freshly prepared graph, split across the given number of threads.
+     */
+    static long timeQueries(Graph data, boolean concurrent, int threads) throws InterruptedException {
+        FBRuleReasoner reasoner = (FBRuleReasoner) new OWLMiniReasonerFactory().create(null);
+        reasoner.setConcurrentQueries(concurrent);
+        final InfGraph infgraph = reasoner.bind(data);
+        infgraph.prepare();
+        final int perThread = QUERIES / threads;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            workers[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        Node c = node("C" + ((i * 31 + offset * 17) % CLASSES));
+                        count(infgraph.find(Node.ANY, RDF.type.asNode(), c));
+                        count(infgraph.find(c, RDFS.subClassOf.asNode(), Node.ANY));
+                    }
+                }
+            };
+        }
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) workers[t].start();
+        for (int t = 0; t < threads; t++) workers[t].join();
+        return System.currentTimeMillis() - start;
+    }
+}
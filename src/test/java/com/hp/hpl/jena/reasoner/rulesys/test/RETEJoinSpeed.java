@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.test;
+
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.rulesys.impl.*;
+
+/**
+ * Simple timing harness, not part of the test suite, which compares the
+ * cost of a RETE join using the linear scan queue against the hashed
+ * join queue as the size of the join memory grows. For the hashed
+ * queue the time per probe should stay roughly flat.
+ */
+public class RETEJoinSpeed {
+
+    /** Number of probe tokens fired into the right hand queue for each run */
+    static final int PROBES = 2000;
+
+    public static void main(String[] args) {
+        for (int size = 1000; size <= 32000; size *= 2) {
+            long linear = timeJoin(false, size);
+            long hashed = timeJoin(true, size);
+            System.err.println("+ memory size " + size + ": linear " + linear + "ms, hashed " + hashed + "ms");
+        }
+    }
+
+    /**
+     * Fill the left side of a join on ?x with size tokens and then time
+     * a fixed number of probes from the right hand side.
+     */
+    static long timeJoin(boolean hashed, int size) {
+        byte[] matchIndices = new byte[] {0};
+        RETEQueue left = hashed ? new RETEHashedQueue(matchIndices) : new RETEQueue(matchIndices);
+        RETEQueue right = hashed ? new RETEHashedQueue(matchIndices) : new RETEQueue(matchIndices);
+        left.setSibling(right);
+        right.setSibling(left);
+        CountingSink sink = new CountingSink();
+        left.setContinuation(sink);
+        Node filler = Node.createURI("eg:o");
+        for (int i = 0; i < size; i++) {
+            left.fire(new BindingVector(new Node[] {Node.createURI("eg:n" + i), filler, null}), true);
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < PROBES; i++) {
+            Node x = Node.createURI("eg:n" + (i * 7 % size));
+            right.fire(new BindingVector(new Node[] {x, null, Node.createURI("eg:p" + i)}), true);
+        }
+        long time = System.currentTimeMillis() - start;
+        if (sink.firings != PROBES) throw new RuntimeException("Join produced " + sink.firings + " results");
+        return time;
+    }
+
+    /**
+     * Terminal node which just counts the join results.
+     */
+    static class CountingSink implements RETESinkNode {
+        int firings = 0;
+
+        @Override
+        public void fire(BindingVector env, boolean isAdd) {
+            firings++;
+        }
+
+        @Override
+        public RETENode clone(Map<RETENode, RETENode> netCopy, RETERuleContext context) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.test;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.*;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.util.PrintUtil;
+import com.hp.hpl.jena.vocabulary.ReasonerVocabulary;
+
+/**
+ * Test backward chaining queries run from several threads at once
+ * against an LP engine in concurrent mode.
+ */
+public class TestConcurrentLP extends TestCase {
+    
+    /** Number of nodes in the p-chain used as test data */
+    static final int CHAIN_LENGTH = 30;
+    
+    /** Number of query threads to run */
+    static final int NUM_THREADS = 8;
+    
+    /** Number of passes each thread makes over its queries */
+    static final int NUM_PASSES = 5;
+    
+    static final String RULES = "[trans: (?a eg:p ?c) <- (?a eg:p ?b), (?b eg:p ?c)]";
+    
+    static final Node p = Node.createURI(PrintUtil.egNS + "p");
+    
+    /**
+     * Boilerplate for junit
+     */ 
+    public TestConcurrentLP( String name ) {
+        super( name ); 
+    }
+    
+    /**
+     * Boilerplate for junit.
+     * This is its own test suite
+     */
+    public static TestSuite suite() {
+        return new TestSuite( TestConcurrentLP.class ); 
+    }  
+
+    /** Return the i'th node of the test chain */
+    static Node node(int i) {
+        return Node.createURI(PrintUtil.egNS + "n" + i);
+    }
+    
+    /** Return a graph holding a single p-chain of the given length */
+    static Graph chain(int length) {
+        Graph data = Factory.createGraphMem();
+        for (int i = 0; i + 1 < length; i++) {
+            data.add(Triple.create(node(i), p, node(i + 1)));
+        }
+        return data;
+    }
+    
+    /** Return a tabled inference graph over the chain in the given mode */
+    static InfGraph makeInfGraph(GenericRuleReasoner.RuleMode mode, boolean concurrent) {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(RULES));
+        reasoner.setMode(mode);
+        reasoner.setParameter(ReasonerVocabulary.PROPconcurrentQueries, Boolean.valueOf(concurrent));
+        InfGraph infgraph = reasoner.bind(chain(CHAIN_LENGTH));
+        if (infgraph instanceof FBRuleInfGraph) {
+            ((FBRuleInfGraph)infgraph).setTabled(p);
+        } else {
+            ((LPBackwardRuleInfGraph)infgraph).setTabled(p);
+        }
+        infgraph.prepare();
+        return infgraph;
+    }
+    
+    /** Return the set of results of a query */
+    static Set<Triple> results(Graph graph, Node s, Node o) {
+        return graph.find(s, p, o).toSet();
+    }
+    
+    /**
+     * Check that the concurrency parameter reaches the inference graphs.
+     */
+    public void testParameter() {
+        assertTrue(((FBRuleInfGraph)makeInfGraph(GenericRuleReasoner.HYBRID, true)).isConcurrentQueries());
+        assertFalse(((FBRuleInfGraph)makeInfGraph(GenericRuleReasoner.HYBRID, false)).isConcurrentQueries());
+        assertTrue(((LPBackwardRuleInfGraph)makeInfGraph(GenericRuleReasoner.BACKWARD, true)).isConcurrentQueries());
+        FBRuleReasoner reasoner = (FBRuleReasoner) new OWLMiniReasonerFactory().create(null);
+        reasoner.setConcurrentQueries(true);
+        FBRuleInfGraph schemaBound = (FBRuleInfGraph) reasoner.bindSchema(Factory.createGraphMem()).bind(Factory.createGraphMem());
+        assertTrue(schemaBound.isConcurrentQueries());
+    }
+    
+    /**
+     * Check that concurrent queries on a hybrid graph give the same answers as sequential ones.
+     */
+    public void testHybridQueries() throws InterruptedException {
+        doTestQueries(GenericRuleReasoner.HYBRID);
+    }
+    
+    /**
+     * Check that concurrent queries on a backward graph give the same answers as sequential ones.
+     */
+    public void testBackwardQueries() throws InterruptedException {
+        doTestQueries(GenericRuleReasoner.BACKWARD);
+    }
+    
+    /**
+     * Check that shared goal tables are discarded when the data changes.
+     */
+    public void testResetOnUpdate() throws InterruptedException {
+        final InfGraph infgraph = makeInfGraph(GenericRuleReasoner.HYBRID, true);
+        assertEquals(CHAIN_LENGTH - 1, results(infgraph, node(0), Node.ANY).size());
+        final int[] count = new int[1];
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                count[0] = results(infgraph, node(0), Node.ANY).size();
+            }
+        };
+        other.start();
+        other.join();
+        assertEquals(CHAIN_LENGTH - 1, count[0]);
+        infgraph.add(Triple.create(node(CHAIN_LENGTH - 1), p, node(CHAIN_LENGTH)));
+        assertEquals(CHAIN_LENGTH, results(infgraph, node(0), Node.ANY).size());
+        other = new Thread() {
+            @Override
+            public void run() {
+                count[0] = results(infgraph, node(0), Node.ANY).size();
+            }
+        };
+        other.start();
+        other.join();
+        assertEquals(CHAIN_LENGTH, count[0]);
+    }
+    
+    /**
+     * Check that a thread which has run a query, and lives on, does not keep
+     * the inference graph alive through its worker engine.
+     */
+    public void testWorkersReleased() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            WeakReference<InfGraph> ref = queryOn(pool);
+            for (int i = 0; i < 20 && ref.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertNull(ref.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * Check that worker engines leave complete tables to the shared table.
+     */
+    public void testWorkerTables() throws InterruptedException {
+        final LPBackwardRuleInfGraph infgraph = (LPBackwardRuleInfGraph) makeInfGraph(GenericRuleReasoner.BACKWARD, true);
+        final int[] count = new int[2];
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                count[0] = results(infgraph, node(0), Node.ANY).size();
+                count[1] = results(infgraph, node(0), Node.ANY).size();
+            }
+        };
+        other.start();
+        other.join();
+        assertEquals(CHAIN_LENGTH - 1, count[0]);
+        assertEquals(CHAIN_LENGTH - 1, count[1]);
+        assertEquals(0, infgraph.getTableStatistics().getGoals());
+        assertTrue(infgraph.getTableStatistics().getHits() > 0);
+    }
+    
+    /**
+     * Run a query on a new graph from a pool thread and return a weak
+     * reference to the graph.
+     */
+    private WeakReference<InfGraph> queryOn(ExecutorService pool) throws Exception {
+        final InfGraph infgraph = makeInfGraph(GenericRuleReasoner.HYBRID, true);
+        Future<Integer> count = pool.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return Integer.valueOf(results(infgraph, node(0), Node.ANY).size());
+            }
+        });
+        assertEquals(CHAIN_LENGTH - 1, count.get().intValue());
+        return new WeakReference<InfGraph>(infgraph);
+    }
+    
+    /**
+     * Run a mix of overlapping queries from several threads and compare each
+     * answer with the one computed sequentially by a non-concurrent graph.
+     */
+    private void doTestQueries(GenericRuleReasoner.RuleMode mode) throws InterruptedException {
+        InfGraph sequential = makeInfGraph(mode, false);
+        final List<Node[]> queries = new ArrayList<Node[]>();
+        final List<Set<Triple>> expected = new ArrayList<Set<Triple>>();
+        for (int i = 0; i < CHAIN_LENGTH; i += 3) {
+            queries.add(new Node[] {node(i), Node.ANY});
+            queries.add(new Node[] {Node.ANY, node(i)});
+            queries.add(new Node[] {node(i), node(CHAIN_LENGTH - 1)});
+        }
+        queries.add(new Node[] {Node.ANY, Node.ANY});
+        for (Iterator<Node[]> i = queries.iterator(); i.hasNext(); ) {
+            Node[] q = i.next();
+            expected.add(results(sequential, q[0], q[1]));
+        }
+        
+        final InfGraph concurrent = makeInfGraph(mode, true);
+        final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+        Thread[] threads = new Thread[NUM_THREADS];
+        for (int t = 0; t < NUM_THREADS; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int pass = 0; pass < NUM_PASSES; pass++) {
+                            for (int i = 0; i < queries.size(); i++) {
+                                int n = (i + offset * 5) % queries.size();
+                                Node[] q = queries.get(n);
+                                Set<Triple> found = results(concurrent, q[0], q[1]);
+                                if (!found.equals(expected.get(n))) {
+                                    failures.add("query " + q[0] + " " + q[1] + " found " + found.size() 
+                                            + " results, expected " + expected.get(n).size());
+                                }
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        failures.add(e.toString());
+                    }
+                }
+            };
+        }
+        for (int t = 0; t < NUM_THREADS; t++) threads[t].start();
+        for (int t = 0; t < NUM_THREADS; t++) threads[t].join();
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+}
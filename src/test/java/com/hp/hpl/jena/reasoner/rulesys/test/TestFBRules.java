@@ -1038,6 +1038,116 @@ public class TestFBRules extends TestCase {
                        getSkolem(Node.createLiteral("bar")));
     }
     
+    /**
+     * Test that deletes are propagated incrementally through the forward
+     * rules, keeping deductions which have other derivations.
+     */
+    public void testIncrementalDelete() {
+        String rules =  
+            "[r1: (?x p ?y) -> (?x q ?y)]" +
+            "[r2: (?x r ?y) -> (?x q ?y)]" +
+            "[r3: (?x q ?y), (?y q ?z) -> (?x q ?z)]";
+        Graph data = Factory.createGraphMem();
+        Node[] chain = new Node[20];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = Node.createURI("n" + i);
+            if (i > 0) data.add(new Triple(chain[i-1], p, chain[i]));
+        }
+        data.add(new Triple(chain[4], r, chain[5]));
+        data.add(new Triple(chain[9], p, chain[3]));
+        FBRuleInfGraph infgraph = (FBRuleInfGraph) createInfGraph(rules, data);
+        infgraph.prepare();
+        long initial = infgraph.getNRulesFired();
+        
+        // Removing the end of the chain only withdraws the links to it
+        infgraph.delete(new Triple(chain[18], p, chain[19]));
+        assertTrue("Incremental delete", infgraph.getNRulesFired() - initial < initial);
+        assertFalse(infgraph.contains(chain[0], q, chain[19]));
+        assertTrue(infgraph.contains(chain[0], q, chain[18]));
+        assertSameClosure(rules, infgraph);
+        
+        // Still derivable from the r link
+        infgraph.delete(new Triple(chain[4], p, chain[5]));
+        assertTrue(infgraph.contains(chain[4], q, chain[5]));
+        assertSameClosure(rules, infgraph);
+        
+        // Breaks the loop through n9, n4 still reaches n3 but no longer itself
+        infgraph.delete(new Triple(chain[3], p, chain[4]));
+        assertTrue(infgraph.contains(chain[4], q, chain[3]));
+        assertFalse(infgraph.contains(chain[4], q, chain[4]));
+        assertFalse(infgraph.contains(chain[0], q, chain[4]));
+        assertSameClosure(rules, infgraph);
+        
+        // Deleting an asserted triple which can also be deduced 
+        infgraph.add(new Triple(chain[0], q, chain[2]));
+        infgraph.delete(new Triple(chain[0], q, chain[2]));
+        assertTrue(infgraph.contains(chain[0], q, chain[2]));
+        assertSameClosure(rules, infgraph);
+        
+        infgraph.delete(new Triple(chain[9], p, chain[3]));
+        infgraph.delete(new Triple(chain[4], r, chain[5]));
+        assertSameClosure(rules, infgraph);
+    }
+    
+    /**
+     * Test that incremental changes reset the affected tabled backward goals,
+     * and that deletes which withdraw backward rules still work.
+     */
+    public void testIncrementalDeleteHybrid() {
+        String rules =  
+            "[f1: (?x p ?y) -> (?x q ?y)]" +
+            "[f2: (?p rdf:type s) -> [f2b: (?x t ?y) <- (?y ?p ?x)]]" +
+            "[b1: (?x rdf:type C1) <- (?x q ?y)]" +
+            "[b2: (?x rdf:type C2) <- (?x t ?y)]";
+        Graph data = Factory.createGraphMem();
+        data.add(new Triple(a, p, b));
+        data.add(new Triple(b, p, c));
+        data.add(new Triple(a, r, c));
+        data.add(new Triple(r, ty, s));
+        FBRuleInfGraph infgraph = (FBRuleInfGraph) createInfGraph(rules, data);
+        TestUtil.assertIteratorValues(this, infgraph.find(null, ty, C1), 
+                new Object[] { new Triple(a, ty, C1), new Triple(b, ty, C1) });
+        TestUtil.assertIteratorValues(this, infgraph.find(null, ty, C2), 
+                new Object[] { new Triple(c, ty, C2) });
+        
+        infgraph.delete(new Triple(b, p, c));
+        TestUtil.assertIteratorValues(this, infgraph.find(null, ty, C1), 
+                new Object[] { new Triple(a, ty, C1) });
+        TestUtil.assertIteratorValues(this, infgraph.find(null, ty, C2), 
+                new Object[] { new Triple(c, ty, C2) });
+        assertSameClosure(rules, infgraph);
+        
+        infgraph.add(new Triple(c, p, a));
+        TestUtil.assertIteratorValues(this, infgraph.find(null, ty, C1), 
+                new Object[] { new Triple(a, ty, C1), new Triple(c, ty, C1) });
+        assertSameClosure(rules, infgraph);
+        
+        // Reaches the backward rule generated for r
+        infgraph.add(new Triple(b, r, a));
+        TestUtil.assertIteratorValues(this, infgraph.find(null, ty, C2), 
+                new Object[] { new Triple(a, ty, C2), new Triple(c, ty, C2) });
+        assertSameClosure(rules, infgraph);
+
+        // Withdraws the backward rule generated for r
+        infgraph.delete(new Triple(r, ty, s));
+        TestUtil.assertIteratorValues(this, infgraph.find(null, ty, C2), 
+                new Object[] { });
+        assertSameClosure(rules, infgraph);
+    }
+    
+    /**
+     * Check that an inference graph has the same contents as one
+     * freshly built from its current data.
+     */
+    private void assertSameClosure(String rules, InfGraph infgraph) {
+        Graph data = Factory.createGraphMem();
+        for (Iterator<Triple> i = infgraph.getRawGraph().find(null, null, null); i.hasNext(); ) {
+            data.add(i.next());
+        }
+        InfGraph fresh = createInfGraph(rules, data);
+        assertEquals(fresh.find(null, null, null).toSet(), infgraph.find(null, null, null).toSet());
+    }
+    
     private Node getSkolem(Node x, Node y) {
         String rules =  "[r1: (?n p ?x) (?n q ?y) makeSkolem(?s ?x ?y) -> (?n s ?s)]";
         Graph data = Factory.createGraphMem();
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.test;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.TriplePattern;
+import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.reasoner.rulesys.impl.*;
+import com.hp.hpl.jena.shared.impl.JenaParameters;
+
+/**
+ * Runs the LP engine tests with the rule clauses compiled to JVM classes,
+ * and checks the compilation itself.
+ */
+public class TestLPClauseCompiler extends TestBasicLP {
+    
+    /** The setting of the compilation flag before the test */
+    boolean wasCompiling;
+    
+    /**
+     * Boilerplate for junit
+     */ 
+    public TestLPClauseCompiler( String name ) {
+        super( name ); 
+    }
+    
+    /**
+     * Boilerplate for junit.
+     * This is its own test suite
+     */
+    public static TestSuite suite() {
+        return new TestSuite( TestLPClauseCompiler.class ); 
+    }  
+    
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        wasCompiling = JenaParameters.enableLPClauseCompilation;
+        JenaParameters.enableLPClauseCompilation = true;
+    }
+    
+    @Override
+    protected void tearDown() throws Exception {
+        JenaParameters.enableLPClauseCompilation = wasCompiling;
+        super.tearDown();
+    }
+    
+    /** Return the compiled code for the rules with the given head predicate */
+    private List<RuleClauseCode> codeFor(LPRuleStore store, Node predicate) {
+        return store.codeFor(new TriplePattern(null, predicate, null));
+    }
+    
+    /**
+     * Check that the clauses of a rule store are compiled only when asked for,
+     * and that clauses with the same shape share a class.
+     */
+    public void testCompiled() {
+        List<Rule> rules = Rule.parseRules(
+                "[r1: (?x r C1) <- (?x p b)]" +
+                "[r2: (?x r C2) <- (?x p c)]" +
+                "[r3: (?x s ?y) <- (?x r f(?y, ?z)), (?y q ?x)]" +
+                "[r4: (?x t ?y) <- (?x p ?y), bound(?y), notEqual(?x, ?y)]");
+        List<RuleClauseCode> r = codeFor(new LPRuleStore(rules), this.r);
+        assertEquals(2, r.size());
+        CompiledClause c1 = r.get(0).getCompiled();
+        CompiledClause c2 = r.get(1).getCompiled();
+        assertNotNull(c1);
+        assertNotNull(c2);
+        assertNotSame(c1, c2);
+        assertSame(c1.getClass(), c2.getClass());
+        assertNotNull(codeFor(new LPRuleStore(rules), s).get(0).getCompiled());
+        assertNotNull(codeFor(new LPRuleStore(rules), t).get(0).getCompiled());
+        assertSame(c1.getClass(), codeFor(new LPRuleStore(rules), this.r).get(0).getCompiled().getClass());
+        
+        JenaParameters.enableLPClauseCompilation = false;
+        assertNull(codeFor(new LPRuleStore(rules), this.r).get(0).getCompiled());
+    }
+    
+    /**
+     * Check that compiled and interpreted clauses give the same answers for
+     * rules with several clauses per predicate, recursion and functors.
+     */
+    public void testSameAnswers() {
+        List<Rule> rules = Rule.parseRules(
+                "[a1: (?a anc ?c) <- (?a p ?c)]" +
+                "[a2: (?a anc ?c) <- (?a p ?b), (?b anc ?c)]" +
+                "[t1: (?x rdf:type C1) <- (?x rdf:type C2)]" +
+                "[t2: (?x rdf:type C2) <- (?x rdf:type C3)]" +
+                "[t3: (?x rdf:type C1) <- (?x q ?y), (?y rdf:type C3)]" +
+                "[f1: (?x r f(?y, C1)) <- (?x p ?y)]" +
+                "[f2: (?x s ?z) <- (?x r f(?z, ?w)), (?w rdf:type C1)]");
+        Graph data = Factory.createGraphMem();
+        data.add(new Triple(a, p, b));
+        data.add(new Triple(b, p, c));
+        data.add(new Triple(c, p, d));
+        data.add(new Triple(a, ty, C3));
+        data.add(new Triple(C1, ty, C2));
+        data.add(new Triple(b, q, a));
+        Node anc = Node.createURI("anc");
+        Node[][] queries = new Node[][] {
+                {Node.ANY, anc, Node.ANY}, {a, anc, Node.ANY}, {Node.ANY, anc, d}, {a, anc, d},
+                {Node.ANY, ty, Node.ANY}, {b, ty, C1}, {c, ty, C1}, {Node.ANY, ty, C2},
+                {Node.ANY, r, Node.ANY}, {Node.ANY, s, Node.ANY}, {a, s, Node.ANY} };
+        JenaParameters.enableLPClauseCompilation = false;
+        Graph interpreted = makeInfGraph(rules, data);
+        JenaParameters.enableLPClauseCompilation = true;
+        Graph compiled = makeInfGraph(rules, data);
+        for (int i = 0; i < queries.length; i++) {
+            Node[] q = queries[i];
+            assertEquals(interpreted.find(q[0], q[1], q[2]).toSet(), compiled.find(q[0], q[1], q[2]).toSet());
+        }
+        assertEquals(3, compiled.find(a, anc, Node.ANY).toList().size());
+        assertTrue(compiled.contains(b, ty, C1));
+        assertFalse(compiled.contains(c, ty, C1));
+    }
+    
+    /**
+     * Check that a generated class can be unloaded once the rule stores whose
+     * clauses use it have gone.
+     */
+    public void testClassesUnload() {
+        WeakReference<Class<?>> generated = compiledClassFor(
+                "[u: (?x u ?y) <- (?y u ?x), (?x p ?x), (?y q ?y), (?x r ?y), (?y s ?x)]");
+        for (int i = 0; i < 50 && generated.get() != null; i++) {
+            System.gc();
+            Thread.yield();
+        }
+        assertNull(generated.get());
+    }
+    
+    /** Return a weak reference to the class generated for the given single rule */
+    private WeakReference<Class<?>> compiledClassFor(String rule) {
+        CompiledClause c = codeFor(new LPRuleStore(Rule.parseRules(rule)), Node.createURI("u")).get(0).getCompiled();
+        assertNotNull(c);
+        return new WeakReference<Class<?>>(c.getClass());
+    }
+}
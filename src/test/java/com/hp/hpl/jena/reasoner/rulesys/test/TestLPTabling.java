@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.test;
+
+import java.util.*;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.reasoner.rulesys.impl.LPTableStatistics;
+import com.hp.hpl.jena.util.PrintUtil;
+import com.hp.hpl.jena.vocabulary.ReasonerVocabulary;
+
+/**
+ * Test answer subsumption and capacity limits on the goal tables of
+ * the LP engine.
+ */
+public class TestLPTabling extends TestCase {
+    
+    /** Number of nodes in the p-chain used as test data */
+    static final int CHAIN_LENGTH = 20;
+    
+    static final String RULES = "[trans: (?a eg:p ?c) <- (?a eg:p ?b), (?b eg:p ?c)]";
+    
+    static final Node p = Node.createURI(PrintUtil.egNS + "p");
+    
+    /**
+     * Boilerplate for junit
+     */ 
+    public TestLPTabling( String name ) {
+        super( name ); 
+    }
+    
+    /**
+     * Boilerplate for junit.
+     * This is its own test suite
+     */
+    public static TestSuite suite() {
+        return new TestSuite( TestLPTabling.class ); 
+    }  
+
+    /** Return a tabled backward inference graph over the chain */
+    static LPBackwardRuleInfGraph makeInfGraph(boolean subsumption, int capacity) {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(RULES));
+        reasoner.setMode(GenericRuleReasoner.BACKWARD);
+        reasoner.setParameter(ReasonerVocabulary.PROPtableSubsumption, Boolean.valueOf(subsumption));
+        reasoner.setParameter(ReasonerVocabulary.PROPtableCapacity, Integer.valueOf(capacity));
+        LPBackwardRuleInfGraph infgraph = (LPBackwardRuleInfGraph) reasoner.bind(TestConcurrentLP.chain(CHAIN_LENGTH));
+        infgraph.setTabled(p);
+        infgraph.prepare();
+        return infgraph;
+    }
+    
+    /** Return the set of results of a query */
+    static Set<Triple> results(Graph graph, Node s, Node o) {
+        return graph.find(s, p, o).toSet();
+    }
+    
+    /** Return the results of queries from and to each node of the chain */
+    static List<Set<Triple>> allResults(Graph graph) {
+        List<Set<Triple>> results = new ArrayList<Set<Triple>>();
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            results.add(results(graph, TestConcurrentLP.node(i), Node.ANY));
+            results.add(results(graph, Node.ANY, TestConcurrentLP.node(i)));
+        }
+        return results;
+    }
+    
+    /**
+     * Check that the parameters reach the inference graphs.
+     */
+    public void testParameters() {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(RULES));
+        reasoner.setParameter(ReasonerVocabulary.PROPtableSubsumption, "true");
+        reasoner.setParameter(ReasonerVocabulary.PROPtableCapacity, "100");
+        assertTrue(reasoner.isTableSubsumption());
+        assertEquals(100, reasoner.getTableCapacity());
+        FBRuleInfGraph hybrid = (FBRuleInfGraph) reasoner.bind(Factory.createGraphMem());
+        assertTrue(hybrid.isTableSubsumption());
+        assertEquals(100, hybrid.getTableCapacity());
+        assertFalse(((FBRuleInfGraph) new GenericRuleReasoner(Rule.parseRules(RULES)).bind(Factory.createGraphMem())).isTableSubsumption());
+        assertTrue(makeInfGraph(true, 0).isTableSubsumption());
+        assertEquals(7, makeInfGraph(false, 7).getTableCapacity());
+    }
+    
+    /**
+     * Check that a specific goal is answered from the table of a general one,
+     * with the same results as running it.
+     */
+    public void testSubsumption() {
+        LPBackwardRuleInfGraph plain = makeInfGraph(false, 0);
+        LPBackwardRuleInfGraph subsumed = makeInfGraph(true, 0);
+        assertEquals(results(plain, Node.ANY, Node.ANY), results(subsumed, Node.ANY, Node.ANY));
+        long before = subsumed.getTableStatistics().getSubsumedHits();
+        assertEquals(allResults(plain), allResults(subsumed));
+        LPTableStatistics stats = subsumed.getTableStatistics();
+        // The goals with a concrete subject are tabled while running the general goal
+        assertTrue(stats.getSubsumedHits() >= before + CHAIN_LENGTH);
+        assertEquals(0, plain.getTableStatistics().getSubsumedHits());
+        assertEquals(CHAIN_LENGTH * (CHAIN_LENGTH - 1) / 2, results(subsumed, Node.ANY, Node.ANY).size());
+    }
+    
+    /**
+     * Check that answers from subsumed tables follow changes to the data.
+     */
+    public void testSubsumptionAfterUpdate() {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(RULES));
+        reasoner.setTableSubsumption(true);
+        FBRuleInfGraph subsumed = (FBRuleInfGraph) reasoner.bind(TestConcurrentLP.chain(CHAIN_LENGTH));
+        subsumed.setTabled(p);
+        results(subsumed, Node.ANY, Node.ANY);
+        Node extra = Node.createURI(PrintUtil.egNS + "extra");
+        subsumed.add(Triple.create(TestConcurrentLP.node(CHAIN_LENGTH - 1), p, extra));
+        assertEquals(CHAIN_LENGTH, results(subsumed, TestConcurrentLP.node(0), Node.ANY).size());
+        assertEquals(CHAIN_LENGTH, results(subsumed, Node.ANY, extra).size());
+    }
+    
+    /**
+     * Check that tables are dropped to keep within the capacity without
+     * changing the answers.
+     */
+    public void testCapacity() {
+        LPBackwardRuleInfGraph plain = makeInfGraph(false, 0);
+        LPBackwardRuleInfGraph limited = makeInfGraph(false, 50);
+        List<Set<Triple>> expected = allResults(plain);
+        assertEquals(expected, allResults(limited));
+        assertEquals(expected, allResults(limited));
+        LPTableStatistics stats = limited.getTableStatistics();
+        assertTrue(stats.getEvictions() > 0);
+        assertTrue(stats.getResults() <= 50);
+        assertEquals(0, plain.getTableStatistics().getEvictions());
+        assertTrue(plain.getTableStatistics().getResults() > 50);
+        
+        limited.setTableCapacity(1);
+        assertTrue(limited.getTableStatistics().getResults() <= 1);
+        assertEquals(expected, allResults(limited));
+        try {
+            limited.setTableCapacity(-1);
+            fail("Negative capacity accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+    
+    /**
+     * Check that the statistics count repeated goals as hits.
+     */
+    public void testStatistics() {
+        LPBackwardRuleInfGraph infgraph = makeInfGraph(false, 0);
+        results(infgraph, TestConcurrentLP.node(0), Node.ANY);
+        LPTableStatistics first = infgraph.getTableStatistics();
+        assertTrue(first.getMisses() > 0);
+        assertTrue(first.getGoals() > 0);
+        results(infgraph, TestConcurrentLP.node(0), Node.ANY);
+        LPTableStatistics second = infgraph.getTableStatistics();
+        assertEquals(first.getMisses(), second.getMisses());
+        assertTrue(second.getHits() > first.getHits());
+    }
+    
+    /**
+     * Check subsumption and capacity limits together with concurrent queries.
+     */
+    public void testConcurrent() throws InterruptedException {
+        final LPBackwardRuleInfGraph plain = makeInfGraph(false, 0);
+        final LPBackwardRuleInfGraph infgraph = makeInfGraph(true, 40);
+        infgraph.setConcurrentQueries(true);
+        final List<Set<Triple>> expected = allResults(plain);
+        final boolean[] ok = new boolean[4];
+        Thread[] threads = new Thread[ok.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    results(infgraph, Node.ANY, Node.ANY);
+                    ok[index] = expected.equals(allResults(infgraph));
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertTrue(ok[i]);
+        }
+    }
+}
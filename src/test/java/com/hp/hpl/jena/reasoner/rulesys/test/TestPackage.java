@@ -48,9 +48,14 @@ public class TestPackage extends TestSuite {
         addTest( "TestBackchainer", TestBackchainer.suite() );
         addTest( "TestLPBasics", TestBasicLP.suite() );
         addTest( "TestLPDerivation", TestLPDerivation.suite() );
+        addTest( "TestConcurrentLP", TestConcurrentLP.suite() );
+        addTest( "TestLPTabling", TestLPTabling.suite() );
+        addTest( "TestLPClauseCompiler", TestLPClauseCompiler.suite() );
         addTest( "TestFBRules", TestFBRules.suite() );
         addTest( "TestGenericRules", TestGenericRules.suite() );
         addTest( "TestRETE", TestRETE.suite() );
+        addTest( "TestParallelRETE", TestParallelRETE.suite() );
+        addTest( "TestSemiNaiveEngine", TestSemiNaiveEngine.suite() );
         addTest( TestSetRules.suite() );
         addTest( "OWLRuleUnitTests", OWLUnitTest.suite() );
         addTest( "TestBugs", TestBugs.suite() );
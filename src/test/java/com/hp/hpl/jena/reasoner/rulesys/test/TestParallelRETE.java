@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.reasoner.rulesys.test;
+
+import java.util.*;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.IllegalParameterException;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.util.PrintUtil;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import com.hp.hpl.jena.vocabulary.ReasonerVocabulary;
+
+/**
+ * Test running the forward rules of a RETE engine on several threads.
+ */
+public class TestParallelRETE extends TestCase {
+    
+    /** Rules with joins, single clause rules and guards */
+    static final String RULES =
+        "[sc: (?a rdfs:subClassOf ?b), (?b rdfs:subClassOf ?c) -> (?a rdfs:subClassOf ?c)]" +
+        "[ty: (?x rdf:type ?a), (?a rdfs:subClassOf ?b) -> (?x rdf:type ?b)]" +
+        "[inv: (?x eg:p ?y) -> (?y eg:q ?x)]" +
+        "[ne: (?x eg:q ?y), notEqual(?x, ?y) -> (?x eg:r ?y)]" +
+        "[p2: (?a eg:p ?b), (?b eg:p ?c) -> (?a eg:p2 ?c)]";
+    
+    static final Node p = Node.createURI(PrintUtil.egNS + "p");
+    
+    /**
+     * Boilerplate for junit
+     */ 
+    public TestParallelRETE( String name ) {
+        super( name ); 
+    }
+    
+    /**
+     * Boilerplate for junit.
+     * This is its own test suite
+     */
+    public static TestSuite suite() {
+        return new TestSuite( TestParallelRETE.class ); 
+    }  
+
+    /** Return a node in the eg namespace */
+    static Node node(String name, int i) {
+        return Node.createURI(PrintUtil.egNS + name + i);
+    }
+    
+    /** Return a class tree with typed individuals linked by eg:p */
+    static Graph data(int size) {
+        Random random = new Random(42);
+        Graph data = Factory.createGraphMem();
+        for (int i = 1; i < size; i++) {
+            data.add(Triple.create(node("C", i), RDFS.Nodes.subClassOf, node("C", random.nextInt(i))));
+        }
+        for (int i = 0; i < size * 2; i++) {
+            data.add(Triple.create(node("i", i), RDF.Nodes.type, node("C", random.nextInt(size))));
+            data.add(Triple.create(node("i", i), p, node("i", random.nextInt(size * 2))));
+        }
+        return data;
+    }
+    
+    /** Return a reasoner for the test rules */
+    static GenericRuleReasoner reasoner(GenericRuleReasoner.RuleMode mode, int threads) {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(RULES));
+        reasoner.setMode(mode);
+        reasoner.setForwardThreads(threads);
+        return reasoner;
+    }
+    
+    /** Return the deductions of a prepared graph, in the order the graph lists them */
+    static List<Triple> deductions(InfGraph graph) {
+        graph.prepare();
+        return graph.getDeductionsGraph().find(Node.ANY, Node.ANY, Node.ANY).toList();
+    }
+    
+    /**
+     * Check the closure does not depend on the number of threads.
+     */
+    public void testSameClosure() {
+        Graph data = data(200);
+        GenericRuleReasoner.RuleMode[] modes = { GenericRuleReasoner.FORWARD_RETE, GenericRuleReasoner.HYBRID };
+        for (int m = 0; m < modes.length; m++) {
+            Set<Triple> expected = new HashSet<Triple>(deductions(reasoner(modes[m], 1).bind(data)));
+            assertTrue(expected.size() > 1000);
+            for (int threads = 2; threads <= 4; threads++) {
+                InfGraph graph = reasoner(modes[m], threads).bind(data);
+                assertEquals(expected, new HashSet<Triple>(deductions(graph)));
+                assertEquals(data.size() + expected.size(), graph.find(Node.ANY, Node.ANY, Node.ANY).toList().size());
+            }
+        }
+    }
+    
+    /**
+     * Check the deductions are made in the same order for any number of threads
+     * above one; a single thread runs the inserts one at a time, in another order.
+     */
+    public void testDeterministic() {
+        Graph data = data(200);
+        List<Triple> expected = deductions(reasoner(GenericRuleReasoner.FORWARD_RETE, 2).bind(data));
+        assertEquals(expected, deductions(reasoner(GenericRuleReasoner.FORWARD_RETE, 4).bind(data)));
+        assertEquals(expected, deductions(reasoner(GenericRuleReasoner.FORWARD_RETE, 4).bind(data)));
+        assertEquals(expected, deductions(reasoner(GenericRuleReasoner.FORWARD_RETE, 7).bind(data)));
+    }
+    
+    /**
+     * Check incremental adds and deletes with several threads.
+     */
+    public void testIncremental() {
+        Graph data = data(100);
+        Graph more = data(200);
+        InfGraph serial = reasoner(GenericRuleReasoner.FORWARD_RETE, 1).bind(Factory.createGraphMem());
+        InfGraph parallel = reasoner(GenericRuleReasoner.FORWARD_RETE, 3).bind(Factory.createGraphMem());
+        serial.getBulkUpdateHandler().add(data);
+        parallel.getBulkUpdateHandler().add(data);
+        assertEquals(serial.find(Node.ANY, Node.ANY, Node.ANY).toSet(), parallel.find(Node.ANY, Node.ANY, Node.ANY).toSet());
+        for (Iterator<Triple> i = more.find(Node.ANY, Node.ANY, Node.ANY); i.hasNext(); ) {
+            Triple t = i.next();
+            serial.add(t);
+            parallel.add(t);
+        }
+        Triple t = Triple.create(node("C", 1), RDFS.Nodes.subClassOf, node("C", 0));
+        serial.delete(t);
+        parallel.delete(t);
+        assertEquals(serial.find(Node.ANY, Node.ANY, Node.ANY).toSet(), parallel.find(Node.ANY, Node.ANY, Node.ANY).toSet());
+    }
+    
+    /**
+     * Check the forwardThreads parameter.
+     */
+    public void testParameter() {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(RULES));
+        assertEquals(1, reasoner.getForwardThreads());
+        reasoner.setParameter(ReasonerVocabulary.PROPforwardThreads, "3");
+        assertEquals(3, reasoner.getForwardThreads());
+        FBRuleInfGraph hybrid = (FBRuleInfGraph) reasoner.bind(Factory.createGraphMem());
+        assertEquals(3, hybrid.getForwardThreads());
+        reasoner.setMode(GenericRuleReasoner.FORWARD_RETE);
+        RETERuleInfGraph rete = (RETERuleInfGraph) reasoner.bind(Factory.createGraphMem());
+        assertEquals(3, rete.getForwardThreads());
+        try {
+            reasoner.setParameter(ReasonerVocabulary.PROPforwardThreads, Integer.valueOf(0));
+            fail("Expected an IllegalParameterException");
+        } catch (IllegalParameterException e) {
+            // expected
+        }
+    }
+}
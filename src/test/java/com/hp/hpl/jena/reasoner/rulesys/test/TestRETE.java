@@ -20,6 +20,7 @@ package com.hp.hpl.jena.reasoner.rulesys.test;
 
 import java.util.*;
 
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.*;
 import com.hp.hpl.jena.reasoner.*;
 import com.hp.hpl.jena.reasoner.rulesys.*;
@@ -287,4 +288,58 @@ public class TestRETE  extends TestCase {
                 new Triple(n1, p, d)
             });
     }
+    
+    /**
+     * Check that hashed join queues find the same matches as a linear scan,
+     * including for value-equal but non-identical literals.
+     */
+    public void testHashedJoin() {
+        Node dec1 = Node.createLiteral("1.0", "", XSDDatatype.XSDdecimal);
+        Node dec2 = Node.createLiteral("1.00", "", XSDDatatype.XSDdecimal);
+        Node lang1 = Node.createLiteral("foo", "en-GB", false);
+        Node lang2 = Node.createLiteral("foo", "en-gb", false);
+        Node[] joinValues = new Node[] {a, dec1, lang1, b};
+        Node[] probeValues = new Node[] {a, dec2, lang2, c};
+        for (int i = 0; i < probeValues.length; i++) {
+            RETETestNode linear = doJoin(false, joinValues, probeValues[i]);
+            RETETestNode hashed = doJoin(true, joinValues, probeValues[i]);
+            assertEquals(i < 3 ? 1 : 0, linear.firings);
+            assertEquals(linear.firings, hashed.firings);
+            if (hashed.firings > 0) {
+                assertEquals(linear.env, hashed.env);
+            }
+        }
+    }
+    
+    /**
+     * Check that a token whose join variable is still unbound when it reaches
+     * a hashed join queue is scanned against the stored tokens, matching
+     * nothing, rather than being hashed.
+     */
+    public void testHashedJoinUnbound() {
+        Node[] joinValues = new Node[] {a, Node.createLiteral("1.0", "", XSDDatatype.XSDdecimal), b};
+        RETETestNode linear = doJoin(false, joinValues, null);
+        RETETestNode hashed = doJoin(true, joinValues, null);
+        assertEquals(0, linear.firings);
+        assertEquals(0, hashed.firings);
+    }
+    
+    /**
+     * Helper for testing join queues. Fills one side of a join on ?x with the
+     * given values for ?x and then fires a single probe token for the other side.
+     */
+    private RETETestNode doJoin(boolean hashed, Node[] values, Node probe) {
+        byte[] matchIndices = new byte[] {0};
+        RETEQueue left = hashed ? new RETEHashedQueue(matchIndices) : new RETEQueue(matchIndices);
+        RETEQueue right = hashed ? new RETEHashedQueue(matchIndices) : new RETEQueue(matchIndices);
+        left.setSibling(right);
+        right.setSibling(left);
+        RETETestNode tnode = new RETETestNode();
+        left.setContinuation(tnode);
+        for (int i = 0; i < values.length; i++) {
+            left.fire(new BindingVector(new Node[] {values[i], n1, null}), true);
+        }
+        right.fire(new BindingVector(new Node[] {probe, null, n2}), true);
+        return tnode;
+    }
 }
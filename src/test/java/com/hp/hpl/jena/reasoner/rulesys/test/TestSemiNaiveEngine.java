@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hp.hpl.jena.reasoner.rulesys.test;
+
+import java.util.*;
+
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.IllegalParameterException;
+import com.hp.hpl.jena.reasoner.InfGraph;
+import com.hp.hpl.jena.reasoner.Reasoner;
+import com.hp.hpl.jena.reasoner.rulesys.*;
+import com.hp.hpl.jena.util.PrintUtil;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import com.hp.hpl.jena.vocabulary.ReasonerVocabulary;
+
+/**
+ * Test the semi-naive forward engine against the RETE and tuple engines.
+ */
+public class TestSemiNaiveEngine extends TestCase {
+    
+    /** Rules with joins, single clause rules, guards, functors and axioms */
+    static final String RULES =
+        "[ax: -> (eg:C0 rdfs:subClassOf eg:Top)]" +
+        "[sc: (?a rdfs:subClassOf ?b), (?b rdfs:subClassOf ?c) -> (?a rdfs:subClassOf ?c)]" +
+        "[ty: (?x rdf:type ?a), (?a rdfs:subClassOf ?b) -> (?x rdf:type ?b)]" +
+        "[inv: (?x eg:p ?y) -> (?y eg:q ?x)]" +
+        "[ne: (?x eg:q ?y), notEqual(?x, ?y) -> (?x eg:r ?y)]" +
+        "[p2: (?a eg:p ?b), (?b eg:p ?c) -> (?a eg:p2 ?c)]" +
+        "[f1: (?x eg:p2 ?y), (?x rdf:type eg:C3) -> (?x eg:f pair(?y, eg:C3))]" +
+        "[f2: (?x eg:f pair(?y, ?c)) -> (?y rdf:type ?c)]" +
+        "[any: (?x ?p eg:C5) -> (?x eg:related eg:C5)]" +
+        "[five: (?x eg:v 5) -> (?x rdf:type eg:Five)]" +
+        "[str: (?x eg:s 'a') -> (?x rdf:type eg:A)]" +
+        "[same: (?x eg:v ?v), (?y eg:w ?v) -> (?x eg:same ?y)]" +
+        "[copy: (?x eg:v ?v) -> (?x eg:v2 ?v)]";
+    
+    /**
+     * Boilerplate for junit
+     */ 
+    public TestSemiNaiveEngine( String name ) {
+        super( name ); 
+    }
+    
+    /**
+     * Boilerplate for junit.
+     * This is its own test suite
+     */
+    public static TestSuite suite() {
+        return new TestSuite( TestSemiNaiveEngine.class ); 
+    }  
+
+    /** Return a reasoner for the given rules */
+    static GenericRuleReasoner reasoner(String rules, GenericRuleReasoner.RuleMode mode, String engine) {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(rules));
+        reasoner.setMode(mode);
+        if (engine != null) reasoner.setForwardEngine(engine);
+        return reasoner;
+    }
+    
+    /** Return a reasoner for the rules in a rule file, in HYBRID mode */
+    static GenericRuleReasoner hybrid(String ruleFile, String engine) {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.rulesFromURL(ruleFile));
+        reasoner.setForwardEngine(engine);
+        return reasoner;
+    }
+    
+    /** Return the test data with literal values which are equal but not the same node */
+    static Graph data(int size) {
+        Graph data = TestParallelRETE.data(size);
+        Node v = Node.createURI(PrintUtil.egNS + "v");
+        Node w = Node.createURI(PrintUtil.egNS + "w");
+        Node s = Node.createURI(PrintUtil.egNS + "s");
+        for (int i = 0; i < size; i += 7) {
+            Node x = TestParallelRETE.node("i", i);
+            data.add(Triple.create(x, v, Node.createLiteral("5", null, XSDDatatype.XSDint)));
+            data.add(Triple.create(x, v, Node.createLiteral("05", null, XSDDatatype.XSDint)));
+            data.add(Triple.create(x, v, Node.createLiteral("5", null, XSDDatatype.XSDinteger)));
+            data.add(Triple.create(x, v, Node.createLiteral(Integer.toString(i % 3), null, XSDDatatype.XSDint)));
+            data.add(Triple.create(x, s, Node.createLiteral("a")));
+            data.add(Triple.create(x, s, Node.createLiteral("a", null, XSDDatatype.XSDstring)));
+            data.add(Triple.create(x, s, Node.createLiteral("a", "en", false)));
+            data.add(Triple.create(TestParallelRETE.node("i", i + 1), w, Node.createLiteral("0" + (i % 5), null, XSDDatatype.XSDint)));
+        }
+        return data;
+    }
+    
+    /** Return all the triples of a graph */
+    static Set<Triple> closure(Graph graph) {
+        return graph.find(Node.ANY, Node.ANY, Node.ANY).toSet();
+    }
+    
+    /** Return the deductions of a prepared graph */
+    static Set<Triple> deductions(InfGraph graph) {
+        graph.prepare();
+        return graph.getDeductionsGraph().find(Node.ANY, Node.ANY, Node.ANY).toSet();
+    }
+    
+    /** Return a small ontology with a class tree, properties and restrictions over the test data */
+    static Graph ontology() {
+        Graph graph = Factory.createGraphMem();
+        Node p = Node.createURI(PrintUtil.egNS + "p");
+        Node q = Node.createURI(PrintUtil.egNS + "q");
+        Node r = Node.createURI(PrintUtil.egNS + "r");
+        Node restriction = Node.createAnon();
+        graph.add(Triple.create(p, RDF.Nodes.type, OWL.TransitiveProperty.asNode()));
+        graph.add(Triple.create(q, OWL.inverseOf.asNode(), p));
+        graph.add(Triple.create(r, RDFS.Nodes.subPropertyOf, q));
+        graph.add(Triple.create(p, RDFS.Nodes.domain, TestParallelRETE.node("C", 7)));
+        graph.add(Triple.create(restriction, RDF.Nodes.type, OWL.Restriction.asNode()));
+        graph.add(Triple.create(restriction, OWL.onProperty.asNode(), p));
+        graph.add(Triple.create(restriction, OWL.someValuesFrom.asNode(), TestParallelRETE.node("C", 2)));
+        graph.add(Triple.create(TestParallelRETE.node("C", 9), RDFS.Nodes.subClassOf, restriction));
+        graph.add(Triple.create(TestParallelRETE.node("C", 4), OWL.equivalentClass.asNode(), TestParallelRETE.node("C", 11)));
+        return graph;
+    }
+    
+    /**
+     * Check the pure forward modes deduce the same triples with each engine.
+     */
+    public void testForwardClosure() {
+        Graph data = data(200);
+        Set<Triple> expected = deductions(reasoner(RULES, GenericRuleReasoner.FORWARD_RETE, null).bind(data));
+        assertTrue(expected.size() > 1000);
+        assertTrue(expected.contains(Triple.create(TestParallelRETE.node("i", 7), RDF.Nodes.type, Node.createURI(PrintUtil.egNS + "Five"))));
+        assertTrue(expected.contains(Triple.create(TestParallelRETE.node("i", 7), RDF.Nodes.type, Node.createURI(PrintUtil.egNS + "A"))));
+        assertEquals(expected, deductions(reasoner(RULES, GenericRuleReasoner.FORWARD, null).bind(data)));
+        InfGraph graph = reasoner(RULES, GenericRuleReasoner.FORWARD_SEMINAIVE, null).bind(data);
+        assertTrue(graph instanceof SemiNaiveRuleInfGraph);
+        assertEquals(expected, deductions(graph));
+    }
+    
+    /**
+     * Check the hybrid mode gives the same closure with each forward engine.
+     */
+    public void testHybridClosure() {
+        Graph data = data(100);
+        Set<Triple> expected = closure(reasoner(RULES, GenericRuleReasoner.HYBRID, FBRuleInfGraph.FORWARD_ENGINE_RETE).bind(data));
+        assertEquals(expected, closure(reasoner(RULES, GenericRuleReasoner.HYBRID, FBRuleInfGraph.FORWARD_ENGINE_TUPLE).bind(data)));
+        assertEquals(expected, closure(reasoner(RULES, GenericRuleReasoner.HYBRID, FBRuleInfGraph.FORWARD_ENGINE_SEMINAIVE).bind(data)));
+    }
+    
+    /**
+     * Check the RDFS and OWL mini rule sets give the same closure with each
+     * forward engine, with and without a bound schema.
+     */
+    public void testRuleSets() {
+        String[] ruleFiles = { "etc/rdfs-fb.rules", "etc/owl-fb-mini.rules" };
+        Graph data = data(50);
+        Graph schema = ontology();
+        for (int f = 0; f < ruleFiles.length; f++) {
+            Reasoner rete = hybrid(ruleFiles[f], FBRuleInfGraph.FORWARD_ENGINE_RETE).bindSchema(schema);
+            Set<Triple> expected = closure(rete.bind(data));
+            Reasoner seminaive = hybrid(ruleFiles[f], FBRuleInfGraph.FORWARD_ENGINE_SEMINAIVE).bindSchema(schema);
+            assertEquals(expected, closure(seminaive.bind(data)));
+            Graph all = Factory.createGraphMem();
+            all.getBulkUpdateHandler().add(schema);
+            all.getBulkUpdateHandler().add(data);
+            assertEquals(expected, closure(hybrid(ruleFiles[f], FBRuleInfGraph.FORWARD_ENGINE_SEMINAIVE).bind(all)));
+        }
+    }
+    
+    /**
+     * Check incremental adds and deletes give the same closure as the RETE engine.
+     */
+    public void testIncremental() {
+        Graph data = data(100);
+        Graph more = data(150);
+        GenericRuleReasoner.RuleMode[] modes = { GenericRuleReasoner.FORWARD_SEMINAIVE, GenericRuleReasoner.HYBRID };
+        for (int m = 0; m < modes.length; m++) {
+            InfGraph rete = reasoner(RULES, GenericRuleReasoner.FORWARD_RETE, null).bind(Factory.createGraphMem());
+            InfGraph seminaive = reasoner(RULES, modes[m], FBRuleInfGraph.FORWARD_ENGINE_SEMINAIVE).bind(Factory.createGraphMem());
+            rete.getBulkUpdateHandler().add(data);
+            seminaive.getBulkUpdateHandler().add(data);
+            assertEquals(closure(rete), closure(seminaive));
+            for (Iterator<Triple> i = more.find(Node.ANY, Node.ANY, Node.ANY); i.hasNext(); ) {
+                Triple t = i.next();
+                rete.add(t);
+                seminaive.add(t);
+            }
+            assertEquals(closure(rete), closure(seminaive));
+            // A delete prepares the graph again, which can keep a different one of
+            // several equal literals than the RETE engine's incremental delete
+            Triple t = Triple.create(TestParallelRETE.node("C", 1), RDFS.Nodes.subClassOf, TestParallelRETE.node("C", 0));
+            seminaive.delete(t);
+            InfGraph restarted = reasoner(RULES, GenericRuleReasoner.FORWARD_RETE, null).bind(seminaive.getRawGraph());
+            assertEquals(closure(restarted), closure(seminaive));
+        }
+    }
+    
+    /**
+     * Check the forwardEngine parameter and the forwardSemiNaive mode.
+     */
+    public void testParameter() {
+        GenericRuleReasoner reasoner = new GenericRuleReasoner(Rule.parseRules(RULES));
+        assertNull(reasoner.getForwardEngine());
+        reasoner.setParameter(ReasonerVocabulary.PROPforwardEngine, "semiNaive");
+        assertEquals(FBRuleInfGraph.FORWARD_ENGINE_SEMINAIVE, reasoner.getForwardEngine());
+        FBRuleInfGraph hybrid = (FBRuleInfGraph) reasoner.bind(Factory.createGraphMem());
+        assertEquals(FBRuleInfGraph.FORWARD_ENGINE_SEMINAIVE, hybrid.getForwardEngine());
+        reasoner.setParameter(ReasonerVocabulary.PROPruleMode, "forwardSemiNaive");
+        assertTrue(reasoner.bind(Factory.createGraphMem()) instanceof SemiNaiveRuleInfGraph);
+        try {
+            reasoner.setParameter(ReasonerVocabulary.PROPforwardEngine, "naive");
+            fail("Expected an IllegalParameterException");
+        } catch (IllegalParameterException e) {
+            // expected
+        }
+    }
+}
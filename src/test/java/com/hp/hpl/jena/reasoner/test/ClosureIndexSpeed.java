@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.reasoner.test;
+
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.TriplePattern;
+import com.hp.hpl.jena.reasoner.transitiveReasoner.TransitiveGraphCache;
+
+/**
+ * Simple timing harness, not part of the test suite, which compares listing
+ * all the subclasses of classes in a large hierarchy by walking the graph
+ * in a TransitiveGraphCache against using its interval index.
+ */
+public class ClosureIndexSpeed {
+
+    /** Number of closed predecessor queries in each run */
+    static final int QUERIES = 20000;
+
+    public static void main(String[] args) {
+        for (int size = 1000; size <= 64000; size *= 4) {
+            List<Triple> links = TransitiveCacheSpeed.hierarchy(size, new Random(42));
+            long walked = timeQueries(links, size, false);
+            long indexed = timeQueries(links, size, true);
+            System.err.println("+ hierarchy size " + size + ": walked " + walked + "ms, indexed " + indexed + "ms");
+        }
+    }
+
+    /**
+     * Time listing the subclasses of randomly chosen classes, with the
+     * upper levels of the hierarchy chosen more often.
+     */
+    static long timeQueries(List<Triple> links, int size, boolean indexed) {
+        TransitiveGraphCache cache = new TransitiveGraphCache(TransitiveCacheSpeed.DIRECT_SUB, TransitiveCacheSpeed.SUB);
+        cache.setIndexing(indexed);
+        for (Iterator<Triple> i = links.iterator(); i.hasNext(); ) {
+            cache.addRelation(i.next());
+        }
+        Random random = new Random(7);
+        long count = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < QUERIES; i++) {
+            Node c = TransitiveCacheSpeed.node(random.nextInt(1 + random.nextInt(size)));
+            Iterator<Triple> subs = cache.find(new TriplePattern(null, TransitiveCacheSpeed.SUB, c));
+            while (subs.hasNext()) {
+                subs.next();
+                count++;
+            }
+        }
+        long time = System.currentTimeMillis() - start;
+        if (count < QUERIES) throw new RuntimeException("Only found " + count + " results");
+        return time;
+    }
+}
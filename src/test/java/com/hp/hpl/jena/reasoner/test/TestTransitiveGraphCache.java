@@ -90,6 +90,73 @@ public class TestTransitiveGraphCache extends TestCase {
         doBasicTest(cache);
     }
     
+    /**
+     * Test the basic functioning a Transitive closure cache.
+     * Uses the interval index for closed predecessor queries.
+     */
+    public void testIndexedCache() {
+        initCache();
+        cache.setIndexing(true);
+        doBasicTest(cache);
+    }
+    
+    /**
+     * Test that the closed predecessor index is kept up to date as links are
+     * added and rebuilt after deletes and cycles.
+     */
+    public void testIndexMaintenance() {
+        TransitiveGraphCache cache = new TransitiveGraphCache(directP, closedP);
+        cache.setIndexing(true);
+        cache.addRelation(new Triple(b, closedP, a));
+        cache.addRelation(new Triple(c, closedP, a));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(null, closedP, a)),
+            new Object[] {
+                new Triple(a, closedP, a),
+                new Triple(b, closedP, a),
+                new Triple(c, closedP, a)
+            });
+        // Extend the indexed graph, from new and from existing nodes
+        cache.addRelation(new Triple(d, closedP, b));
+        cache.addRelation(new Triple(e, closedP, d));
+        cache.addRelation(new Triple(c, closedP, f));
+        cache.addRelation(new Triple(e, closedP, c));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(null, closedP, a)),
+            new Object[] {
+                new Triple(a, closedP, a),
+                new Triple(b, closedP, a),
+                new Triple(c, closedP, a),
+                new Triple(d, closedP, a),
+                new Triple(e, closedP, a)
+            });
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(null, closedP, f)),
+            new Object[] {
+                new Triple(f, closedP, f),
+                new Triple(c, closedP, f),
+                new Triple(e, closedP, f)
+            });
+        cache.removeRelation(new Triple(d, closedP, b));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(null, closedP, b)),
+            new Object[] {
+                new Triple(b, closedP, b)
+            });
+        // Make a cycle out of a, b and d
+        cache.addRelation(new Triple(a, closedP, d));
+        cache.addRelation(new Triple(d, closedP, b));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(null, closedP, b)),
+            new Object[] {
+                new Triple(a, closedP, b),
+                new Triple(b, closedP, b),
+                new Triple(c, closedP, b),
+                new Triple(d, closedP, b),
+                new Triple(e, closedP, b)
+            });
+    }
+    
     /**
      * Test the clone operation
      */
@@ -403,6 +470,107 @@ public class TestTransitiveGraphCache extends TestCase {
             });
     }
     
+    /**
+     * Test removal of links which are redundant and of links which
+     * leave an indirect path behind them.
+     */
+    public void testRemoveRedundant() {
+        TransitiveGraphCache cache = new TransitiveGraphCache(directP, closedP);
+        cache.addRelation(new Triple(a, closedP, b));
+        cache.addRelation(new Triple(b, closedP, c));
+        cache.addRelation(new Triple(a, closedP, c));
+        cache.addRelation(new Triple(c, closedP, d));
+        cache.removeRelation(new Triple(a, closedP, c));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(a, closedP, null)),
+            new Object[] {
+                new Triple(a, closedP, a),
+                new Triple(a, closedP, b),
+                new Triple(a, closedP, c),
+                new Triple(a, closedP, d)
+            });
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(a, directP, null)),
+            new Object[] {
+                new Triple(a, closedP, a),
+                new Triple(a, closedP, b)
+            });
+        cache.addRelation(new Triple(a, closedP, c));
+        cache.removeRelation(new Triple(b, closedP, c));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(a, closedP, null)),
+            new Object[] {
+                new Triple(a, closedP, a),
+                new Triple(a, closedP, b),
+                new Triple(a, closedP, c),
+                new Triple(a, closedP, d)
+            });
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(a, directP, null)),
+            new Object[] {
+                new Triple(a, closedP, a),
+                new Triple(a, closedP, b),
+                new Triple(a, closedP, c)
+            });
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(null, closedP, d)),
+            new Object[] {
+                new Triple(a, closedP, d),
+                new Triple(c, closedP, d),
+                new Triple(d, closedP, d)
+            });
+        cache.removeRelation(new Triple(a, closedP, c));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(a, closedP, null)),
+            new Object[] {
+                new Triple(a, closedP, a),
+                new Triple(a, closedP, b)
+            });
+    }
+    
+    /**
+     * Test removal of links which break up a cycle.
+     */
+    public void testRemoveCycle() {
+        TransitiveGraphCache cache = new TransitiveGraphCache(directP, closedP);
+        cache.addRelation(new Triple(a, closedP, b));
+        cache.addRelation(new Triple(b, closedP, c));
+        cache.addRelation(new Triple(c, closedP, a));
+        cache.addRelation(new Triple(c, closedP, d));
+        cache.addRelation(new Triple(e, closedP, a));
+        cache.removeRelation(new Triple(c, closedP, a));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(e, closedP, null)),
+            new Object[] {
+                new Triple(e, closedP, e),
+                new Triple(e, closedP, a),
+                new Triple(e, closedP, b),
+                new Triple(e, closedP, c),
+                new Triple(e, closedP, d)
+            });
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(b, closedP, null)),
+            new Object[] {
+                new Triple(b, closedP, b),
+                new Triple(b, closedP, c),
+                new Triple(b, closedP, d)
+            });
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(c, directP, null)),
+            new Object[] {
+                new Triple(c, closedP, c),
+                new Triple(c, closedP, d)
+            });
+        cache.removeRelation(new Triple(b, closedP, c));
+        TestUtil.assertIteratorValues(this, 
+            cache.find(new TriplePattern(e, closedP, null)),
+            new Object[] {
+                new Triple(e, closedP, e),
+                new Triple(e, closedP, a),
+                new Triple(e, closedP, b)
+            });
+    }
+    
     /**
      * Test direct link case with adverse ordering.
      */
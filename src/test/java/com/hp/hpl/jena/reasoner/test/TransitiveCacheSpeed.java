@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hp.hpl.jena.reasoner.test;
+
+import java.util.*;
+
+import com.hp.hpl.jena.graph.*;
+import com.hp.hpl.jena.reasoner.TriplePattern;
+import com.hp.hpl.jena.reasoner.transitiveReasoner.TransitiveGraphCache;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import com.hp.hpl.jena.vocabulary.ReasonerVocabulary;
+
+/**
+ * Simple timing harness, not part of the test suite, which applies a mix
+ * of removals and additions to a large class hierarchy held in a
+ * TransitiveGraphCache, querying after each change. This is compared with
+ * rebuilding the cache from scratch after each change, which was the only
+ * way to get correct results before removals were maintained incrementally.
+ */
+public class TransitiveCacheSpeed {
+
+    static final Node SUB = RDFS.subClassOf.asNode();
+    static final Node DIRECT_SUB = ReasonerVocabulary.directSubClassOf.asNode();
+
+    /** Number of add/remove changes applied in each run */
+    static final int CHANGES = 200;
+
+    public static void main(String[] args) {
+        for (int size = 1000; size <= 16000; size *= 2) {
+            List<Triple> links = hierarchy(size, new Random(42));
+            long incremental = timeChanges(links, false);
+            long rebuild = timeChanges(links, true);
+            System.err.println("+ hierarchy size " + size + ": incremental " + incremental + "ms, rebuild " + rebuild + "ms");
+        }
+    }
+
+    /**
+     * Build a random tree shaped hierarchy with a sprinkling of extra
+     * links, so that some links are redundant.
+     */
+    static List<Triple> hierarchy(int size, Random random) {
+        List<Triple> links = new ArrayList<Triple>();
+        for (int i = 1; i < size; i++) {
+            links.add(new Triple(node(i), SUB, node(random.nextInt(i))));
+            if (random.nextInt(10) == 0) {
+                links.add(new Triple(node(i), SUB, node(random.nextInt(i))));
+            }
+        }
+        return links;
+    }
+
+    static Node node(int i) {
+        return Node.createURI("eg:C" + i);
+    }
+
+    /**
+     * Time removing and then re-adding randomly chosen links, checking the
+     * superclasses of the link's subject after each change.
+     */
+    static long timeChanges(List<Triple> links, boolean rebuild) {
+        TransitiveGraphCache cache = new TransitiveGraphCache(DIRECT_SUB, SUB);
+        for (Iterator<Triple> i = links.iterator(); i.hasNext(); ) {
+            cache.addRelation(i.next());
+        }
+        Set<Triple> current = new LinkedHashSet<Triple>(links);
+        Random random = new Random(7);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < CHANGES; i++) {
+            Triple t = links.get(random.nextInt(links.size()));
+            boolean remove = current.contains(t);
+            if (remove) {
+                current.remove(t);
+            } else {
+                current.add(t);
+            }
+            if (rebuild) {
+                cache.clear();
+                for (Iterator<Triple> j = current.iterator(); j.hasNext(); ) {
+                    cache.addRelation(j.next());
+                }
+            } else if (remove) {
+                cache.removeRelation(t);
+            } else {
+                cache.addRelation(t);
+            }
+            Iterator<Triple> supers = cache.find(new TriplePattern(t.getSubject(), SUB, null));
+            while (supers.hasNext()) supers.next();
+        }
+        return System.currentTimeMillis() - start;
+    }
+}
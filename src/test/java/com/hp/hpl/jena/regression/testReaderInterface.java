@@ -62,7 +62,7 @@ public class testReaderInterface extends Object {
             */
 
             n++; reader = m1.getReader("N-TRIPLE");
-                 if (! (reader instanceof NTripleReader)) error(test, n);
+                 if (! (reader instanceof NTripleGraphReader)) error(test, n);
 
             n++; try {
                     m1.setReaderClassName("foobar", "");
@@ -36,6 +36,9 @@ public class TestCache extends TestCase
     public static TestSuite suite() {
         TestSuite suite = new TestSuite("Cache");       
         suite.addTest( new CacheTestCase(CacheManager.RAND));
+        suite.addTest( new CacheTestCase(CacheManager.LRU));
+        suite.addTest( new CacheTestCase(CacheManager.TINYLFU));
+        suite.addTestSuite( TestLRUCache.class );
         // suite.addTest( new CacheTestCase(CacheManager.ENHNODECACHE));
         return suite;
     }   
@@ -127,4 +130,115 @@ public class TestCache extends TestCase
     }
     }
         
+
+    public static class TestLRUCache extends TestCase {
+
+        public TestLRUCache(String name) {
+            super(name);
+        }
+
+        public void testEvictsLeastRecentlyUsed() {
+            LRUCache c = (LRUCache) CacheManager.createCache(CacheManager.LRU, "lru", 3);
+            c.put("a", "A");
+            c.put("b", "B");
+            c.put("c", "C");
+            assertEquals("A", c.get("a"));
+            c.put("d", "D");
+            assertEquals(3, c.size());
+            assertNull(c.get("b"));
+            assertEquals("A", c.get("a"));
+            assertEquals("C", c.get("c"));
+            assertEquals("D", c.get("d"));
+            assertEquals(1, c.getEvictions());
+        }
+
+        public void testTinyLFUKeepsPopularEntries() {
+            LRUCache c = (LRUCache) CacheManager.createCache(CacheManager.TINYLFU, "tinylfu", 100);
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 50; i++) {
+                    if (c.get("hot" + i) == null) c.put("hot" + i, "H" + i);
+                }
+            }
+            for (int i = 0; i < 500; i++) {
+                if (c.get("cold" + i) == null) c.put("cold" + i, "C" + i);
+            }
+            for (int i = 0; i < 50; i++) {
+                assertEquals("H" + i, c.get("hot" + i));
+            }
+            assertTrue("cache too big: " + c.size(), c.size() <= 100);
+        }
+
+        public void testTinyLFUHitsOnLongCycles() {
+            Cache lru = CacheManager.createCache(CacheManager.LRU, "lru", 100);
+            Cache tiny = CacheManager.createCache(CacheManager.TINYLFU, "tinylfu", 100);
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 150; i++) {
+                    if (lru.get("K" + i) == null) lru.put("K" + i, "V" + i);
+                    if (tiny.get("K" + i) == null) tiny.put("K" + i, "V" + i);
+                }
+            }
+            assertEquals(0, lru.getHits());
+            assertTrue("too low a hit rate: " + tiny.getHits(), tiny.getHits() > tiny.getGets() / 3);
+        }
+
+        public void testBoundedWithSegments() {
+            int size = 1000;
+            LRUCache c = (LRUCache) CacheManager.createCache(CacheManager.LRU, "lru", size);
+            for (int i = 0; i < 10 * size; i++) {
+                c.put("K" + i, "V" + i);
+            }
+            assertTrue("cache too big: " + c.size(), c.size() <= size);
+            assertTrue("cache too small: " + c.size(), c.size() > size / 2);
+            assertEquals(10 * size - c.size(), c.getEvictions());
+            assertEquals("V" + (10 * size - 1), c.get("K" + (10 * size - 1)));
+        }
+
+        public void testDisabledAndCleared() {
+            Cache c = CacheManager.createCache(CacheManager.LRU, "lru", 10);
+            c.put("a", "A");
+            assertTrue(c.setEnabled(false));
+            assertNull(c.get("a"));
+            c.put("b", "B");
+            assertFalse(c.setEnabled(true));
+            assertEquals("A", c.get("a"));
+            assertNull(c.get("b"));
+            c.clear();
+            assertNull(c.get("a"));
+            assertEquals(1, c.getPuts());
+            assertEquals(3, c.getGets());
+            assertEquals(1, c.getHits());
+        }
+
+        public void testSeveralThreads() throws InterruptedException {
+            final Cache c = CacheManager.createCache(CacheManager.LRU, "lru", 500);
+            final int rounds = 20000;
+            final Throwable[] failed = new Throwable[1];
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final int offset = t;
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < rounds; i++) {
+                                Integer key = new Integer((i * 7 + offset) % 1000);
+                                Object v = c.get(key);
+                                if (v != null && !v.equals("V" + key)) throw new AssertionError("wrong value for " + key + ": " + v);
+                                if (v == null) c.put(key, "V" + key);
+                            }
+                        } catch (Throwable e) {
+                            failed[0] = e;
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull("" + failed[0], failed[0]);
+            assertEquals(threads.length * rounds, c.getGets());
+            assertEquals(threads.length * rounds, c.getHits() + c.getPuts());
+        }
+    }
 }
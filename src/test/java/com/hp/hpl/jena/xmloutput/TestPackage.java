@@ -60,6 +60,7 @@ public class TestPackage extends TestCase{
         suite.addTestSuite( TestEntityOutput.class );
         suite.addTestSuite( TestLiteralEncoding.class );
         suite.addTestSuite( TestWriterFeatures.class ) ;
+        suite.addTestSuite( TestStreamingWriter.class );
         return suite;
     }
     
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.xmloutput;
+
+import java.io.*;
+
+import com.hp.hpl.jena.rdf.model.*;
+import com.hp.hpl.jena.rdf.model.test.ModelTestBase;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.xmloutput.impl.Streaming;
+
+/**
+    Tests for the RDF/XML-STREAMING writer: it is found by name, uses only
+    the declared prefixes, and what it writes reads back through ARP.
+*/
+public class TestStreamingWriter extends ModelTestBase
+    {
+    public static final String STREAMING = "RDF/XML-STREAMING";
+
+    public TestStreamingWriter( String name )
+        { super( name ); }
+
+    public void testIsTheStreamingWriter()
+        { assertInstanceOf( Streaming.class, createMemModel().getWriter( STREAMING ) ); }
+
+    public void testDeclaredPrefixesOnly()
+        {
+        Model m = modelWithStatements( "eh:/x http://declared/p eh:/y; eh:/x http://undeclared/q 'v'" );
+        m.setNsPrefix( "dec", "http://declared/" );
+        String s = checkedModelToString( m );
+        assertMatches( "<rdf:RDF[^>]*xmlns:dec=\"http://declared/\"", s );
+        assertMismatches( "<rdf:RDF[^>]*http://undeclared/", s );
+        assertMatches( "<dec:p rdf:resource=\"eh:/y\"/>", s );
+        assertMatches( "<j.cook.up:q xmlns:j.cook.up=\"http://undeclared/\">v</j.cook.up:q>", s );
+        }
+
+    public void testDefaultNamespace()
+        {
+        Model m = modelWithStatements( "eh:/x http://declared/p eh:/y; eh:/x http://undeclared/q eh:/z" );
+        m.setNsPrefix( "", "http://declared/" );
+        String s = checkedModelToString( m );
+        assertMatches( "<p rdf:resource=\"eh:/y\"/>", s );
+        }
+
+    public void testBlankNodesAndLiterals()
+        {
+        Model m = createMemModel();
+        Resource a = m.createResource();
+        Resource b = m.createResource();
+        Property p = m.createProperty( "eh:/p" );
+        m.add( a, p, b );
+        m.add( b, p, a );
+        m.add( a, RDF.type, m.createResource( "eh:/T" ) );
+        m.add( b, p, m.createLiteral( "chat", "fr" ) );
+        m.add( b, p, m.createTypedLiteral( "12", "http://www.w3.org/2001/XMLSchema#int" ) );
+        m.add( b, p, m.createLiteral( "<b>bold</b>", true ) );
+        m.add( b, p, "less < than & more" );
+        String s = checkedModelToString( m );
+        assertMatches( "rdf:nodeID=", s );
+        }
+
+    public void testHiddenReificationStatements()
+        {
+        Model m = createMemModel();
+        Statement st = m.createStatement( resource( "eh:/x" ), property( "eh:/p" ), "v" );
+        m.add( st );
+        st.createReifiedStatement( "eh:/r" );
+        checkedModelToString( m );
+        }
+
+    public void testRoundTripFiles() throws IOException
+        {
+        for (int i = 4; i <= 9; i += 1)
+            {
+            Model m = createMemModel();
+            InputStream in = new FileInputStream( "testing/regression/testWriterAndReader/t" + i + "000.rdf" );
+            try { m.read( in, "http://foo.com/Hello" ); }
+            finally { in.close(); }
+            checkedModelToString( m, "http://foo.com/Hello" );
+            }
+        }
+
+    private String checkedModelToString( Model m )
+        { return checkedModelToString( m, null ); }
+
+    private String checkedModelToString( Model m, String base )
+        {
+        StringWriter s = new StringWriter();
+        m.getWriter( STREAMING ).write( m, s, base );
+        Model back = createMemModel();
+        back.read( new StringReader( s.toString() ), base, "RDF/XML" );
+        assertIsoModels( "model should be read back correctly", m, back );
+        return s.toString();
+        }
+
+    private void assertMatches( String pattern, String x )
+        {
+        if (!x.matches( "(?s).*(" + pattern + ").*" ) )
+                fail( "pattern {" + pattern + "} does not match string {" + x + "}" );
+        }
+
+    private void assertMismatches( String pattern, String x )
+        {
+        if (x.matches( "(?s).*(" + pattern + ").*" ) )
+                fail( "pattern {" + pattern + "} should not match string {" + x + "}" );
+        }
+    }